@@ -0,0 +1,249 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import cz.auderis.test.logging.jboss.JBossBenchmarkLoggers;
+import cz.auderis.test.logging.jul.JulBenchmarkLoggers;
+import cz.auderis.test.logging.log4j.Log4jBenchmarkLoggers;
+import cz.auderis.test.logging.log4j2.Log4j2BenchmarkLoggers;
+import cz.auderis.test.logging.slf4j.Slf4jLoggerAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the number of events per second that pass through the capturing adapters of the supported
+ * logging frameworks, for enabled and disabled levels and various numbers of logging threads. Allocation
+ * rate is reported when the benchmark is run with the GC profiler (default of the {@code jmh} Gradle task).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+@State(Scope.Benchmark)
+public class CaptureThroughputBenchmark {
+
+    private static final int STORE_CAPACITY = 1 << 20;
+
+    @Param({ "slf4j", "log4j", "jboss", "log4j2", "jul" })
+    public String framework;
+
+    @Param({ "true", "false" })
+    public boolean levelEnabled;
+
+    @Param({ "bounded", "async" })
+    public String store;
+
+    private EventEmitter emitter;
+    private LogRecordStore originalStore;
+    private LogRecordStore benchmarkStore;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        final String loggerName = CaptureThroughputBenchmark.class.getName();
+        if ("slf4j".equals(framework)) {
+            emitter = new Slf4jEmitter(new Slf4jLoggerAdapter(loggerName), levelEnabled);
+        } else if ("log4j".equals(framework)) {
+            emitter = new Log4jEmitter(Log4jBenchmarkLoggers.getLogger(loggerName), levelEnabled);
+        } else if ("jboss".equals(framework)) {
+            emitter = new JBossEmitter(JBossBenchmarkLoggers.getLogger(loggerName), levelEnabled);
+        } else if ("log4j2".equals(framework)) {
+            emitter = new Log4j2Emitter(Log4j2BenchmarkLoggers.getLogger(loggerName), levelEnabled);
+        } else if ("jul".equals(framework)) {
+            emitter = new JulEmitter(JulBenchmarkLoggers.getLogger(loggerName), levelEnabled);
+        } else {
+            throw new IllegalArgumentException("unknown framework " + framework);
+        }
+        final LogRecordStore boundedStore = BoundedLogRecordStore.dropOldest(STORE_CAPACITY);
+        if ("bounded".equals(store)) {
+            benchmarkStore = boundedStore;
+        } else if ("async".equals(store)) {
+            benchmarkStore = new AsyncLogRecordStore(boundedStore);
+        } else {
+            throw new IllegalArgumentException("unknown store " + store);
+        }
+        final LogRecordCollector collector = LogRecordCollector.RECORD_COLLECTOR;
+        originalStore = collector.getStore();
+        collector.setStore(benchmarkStore);
+        collector.setEnabledLevels(LogLevel.INFO.plusHigherLevels());
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        final LogRecordCollector collector = LogRecordCollector.RECORD_COLLECTOR;
+        collector.setStore(originalStore);
+        collector.reset();
+        if (benchmarkStore instanceof AsyncLogRecordStore) {
+            ((AsyncLogRecordStore) benchmarkStore).close();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void singleThread(ThreadArgument argument) {
+        emitter.emit(argument.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void fourThreads(ThreadArgument argument) {
+        emitter.emit(argument.next());
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void sixteenThreads(ThreadArgument argument) {
+        emitter.emit(argument.next());
+    }
+
+    /**
+     * Boxed arguments are prepared in advance, so that they are not counted in the allocation rate
+     */
+    @State(Scope.Thread)
+    public static class ThreadArgument {
+        private final Integer[] values = new Integer[1024];
+        private int index;
+
+        @Setup(Level.Trial)
+        public void prepare() {
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = Integer.valueOf(100000 + i);
+            }
+        }
+
+        Integer next() {
+            index = (index + 1) & (values.length - 1);
+            return values[index];
+        }
+    }
+
+    interface EventEmitter {
+        void emit(Integer argument);
+    }
+
+    static final class Slf4jEmitter implements EventEmitter {
+        private final org.slf4j.Logger logger;
+        private final boolean enabled;
+
+        Slf4jEmitter(org.slf4j.Logger logger, boolean enabled) {
+            this.logger = logger;
+            this.enabled = enabled;
+        }
+
+        @Override
+        public void emit(Integer argument) {
+            if (enabled) {
+                logger.info("Processed item {}", argument);
+            } else {
+                logger.debug("Processed item {}", argument);
+            }
+        }
+    }
+
+    static final class Log4jEmitter implements EventEmitter {
+        private final org.apache.log4j.Logger logger;
+        private final boolean enabled;
+
+        Log4jEmitter(org.apache.log4j.Logger logger, boolean enabled) {
+            this.logger = logger;
+            this.enabled = enabled;
+        }
+
+        @Override
+        public void emit(Integer argument) {
+            // Log4J 1.2 API has no message parameters, argument is passed as the message object
+            if (enabled) {
+                logger.info(argument);
+            } else {
+                logger.debug(argument);
+            }
+        }
+    }
+
+    static final class JBossEmitter implements EventEmitter {
+        private final org.jboss.logging.Logger logger;
+        private final boolean enabled;
+
+        JBossEmitter(org.jboss.logging.Logger logger, boolean enabled) {
+            this.logger = logger;
+            this.enabled = enabled;
+        }
+
+        @Override
+        public void emit(Integer argument) {
+            if (enabled) {
+                logger.infof("Processed item %s", argument);
+            } else {
+                logger.debugf("Processed item %s", argument);
+            }
+        }
+    }
+
+    static final class Log4j2Emitter implements EventEmitter {
+        private final org.apache.logging.log4j.Logger logger;
+        private final boolean enabled;
+
+        Log4j2Emitter(org.apache.logging.log4j.Logger logger, boolean enabled) {
+            this.logger = logger;
+            this.enabled = enabled;
+        }
+
+        @Override
+        public void emit(Integer argument) {
+            if (enabled) {
+                logger.info("Processed item {}", argument);
+            } else {
+                logger.debug("Processed item {}", argument);
+            }
+        }
+    }
+
+    static final class JulEmitter implements EventEmitter {
+        private final java.util.logging.Logger logger;
+        private final boolean enabled;
+
+        JulEmitter(java.util.logging.Logger logger, boolean enabled) {
+            this.logger = logger;
+            this.enabled = enabled;
+        }
+
+        @Override
+        public void emit(Integer argument) {
+            if (enabled) {
+                logger.log(java.util.logging.Level.INFO, "Processed item {0}", argument);
+            } else {
+                logger.log(java.util.logging.Level.FINE, "Processed item {0}", argument);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import cz.auderis.test.logging.slf4j.Slf4jLoggerAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of a log call for a disabled level in the capturing adapter with the cost
+ * of the same call on a no-op logger.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LevelCheckBenchmark {
+
+    private Logger noOpLogger;
+    private Logger capturingLogger;
+    private Integer argument;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        noOpLogger = NOPLogger.NOP_LOGGER;
+        capturingLogger = new Slf4jLoggerAdapter(LevelCheckBenchmark.class.getName());
+        argument = 42;
+        LogRecordCollector.RECORD_COLLECTOR.setEnabledLevels(LogLevel.INFO.plusHigherLevels());
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        LogRecordCollector.RECORD_COLLECTOR.reset();
+    }
+
+    @Benchmark
+    public void noOpLoggerCall() {
+        noOpLogger.debug("Value {}", argument);
+    }
+
+    @Benchmark
+    public void disabledCall() {
+        capturingLogger.debug("Value {}", argument);
+    }
+
+    @Benchmark
+    public boolean disabledLevelCheck() {
+        return capturingLogger.isDebugEnabled();
+    }
+
+    @Benchmark
+    public boolean enabledLevelCheck() {
+        return capturingLogger.isInfoEnabled();
+    }
+
+    /**
+     * Same as {@link #disabledCall()}, but with a capture scope bound to the benchmark thread
+     */
+    @State(Scope.Thread)
+    public static class ScopedState {
+        LogCaptureScope scope;
+
+        @Setup(Level.Trial)
+        public void openScope() {
+            final LogRecordCollector collector = new LogRecordCollector();
+            collector.setEnabledLevels(LogLevel.INFO.plusHigherLevels());
+            scope = LogCaptureScope.open(collector);
+        }
+
+        @TearDown(Level.Trial)
+        public void closeScope() {
+            scope.close();
+        }
+    }
+
+    @Benchmark
+    public void disabledCallInScope(ScopedState state) {
+        capturingLogger.debug("Value {}", argument);
+    }
+
+    /**
+     * Same as {@link ScopedState}, with levels defined for several logger prefixes
+     */
+    @State(Scope.Thread)
+    public static class LoggerRulesState {
+        LogCaptureScope scope;
+
+        @Setup(Level.Trial)
+        public void openScope() {
+            final LogRecordCollector collector = new LogRecordCollector();
+            collector.setEnabledLevels(LogLevel.INFO.plusHigherLevels());
+            collector.setLoggerLevels("com.acme.codec", LogLevel.TRACE.plusHigherLevels());
+            collector.setLoggerLevels("cz.auderis", LogLevel.WARNING.plusHigherLevels());
+            collector.setLoggerLevels("org.hibernate", LogLevel.ERROR.plusHigherLevels());
+            scope = LogCaptureScope.open(collector);
+        }
+
+        @TearDown(Level.Trial)
+        public void closeScope() {
+            scope.close();
+        }
+    }
+
+    @Benchmark
+    public void disabledCallWithLoggerRules(LoggerRulesState state) {
+        capturingLogger.debug("Value {}", argument);
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import org.hamcrest.Matcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Measures latency of record queries over large captures: a Hamcrest matcher evaluated on every record
+ * (which is what {@code LogBuffer.getRecords(Matcher)} does) compared with index-backed queries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+@State(Scope.Benchmark)
+public class RecordQueryBenchmark {
+
+    private static final LogLevel[] LEVEL_PATTERN = {
+            LogLevel.DEBUG, LogLevel.DEBUG, LogLevel.INFO, LogLevel.DEBUG, LogLevel.TRACE,
+            LogLevel.DEBUG, LogLevel.INFO, LogLevel.DEBUG, LogLevel.WARNING, LogLevel.DEBUG
+    };
+    private static final int LOGGER_COUNT = 50;
+    private static final int ERROR_INTERVAL = 1000;
+
+    @Param({ "10000", "1000000", "10000000" })
+    public int recordCount;
+
+    private LogRecordCollector collector;
+    private Matcher<LogRecord> errorMatcher;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        collector = new LogRecordCollector(new StripedLogRecordStore());
+        collector.setEnabledLevels(LogLevel.TRACE.plusHigherLevels());
+        final String[] loggerNames = new String[LOGGER_COUNT];
+        for (int i = 0; i < LOGGER_COUNT; ++i) {
+            loggerNames[i] = "com.acme.module" + (i % 5) + ".Component" + i;
+        }
+        for (int i = 0; i < recordCount; ++i) {
+            final LogLevel level = (0 == i % ERROR_INTERVAL) ? LogLevel.ERROR : LEVEL_PATTERN[i % LEVEL_PATTERN.length];
+            collector.add(level, loggerNames[i % LOGGER_COUNT], "Event", null);
+        }
+        errorMatcher = hasProperty("level", is(LogLevel.ERROR));
+        // Index is built once up front, subsequent queries reuse it until new records arrive
+        collector.records().count();
+    }
+
+    @Benchmark
+    public List<LogRecord> matcherQuery() {
+        return collector.records().matching(errorMatcher).list();
+    }
+
+    @Benchmark
+    public List<LogRecord> indexedLevelQuery() {
+        return collector.records().level(LogLevel.ERROR).list();
+    }
+
+    @Benchmark
+    public List<LogRecord> indexedLoggerPrefixQuery() {
+        return collector.records().loggerPrefix("com.acme.module3.").levelAtOrAbove(LogLevel.INFO).list();
+    }
+
+    @Benchmark
+    public List<LogRecord> snapshotCopy() {
+        return collector.getRecords();
+    }
+
+}
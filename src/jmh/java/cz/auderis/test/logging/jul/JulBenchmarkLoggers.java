@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging.jul;
+
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Provides {@code java.util.logging} loggers publishing into the capturing handler to benchmarks
+ * without replacing handlers of the root logger
+ */
+public final class JulBenchmarkLoggers {
+
+    private JulBenchmarkLoggers() {
+        throw new AssertionError();
+    }
+
+    public static Logger getLogger(String name) {
+        final Logger logger = Logger.getLogger(name);
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.ALL);
+        for (final Handler handler : logger.getHandlers()) {
+            logger.removeHandler(handler);
+        }
+        logger.addHandler(JulCaptureHandler.INSTANCE);
+        return logger;
+    }
+
+}
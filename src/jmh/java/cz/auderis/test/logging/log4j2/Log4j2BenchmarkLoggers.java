@@ -0,0 +1,34 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging.log4j2;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Provides capturing Log4J 2 loggers to benchmarks without replacing the logger context factory
+ */
+public final class Log4j2BenchmarkLoggers {
+
+    private Log4j2BenchmarkLoggers() {
+        throw new AssertionError();
+    }
+
+    public static Logger getLogger(String name) {
+        return new Log4j2LoggerAdapter(name, null);
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.parameter.annotation.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+/**
+ * Compares parsing of {@code @KeyValueBean} rows by the tokenizer with the former regular expression
+ * based parser
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeyValueParserBenchmark {
+
+    @Param({
+            "id=17 name=widget price=12.50 active=true",
+            "id=42 title='A rather long title with spaces' note='escaped \\'quotes\\' and \\\\ backslashes inside' owner=<null>",
+    })
+    public String row;
+
+    @Benchmark
+    public List<AbstractKeyValueConverter.KeyValue> tokenizer() {
+        return AbstractKeyValueConverter.parseKeyValues(row);
+    }
+
+    /**
+     * Former implementation of {@code parseKeyValues}
+     */
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public List<AbstractKeyValueConverter.KeyValue> regularExpression() {
+        final List<AbstractKeyValueConverter.KeyValue> recordList = new LinkedList<>();
+        final Map<String, AbstractKeyValueConverter.KeyValue> recordsByKey = new HashMap<>(16);
+        final Matcher matcher = AbstractKeyValueConverter.KEY_VALUE_PATTERN.matcher(row);
+        while (matcher.find()) {
+            final String key = matcher.group(1).intern();
+            String value = matcher.group(3);
+            if (null == value) {
+                value = matcher.group(2);
+                if ("<null>".equalsIgnoreCase(value)) {
+                    value = null;
+                }
+            } else {
+                value = unescapeValue(value);
+            }
+            AbstractKeyValueConverter.KeyValue keyValue = recordsByKey.get(key);
+            if (null == keyValue) {
+                keyValue = new AbstractKeyValueConverter.KeyValue(key);
+                recordList.add(keyValue);
+                recordsByKey.put(key, keyValue);
+            }
+            keyValue.value = value;
+        }
+        return recordList;
+    }
+
+    private static String unescapeValue(String value) {
+        final int length = value.length();
+        final StringBuilder str = new StringBuilder(length);
+        int lastIndex = 0;
+        int index;
+        while (-1 != (index = value.indexOf('\\', lastIndex))) {
+            str.append(value, lastIndex, index);
+            final int escapedCharIndex = Math.min(index + 1, length - 1);
+            str.append(value.charAt(escapedCharIndex));
+            lastIndex = escapedCharIndex + 1;
+        }
+        if (lastIndex < length) {
+            str.append(value, lastIndex, length);
+        }
+        return str.toString();
+    }
+
+}
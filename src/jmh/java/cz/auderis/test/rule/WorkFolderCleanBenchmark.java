@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code clean()} of work folders holding trees of empty files; the tree is rebuilt before
+ * every iteration, which deletes it exactly once
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+// Single-shot times vary a lot, more samples keep the confidence interval used by jmhCheck narrow
+@Measurement(iterations = 15)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkFolderCleanBenchmark {
+
+    private static final int FILES_PER_DIRECTORY = 100;
+    private static final int DIRECTORIES_PER_BRANCH = 10;
+
+    @Param({ "1000", "10000", "100000" })
+    public int fileCount;
+
+    private WorkFolder folder;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        folder = WorkFolder.basic();
+        folder.create();
+    }
+
+    @Setup(Level.Iteration)
+    public void buildTree() throws IOException {
+        final Path root = folder.getRoot().toPath();
+        for (int i = 0; i < fileCount; ++i) {
+            final int directory = i / FILES_PER_DIRECTORY;
+            final Path dir = root.resolve("branch" + (directory / DIRECTORIES_PER_BRANCH)).resolve("dir" + directory);
+            if (0 == i % FILES_PER_DIRECTORY) {
+                Files.createDirectories(dir);
+            }
+            Files.createFile(dir.resolve("file" + i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void release() {
+        folder.delete();
+    }
+
+    @Benchmark
+    public File clean() throws IOException {
+        folder.clean();
+        return folder.getRoot();
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures latency of creating a work folder file with given contents; the same file is rewritten
+ * by every invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkFolderFileBenchmark {
+
+    @Param({ "1024", "1048576" })
+    public int payloadSize;
+
+    private WorkFolder folder;
+    private String text;
+    private byte[] data;
+    private InitialContentsProvider provider;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        folder = WorkFolder.basic();
+        folder.create();
+        final char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'x');
+        text = new String(chars);
+        data = new byte[payloadSize];
+        Arrays.fill(data, (byte) 'x');
+        provider = new InitialContentsProvider() {
+            @Override
+            public InputStream getContents() {
+                return new ByteArrayInputStream(data);
+            }
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void release() {
+        folder.delete();
+    }
+
+    @Benchmark
+    public File newFileFromCharSequence() throws IOException {
+        return folder.newFile("text.txt", text);
+    }
+
+    @Benchmark
+    public File newFileFromInputStream() throws IOException {
+        return folder.newFile("stream.bin", new ByteArrayInputStream(data));
+    }
+
+    @Benchmark
+    public File newFileFromProvider() throws IOException {
+        return folder.newFile("provided.bin", provider);
+    }
+
+}
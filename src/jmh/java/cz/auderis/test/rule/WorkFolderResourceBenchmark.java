@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Measures materialization of resources into a work folder: a single file and a directory tree,
+ * both stored in the file system and in a jar file. Resources are located by URL the same way
+ * {@code newResourceCopy} does after its class path lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkFolderResourceBenchmark {
+
+    private static final int FILE_SIZE = 16 * 1024;
+
+    @Param({ "10", "100" })
+    public int fileCount;
+
+    private WorkFolder sourceFolder;
+    private WorkFolder folder;
+    private URL fileResource;
+    private URL directoryResource;
+    private URL jarFileResource;
+    private URL jarDirectoryResource;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        sourceFolder = WorkFolder.basic();
+        sourceFolder.create();
+        folder = WorkFolder.basic();
+        folder.create();
+        final byte[] data = new byte[FILE_SIZE];
+        Arrays.fill(data, (byte) 'r');
+        final File jar = new File(sourceFolder.getRoot(), "fixtures.jar");
+        try (JarOutputStream jarStream = new JarOutputStream(new FileOutputStream(jar))) {
+            jarStream.putNextEntry(new JarEntry("fixtures/"));
+            for (int i = 0; i < fileCount; ++i) {
+                final String name = "fixtures/file" + i + ".bin";
+                Files.write(sourceFolder.newFile(name, (CharSequence) null).toPath(), data);
+                jarStream.putNextEntry(new JarEntry(name));
+                jarStream.write(data);
+            }
+        }
+        fileResource = new File(sourceFolder.getRoot(), "fixtures/file0.bin").toURI().toURL();
+        directoryResource = new File(sourceFolder.getRoot(), "fixtures").toURI().toURL();
+        jarFileResource = new URL("jar:" + jar.toURI() + "!/fixtures/file0.bin");
+        jarDirectoryResource = new URL("jar:" + jar.toURI() + "!/fixtures/");
+    }
+
+    @TearDown(Level.Trial)
+    public void release() {
+        folder.delete();
+        sourceFolder.delete();
+    }
+
+    @Benchmark
+    public File copyFileResource() throws IOException {
+        return materialize(fileResource, "file.bin");
+    }
+
+    @Benchmark
+    public File copyDirectoryResource() throws IOException {
+        return materialize(directoryResource, "dir");
+    }
+
+    @Benchmark
+    public File copyJarFileResource() throws IOException {
+        return materialize(jarFileResource, "jarFile.bin");
+    }
+
+    @Benchmark
+    public File copyJarDirectoryResource() throws IOException {
+        return materialize(jarDirectoryResource, "jarDir");
+    }
+
+    private File materialize(URL resource, String targetPath) throws IOException {
+        final File target = new File(folder.getRoot(), targetPath);
+        folder.materializeResource(resource, target);
+        return target;
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures latency of creating a new chain of nested subfolders of given depth
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkSubFolderBenchmark {
+
+    @Param({ "1", "4", "16" })
+    public int depth;
+
+    private WorkFolder folder;
+    private String[] pathComponents;
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        folder = WorkFolder.basic();
+        folder.create();
+        pathComponents = new String[depth];
+        for (int i = 1; i < depth; ++i) {
+            pathComponents[i] = "level" + i;
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void cleanFolder() throws IOException {
+        folder.clean();
+    }
+
+    @TearDown(Level.Trial)
+    public void release() {
+        folder.delete();
+    }
+
+    @Benchmark
+    public WorkFolderInterface newSubfolderChain() throws IOException {
+        pathComponents[0] = "chain" + (counter++);
+        return folder.subfolder(pathComponents);
+    }
+
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Record store that decouples logging threads from the actual collection. Logging threads only publish
+ * raw events into a bounded ring of preallocated slots; a background consumer thread creates the records,
+ * renders messages whose arguments are immutable and passes the records to the target store.
+ * <p>
+ * Reading methods ({@link #getRecords()}, {@link #clear()}) first wait until all events published so far
+ * are processed, so that the caller always sees a consistent view. When the ring is full, logging threads
+ * wait for the consumer. After {@link #close()}, events are passed to the target store synchronously, including
+ * events that were being published while the store was closed.
+ */
+public class AsyncLogRecordStore implements DirectLogRecordStore, Closeable {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final int CONSUMER_SPIN_COUNT = 1000;
+    private static final int PRODUCER_SPIN_COUNT = 100;
+    private static final long PRODUCER_PARK_NANOS = 1000L;
+
+    private final LogRecordStore target;
+    private final EventSlot[] slots;
+    private final int indexMask;
+    private final AtomicLong claimSequence;
+    // Ticket of the next event to be processed by the consumer
+    private volatile long consumedSequence;
+    private volatile boolean running;
+    // Set while the consumer is parked without a timeout, publishers have to wake it up
+    private volatile boolean consumerWaiting;
+    private volatile Throwable consumerFailure;
+    private volatile Thread consumer;
+
+    public AsyncLogRecordStore(LogRecordStore target) {
+        this(target, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates the store with a ring of the given capacity, rounded up to a power of two
+     */
+    public AsyncLogRecordStore(LogRecordStore target, int capacity) {
+        if (null == target) {
+            throw new NullPointerException();
+        } else if ((capacity <= 0) || (capacity > (1 << 30))) {
+            throw new IllegalArgumentException("invalid capacity " + capacity);
+        }
+        final int ringSize = Integer.highestOneBit(capacity - 1) << 1;
+        this.target = target;
+        this.slots = new EventSlot[Math.max(ringSize, 1)];
+        for (int i = 0; i < slots.length; ++i) {
+            slots[i] = new EventSlot();
+        }
+        this.indexMask = slots.length - 1;
+        this.claimSequence = new AtomicLong();
+        this.running = true;
+    }
+
+    public LogRecordStore getTarget() {
+        return target;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    @Override
+    public void add(LogRecord record) {
+        if (null == record) {
+            throw new NullPointerException();
+        }
+        if (!running) {
+            target.add(record);
+            return;
+        }
+        final long ticket = claimSlot();
+        final EventSlot slot = slots[(int) ticket & indexMask];
+        slot.record = record;
+        commit(slot, ticket);
+    }
+
+    @Override
+    public long add(LogLevel level, String loggerName, String message, Throwable cause) {
+        if ((null == level) || (null == loggerName) || (null == message)) {
+            throw new NullPointerException();
+        }
+        return publish(level, loggerName, message, null, message, null, cause);
+    }
+
+    @Override
+    public long add(LogLevel level, String loggerName, LogRecordRenderer renderer, String messagePattern, Object[] arguments, Throwable cause) {
+        if ((null == level) || (null == loggerName) || (null == renderer) || (null == arguments)) {
+            throw new NullPointerException();
+        }
+        return publish(level, loggerName, null, renderer, messagePattern, arguments, cause);
+    }
+
+    private long publish(LogLevel level, String loggerName, String message, LogRecordRenderer renderer,
+                         String messagePattern, Object[] arguments, Throwable cause) {
+        final long timestampNanos = PooledLogRecordStore.currentTimeNanos();
+        if (!running) {
+            final LogRecord record = new LogRecord(LogRecord.nextSequenceNumber(), timestampNanos, level, loggerName,
+                    message, renderer, messagePattern, arguments, cause);
+            target.add(record);
+            return record.sequenceNumber;
+        }
+        final long ticket = claimSlot();
+        final EventSlot slot = slots[(int) ticket & indexMask];
+        // Concurrent publishers may obtain sequence numbers in an order different from their tickets
+        final long sequence = LogRecord.nextSequenceNumber();
+        slot.sequence = sequence;
+        slot.timestampNanos = timestampNanos;
+        slot.level = level;
+        slot.loggerName = loggerName;
+        slot.message = message;
+        slot.renderer = renderer;
+        slot.messagePattern = messagePattern;
+        slot.arguments = arguments;
+        slot.cause = cause;
+        commit(slot, ticket);
+        return sequence;
+    }
+
+    private void commit(EventSlot slot, long ticket) {
+        slot.published = ticket;
+        if (consumerWaiting) {
+            LockSupport.unpark(consumer);
+        }
+        if (!running) {
+            // The consumer may have finished before the event was published, the event is stored synchronously
+            awaitConsumerExit();
+            while (consumedSequence <= ticket) {
+                consumePublishedEvents(ticket + 1L);
+                Thread.yield();
+            }
+        }
+    }
+
+    private long claimSlot() {
+        ensureConsumerStarted();
+        final long ticket = claimSequence.getAndIncrement();
+        final long wrapPoint = ticket - slots.length;
+        int waitCount = 0;
+        while (consumedSequence <= wrapPoint) {
+            if (!running && !isConsumerAlive()) {
+                // Nothing frees the slot after the store is closed, pending events are stored on this thread
+                consumePublishedEvents(wrapPoint + 1L);
+            }
+            // Parking takes tens of microseconds on common platforms, while the consumer usually frees a slot sooner
+            if (++waitCount < PRODUCER_SPIN_COUNT) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+            }
+        }
+        return ticket;
+    }
+
+    private void ensureConsumerStarted() {
+        if (null != consumer) {
+            return;
+        }
+        synchronized (this) {
+            if ((null == consumer) && running) {
+                final Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        consumeEvents();
+                    }
+                }, "log-capture-consumer");
+                thread.setDaemon(true);
+                thread.start();
+                consumer = thread;
+            }
+        }
+    }
+
+    private boolean isConsumerAlive() {
+        final Thread consumerThread = consumer;
+        return (null != consumerThread) && consumerThread.isAlive();
+    }
+
+    private void awaitConsumerExit() {
+        final Thread consumerThread = consumer;
+        if ((null == consumerThread) || (consumerThread == Thread.currentThread())) {
+            return;
+        }
+        boolean interrupted = false;
+        while (consumerThread.isAlive()) {
+            try {
+                consumerThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consumeEvents() {
+        long next = consumedSequence;
+        int idleCount = 0;
+        while (running || (next < claimSequence.get())) {
+            final EventSlot slot = slots[(int) next & indexMask];
+            if (slot.published != next) {
+                if (++idleCount < CONSUMER_SPIN_COUNT) {
+                    Thread.yield();
+                } else {
+                    // Publishers check the flag after publishing, so the event is either seen here or unparks us
+                    consumerWaiting = true;
+                    if ((slot.published != next) && running) {
+                        LockSupport.park(this);
+                    }
+                    consumerWaiting = false;
+                }
+                continue;
+            }
+            idleCount = 0;
+            try {
+                target.add(slot.toRecord());
+            } catch (RuntimeException | Error e) {
+                consumerFailure = e;
+            }
+            slot.release();
+            ++next;
+            consumedSequence = next;
+        }
+    }
+
+    /**
+     * Passes events to the target store on the calling thread after the consumer has finished. Stops at the first
+     * event that is not published yet, callers repeat the call until their events are processed.
+     */
+    private synchronized void consumePublishedEvents(long endTicket) {
+        long next = consumedSequence;
+        while (next < endTicket) {
+            final EventSlot slot = slots[(int) next & indexMask];
+            if (slot.published != next) {
+                break;
+            }
+            target.add(slot.toRecord());
+            slot.release();
+            ++next;
+            consumedSequence = next;
+        }
+    }
+
+    /**
+     * Waits until all events published before the call are passed to the target store
+     */
+    public void drain() {
+        final long publishedTicket = claimSequence.get();
+        while (consumedSequence < publishedTicket) {
+            final Thread consumerThread = consumer;
+            if ((null == consumerThread) || !consumerThread.isAlive()) {
+                // Events published while the store was being closed
+                consumePublishedEvents(publishedTicket);
+            } else {
+                LockSupport.unpark(consumerThread);
+            }
+            Thread.yield();
+        }
+        final Throwable failure = consumerFailure;
+        if (null != failure) {
+            consumerFailure = null;
+            throw new IllegalStateException("Failed to store captured log record", failure);
+        }
+    }
+
+    @Override
+    public List<LogRecord> getRecords() {
+        drain();
+        final List<LogRecord> records = target.getRecords();
+        // Target stores may expect records of a single thread to arrive in sequence order
+        for (int i = 1; i < records.size(); ++i) {
+            if (records.get(i - 1).sequenceNumber > records.get(i).sequenceNumber) {
+                final List<LogRecord> sortedRecords = new ArrayList<>(records);
+                Collections.sort(sortedRecords, StripedLogRecordStore.SEQUENCE_ORDER);
+                return sortedRecords;
+            }
+        }
+        return records;
+    }
+
+    @Override
+    public void clear() {
+        drain();
+        target.clear();
+    }
+
+    /**
+     * Processes remaining events and stops the consumer thread. The target store is closed as well
+     * when it is {@link Closeable}.
+     */
+    @Override
+    public void close() throws IOException {
+        final Thread consumerThread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            consumerThread = consumer;
+        }
+        if (null != consumerThread) {
+            LockSupport.unpark(consumerThread);
+            try {
+                consumerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for log capture consumer", e);
+            }
+        }
+        if (target instanceof Closeable) {
+            ((Closeable) target).close();
+        }
+    }
+
+    private static final class EventSlot {
+        // Ticket of the event stored in the slot; written last, so that it publishes the other fields
+        volatile long published = -1L;
+        LogRecord record;
+        long sequence;
+        long timestampNanos;
+        LogLevel level;
+        String loggerName;
+        String message;
+        LogRecordRenderer renderer;
+        String messagePattern;
+        Object[] arguments;
+        Throwable cause;
+
+        LogRecord toRecord() {
+            if (null != record) {
+                return record;
+            }
+            String renderedMessage = message;
+            if ((null == renderedMessage) && LogRecord.areImmutable(arguments)) {
+                // Rendering is safe off the logging thread only when arguments cannot change meanwhile
+                renderedMessage = String.valueOf(renderer.render(messagePattern, arguments));
+            }
+            return new LogRecord(sequence, timestampNanos, level, loggerName, renderedMessage,
+                    renderer, messagePattern, arguments, cause);
+        }
+
+        void release() {
+            record = null;
+            level = null;
+            loggerName = null;
+            message = null;
+            renderer = null;
+            messagePattern = null;
+            arguments = null;
+            cause = null;
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.io.IOException;
+
+/**
+ * Compact binary layout. The output starts with a header consisting of magic bytes {@code ALOG} and
+ * a format version byte; every record is then written as:
+ * <ul>
+ *     <li>sequence number (8 bytes)</li>
+ *     <li>timestamp in milliseconds since the epoch (8 bytes)</li>
+ *     <li>level ordinal (1 byte)</li>
+ *     <li>logger name, message and stack trace of the cause; each as 4-byte length of UTF-8 data
+ *     followed by the data, absent cause has length -1</li>
+ * </ul>
+ * All numbers are stored in big-endian order.
+ */
+public class BinaryLogLayout implements LogRecordLayout {
+
+    public static final byte[] MAGIC = { 'A', 'L', 'O', 'G' };
+    public static final int FORMAT_VERSION = 1;
+
+    @Override
+    public void start(LogDumpEncoder encoder) throws IOException {
+        encoder.write(MAGIC, 0, MAGIC.length);
+        encoder.writeByte(FORMAT_VERSION);
+    }
+
+    @Override
+    public void write(LogRecord record, LogDumpEncoder encoder) throws IOException {
+        encoder.writeLong(record.sequenceNumber);
+        encoder.writeLong(record.timestamp);
+        encoder.writeByte(record.level.ordinal());
+        encoder.writeString(record.loggerName);
+        encoder.writeString(record.getMessage());
+        encoder.writeString((null != record.cause) ? LogDumpEncoder.stackTraceOf(record.cause) : null);
+    }
+
+}
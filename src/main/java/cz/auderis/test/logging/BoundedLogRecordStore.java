@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Record store with fixed capacity, intended for long running tests where an unbounded capture would
+ * exhaust the heap. When the capacity is reached, records are discarded according to the selected
+ * {@link OverflowPolicy}; the number of discarded records is available per logging level.
+ */
+public class BoundedLogRecordStore implements LogRecordStore, LimitedLogRecordStore {
+
+    public enum OverflowPolicy {
+        /**
+         * The oldest stored record is discarded to make room for a new one
+         */
+        DROP_OLDEST,
+        /**
+         * New records are discarded while the store is full
+         */
+        DROP_NEWEST,
+        /**
+         * New records below the retention level are discarded while the store is full; records at or above
+         * the retention level replace the oldest record below the retention level (or the oldest retained
+         * record when there is none)
+         */
+        RETAIN_LEVELS_AT_OR_ABOVE
+    }
+
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final int retainedLevelMask;
+    private final RecordRing retainedRecords;
+    private final RecordRing otherRecords;
+    private final long[] droppedCounts;
+
+    public static BoundedLogRecordStore dropOldest(int capacity) {
+        return new BoundedLogRecordStore(capacity, OverflowPolicy.DROP_OLDEST, null);
+    }
+
+    public static BoundedLogRecordStore dropNewest(int capacity) {
+        return new BoundedLogRecordStore(capacity, OverflowPolicy.DROP_NEWEST, null);
+    }
+
+    public static BoundedLogRecordStore retainLevelsAtOrAbove(int capacity, LogLevel retentionLevel) {
+        return new BoundedLogRecordStore(capacity, OverflowPolicy.RETAIN_LEVELS_AT_OR_ABOVE, retentionLevel);
+    }
+
+    public BoundedLogRecordStore(int capacity, OverflowPolicy policy, LogLevel retentionLevel) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("invalid capacity " + capacity);
+        } else if (null == policy) {
+            throw new NullPointerException();
+        } else if ((OverflowPolicy.RETAIN_LEVELS_AT_OR_ABOVE == policy) && (null == retentionLevel)) {
+            throw new IllegalArgumentException("retention level must be specified for policy " + policy);
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+        this.retainedRecords = new RecordRing(capacity);
+        if (OverflowPolicy.RETAIN_LEVELS_AT_OR_ABOVE == policy) {
+            this.retainedLevelMask = LogLevel.maskOf(retentionLevel.plusHigherLevels());
+            this.otherRecords = new RecordRing(capacity);
+        } else {
+            this.retainedLevelMask = LogLevel.maskOf(LogLevel.FATAL.plusLowerLevels());
+            this.otherRecords = null;
+        }
+        this.droppedCounts = new long[LogLevel.values().length];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public void add(LogRecord record) {
+        offer(record);
+    }
+
+    @Override
+    public synchronized boolean offer(LogRecord record) {
+        if (null == record) {
+            throw new NullPointerException();
+        }
+        final boolean retained = isRetained(record);
+        final int size = retainedRecords.size() + ((null != otherRecords) ? otherRecords.size() : 0);
+        if (size < capacity) {
+            (retained ? retainedRecords : otherRecords).addLast(record);
+            return true;
+        }
+        switch (policy) {
+            case DROP_NEWEST:
+                recordDropped(record);
+                return false;
+            case DROP_OLDEST:
+                recordDropped(retainedRecords.removeFirst());
+                retainedRecords.addLast(record);
+                return true;
+            case RETAIN_LEVELS_AT_OR_ABOVE:
+                if (!retained) {
+                    recordDropped(record);
+                    return false;
+                }
+                final RecordRing victimRing = otherRecords.isEmpty() ? retainedRecords : otherRecords;
+                recordDropped(victimRing.removeFirst());
+                retainedRecords.addLast(record);
+                return true;
+            default:
+                throw new AssertionError(policy);
+        }
+    }
+
+    @Override
+    public synchronized List<LogRecord> getRecords() {
+        final List<LogRecord> result = new ArrayList<LogRecord>(capacity);
+        retainedRecords.copyTo(result);
+        if (null != otherRecords) {
+            otherRecords.copyTo(result);
+        }
+        // Records created concurrently may have been stored in a slightly different order
+        Collections.sort(result, StripedLogRecordStore.SEQUENCE_ORDER);
+        return result;
+    }
+
+    @Override
+    public synchronized void clear() {
+        retainedRecords.clear();
+        if (null != otherRecords) {
+            otherRecords.clear();
+        }
+        for (int i = 0; i < droppedCounts.length; ++i) {
+            droppedCounts[i] = 0L;
+        }
+    }
+
+    public synchronized long getDroppedCount() {
+        long total = 0L;
+        for (final long count : droppedCounts) {
+            total += count;
+        }
+        return total;
+    }
+
+    public synchronized long getDroppedCount(LogLevel level) {
+        if (null == level) {
+            throw new NullPointerException();
+        }
+        return droppedCounts[level.ordinal()];
+    }
+
+    private boolean isRetained(LogRecord record) {
+        return 0 != (retainedLevelMask & record.getLevel().mask());
+    }
+
+    private void recordDropped(LogRecord record) {
+        ++droppedCounts[record.getLevel().ordinal()];
+    }
+
+    private static final class RecordRing {
+        private final LogRecord[] items;
+        private int head;
+        private int size;
+
+        RecordRing(int capacity) {
+            items = new LogRecord[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return 0 == size;
+        }
+
+        void addLast(LogRecord record) {
+            assert size < items.length;
+            items[(head + size) % items.length] = record;
+            ++size;
+        }
+
+        LogRecord removeFirst() {
+            assert size > 0;
+            final LogRecord record = items[head];
+            items[head] = null;
+            head = (head + 1) % items.length;
+            --size;
+            return record;
+        }
+
+        void copyTo(List<LogRecord> target) {
+            for (int i = 0; i < size; ++i) {
+                target.add(items[(head + i) % items.length]);
+            }
+        }
+
+        void clear() {
+            for (int i = 0; i < size; ++i) {
+                items[(head + i) % items.length] = null;
+            }
+            head = 0;
+            size = 0;
+        }
+    }
+
+}
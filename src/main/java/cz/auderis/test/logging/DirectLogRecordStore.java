@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+/**
+ * Record store that accepts log events in a decomposed form, so that {@link LogRecordCollector} does not need
+ * to create a {@link LogRecord} instance for every captured event. Records are materialized only when read.
+ */
+public interface DirectLogRecordStore extends LogRecordStore {
+
+    /**
+     * Value returned instead of a sequence number when the store discarded the event
+     */
+    long DROPPED = -1L;
+
+    /**
+     * Stores an event with an already rendered message.
+     *
+     * @return sequence number assigned to the event, or {@link #DROPPED}
+     */
+    long add(LogLevel level, String loggerName, String message, Throwable cause);
+
+    /**
+     * Stores an event whose message will be rendered when the record is read.
+     *
+     * @return sequence number assigned to the event, or {@link #DROPPED}
+     */
+    long add(LogLevel level, String loggerName, LogRecordRenderer renderer, String messagePattern, Object[] arguments, Throwable cause);
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+/**
+ * Cause of a record received from another process. Only the text of the original stack trace is known,
+ * so the original exception class cannot be instantiated; printing the stack trace prints the original text.
+ */
+public final class ForwardedThrowable extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String stackTraceText;
+
+    public ForwardedThrowable(String stackTraceText) {
+        super(firstLineOf(stackTraceText), null, false, false);
+        this.stackTraceText = stackTraceText;
+    }
+
+    private static String firstLineOf(String text) {
+        int lineEnd = text.indexOf('\n');
+        if (lineEnd < 0) {
+            return text;
+        } else if ((lineEnd > 0) && ('\r' == text.charAt(lineEnd - 1))) {
+            --lineEnd;
+        }
+        return text.substring(0, lineEnd);
+    }
+
+    public String getStackTraceText() {
+        return stackTraceText;
+    }
+
+    @Override
+    public void printStackTrace(PrintStream s) {
+        s.print(stackTraceText);
+    }
+
+    @Override
+    public void printStackTrace(PrintWriter s) {
+        s.print(stackTraceText);
+    }
+
+    @Override
+    public String toString() {
+        return getMessage();
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cz.auderis.test.logging;
+
+import java.util.List;
+
+/**
+ * Store able to supply only the records added after a known part of its contents, which lets
+ * {@link LogRecordCollector} extend its indexes without copying all stored records.
+ */
+interface IncrementalLogRecordStore {
+
+    /**
+     * Returns stored records having sequence numbers greater than {@code lastSequenceNumber}, ordered by
+     * their sequence numbers. If the number of remaining stored records differs from {@code knownCount}
+     * (e.g. because the store was cleared or a record with a lower sequence number arrived late),
+     * {@code null} is returned instead.
+     */
+    List<LogRecord> getRecordsAfter(long lastSequenceNumber, int knownCount);
+
+}
@@ -0,0 +1,514 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Record store that appends records to a memory-mapped journal file instead of keeping them on the heap,
+ * so that tests producing very large amounts of log output can still examine all of it. The file is
+ * created (or truncated) when the first record is stored; it consists of mapped segments, each record
+ * is written within a single segment as:
+ * <ul>
+ *     <li>length of the rest of the record (4 bytes); zero length marks the end of data in the segment</li>
+ *     <li>sequence number (8 bytes)</li>
+ *     <li>timestamp in nanoseconds since the epoch (8 bytes)</li>
+ *     <li>level ordinal (1 byte)</li>
+ *     <li>logger id (4 bytes); logger names are kept in memory</li>
+ *     <li>message as 4-byte length of UTF-8 data followed by the data</li>
+ *     <li>cause flag (1 byte); causes are kept in memory</li>
+ * </ul>
+ * Messages are rendered when a record is stored. Besides {@link #getRecords()}, stored records can be read
+ * sequentially using {@link #iterator()}, or by their position using {@link #get(long)}.
+ */
+public class JournalLogRecordStore implements LogRecordStore, Iterable<LogRecord>, Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int HEADER_SIZE = 4;
+    private static final int FIXED_RECORD_SIZE = 8 + 8 + 1 + 4 + 4 + 1;
+    // Every 64th record position is indexed, other records are reached by skipping from the nearest one
+    private static final int INDEX_SHIFT = 6;
+    private static final int INDEX_MASK = (1 << INDEX_SHIFT) - 1;
+
+    private final File file;
+    private final int segmentSize;
+    private final List<Segment> segments;
+    private final Map<String, Integer> loggerIds;
+    private final List<String> loggerNames;
+    private final Map<Long, Throwable> causes;
+    private RandomAccessFile journalFile;
+    private FileChannel channel;
+    private boolean closed;
+    private int writeSegment;
+    private int writePosition;
+    private long recordCount;
+    private long[] positionIndex;
+    // Incremented whenever stored records are discarded, invalidates iterators
+    private long clearCount;
+
+    public JournalLogRecordStore(File file) {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public JournalLogRecordStore(File file, int segmentSize) {
+        if (null == file) {
+            throw new NullPointerException();
+        } else if (segmentSize < 1024) {
+            throw new IllegalArgumentException("invalid segment size " + segmentSize);
+        }
+        this.file = file;
+        this.segmentSize = segmentSize;
+        this.segments = new ArrayList<>();
+        this.loggerIds = new HashMap<>();
+        this.loggerNames = new ArrayList<>();
+        this.causes = new HashMap<>();
+        this.positionIndex = new long[16];
+    }
+
+    /**
+     * Determines the journal file; called once, when the first record is stored. Subclasses may
+     * override this method to resolve the location lazily.
+     */
+    protected File resolveFile() throws IOException {
+        return file;
+    }
+
+    public synchronized long size() {
+        return recordCount;
+    }
+
+    @Override
+    public void add(LogRecord record) {
+        if (null == record) {
+            throw new NullPointerException();
+        }
+        // Message is rendered and encoded before the journal is locked
+        final byte[] messageBytes = record.getMessage().getBytes(UTF8);
+        append(record, messageBytes);
+    }
+
+    private synchronized void append(LogRecord record, byte[] messageBytes) {
+        if (closed) {
+            // Late records of a finished test
+            return;
+        }
+        final int bodySize = FIXED_RECORD_SIZE + messageBytes.length;
+        try {
+            ensureSpace(HEADER_SIZE + bodySize);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot extend log journal " + file, e);
+        }
+        if (0 == (recordCount & INDEX_MASK)) {
+            final int indexPosition = (int) (recordCount >>> INDEX_SHIFT);
+            if (indexPosition == positionIndex.length) {
+                positionIndex = Arrays.copyOf(positionIndex, indexPosition << 1);
+            }
+            positionIndex[indexPosition] = encodePosition(writeSegment, writePosition);
+        }
+        final Segment segment = segments.get(writeSegment);
+        final MappedByteBuffer buffer = segment.buffer;
+        int position = writePosition;
+        buffer.putInt(position, bodySize);
+        position += 4;
+        buffer.putLong(position, record.sequenceNumber);
+        position += 8;
+        buffer.putLong(position, record.timestampNanos);
+        position += 8;
+        buffer.put(position, (byte) record.level.ordinal());
+        position += 1;
+        buffer.putInt(position, loggerIdOf(record.loggerName));
+        position += 4;
+        buffer.putInt(position, messageBytes.length);
+        position += 4;
+        segment.view.position(position);
+        segment.view.put(messageBytes, 0, messageBytes.length);
+        position += messageBytes.length;
+        buffer.put(position, (byte) ((null != record.cause) ? 1 : 0));
+        position += 1;
+        if (null != record.cause) {
+            causes.put(record.sequenceNumber, record.cause);
+        }
+        writePosition = position;
+        if (buffer.capacity() - position >= HEADER_SIZE) {
+            buffer.putInt(position, 0);
+        }
+        ++recordCount;
+    }
+
+    /**
+     * Reads the record stored at the given position (in the order in which records were stored)
+     */
+    public synchronized LogRecord get(long index) {
+        if ((index < 0L) || (index >= recordCount)) {
+            throw new IndexOutOfBoundsException("record " + index + " of " + recordCount);
+        }
+        long position = positionIndex[(int) (index >>> INDEX_SHIFT)];
+        for (int skipped = (int) (index & INDEX_MASK); skipped > 0; --skipped) {
+            position = nextPosition(position);
+        }
+        return readRecord(position);
+    }
+
+    @Override
+    public synchronized List<LogRecord> getRecords() {
+        if (recordCount > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many records in log journal, use iterator()");
+        }
+        final List<LogRecord> result = new ArrayList<>((int) recordCount);
+        boolean ordered = true;
+        long lastSequence = -1L;
+        for (final LogRecord record : this) {
+            ordered &= (record.sequenceNumber > lastSequence);
+            lastSequence = record.sequenceNumber;
+            result.add(record);
+        }
+        if (!ordered) {
+            Collections.sort(result, StripedLogRecordStore.SEQUENCE_ORDER);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the journal sequentially and returns records accepted by the selector, ordered by their sequence
+     * numbers. Only the accepted records are kept in memory and messages are decoded only for records whose
+     * header passes the selector. The journal is locked for each record separately, so logging continues
+     * while the journal is scanned.
+     */
+    List<LogRecord> select(RecordSelector selector) {
+        return select(selector, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads at most the given number of selected records. When the limit is reached, the journal is not read
+     * any further, so the result is not necessarily the first records in sequence order.
+     */
+    List<LogRecord> select(RecordSelector selector, int limit) {
+        final JournalIterator cursor;
+        synchronized (this) {
+            cursor = new JournalIterator(clearCount, recordCount);
+        }
+        final List<LogRecord> result = new ArrayList<>();
+        boolean ordered = true;
+        long lastSequence = -1L;
+        while (cursor.hasNext() && (result.size() < limit)) {
+            final LogRecord record = cursor.nextSelected(selector);
+            if (null != record) {
+                ordered &= (record.sequenceNumber > lastSequence);
+                lastSequence = record.sequenceNumber;
+                result.add(record);
+            }
+        }
+        if (!ordered) {
+            Collections.sort(result, StripedLogRecordStore.SEQUENCE_ORDER);
+        }
+        return result;
+    }
+
+    /**
+     * Returns an iterator reading the journal sequentially, in the order in which the records were stored.
+     * The iterator fails when the store is cleared while it is used.
+     */
+    @Override
+    public synchronized Iterator<LogRecord> iterator() {
+        return new JournalIterator(clearCount, recordCount);
+    }
+
+    /**
+     * Discards all records; the journal file is kept and its space is reused
+     */
+    @Override
+    public synchronized void clear() {
+        if (!segments.isEmpty()) {
+            segments.get(0).buffer.putInt(0, 0);
+        }
+        writeSegment = 0;
+        writePosition = 0;
+        recordCount = 0L;
+        causes.clear();
+        ++clearCount;
+    }
+
+    /**
+     * Releases the journal file. Records logged afterwards are ignored.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // Mapping would otherwise keep the file open until the buffers are garbage collected,
+        // which prevents deleting it on some platforms
+        for (final Segment segment : segments) {
+            unmap(segment.buffer);
+        }
+        segments.clear();
+        causes.clear();
+        recordCount = 0L;
+        ++clearCount;
+        if (null != journalFile) {
+            journalFile.close();
+            journalFile = null;
+            channel = null;
+        }
+    }
+
+    private void ensureSpace(int recordSize) throws IOException {
+        if (null == channel) {
+            final File target = resolveFile();
+            final File parent = target.getAbsoluteFile().getParentFile();
+            if ((null != parent) && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Cannot create folder " + parent);
+            }
+            journalFile = new RandomAccessFile(target, "rw");
+            journalFile.setLength(0L);
+            channel = journalFile.getChannel();
+        }
+        if (segments.isEmpty()) {
+            mapSegment(0L, recordSize);
+            return;
+        }
+        final Segment segment = segments.get(writeSegment);
+        if (segment.buffer.capacity() - writePosition >= recordSize) {
+            return;
+        }
+        // Record does not fit, the rest of the segment is skipped
+        if (segment.buffer.capacity() - writePosition >= HEADER_SIZE) {
+            segment.buffer.putInt(writePosition, 0);
+        }
+        final int nextSegment = writeSegment + 1;
+        if ((nextSegment == segments.size()) || (segments.get(nextSegment).buffer.capacity() < recordSize)) {
+            // Segments following an undersized reused one are discarded, the journal continues in a new mapping
+            while (segments.size() > nextSegment) {
+                unmap(segments.remove(segments.size() - 1).buffer);
+            }
+            mapSegment(segment.start + segment.buffer.capacity(), recordSize);
+        }
+        writeSegment = nextSegment;
+        writePosition = 0;
+    }
+
+    private void mapSegment(long start, int minimumSize) throws IOException {
+        final int size = Math.max(segmentSize, minimumSize + HEADER_SIZE);
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+        segments.add(new Segment(start, buffer));
+    }
+
+    /**
+     * Releases the mapping immediately. There is no public API for this, so JDK internals are used when available;
+     * otherwise the mapping is released when the buffer is garbage collected.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+            invokeCleaner.invoke(unsafeField.get(null), buffer);
+            return;
+        } catch (Exception e) {
+            // Not available before Java 9
+        }
+        try {
+            final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            final Object cleaner = cleanerMethod.invoke(buffer);
+            if (null != cleaner) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            // Mapping is released by the garbage collector
+        }
+    }
+
+    private int loggerIdOf(String loggerName) {
+        final Integer id = loggerIds.get(loggerName);
+        if (null != id) {
+            return id;
+        }
+        final int newId = loggerNames.size();
+        loggerNames.add(loggerName);
+        loggerIds.put(loggerName, newId);
+        return newId;
+    }
+
+    private static long encodePosition(int segmentIndex, int offset) {
+        return ((long) segmentIndex << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Resolves segment padding, so that the returned position points to the header of a stored record
+     */
+    private long normalizePosition(long position) {
+        int segmentIndex = (int) (position >>> 32);
+        int offset = (int) position;
+        final MappedByteBuffer buffer = segments.get(segmentIndex).buffer;
+        if ((buffer.capacity() - offset < HEADER_SIZE) || (0 == buffer.getInt(offset))) {
+            ++segmentIndex;
+            offset = 0;
+        }
+        return encodePosition(segmentIndex, offset);
+    }
+
+    private long nextPosition(long position) {
+        final long recordPosition = normalizePosition(position);
+        final int offset = (int) recordPosition;
+        final int bodySize = segments.get((int) (recordPosition >>> 32)).buffer.getInt(offset);
+        return (recordPosition & 0xFFFFFFFF00000000L) | (offset + HEADER_SIZE + bodySize);
+    }
+
+    /**
+     * Reads the record stored at the given position if its fixed fields pass the selector, without decoding
+     * the message of a rejected record
+     */
+    private LogRecord readSelectedRecord(long recordPosition, RecordSelector selector) {
+        final MappedByteBuffer buffer = segments.get((int) (recordPosition >>> 32)).buffer;
+        final int offset = (int) recordPosition + HEADER_SIZE;
+        final long timestamp = buffer.getLong(offset + 8) / LogRecord.NANOS_PER_MILLI;
+        final LogLevel level = LogLevel.values()[buffer.get(offset + 16)];
+        final String loggerName = loggerNames.get(buffer.getInt(offset + 17));
+        if (!selector.acceptsHeader(level, loggerName, timestamp)) {
+            return null;
+        }
+        final LogRecord record = readRecord(recordPosition);
+        return selector.accepts(record) ? record : null;
+    }
+
+    private LogRecord readRecord(long position) {
+        final long recordPosition = normalizePosition(position);
+        final Segment segment = segments.get((int) (recordPosition >>> 32));
+        final MappedByteBuffer buffer = segment.buffer;
+        int offset = (int) recordPosition + HEADER_SIZE;
+        final long sequence = buffer.getLong(offset);
+        offset += 8;
+        final long timestampNanos = buffer.getLong(offset);
+        offset += 8;
+        final LogLevel level = LogLevel.values()[buffer.get(offset)];
+        offset += 1;
+        final String loggerName = loggerNames.get(buffer.getInt(offset));
+        offset += 4;
+        final byte[] messageBytes = new byte[buffer.getInt(offset)];
+        offset += 4;
+        segment.view.position(offset);
+        segment.view.get(messageBytes, 0, messageBytes.length);
+        offset += messageBytes.length;
+        final boolean hasCause = 0 != buffer.get(offset);
+        final Throwable cause = hasCause ? causes.get(sequence) : null;
+        final String message = new String(messageBytes, UTF8);
+        return new LogRecord(sequence, timestampNanos, level, loggerName, message, null, message, null, cause);
+    }
+
+    private static final class Segment {
+        final long start;
+        final MappedByteBuffer buffer;
+        // Used for bulk transfers, guarded by the store lock
+        final ByteBuffer view;
+
+        Segment(long start, MappedByteBuffer buffer) {
+            this.start = start;
+            this.buffer = buffer;
+            this.view = buffer.duplicate();
+        }
+    }
+
+    private final class JournalIterator implements Iterator<LogRecord> {
+        private final long expectedClearCount;
+        private final long count;
+        private long nextIndex;
+        private long position;
+
+        JournalIterator(long expectedClearCount, long count) {
+            this.expectedClearCount = expectedClearCount;
+            this.count = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < count;
+        }
+
+        @Override
+        public LogRecord next() {
+            synchronized (JournalLogRecordStore.this) {
+                if (expectedClearCount != clearCount) {
+                    throw new ConcurrentModificationException();
+                } else if (nextIndex >= count) {
+                    throw new NoSuchElementException();
+                }
+                final long recordPosition = normalizePosition(position);
+                final LogRecord record = readRecord(recordPosition);
+                position = nextPosition(recordPosition);
+                ++nextIndex;
+                return record;
+            }
+        }
+
+        /**
+         * Advances to the next record, returning it only when accepted by the selector
+         */
+        LogRecord nextSelected(RecordSelector selector) {
+            synchronized (JournalLogRecordStore.this) {
+                if (expectedClearCount != clearCount) {
+                    throw new ConcurrentModificationException();
+                } else if (nextIndex >= count) {
+                    throw new NoSuchElementException();
+                }
+                final long recordPosition = normalizePosition(position);
+                final LogRecord record = readSelectedRecord(recordPosition, selector);
+                position = nextPosition(recordPosition);
+                ++nextIndex;
+                return record;
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Record filter evaluated while the journal is decoded. The header test is applied to the fixed fields first,
+     * the complete record is decoded and tested only when the header test passes.
+     */
+    interface RecordSelector {
+        boolean acceptsHeader(LogLevel level, String loggerName, long timestampMillis);
+
+        boolean accepts(LogRecord record);
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.io.IOException;
+
+/**
+ * Writes every record as a single-line JSON object, e.g.
+ * <pre>
+ * {"sequence":15,"timestamp":1493712000123,"level":"INFO","logger":"a.b.C","message":"Text","cause":null}
+ * </pre>
+ * Timestamp is expressed in milliseconds since the epoch, cause is rendered as a stack trace.
+ */
+public class JsonLinesLogLayout implements LogRecordLayout {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    @Override
+    public void start(LogDumpEncoder encoder) {
+        // No header
+    }
+
+    @Override
+    public void write(LogRecord record, LogDumpEncoder encoder) throws IOException {
+        encoder.append("{\"sequence\":").appendDecimal(record.sequenceNumber);
+        encoder.append(",\"timestamp\":").appendDecimal(record.timestamp);
+        encoder.append(",\"level\":\"").append(record.level.name());
+        encoder.append("\",\"logger\":");
+        appendJsonString(record.loggerName, encoder);
+        encoder.append(",\"message\":");
+        appendJsonString(record.getMessage(), encoder);
+        encoder.append(",\"cause\":");
+        if (null != record.cause) {
+            appendJsonString(LogDumpEncoder.stackTraceOf(record.cause), encoder);
+        } else {
+            encoder.append("null");
+        }
+        encoder.append("}\n");
+    }
+
+    static void appendJsonString(String text, LogDumpEncoder encoder) throws IOException {
+        encoder.append('"');
+        final int length = text.length();
+        int plainStart = 0;
+        for (int i = 0; i < length; ++i) {
+            final char c = text.charAt(i);
+            if ((c >= 0x20) && ('"' != c) && ('\\' != c)) {
+                continue;
+            }
+            encoder.append(text, plainStart, i);
+            plainStart = i + 1;
+            switch (c) {
+                case '"':
+                    encoder.append("\\\"");
+                    break;
+                case '\\':
+                    encoder.append("\\\\");
+                    break;
+                case '\n':
+                    encoder.append("\\n");
+                    break;
+                case '\r':
+                    encoder.append("\\r");
+                    break;
+                case '\t':
+                    encoder.append("\\t");
+                    break;
+                default:
+                    encoder.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+                    break;
+            }
+        }
+        encoder.append(text, plainStart, length);
+        encoder.append('"');
+    }
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+/**
+ * Store that may discard records when its capacity is exhausted. It tells {@link LogRecordCollector} whether
+ * an added record was kept, so that discarded records are not counted as accepted.
+ */
+interface LimitedLogRecordStore {
+
+    /**
+     * Adds the record like {@link LogRecordStore#add(LogRecord)} does.
+     *
+     * @return {@code false} if the record itself was discarded
+     */
+    boolean offer(LogRecord record);
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Store forwarding records to a {@link LogCaptureServer} of another process, typically the test that started
+ * the current process. Records are written using {@link BinaryLogLayout} and are not kept locally. When the
+ * connection fails, further records are discarded, so that logging never fails because of the capture.
+ * <p>
+ * Records are buffered and sent when the buffer fills up, shortly after the first buffered record
+ * and when the forwarder is closed. Forwarders installed by {@link #installFromSystemProperty()} are closed
+ * by a shutdown hook, other forwarders need to be closed explicitly.
+ */
+public class LogCaptureForwarder implements LogRecordStore, Closeable {
+
+    /**
+     * System property holding address of the server, as returned by {@link LogCaptureServer#getAddress()}
+     */
+    public static final String ADDRESS_PROPERTY = "cz.auderis.test.logging.forwardTo";
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    // Buffered records are sent when they exceed this size or when the delay elapses
+    private static final int FLUSH_THRESHOLD = 16 * 1024;
+    private static final long FLUSH_DELAY_MILLIS = 20L;
+
+    private final Socket socket;
+    private final LogDumpEncoder encoder;
+    private final LogRecordLayout layout;
+    private boolean broken;
+    private boolean flushPending;
+
+    /**
+     * Connects to the server; when the constructor returns, the server is aware of the connection
+     */
+    public LogCaptureForwarder(String address) throws IOException {
+        if (null == address) {
+            throw new NullPointerException();
+        }
+        final int separatorPos = address.lastIndexOf(':');
+        if (separatorPos <= 0) {
+            throw new IllegalArgumentException("invalid capture server address: " + address);
+        }
+        final int port;
+        try {
+            port = Integer.parseInt(address.substring(separatorPos + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid capture server address: " + address);
+        }
+        this.socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(address.substring(0, separatorPos), port), CONNECT_TIMEOUT_MILLIS);
+        this.encoder = new LogDumpEncoder(socket.getOutputStream(), FLUSH_THRESHOLD);
+        this.layout = new BinaryLogLayout();
+        layout.start(encoder);
+        encoder.flush();
+        socket.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+        if (LogCaptureServer.ACKNOWLEDGEMENT != socket.getInputStream().read()) {
+            socket.close();
+            throw new IOException("capture server did not acknowledge connection");
+        }
+        socket.setSoTimeout(0);
+        final Thread flusherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flushPeriodically();
+            }
+        }, "log-capture-forwarder");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+    }
+
+    /**
+     * If the {@link #ADDRESS_PROPERTY} system property is defined, forwards all records of the global collector
+     * to the server with that address and enables all levels; the server decides which levels are captured.
+     * Logging frameworks still need to be intercepted, e.g. by {@code LogFramework} or the framework initializers.
+     *
+     * @return the installed forwarder or {@code null} if the property is not defined
+     */
+    public static LogCaptureForwarder installFromSystemProperty() throws IOException {
+        final String address = System.getProperty(ADDRESS_PROPERTY);
+        if ((null == address) || address.isEmpty()) {
+            return null;
+        }
+        final LogCaptureForwarder forwarder = new LogCaptureForwarder(address);
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    forwarder.close();
+                } catch (IOException e) {
+                    // Nothing to be done when the process is exiting
+                }
+            }
+        }, "log-capture-forwarder-shutdown"));
+        final LogRecordCollector collector = LogRecordCollector.RECORD_COLLECTOR;
+        collector.setStore(forwarder);
+        collector.setEnabledLevels(EnumSet.allOf(LogLevel.class));
+        return forwarder;
+    }
+
+    @Override
+    public synchronized void add(LogRecord record) {
+        if (broken) {
+            return;
+        }
+        try {
+            layout.write(record, encoder);
+        } catch (IOException e) {
+            broken = true;
+            closeSocket();
+            return;
+        }
+        if (!flushPending) {
+            flushPending = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Returns an empty list, records are not kept locally
+     */
+    @Override
+    public List<LogRecord> getRecords() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void clear() {
+        // No operation, records are not kept locally
+    }
+
+    public synchronized boolean isConnected() {
+        return !broken;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (broken) {
+            return;
+        }
+        broken = true;
+        notifyAll();
+        try {
+            encoder.flush();
+        } finally {
+            socket.close();
+        }
+    }
+
+    private void flushPeriodically() {
+        try {
+            while (true) {
+                synchronized (this) {
+                    while (!broken && !flushPending) {
+                        wait();
+                    }
+                    if (broken) {
+                        return;
+                    }
+                }
+                // Records logged meanwhile are sent together
+                Thread.sleep(FLUSH_DELAY_MILLIS);
+                synchronized (this) {
+                    if (broken) {
+                        return;
+                    }
+                    flushPending = false;
+                    try {
+                        encoder.flush();
+                    } catch (IOException e) {
+                        broken = true;
+                        closeSocket();
+                        return;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Records are still sent when the buffer fills up or on close
+        }
+    }
+
+    private void closeSocket() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Connection is abandoned anyway
+        }
+    }
+
+}
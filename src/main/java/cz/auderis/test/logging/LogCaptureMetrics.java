@@ -0,0 +1,291 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counters of captured events per logger and level, used to find components that flood
+ * the collectors. Metrics are attached to collectors using {@link LogRecordCollector#setMetrics(LogCaptureMetrics)};
+ * a single instance can be shared by collectors of many tests, e.g. the {@link #shared()} instance which
+ * is also registered as a platform MBean.
+ */
+public class LogCaptureMetrics implements LogCaptureMetricsMXBean {
+
+    public static final String MBEAN_NAME_PREFIX = "cz.auderis.test:type=LogCaptureMetrics,name=";
+
+    // Rough shallow sizes for 64-bit JVMs with compressed references
+    private static final int RECORD_OVERHEAD = 80;
+    private static final int STRING_OVERHEAD = 40;
+    private static final int ARRAY_OVERHEAD = 16;
+    private static final int REFERENCE_SIZE = 4;
+    private static final int ARGUMENT_OVERHEAD = 16;
+
+    private static final Comparator<LoggerStatistics> LARGEST_FIRST = new Comparator<LoggerStatistics>() {
+        @Override
+        public int compare(LoggerStatistics s1, LoggerStatistics s2) {
+            final long b1 = s1.getCapturedBytes();
+            final long b2 = s2.getCapturedBytes();
+            if (b1 != b2) {
+                return (b1 > b2) ? -1 : 1;
+            }
+            return s1.getLoggerName().compareTo(s2.getLoggerName());
+        }
+    };
+
+    private final ConcurrentMap<String, LoggerCounters> counters;
+    private volatile long startNanos;
+
+    public LogCaptureMetrics() {
+        counters = new ConcurrentHashMap<>();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the process-wide instance; on first access, it is registered as platform MBean
+     * named {@code cz.auderis.test:type=LogCaptureMetrics,name=shared}
+     */
+    public static LogCaptureMetrics shared() {
+        return SharedInstance.INSTANCE;
+    }
+
+    /**
+     * Registers the metrics as an MBean in the platform MBean server
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        final ObjectName objectName = new ObjectName(MBEAN_NAME_PREFIX + ObjectName.quote(name));
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (!server.isRegistered(objectName)) {
+            server.registerMBean(this, objectName);
+        }
+        return objectName;
+    }
+
+    void eventRejected(String loggerName, LogLevel level) {
+        countersOf(loggerName).offered.incrementAndGet(level.ordinal());
+    }
+
+    void eventAccepted(String loggerName, LogLevel level, long estimatedBytes) {
+        final LoggerCounters loggerCounters = countersOf(loggerName);
+        loggerCounters.offered.incrementAndGet(level.ordinal());
+        loggerCounters.accepted.incrementAndGet(level.ordinal());
+        loggerCounters.capturedBytes.addAndGet(estimatedBytes);
+    }
+
+    void eventDropped(String loggerName, LogLevel level) {
+        final LoggerCounters loggerCounters = countersOf(loggerName);
+        loggerCounters.offered.incrementAndGet(level.ordinal());
+        loggerCounters.dropped.incrementAndGet(level.ordinal());
+    }
+
+    static long estimateSize(String message) {
+        return RECORD_OVERHEAD + STRING_OVERHEAD + 2L * message.length();
+    }
+
+    /**
+     * Estimates size of a lazily rendered record; the pattern is usually a shared literal and is not counted
+     */
+    static long estimateSize(Object[] arguments) {
+        return RECORD_OVERHEAD + ARRAY_OVERHEAD + (long) (REFERENCE_SIZE + ARGUMENT_OVERHEAD) * arguments.length;
+    }
+
+    private LoggerCounters countersOf(String loggerName) {
+        LoggerCounters loggerCounters = counters.get(loggerName);
+        if (null == loggerCounters) {
+            final LoggerCounters newCounters = new LoggerCounters();
+            loggerCounters = counters.putIfAbsent(loggerName, newCounters);
+            if (null == loggerCounters) {
+                loggerCounters = newCounters;
+            }
+        }
+        return loggerCounters;
+    }
+
+    public LoggerStatistics getStatistics(String loggerName) {
+        final LoggerCounters loggerCounters = counters.get(loggerName);
+        if (null == loggerCounters) {
+            final int levelCount = LogLevel.values().length;
+            return new LoggerStatistics(loggerName, new long[levelCount], new long[levelCount], new long[levelCount], 0L,
+                    System.nanoTime() - startNanos);
+        }
+        return loggerCounters.snapshot(loggerName, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns statistics of all loggers, ordered by estimated captured size (largest first)
+     */
+    public List<LoggerStatistics> getAllStatistics() {
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        final List<LoggerStatistics> result = new ArrayList<>(counters.size());
+        for (final Map.Entry<String, LoggerCounters> entry : counters.entrySet()) {
+            result.add(entry.getValue().snapshot(entry.getKey(), elapsedNanos));
+        }
+        Collections.sort(result, LARGEST_FIRST);
+        return result;
+    }
+
+    @Override
+    public LoggerStatistics[] getLoggerStatistics() {
+        final List<LoggerStatistics> statistics = getAllStatistics();
+        return statistics.toArray(new LoggerStatistics[statistics.size()]);
+    }
+
+    @Override
+    public long getOfferedCount() {
+        long total = 0L;
+        for (final LoggerCounters loggerCounters : counters.values()) {
+            total += LoggerCounters.sum(loggerCounters.offered);
+        }
+        return total;
+    }
+
+    @Override
+    public long getAcceptedCount() {
+        long total = 0L;
+        for (final LoggerCounters loggerCounters : counters.values()) {
+            total += LoggerCounters.sum(loggerCounters.accepted);
+        }
+        return total;
+    }
+
+    @Override
+    public long getDroppedCount() {
+        long total = 0L;
+        for (final LoggerCounters loggerCounters : counters.values()) {
+            total += LoggerCounters.sum(loggerCounters.dropped);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the estimated size of all accepted events. The figure is cumulative, it is not reduced when
+     * records are evicted from a store of limited capacity or when the store is cleared.
+     */
+    @Override
+    public long getCapturedBytes() {
+        long total = 0L;
+        for (final LoggerCounters loggerCounters : counters.values()) {
+            total += loggerCounters.capturedBytes.get();
+        }
+        return total;
+    }
+
+    @Override
+    public int getLoggerCount() {
+        return counters.size();
+    }
+
+    @Override
+    public void reset() {
+        counters.clear();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Prints totals and a table of loggers with the largest estimated captured size
+     */
+    public void printSummary(PrintStream out, int maxLoggers) {
+        final List<LoggerStatistics> statistics = getAllStatistics();
+        long offered = 0L;
+        long accepted = 0L;
+        long dropped = 0L;
+        long bytes = 0L;
+        for (final LoggerStatistics loggerStatistics : statistics) {
+            offered += loggerStatistics.getOfferedCount();
+            accepted += loggerStatistics.getAcceptedCount();
+            dropped += loggerStatistics.getDroppedCount();
+            bytes += loggerStatistics.getCapturedBytes();
+        }
+        out.println(String.format(Locale.ROOT, "Log capture: %d loggers, %d events offered, %d accepted, %d dropped, ~%d KiB captured",
+                statistics.size(), offered, accepted, dropped, bytes / 1024L));
+        if (statistics.isEmpty()) {
+            return;
+        }
+        out.println(String.format(Locale.ROOT, "%12s %12s %12s %10s  %s", "KiB", "accepted", "offered", "events/s", "logger"));
+        final int count = Math.min(maxLoggers, statistics.size());
+        for (int i = 0; i < count; ++i) {
+            final LoggerStatistics loggerStatistics = statistics.get(i);
+            out.println(String.format(Locale.ROOT, "%12d %12d %12d %10.0f  %s",
+                    loggerStatistics.getCapturedBytes() / 1024L,
+                    loggerStatistics.getAcceptedCount(),
+                    loggerStatistics.getOfferedCount(),
+                    loggerStatistics.getAcceptedPerSecond(),
+                    loggerStatistics.getLoggerName()));
+        }
+        if (count < statistics.size()) {
+            out.println("  ... " + (statistics.size() - count) + " more loggers");
+        }
+    }
+
+    private static final class LoggerCounters {
+        final AtomicLongArray offered = new AtomicLongArray(LogLevel.values().length);
+        final AtomicLongArray accepted = new AtomicLongArray(LogLevel.values().length);
+        // Events that passed the level check but were discarded by a store of limited capacity
+        final AtomicLongArray dropped = new AtomicLongArray(LogLevel.values().length);
+        final AtomicLong capturedBytes = new AtomicLong();
+
+        LoggerStatistics snapshot(String loggerName, long elapsedNanos) {
+            return new LoggerStatistics(loggerName, toArray(offered), toArray(accepted), toArray(dropped),
+                    capturedBytes.get(), elapsedNanos);
+        }
+
+        static long[] toArray(AtomicLongArray counts) {
+            final long[] result = new long[counts.length()];
+            for (int i = 0; i < result.length; ++i) {
+                result[i] = counts.get(i);
+            }
+            return result;
+        }
+
+        static long sum(AtomicLongArray counts) {
+            long total = 0L;
+            for (int i = 0; i < counts.length(); ++i) {
+                total += counts.get(i);
+            }
+            return total;
+        }
+    }
+
+    private static final class SharedInstance {
+        static final LogCaptureMetrics INSTANCE = createSharedInstance();
+
+        private static LogCaptureMetrics createSharedInstance() {
+            final LogCaptureMetrics metrics = new LogCaptureMetrics();
+            try {
+                metrics.registerMBean("shared");
+            } catch (JMException | SecurityException e) {
+                // Metrics remain usable without JMX
+            }
+            return metrics;
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Binds a {@link LogRecordCollector} to the thread that opened the scope. The binding is inherited
+ * by threads started from that thread (including threads of executors created there), so that records
+ * logged on behalf of a test end up in the test's own collector even when tests run in parallel.
+ * Tasks submitted to threads that already existed before the scope was opened can be bound
+ * explicitly using {@link #wrap(Runnable)} or {@link #wrap(Callable)}.
+ * <p>
+ * Records logged by threads without an active scope are sent to {@link LogRecordCollector#RECORD_COLLECTOR}.
+ */
+public final class LogCaptureScope implements AutoCloseable {
+
+    private static final InheritableThreadLocal<LogCaptureScope> CURRENT_SCOPE = new InheritableThreadLocal<LogCaptureScope>();
+    // Allows to skip the thread-local lookup while no scope is open
+    private static final AtomicInteger OPEN_SCOPE_COUNT = new AtomicInteger();
+    private static final Set<LogCaptureScope> OPEN_SCOPES = Collections.newSetFromMap(new ConcurrentHashMap<LogCaptureScope, Boolean>());
+
+    private final LogCaptureScope previousScope;
+    private final AtomicBoolean open;
+    private volatile LogRecordCollector collector;
+
+    public static LogCaptureScope open(LogRecordCollector collector) {
+        if (null == collector) {
+            throw new NullPointerException();
+        }
+        final LogCaptureScope scope = new LogCaptureScope(collector, CURRENT_SCOPE.get());
+        OPEN_SCOPE_COUNT.incrementAndGet();
+        OPEN_SCOPES.add(scope);
+        CURRENT_SCOPE.set(scope);
+        LogRecordCollector.fireLevelsChanged();
+        return scope;
+    }
+
+    public static LogCaptureScope current() {
+        final LogCaptureScope scope = CURRENT_SCOPE.get();
+        return ((null != scope) && scope.isActive()) ? scope : null;
+    }
+
+    static LogRecordCollector currentCollector() {
+        if (0 == OPEN_SCOPE_COUNT.get()) {
+            return LogRecordCollector.RECORD_COLLECTOR;
+        }
+        final LogCaptureScope scope = CURRENT_SCOPE.get();
+        if (null != scope) {
+            final LogRecordCollector scopeCollector = scope.collector;
+            if (null != scopeCollector) {
+                return scopeCollector;
+            }
+        }
+        return LogRecordCollector.RECORD_COLLECTOR;
+    }
+
+    /**
+     * Returns mask of levels enabled for at least one logger by collectors of the open scopes
+     */
+    static int getOpenScopeLevelMask() {
+        int mask = 0;
+        for (final LogCaptureScope scope : OPEN_SCOPES) {
+            final LogRecordCollector scopeCollector = scope.collector;
+            if (null != scopeCollector) {
+                mask |= scopeCollector.getLevelSnapshot().getAnyLoggerMask();
+            }
+        }
+        return mask;
+    }
+
+    private LogCaptureScope(LogRecordCollector collector, LogCaptureScope previousScope) {
+        this.collector = collector;
+        this.previousScope = previousScope;
+        this.open = new AtomicBoolean(true);
+    }
+
+    public LogRecordCollector getCollector() {
+        return collector;
+    }
+
+    public boolean isActive() {
+        return null != collector;
+    }
+
+    public Runnable wrap(final Runnable task) {
+        if (null == task) {
+            throw new NullPointerException();
+        }
+        return new Runnable() {
+            @Override
+            public void run() {
+                final LogCaptureScope callerScope = CURRENT_SCOPE.get();
+                CURRENT_SCOPE.set(LogCaptureScope.this);
+                try {
+                    task.run();
+                } finally {
+                    CURRENT_SCOPE.set(callerScope);
+                }
+            }
+        };
+    }
+
+    public <V> Callable<V> wrap(final Callable<V> task) {
+        if (null == task) {
+            throw new NullPointerException();
+        }
+        return new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                final LogCaptureScope callerScope = CURRENT_SCOPE.get();
+                CURRENT_SCOPE.set(LogCaptureScope.this);
+                try {
+                    return task.call();
+                } finally {
+                    CURRENT_SCOPE.set(callerScope);
+                }
+            }
+        };
+    }
+
+    /**
+     * Deactivates the scope. Threads that inherited the scope send their records to the global
+     * collector from now on, the collector itself is released.
+     */
+    @Override
+    public void close() {
+        if (open.compareAndSet(true, false)) {
+            collector = null;
+            OPEN_SCOPE_COUNT.decrementAndGet();
+            OPEN_SCOPES.remove(this);
+            LogRecordCollector.fireLevelsChanged();
+        }
+        if (this == CURRENT_SCOPE.get()) {
+            CURRENT_SCOPE.set(previousScope);
+        }
+    }
+
+}
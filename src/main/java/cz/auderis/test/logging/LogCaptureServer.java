@@ -0,0 +1,229 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receives records forwarded by {@link LogCaptureForwarder} from other processes over a loopback socket and adds
+ * them to a collector, where they are merged with local records by their original timestamps (with millisecond
+ * precision), so that records delayed by the forwarder are not ordered after later local records. Levels enabled
+ * in the collector apply to the received records as well. Causes are represented by {@link ForwardedThrowable}.
+ * <p>
+ * Each connection starts with the header of {@link BinaryLogLayout}, which the server acknowledges by a single byte.
+ */
+public class LogCaptureServer implements Closeable {
+
+    static final int ACKNOWLEDGEMENT = 0x06;
+    private static final int MAX_STRING_LENGTH = 64 * 1024 * 1024;
+    private static final AtomicInteger NEXT_CONNECTION_ID = new AtomicInteger();
+
+    private final LogRecordCollector target;
+    private final ServerSocket serverSocket;
+    private final Thread acceptorThread;
+    private final Set<Socket> connections;
+    private final AtomicLong receivedCount;
+    private boolean closed;
+
+    private LogCaptureServer(LogRecordCollector target) throws IOException {
+        this.target = target;
+        this.serverSocket = new ServerSocket(0, 16, InetAddress.getLoopbackAddress());
+        this.connections = new HashSet<Socket>();
+        this.receivedCount = new AtomicLong();
+        this.acceptorThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, "log-capture-server");
+        acceptorThread.setDaemon(true);
+    }
+
+    /**
+     * Starts a server listening on an ephemeral port of the loopback interface
+     */
+    public static LogCaptureServer start(LogRecordCollector target) throws IOException {
+        if (null == target) {
+            throw new NullPointerException();
+        }
+        final LogCaptureServer server = new LogCaptureServer(target);
+        server.acceptorThread.start();
+        return server;
+    }
+
+    /**
+     * Returns address to be passed to {@link LogCaptureForwarder}, in the form {@code host:port}
+     */
+    public String getAddress() {
+        return serverSocket.getInetAddress().getHostAddress() + ':' + serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns JVM argument that makes {@link LogCaptureForwarder#installFromSystemProperty()}
+     * of a child process forward records to this server
+     */
+    public String getJvmArgument() {
+        return "-D" + LogCaptureForwarder.ADDRESS_PROPERTY + '=' + getAddress();
+    }
+
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * Waits until all connected processes close their connections, e.g. after the processes terminate
+     *
+     * @return {@code false} if the timeout elapsed before that
+     */
+    public boolean awaitDisconnection(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (connections) {
+            while (!connections.isEmpty()) {
+                final long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0L) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(connections, remainingNanos);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        final Socket[] openConnections;
+        synchronized (connections) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            openConnections = connections.toArray(new Socket[connections.size()]);
+        }
+        try {
+            serverSocket.close();
+        } finally {
+            for (final Socket connection : openConnections) {
+                connection.close();
+            }
+        }
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            final Socket connection;
+            try {
+                connection = serverSocket.accept();
+            } catch (IOException e) {
+                // Server socket was closed
+                return;
+            }
+            synchronized (connections) {
+                if (closed) {
+                    closeQuietly(connection);
+                    return;
+                }
+                connections.add(connection);
+            }
+            final Thread receiverThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        receiveRecords(connection);
+                    } finally {
+                        closeQuietly(connection);
+                        synchronized (connections) {
+                            connections.remove(connection);
+                            connections.notifyAll();
+                        }
+                    }
+                }
+            }, "log-capture-receiver-" + NEXT_CONNECTION_ID.incrementAndGet());
+            receiverThread.setDaemon(true);
+            receiverThread.start();
+        }
+    }
+
+    private void receiveRecords(Socket connection) {
+        try {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream(), 64 * 1024));
+            final byte[] magic = new byte[BinaryLogLayout.MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(BinaryLogLayout.MAGIC, magic) || (BinaryLogLayout.FORMAT_VERSION != in.readUnsignedByte())) {
+                return;
+            }
+            // Forwarder waits for the acknowledgement, so the connection is known before any record is sent
+            connection.getOutputStream().write(ACKNOWLEDGEMENT);
+            connection.getOutputStream().flush();
+            final LogLevel[] levels = LogLevel.values();
+            while (true) {
+                in.readLong(); // Sequence numbers of the remote process are not comparable with local ones
+                final long timestamp = in.readLong();
+                final int levelOrdinal = in.readUnsignedByte();
+                final String loggerName = readString(in);
+                final String message = readString(in);
+                final String stackTrace = readString(in);
+                if (levelOrdinal >= levels.length) {
+                    return;
+                }
+                final Throwable cause = (null != stackTrace) ? new ForwardedThrowable(stackTrace) : null;
+                final LogRecord record = new LogRecord(LogRecord.sequenceNumberAt(timestamp), timestamp * LogRecord.NANOS_PER_MILLI,
+                        levels[levelOrdinal], loggerName, message, null, null, null, cause);
+                receivedCount.incrementAndGet();
+                target.add(record);
+            }
+        } catch (EOFException e) {
+            // Remote process closed the connection
+        } catch (IOException e) {
+            // Connection failed or was closed by the server, records received so far are kept
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        } else if (length > MAX_STRING_LENGTH) {
+            throw new IOException("invalid string length " + length);
+        }
+        final byte[] data = new byte[length];
+        in.readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    private static void closeQuietly(Socket connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // Nothing to do
+        }
+    }
+
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Calendar;
+
+/**
+ * Buffered encoder used by {@link LogRecordLayout} implementations. Text is encoded directly into
+ * an internal UTF-8 byte buffer, binary values are written in big-endian order. The encoder is not
+ * thread-safe.
+ */
+public final class LogDumpEncoder implements Flushable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_UTF8_CHAR_BYTES = 4;
+    private static final char[] DIGITS = "0123456789".toCharArray();
+
+    // Buffers of finished dumps are reused by subsequent dumps of the same thread
+    private static final ThreadLocal<byte[]> RECYCLED_BUFFER = new ThreadLocal<byte[]>();
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private final char[] digitBuffer;
+    private int position;
+    private PrintWriter stackTraceWriter;
+    private Calendar calendar;
+    private long cachedSecond;
+    private String cachedSecondText;
+
+    public LogDumpEncoder(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public LogDumpEncoder(OutputStream out, int bufferSize) {
+        this(out, allocateBuffer(bufferSize));
+    }
+
+    private LogDumpEncoder(OutputStream out, byte[] buffer) {
+        if (null == out) {
+            throw new NullPointerException();
+        }
+        this.out = out;
+        this.buffer = buffer;
+        this.digitBuffer = new char[20];
+        this.cachedSecond = Long.MIN_VALUE;
+    }
+
+    /**
+     * Creates an encoder that borrows a recycled buffer of the default size; the buffer is handed back
+     * by {@link #release()}.
+     */
+    static LogDumpEncoder recycling(OutputStream out) {
+        byte[] buffer = RECYCLED_BUFFER.get();
+        if (null == buffer) {
+            buffer = new byte[DEFAULT_BUFFER_SIZE];
+        } else {
+            RECYCLED_BUFFER.remove();
+        }
+        return new LogDumpEncoder(out, buffer);
+    }
+
+    /**
+     * Makes the buffer available to the next encoder created by {@link #recycling(OutputStream)}
+     * in the current thread. The encoder must not be used afterwards.
+     */
+    void release() {
+        position = 0;
+        if (DEFAULT_BUFFER_SIZE == buffer.length) {
+            RECYCLED_BUFFER.set(buffer);
+        }
+    }
+
+    private static byte[] allocateBuffer(int bufferSize) {
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException("buffer size too small: " + bufferSize);
+        }
+        return new byte[bufferSize];
+    }
+
+    public LogDumpEncoder append(char c) throws IOException {
+        ensureSpace(MAX_UTF8_CHAR_BYTES);
+        if (Character.isSurrogate(c)) {
+            // Unpaired surrogate cannot be encoded
+            buffer[position++] = '?';
+        } else {
+            encodeCodePoint(c);
+        }
+        return this;
+    }
+
+    public LogDumpEncoder append(CharSequence text) throws IOException {
+        final CharSequence source = (null != text) ? text : "null";
+        return append(source, 0, source.length());
+    }
+
+    public LogDumpEncoder append(CharSequence text, int start, int end) throws IOException {
+        int i = start;
+        while (i < end) {
+            ensureSpace(MAX_UTF8_CHAR_BYTES);
+            // Encode as many characters as fit into the buffer without further checks
+            final int safeEnd = Math.min(end, i + (buffer.length - position) / MAX_UTF8_CHAR_BYTES);
+            while (i < safeEnd) {
+                final char c = text.charAt(i++);
+                if (c < 0x80) {
+                    buffer[position++] = (byte) c;
+                } else if (!Character.isSurrogate(c)) {
+                    encodeCodePoint(c);
+                } else if (Character.isHighSurrogate(c) && (i < end) && Character.isLowSurrogate(text.charAt(i))) {
+                    encodeCodePoint(Character.toCodePoint(c, text.charAt(i++)));
+                } else {
+                    buffer[position++] = '?';
+                }
+            }
+        }
+        return this;
+    }
+
+    public LogDumpEncoder appendDecimal(long value) throws IOException {
+        return appendDecimal(value, 1);
+    }
+
+    /**
+     * Appends decimal representation of a number, padded by leading zeros to the required number of digits.
+     */
+    public LogDumpEncoder appendDecimal(long value, int minDigits) throws IOException {
+        if (Long.MIN_VALUE == value) {
+            return append(Long.toString(value));
+        }
+        ensureSpace(minDigits + 21);
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digitCount = 0;
+        do {
+            digitBuffer[digitCount++] = DIGITS[(int) (value % 10L)];
+            value /= 10L;
+        } while (0L != value);
+        for (int i = digitCount; i < minDigits; ++i) {
+            buffer[position++] = '0';
+        }
+        while (digitCount > 0) {
+            buffer[position++] = (byte) digitBuffer[--digitCount];
+        }
+        return this;
+    }
+
+    /**
+     * Appends timestamp in format {@code yyyy-MM-dd HH:mm:ss.SSS}, using the local time zone. The date and time
+     * part is formatted only once per second of the timestamps appended by this encoder.
+     */
+    public LogDumpEncoder appendLocalDateTime(long timestampMillis) throws IOException {
+        long second = timestampMillis / 1000L;
+        if ((timestampMillis < 0L) && (1000L * second != timestampMillis)) {
+            --second;
+        }
+        if (second != cachedSecond) {
+            if (null == calendar) {
+                calendar = Calendar.getInstance();
+            }
+            calendar.setTimeInMillis(second * 1000L);
+            cachedSecondText = String.format("%04d-%02d-%02d %02d:%02d:%02d",
+                    calendar.get(Calendar.YEAR), 1 + calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH),
+                    calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND));
+            cachedSecond = second;
+        }
+        return append(cachedSecondText).append('.').appendDecimal(timestampMillis - 1000L * second, 3);
+    }
+
+    /**
+     * Appends stack trace of the given throwable, as produced by {@link Throwable#printStackTrace(PrintWriter)}.
+     */
+    public LogDumpEncoder appendStackTrace(Throwable throwable) throws IOException {
+        if (null == stackTraceWriter) {
+            stackTraceWriter = new PrintWriter(new EncoderWriter(), false);
+        }
+        throwable.printStackTrace(stackTraceWriter);
+        stackTraceWriter.flush();
+        if (stackTraceWriter.checkError()) {
+            throw new IOException("failed to write stack trace");
+        }
+        return this;
+    }
+
+    public LogDumpEncoder writeByte(int value) throws IOException {
+        ensureSpace(1);
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    public LogDumpEncoder writeInt(int value) throws IOException {
+        ensureSpace(4);
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    public LogDumpEncoder writeLong(long value) throws IOException {
+        writeInt((int) (value >>> 32));
+        return writeInt((int) value);
+    }
+
+    /**
+     * Writes a string as a length of its UTF-8 form followed by the encoded bytes; {@code null}
+     * is represented by length -1.
+     */
+    public LogDumpEncoder writeString(String value) throws IOException {
+        if (null == value) {
+            return writeInt(-1);
+        }
+        writeInt(utf8Length(value));
+        return append(value);
+    }
+
+    public void write(byte[] data, int offset, int length) throws IOException {
+        if (length > buffer.length - position) {
+            flushBuffer();
+            if (length > buffer.length) {
+                out.write(data, offset, length);
+                return;
+            }
+        }
+        System.arraycopy(data, offset, buffer, position, length);
+        position += length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    public static String stackTraceOf(Throwable throwable) {
+        final StringWriter traceText = new StringWriter(1024);
+        final PrintWriter traceWriter = new PrintWriter(traceText);
+        throwable.printStackTrace(traceWriter);
+        traceWriter.flush();
+        return traceText.toString();
+    }
+
+    static int utf8Length(CharSequence text) {
+        final int length = text.length();
+        int result = 0;
+        for (int i = 0; i < length; ++i) {
+            final char c = text.charAt(i);
+            if (c < 0x80) {
+                ++result;
+            } else if (c < 0x800) {
+                result += 2;
+            } else if (!Character.isSurrogate(c)) {
+                result += 3;
+            } else if (Character.isHighSurrogate(c) && (i + 1 < length) && Character.isLowSurrogate(text.charAt(i + 1))) {
+                result += 4;
+                ++i;
+            } else {
+                ++result;
+            }
+        }
+        return result;
+    }
+
+    private void encodeCodePoint(int codePoint) {
+        if (codePoint < 0x80) {
+            buffer[position++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (codePoint >> 6));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            buffer[position++] = (byte) (0xE0 | (codePoint >> 12));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+    }
+
+    private void ensureSpace(int requiredBytes) throws IOException {
+        if (buffer.length - position < requiredBytes) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private final class EncoderWriter extends Writer {
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            LogDumpEncoder.this.append(CharBuffer.wrap(chars, offset, length), 0, length);
+        }
+
+        @Override
+        public void write(String str, int offset, int length) throws IOException {
+            LogDumpEncoder.this.append(str, offset, offset + length);
+        }
+
+        @Override
+        public void flush() {
+            // Encoder is flushed explicitly
+        }
+
+        @Override
+        public void close() {
+            // Encoder is closed by its owner
+        }
+    }
+
+}
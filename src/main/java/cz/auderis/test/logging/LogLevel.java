@@ -54,6 +54,28 @@ public enum LogLevel {
         return EnumSet.range(this, TRACE);
     }
 
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    public static int maskOf(Collection<LogLevel> levels) {
+        int mask = 0;
+        for (final LogLevel level : levels) {
+            mask |= level.mask();
+        }
+        return mask;
+    }
+
+    public static EnumSet<LogLevel> fromMask(int mask) {
+        final EnumSet<LogLevel> levels = EnumSet.noneOf(LogLevel.class);
+        for (final LogLevel level : values()) {
+            if (0 != (mask & level.mask())) {
+                levels.add(level);
+            }
+        }
+        return levels;
+    }
+
     public static LogLevel lowestLevel(Collection<LogLevel> levels) {
         if (levels.isEmpty()) {
             return FATAL;
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+/**
+ * Listener notified when the levels that may be captured change, either because levels of a collector
+ * were changed or because a {@link LogCaptureScope} was opened or closed. Adapters that cannot check
+ * levels on every call, such as a native logger threshold, use it to follow
+ * {@link LogRecordCollector#getActiveLevelMask()}.
+ */
+public interface LogLevelListener {
+
+    void levelsChanged();
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable set of enabled levels of a {@link LogRecordCollector}. Every change of the enabled levels
+ * produces a new snapshot with a higher generation number, so a single volatile read of the collector's
+ * current snapshot is enough to evaluate a level check, and components deriving their own state from the
+ * levels can detect that it is stale by comparing generations.
+ * <p>
+ * Besides the default levels, the snapshot may hold levels of particular logger name prefixes,
+ * which take precedence over the default levels for the matching loggers.
+ */
+public final class LogLevelSnapshot {
+
+    private static final AtomicLong NEXT_GENERATION = new AtomicLong();
+
+    private final long generation;
+    private final int mask;
+    private final LoggerLevelTrie loggerLevels;
+
+    static LogLevelSnapshot of(int levelMask) {
+        return new LogLevelSnapshot(NEXT_GENERATION.incrementAndGet(), levelMask, LoggerLevelTrie.EMPTY);
+    }
+
+    private LogLevelSnapshot(long generation, int mask, LoggerLevelTrie loggerLevels) {
+        this.generation = generation;
+        this.mask = mask;
+        this.loggerLevels = loggerLevels;
+    }
+
+    LogLevelSnapshot withMask(int levelMask) {
+        return new LogLevelSnapshot(NEXT_GENERATION.incrementAndGet(), levelMask, loggerLevels);
+    }
+
+    LogLevelSnapshot withLoggerLevels(LoggerLevelTrie newLoggerLevels) {
+        return new LogLevelSnapshot(NEXT_GENERATION.incrementAndGet(), mask, newLoggerLevels);
+    }
+
+    LoggerLevelTrie getLoggerLevelTrie() {
+        return loggerLevels;
+    }
+
+    /**
+     * Returns generation of the snapshot; generations are unique among all collectors
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    public int getMask() {
+        return mask;
+    }
+
+    /**
+     * Returns mask of levels enabled for the given logger, which is defined by the most specific
+     * matching logger prefix, or by the default levels when no prefix matches
+     */
+    public int getMask(String loggerName) {
+        return loggerLevels.resolve(loggerName, mask);
+    }
+
+    /**
+     * Returns mask of levels that are enabled for at least one logger
+     */
+    public int getAnyLoggerMask() {
+        return mask | loggerLevels.getRuleMask();
+    }
+
+    public boolean isEnabled(LogLevel level) {
+        return 0 != (mask & level.mask());
+    }
+
+    public boolean isEnabled(LogLevel level, String loggerName) {
+        return 0 != (getMask(loggerName) & level.mask());
+    }
+
+    public EnumSet<LogLevel> getEnabledLevels() {
+        return LogLevel.fromMask(mask);
+    }
+
+    public EnumSet<LogLevel> getEnabledLevels(String loggerName) {
+        return LogLevel.fromMask(getMask(loggerName));
+    }
+
+    public boolean hasLoggerLevels() {
+        return !loggerLevels.isEmpty();
+    }
+
+    /**
+     * Returns levels defined for logger name prefixes, ordered by the prefixes
+     */
+    public Map<String, Set<LogLevel>> getLoggerLevels() {
+        final Map<String, Set<LogLevel>> result = new LinkedHashMap<>();
+        for (final Map.Entry<String, Integer> rule : loggerLevels.getRules().entrySet()) {
+            result.put(rule.getKey(), Collections.unmodifiableSet(LogLevel.fromMask(rule.getValue())));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public String toString() {
+        if (loggerLevels.isEmpty()) {
+            return "#" + generation + getEnabledLevels();
+        }
+        return "#" + generation + getEnabledLevels() + getLoggerLevels();
+    }
+
+}
@@ -16,31 +16,139 @@
 
 package cz.auderis.test.logging;
 
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class LogRecord {
 
+    private static final int SEQUENCE_STRIPE_BITS = 12;
+    private static final long SEQUENCE_ORIGIN = System.nanoTime();
+    private static final long SEQUENCE_ORIGIN_WALL_NANOS = System.currentTimeMillis() * 1000000L;
+    private static final SequenceStripes SEQUENCE_STRIPES = new SequenceStripes((1 << SEQUENCE_STRIPE_BITS) - 1);
+    private static final ThreadLocal<SequenceStripe> SEQUENCE_STRIPE = new ThreadLocal<SequenceStripe>() {
+        @Override
+        protected SequenceStripe initialValue() {
+            return SEQUENCE_STRIPES.acquire();
+        }
+    };
+    static final long NANOS_PER_MILLI = 1000000L;
+
+    final long sequenceNumber;
     final long timestamp;
+    final long timestampNanos;
     final LogLevel level;
     final String loggerName;
-    final String message;
     final Throwable cause;
+    final String messagePattern;
+    final Object[] arguments;
+    final LogRecordRenderer renderer;
+    private volatile String message;
 
     public LogRecord(LogLevel level, String loggerName, String message, Throwable cause) {
         if ((null == level) || (null == loggerName) || (null == message)) {
             throw new NullPointerException();
         }
+        this.sequenceNumber = nextSequenceNumber();
         this.timestamp = System.currentTimeMillis();
+        this.timestampNanos = timestamp * NANOS_PER_MILLI;
         this.level = level;
         this.loggerName = loggerName;
+        this.cause = cause;
+        this.messagePattern = message;
+        this.arguments = null;
+        this.renderer = null;
         this.message = message;
+    }
+
+    /**
+     * Creates a record whose message is rendered from the pattern and arguments only when it is
+     * requested for the first time. Arguments are kept by reference; if they can change after the record
+     * was created, the message needs to be rendered in advance (see
+     * {@link LogRecordCollector#setArgumentSnapshotEnabled(boolean)}).
+     */
+    public LogRecord(LogLevel level, String loggerName, LogRecordRenderer renderer, String messagePattern, Object[] arguments, Throwable cause) {
+        if ((null == level) || (null == loggerName) || (null == renderer) || (null == arguments)) {
+            throw new NullPointerException();
+        }
+        this.sequenceNumber = nextSequenceNumber();
+        this.timestamp = System.currentTimeMillis();
+        this.timestampNanos = timestamp * NANOS_PER_MILLI;
+        this.level = level;
+        this.loggerName = loggerName;
+        this.cause = cause;
+        this.messagePattern = messagePattern;
+        this.arguments = arguments;
+        this.renderer = renderer;
+    }
+
+    /**
+     * Materializes a record kept by a store in a decomposed form. Either the message, or the renderer
+     * with arguments must be provided.
+     */
+    LogRecord(long sequenceNumber, long timestampNanos, LogLevel level, String loggerName, String message,
+              LogRecordRenderer renderer, String messagePattern, Object[] arguments, Throwable cause) {
+        this.sequenceNumber = sequenceNumber;
+        this.timestamp = timestampNanos / NANOS_PER_MILLI;
+        this.timestampNanos = timestampNanos;
+        this.level = level;
+        this.loggerName = loggerName;
         this.cause = cause;
+        this.messagePattern = messagePattern;
+        this.arguments = arguments;
+        this.renderer = renderer;
+        this.message = message;
+    }
+
+    /**
+     * Sequence numbers are composed of a monotonic clock tick and a per-thread stripe, so that logging
+     * threads do not contend on a shared counter. Ticks of a single thread are strictly increasing.
+     * A stripe is handed over to another thread only after its owner has terminated; should there be more
+     * live logging threads than stripes, the excess threads share a single stripe with an atomic tick.
+     */
+    static long nextSequenceNumber() {
+        return SEQUENCE_STRIPE.get().next();
+    }
+
+    /**
+     * Returns a sequence number placing a record created elsewhere among the local records according to its
+     * wall clock timestamp. The record is ordered after local records of the same millisecond, but never
+     * after records created locally once it was received. Numbers produced by a single thread still increase.
+     */
+    static long sequenceNumberAt(long timestampMillis) {
+        final long receivedTick = System.nanoTime() - SEQUENCE_ORIGIN;
+        final long createdTick = (timestampMillis + 1L) * NANOS_PER_MILLI - 1L - SEQUENCE_ORIGIN_WALL_NANOS;
+        return SEQUENCE_STRIPE.get().next(Math.min(createdTick, receivedTick));
+    }
+
+    /**
+     * Returns a number reflecting the order in which records were created. Records of a single thread
+     * have increasing numbers, records of different threads are ordered by the time of their creation.
+     * Records collected by different threads are merged according to this number.
+     */
+    public long getSequenceNumber() {
+        return sequenceNumber;
     }
 
     public Date getTimestamp() {
         return new Date(timestamp);
     }
 
+    public long getTimestampMillis() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the time of the record's creation in nanoseconds since the epoch. Unless the record was captured
+     * by a store with a nanosecond clock (such as {@link PooledLogRecordStore}), the precision is one millisecond.
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
     public LogLevel getLevel() {
         return level;
     }
@@ -50,11 +158,143 @@ public class LogRecord {
     }
 
     public String getMessage() {
-        return message;
+        String renderedMessage = message;
+        if (null == renderedMessage) {
+            // Concurrent rendering is harmless, all threads produce equal text
+            renderedMessage = String.valueOf(renderer.render(messagePattern, arguments));
+            message = renderedMessage;
+        }
+        return renderedMessage;
+    }
+
+    public String getMessagePattern() {
+        return messagePattern;
+    }
+
+    public Object[] getArguments() {
+        return (null != arguments) ? arguments.clone() : new Object[0];
+    }
+
+    public boolean isMessageRendered() {
+        return null != message;
     }
 
     public Throwable getCause() {
         return cause;
     }
 
+    /**
+     * Checks whether all the arguments are instances of well-known immutable types, so that the message
+     * can be safely rendered later.
+     */
+    public static boolean areImmutable(Object[] arguments) {
+        if (null == arguments) {
+            return true;
+        }
+        for (final Object argument : arguments) {
+            if (!isImmutable(argument)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isImmutable(Object value) {
+        return (null == value)
+                || (value instanceof String)
+                || (value instanceof Integer)
+                || (value instanceof Long)
+                || (value instanceof Boolean)
+                || (value instanceof Character)
+                || (value instanceof Double)
+                || (value instanceof Float)
+                || (value instanceof Short)
+                || (value instanceof Byte)
+                || (value instanceof BigDecimal)
+                || (value instanceof BigInteger)
+                || (value instanceof Enum)
+                || (value instanceof Class)
+                || (value instanceof UUID);
+    }
+
+    /**
+     * Assigns stripes to logging threads. Stripes of terminated threads are reused, the last stripe
+     * is reserved for threads that do not get an exclusive one.
+     */
+    static final class SequenceStripes {
+        private final SequenceStripe[] stripes;
+        private final SequenceStripe sharedStripe;
+        private int nextIndex;
+
+        SequenceStripes(int exclusiveStripeCount) {
+            this.stripes = new SequenceStripe[exclusiveStripeCount];
+            this.sharedStripe = new SharedSequenceStripe(exclusiveStripeCount);
+        }
+
+        synchronized SequenceStripe acquire() {
+            for (int i = 0; i < stripes.length; ++i) {
+                final int index = (nextIndex + i) % stripes.length;
+                final SequenceStripe previous = stripes[index];
+                if ((null == previous) || !previous.isOwnerAlive()) {
+                    // The ticks of a reused stripe continue where its previous owner stopped
+                    final long lastTick = (null != previous) ? previous.lastTick : -1L;
+                    final SequenceStripe stripe = new SequenceStripe(index, Thread.currentThread(), lastTick);
+                    stripes[index] = stripe;
+                    nextIndex = index + 1;
+                    return stripe;
+                }
+            }
+            return sharedStripe;
+        }
+    }
+
+    static class SequenceStripe {
+        final long stripe;
+        private final WeakReference<Thread> owner;
+        long lastTick;
+
+        SequenceStripe(long stripe, Thread owner, long lastTick) {
+            this.stripe = stripe;
+            this.owner = new WeakReference<Thread>(owner);
+            this.lastTick = lastTick;
+        }
+
+        boolean isOwnerAlive() {
+            final Thread ownerThread = owner.get();
+            return (null != ownerThread) && ownerThread.isAlive();
+        }
+
+        long next() {
+            return next(System.nanoTime() - SEQUENCE_ORIGIN);
+        }
+
+        long next(long tick) {
+            if (tick <= lastTick) {
+                // Clock resolution may be coarser than the logging rate
+                tick = lastTick + 1L;
+            }
+            lastTick = tick;
+            return (tick << SEQUENCE_STRIPE_BITS) | stripe;
+        }
+    }
+
+    private static final class SharedSequenceStripe extends SequenceStripe {
+        private final AtomicLong sharedLastTick = new AtomicLong(-1L);
+
+        SharedSequenceStripe(long stripe) {
+            super(stripe, null, -1L);
+        }
+
+        @Override
+        long next(long requestedTick) {
+            while (true) {
+                final long previousTick = sharedLastTick.get();
+                final long tick = Math.max(requestedTick, previousTick + 1L);
+                if (sharedLastTick.compareAndSet(previousTick, tick)) {
+                    return (tick << SEQUENCE_STRIPE_BITS) | stripe;
+                }
+            }
+        }
+    }
+
 }
@@ -16,67 +16,442 @@
 
 package cz.auderis.test.logging;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class LogRecordCollector {
 
     private static final EnumSet<LogLevel> INITIAL_LEVELS_INTERNAL = LogLevel.DEBUG.plusHigherLevels();
+    private static final int INITIAL_LEVEL_MASK = LogLevel.maskOf(INITIAL_LEVELS_INTERNAL);
     public static final Set<LogLevel> INITIAL_LOG_LEVELS = Collections.unmodifiableSet(INITIAL_LEVELS_INTERNAL);
+    private static final List<LogLevelListener> LEVEL_LISTENERS = new CopyOnWriteArrayList<>();
     public static final LogRecordCollector RECORD_COLLECTOR = new LogRecordCollector();
 
-    private final List<LogRecord> collectedRecords;
-    private final EnumSet<LogLevel> enabledLevels;
+    private volatile LogRecordStore store;
+    private volatile LogLevelSnapshot levelSnapshot;
+    private volatile boolean argumentSnapshotEnabled;
+    // Sequence number of the most recently stored record, used to detect stale indexes
+    private volatile long modificationStamp;
+    private volatile IndexHolder indexHolder;
+    private final Object indexLock = new Object();
+    private LogRecordIndex.Builder indexBuilder;
+    private LogRecordStore indexedStore;
+    private volatile LogCaptureMetrics metrics;
 
-    LogRecordCollector() {
-        collectedRecords = new ArrayList<LogRecord>(1024);
-        enabledLevels = EnumSet.copyOf(INITIAL_LEVELS_INTERNAL);
+    public LogRecordCollector() {
+        this(new StripedLogRecordStore());
+    }
+
+    public LogRecordCollector(LogRecordStore store) {
+        if (null == store) {
+            throw new NullPointerException();
+        }
+        this.store = store;
+        this.levelSnapshot = LogLevelSnapshot.of(INITIAL_LEVEL_MASK);
+        this.modificationStamp = -1L;
+    }
+
+    /**
+     * Returns the collector of the capture scope active in the current thread, or the global
+     * {@link #RECORD_COLLECTOR} when there is no such scope.
+     */
+    public static LogRecordCollector current() {
+        return LogCaptureScope.currentCollector();
+    }
+
+    /**
+     * Returns mask of levels enabled for at least one logger by the global collector or by a collector
+     * of an open {@link LogCaptureScope}, i.e. of the levels that adapters may currently capture
+     */
+    public static int getActiveLevelMask() {
+        return RECORD_COLLECTOR.levelSnapshot.getAnyLoggerMask() | LogCaptureScope.getOpenScopeLevelMask();
+    }
+
+    /**
+     * Registers a listener notified whenever {@link #getActiveLevelMask()} may have changed
+     */
+    public static void addLevelListener(LogLevelListener listener) {
+        if (null == listener) {
+            throw new NullPointerException();
+        }
+        LEVEL_LISTENERS.add(listener);
+    }
+
+    public static void removeLevelListener(LogLevelListener listener) {
+        LEVEL_LISTENERS.remove(listener);
+    }
+
+    static void fireLevelsChanged() {
+        for (final LogLevelListener listener : LEVEL_LISTENERS) {
+            listener.levelsChanged();
+        }
+    }
+
+    public LogRecordStore getStore() {
+        return store;
+    }
+
+    public void setStore(LogRecordStore newStore) {
+        if (null == newStore) {
+            throw new NullPointerException();
+        }
+        store = newStore;
+        invalidateIndex();
     }
 
     public synchronized void reset() {
-        collectedRecords.clear();
-        enabledLevels.clear();
-        enabledLevels.addAll(INITIAL_LEVELS_INTERNAL);
+        store.clear();
+        invalidateIndex();
+        levelSnapshot = LogLevelSnapshot.of(INITIAL_LEVEL_MASK);
+        fireLevelsChanged();
+        argumentSnapshotEnabled = false;
+    }
+
+    public boolean isArgumentSnapshotEnabled() {
+        return argumentSnapshotEnabled;
+    }
+
+    /**
+     * When enabled, messages having arguments of types not known to be immutable are rendered
+     * immediately instead of on first access, so that later changes of the argument objects
+     * do not affect the captured text.
+     */
+    public void setArgumentSnapshotEnabled(boolean enabled) {
+        argumentSnapshotEnabled = enabled;
     }
 
-    public synchronized boolean isLevelEnabled(LogLevel level) {
-        return enabledLevels.contains(level);
+    public boolean isLevelEnabled(LogLevel level) {
+        return levelSnapshot.isEnabled(level);
     }
 
-    public synchronized Set<LogLevel> getEnabledLevels() {
-        return EnumSet.copyOf(enabledLevels);
+    /**
+     * Checks whether an event of the given logger is going to be captured, taking levels of logger prefixes
+     * into account. Unlike {@link #isLevelEnabled(LogLevel)}, this method is meant to be called for actual
+     * logging calls, as rejected events are counted by attached metrics.
+     */
+    public boolean isLevelEnabled(LogLevel level, String loggerName) {
+        if (levelSnapshot.isEnabled(level, loggerName)) {
+            return true;
+        }
+        eventRejected(level, loggerName);
+        return false;
+    }
+
+    /**
+     * Same as {@link #isLevelEnabled(LogLevel, String)}, but the levels of the logger are resolved
+     * only once per level change and kept in the provided cache
+     */
+    public boolean isLevelEnabled(LogLevel level, LoggerLevelCache loggerLevels) {
+        if (loggerLevels.isEnabled(levelSnapshot, level)) {
+            return true;
+        }
+        eventRejected(level, loggerLevels.getLoggerName());
+        return false;
+    }
+
+    // Logger prefixes are resolved only when any are defined, a single mask test suffices otherwise
+    private boolean isLevelEnabledForLogger(LogLevel level, String loggerName) {
+        final LogLevelSnapshot snapshot = levelSnapshot;
+        final int enabledMask = snapshot.hasLoggerLevels() ? snapshot.getMask(loggerName) : snapshot.getMask();
+        if (0 != (enabledMask & level.mask())) {
+            return true;
+        }
+        eventRejected(level, loggerName);
+        return false;
+    }
+
+    private void eventRejected(LogLevel level, String loggerName) {
+        final LogCaptureMetrics currentMetrics = metrics;
+        if (null != currentMetrics) {
+            currentMetrics.eventRejected(loggerName, level);
+        }
+    }
+
+    public LogCaptureMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Attaches metrics that count events offered to and accepted by this collector; {@code null} detaches them
+     */
+    public void setMetrics(LogCaptureMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public Set<LogLevel> getEnabledLevels() {
+        return levelSnapshot.getEnabledLevels();
+    }
+
+    public Set<LogLevel> getEnabledLevels(String loggerName) {
+        return levelSnapshot.getEnabledLevels(loggerName);
+    }
+
+    /**
+     * Returns the current enabled levels as an immutable snapshot, which is replaced by a snapshot
+     * of a new generation whenever the levels change
+     */
+    public LogLevelSnapshot getLevelSnapshot() {
+        return levelSnapshot;
     }
 
     public synchronized void setEnabledLevels(Set<LogLevel> newLevels) {
         if (null == newLevels) {
             throw new NullPointerException();
         }
-        enabledLevels.clear();
-        enabledLevels.addAll(newLevels);
+        levelSnapshot = levelSnapshot.withMask(LogLevel.maskOf(newLevels));
+        fireLevelsChanged();
     }
 
-    public synchronized void add(LogRecord record) {
-        if (enabledLevels.contains(record.getLevel())) {
-            collectedRecords.add(record);
+    /**
+     * Returns levels defined for logger name prefixes
+     */
+    public Map<String, Set<LogLevel>> getLoggerLevels() {
+        return levelSnapshot.getLoggerLevels();
+    }
+
+    /**
+     * Defines levels enabled for loggers whose names start with the given dot-separated prefix.
+     * Levels of the most specific matching prefix take precedence over the default enabled levels.
+     */
+    public synchronized void setLoggerLevels(String loggerPrefix, Set<LogLevel> newLevels) {
+        LoggerLevelTrie.checkLoggerPrefix(loggerPrefix);
+        if (null == newLevels) {
+            throw new NullPointerException();
         }
+        final LoggerLevelTrie loggerLevels = levelSnapshot.getLoggerLevelTrie();
+        levelSnapshot = levelSnapshot.withLoggerLevels(loggerLevels.with(loggerPrefix, LogLevel.maskOf(newLevels)));
+        fireLevelsChanged();
     }
 
-    public synchronized List<LogRecord> getRecords() {
-        return new ArrayList<>(collectedRecords);
+    public synchronized void removeLoggerLevels(String loggerPrefix) {
+        LoggerLevelTrie.checkLoggerPrefix(loggerPrefix);
+        final LoggerLevelTrie loggerLevels = levelSnapshot.getLoggerLevelTrie();
+        final LoggerLevelTrie newLoggerLevels = loggerLevels.without(loggerPrefix);
+        if (newLoggerLevels != loggerLevels) {
+            levelSnapshot = levelSnapshot.withLoggerLevels(newLoggerLevels);
+            fireLevelsChanged();
+        }
     }
 
-    public synchronized void dump(PrintStream out, LogLevel threshold) {
-        final Set<LogLevel> dumpLevels = threshold.plusHigherLevels();
-        for (final LogRecord record : collectedRecords) {
-            final LogLevel level = record.getLevel();
-            if (!dumpLevels.contains(level)) {
-                continue;
+    public synchronized void clearLoggerLevels() {
+        if (levelSnapshot.hasLoggerLevels()) {
+            levelSnapshot = levelSnapshot.withLoggerLevels(LoggerLevelTrie.EMPTY);
+            fireLevelsChanged();
+        }
+    }
+
+    public void add(LogRecord record) {
+        if (isLevelEnabled(record.level, record.loggerName)) {
+            final boolean kept = store(store, record);
+            if (kept) {
+                modificationStamp = record.sequenceNumber;
+            }
+            final LogCaptureMetrics currentMetrics = metrics;
+            if (null == currentMetrics) {
+                return;
+            } else if (!kept) {
+                currentMetrics.eventDropped(record.loggerName, record.level);
+            } else {
+                final long estimatedSize = record.isMessageRendered()
+                        ? LogCaptureMetrics.estimateSize(record.getMessage())
+                        : LogCaptureMetrics.estimateSize(record.arguments);
+                currentMetrics.eventAccepted(record.loggerName, record.level, estimatedSize);
+            }
+        }
+    }
+
+    /**
+     * Adds a record with an already rendered message. Unlike {@link #add(LogRecord)}, the record
+     * is not created at all when its level is disabled or when the store accepts events directly.
+     * Levels of logger prefixes are taken into account.
+     */
+    public void add(LogLevel level, String loggerName, String message, Throwable cause) {
+        if (isLevelEnabledForLogger(level, loggerName)) {
+            addEnabled(level, loggerName, message, cause);
+        }
+    }
+
+    /**
+     * Adds a record whose level the caller has already checked, usually an adapter using
+     * {@link #isLevelEnabled(LogLevel, LoggerLevelCache)}, so that levels of logger prefixes are not resolved again.
+     */
+    public void addEnabled(LogLevel level, String loggerName, String message, Throwable cause) {
+        final LogRecordStore currentStore = store;
+        final long sequence;
+        if (currentStore instanceof DirectLogRecordStore) {
+            sequence = ((DirectLogRecordStore) currentStore).add(level, loggerName, message, cause);
+        } else {
+            final LogRecord record = new LogRecord(level, loggerName, message, cause);
+            sequence = store(currentStore, record) ? record.sequenceNumber : DirectLogRecordStore.DROPPED;
+        }
+        final LogCaptureMetrics currentMetrics = metrics;
+        if (DirectLogRecordStore.DROPPED != sequence) {
+            modificationStamp = sequence;
+            if ((null != currentMetrics) && (null != message)) {
+                currentMetrics.eventAccepted(loggerName, level, LogCaptureMetrics.estimateSize(message));
             }
-            // TODO
+        } else if (null != currentMetrics) {
+            currentMetrics.eventDropped(loggerName, level);
+        }
+    }
+
+    public void add(LogLevel level, String loggerName, LogRecordRenderer renderer, String messagePattern, Object[] arguments, Throwable cause) {
+        if (isLevelEnabledForLogger(level, loggerName)) {
+            addEnabled(level, loggerName, renderer, messagePattern, arguments, cause);
+        }
+    }
+
+    public void addEnabled(LogLevel level, String loggerName, LogRecordRenderer renderer, String messagePattern, Object[] arguments, Throwable cause) {
+        if (argumentSnapshotEnabled && !LogRecord.areImmutable(arguments)) {
+            final String message = String.valueOf(renderer.render(messagePattern, arguments));
+            addEnabled(level, loggerName, message, cause);
+            return;
+        }
+        final LogRecordStore currentStore = store;
+        final long sequence;
+        if (currentStore instanceof DirectLogRecordStore) {
+            final DirectLogRecordStore directStore = (DirectLogRecordStore) currentStore;
+            sequence = directStore.add(level, loggerName, renderer, messagePattern, arguments, cause);
+        } else {
+            final LogRecord record = new LogRecord(level, loggerName, renderer, messagePattern, arguments, cause);
+            sequence = store(currentStore, record) ? record.sequenceNumber : DirectLogRecordStore.DROPPED;
+        }
+        final LogCaptureMetrics currentMetrics = metrics;
+        if (DirectLogRecordStore.DROPPED != sequence) {
+            modificationStamp = sequence;
+            if ((null != currentMetrics) && (null != arguments)) {
+                currentMetrics.eventAccepted(loggerName, level, LogCaptureMetrics.estimateSize(arguments));
+            }
+        } else if (null != currentMetrics) {
+            currentMetrics.eventDropped(loggerName, level);
+        }
+    }
+
+    /**
+     * Adds the record to the store; returns {@code false} when a limited store discarded it
+     */
+    private static boolean store(LogRecordStore targetStore, LogRecord record) {
+        if (targetStore instanceof LimitedLogRecordStore) {
+            return ((LimitedLogRecordStore) targetStore).offer(record);
+        }
+        targetStore.add(record);
+        return true;
+    }
+
+    public List<LogRecord> getRecords() {
+        return store.getRecords();
+    }
+
+    /**
+     * Starts a new query over the collected records
+     */
+    public LogRecordQuery records() {
+        return new LogRecordQuery(this);
+    }
+
+    LogRecordIndex getIndex() {
+        // Stamp must be read before the records, so that a concurrent addition makes the index stale
+        final long stamp = modificationStamp;
+        final IndexHolder holder = indexHolder;
+        if ((null != holder) && (stamp == holder.stamp)) {
+            return holder.index;
+        }
+        synchronized (indexLock) {
+            final LogRecordStore currentStore = store;
+            if ((null == indexBuilder) || (currentStore != indexedStore)) {
+                indexBuilder = new LogRecordIndex.Builder();
+                indexedStore = currentStore;
+            }
+            // Only records added since the last query are indexed, unless the store was modified otherwise
+            List<LogRecord> newRecords = null;
+            if (currentStore instanceof IncrementalLogRecordStore) {
+                newRecords = ((IncrementalLogRecordStore) currentStore).getRecordsAfter(indexBuilder.lastSequenceNumber(), indexBuilder.size());
+            } else {
+                final List<LogRecord> allRecords = currentStore.getRecords();
+                if (indexBuilder.isPrefixOf(allRecords)) {
+                    newRecords = allRecords.subList(indexBuilder.size(), allRecords.size());
+                } else {
+                    indexBuilder = new LogRecordIndex.Builder();
+                    newRecords = allRecords;
+                }
+            }
+            if (null == newRecords) {
+                indexBuilder = new LogRecordIndex.Builder();
+                newRecords = currentStore.getRecords();
+            }
+            indexBuilder.append(newRecords);
+            final LogRecordIndex index = indexBuilder.snapshot();
+            indexHolder = new IndexHolder(stamp, index);
+            return index;
+        }
+    }
+
+    private void invalidateIndex() {
+        modificationStamp = -1L;
+        indexHolder = null;
+        synchronized (indexLock) {
+            indexBuilder = null;
+        }
+    }
+
+    public void dump(PrintStream out, LogLevel threshold) {
+        try {
+            dump(out, threshold, new PatternLogLayout());
+        } catch (IOException e) {
+            // PrintStream does not propagate I/O errors, so this is not expected
+            throw new RuntimeException("Failed to dump log records", e);
+        }
+    }
+
+    /**
+     * Writes records at or above the threshold level to the output stream, using the provided layout.
+     * The stream is flushed, but not closed.
+     */
+    public void dump(OutputStream out, LogLevel threshold, LogRecordLayout layout) throws IOException {
+        if ((null == out) || (null == threshold) || (null == layout)) {
+            throw new NullPointerException();
+        }
+        final int dumpLevelMask = LogLevel.maskOf(threshold.plusHigherLevels());
+        final LogDumpEncoder encoder = LogDumpEncoder.recycling(out);
+        try {
+            writeDump(encoder, dumpLevelMask, layout);
+        } finally {
+            encoder.release();
+        }
+    }
+
+    private void writeDump(LogDumpEncoder encoder, int dumpLevelMask, LogRecordLayout layout) throws IOException {
+        layout.start(encoder);
+        final LogRecordStore currentStore = store;
+        // Journal is streamed in the order of storing, so that its records need not fit into memory
+        final Iterable<LogRecord> records;
+        if (currentStore instanceof JournalLogRecordStore) {
+            records = (JournalLogRecordStore) currentStore;
+        } else {
+            records = currentStore.getRecords();
+        }
+        for (final LogRecord record : records) {
+            if (0 != (dumpLevelMask & record.level.mask())) {
+                layout.write(record, encoder);
+            }
+        }
+        encoder.flush();
+    }
+
+    private static final class IndexHolder {
+        final long stamp;
+        final LogRecordIndex index;
+
+        IndexHolder(long stamp, LogRecordIndex index) {
+            this.stamp = stamp;
+            this.index = index;
         }
     }
 
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Immutable view of secondary indexes over collected records. Positions stored in the indexes refer
+ * to the record list, which is ordered by record sequence numbers; all position arrays are sorted.
+ * <p>
+ * Views are produced by a {@link Builder}, which only ever appends to its structures. Every view remembers
+ * the number of records it covers and ignores anything appended later, so that the indexes can be extended
+ * incrementally while older views are still in use.
+ */
+final class LogRecordIndex {
+
+    final List<LogRecord> records;
+    private final int size;
+    private final PositionList[] levelPositions;
+    private final NavigableMap<String, PositionList> loggerPositions;
+    private final long[] maxTimestamps;
+    private final long timeDisorder;
+
+    private LogRecordIndex(Builder builder) {
+        this.size = builder.size;
+        this.records = new RecordList(builder.records, size);
+        this.levelPositions = builder.levelPositions;
+        this.loggerPositions = builder.loggerPositions;
+        this.maxTimestamps = builder.maxTimestamps;
+        this.timeDisorder = builder.timeDisorder;
+    }
+
+    static LogRecordIndex build(List<LogRecord> records) {
+        final Builder builder = new Builder();
+        builder.append(records);
+        return builder.snapshot();
+    }
+
+    int size() {
+        return size;
+    }
+
+    int countLevels(int levelMask) {
+        int count = 0;
+        for (final LogLevel level : LogLevel.values()) {
+            if (0 != (levelMask & level.mask())) {
+                count += levelPositions[level.ordinal()].countBelow(size);
+            }
+        }
+        return count;
+    }
+
+    int[] positionsOfLevels(int levelMask) {
+        final List<int[]> parts = new ArrayList<int[]>(levelPositions.length);
+        for (final LogLevel level : LogLevel.values()) {
+            if (0 != (levelMask & level.mask())) {
+                parts.add(levelPositions[level.ordinal()].toArray(size));
+            }
+        }
+        return union(parts);
+    }
+
+    int countLogger(String loggerName) {
+        final PositionList positions = loggerPositions.get(loggerName);
+        return (null != positions) ? positions.countBelow(size) : 0;
+    }
+
+    int[] positionsOfLogger(String loggerName) {
+        final PositionList positions = loggerPositions.get(loggerName);
+        return (null != positions) ? positions.toArray(size) : new int[0];
+    }
+
+    int countLoggerPrefix(String prefix) {
+        int count = 0;
+        for (final Map.Entry<String, PositionList> entry : loggersWithPrefix(prefix).entrySet()) {
+            if (LoggerLevelTrie.isWithinPrefix(entry.getKey(), prefix)) {
+                count += entry.getValue().countBelow(size);
+            }
+        }
+        return count;
+    }
+
+    int[] positionsOfLoggerPrefix(String prefix) {
+        final List<int[]> parts = new ArrayList<int[]>();
+        for (final Map.Entry<String, PositionList> entry : loggersWithPrefix(prefix).entrySet()) {
+            if (LoggerLevelTrie.isWithinPrefix(entry.getKey(), prefix)) {
+                parts.add(entry.getValue().toArray(size));
+            }
+        }
+        return union(parts);
+    }
+
+    /**
+     * Returns the number of candidates for the time range, which is an upper bound of the number
+     * of records within the range
+     */
+    int countTimeRange(long fromInclusive, long toExclusive) {
+        return Math.max(0, timeRangeEnd(toExclusive) - timeRangeStart(fromInclusive));
+    }
+
+    /**
+     * Returns positions of candidates for the time range. Records of concurrent threads may have timestamps
+     * slightly out of sequence order, so the candidates need to be checked individually.
+     */
+    int[] positionsOfTimeRange(long fromInclusive, long toExclusive) {
+        final int start = timeRangeStart(fromInclusive);
+        final int end = timeRangeEnd(toExclusive);
+        if (start >= end) {
+            return new int[0];
+        }
+        final int[] result = new int[end - start];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = start + i;
+        }
+        return result;
+    }
+
+    private NavigableMap<String, PositionList> loggersWithPrefix(String prefix) {
+        if (prefix.isEmpty()) {
+            return loggerPositions;
+        }
+        final int lastIndex = prefix.length() - 1;
+        final char lastChar = prefix.charAt(lastIndex);
+        if (Character.MAX_VALUE == lastChar) {
+            return loggerPositions.tailMap(prefix, true);
+        }
+        final String upperBound = prefix.substring(0, lastIndex) + (char) (lastChar + 1);
+        return loggerPositions.subMap(prefix, true, upperBound, false);
+    }
+
+    private int timeRangeStart(long fromInclusive) {
+        // All records before the first one with maximal timestamp at or above the limit are older
+        return firstMaxTimestampAtLeast(fromInclusive);
+    }
+
+    private int timeRangeEnd(long toExclusive) {
+        // Timestamp of a record is never lower than maximum of all preceding timestamps minus the disorder
+        final long limit = (toExclusive > Long.MAX_VALUE - timeDisorder) ? Long.MAX_VALUE : toExclusive + timeDisorder;
+        return Math.min(size, firstMaxTimestampAtLeast(limit) + 1);
+    }
+
+    private int firstMaxTimestampAtLeast(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (maxTimestamps[middle] < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int[] union(List<int[]> parts) {
+        if (parts.isEmpty()) {
+            return new int[0];
+        } else if (1 == parts.size()) {
+            return parts.get(0);
+        }
+        int size = 0;
+        for (final int[] part : parts) {
+            size += part.length;
+        }
+        final int[] result = new int[size];
+        int offset = 0;
+        for (final int[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        // Parts are disjoint, so sorting their concatenation yields their ordered union
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Appends records to the indexes. A builder is used by a single thread at a time, but the views it produced
+     * may be read by other threads concurrently with further appends.
+     */
+    static final class Builder {
+        private LogRecord[] records = new LogRecord[256];
+        private int size;
+        private final PositionList[] levelPositions;
+        private final NavigableMap<String, PositionList> loggerPositions;
+        private long[] maxTimestamps = new long[256];
+        private long timeDisorder;
+
+        Builder() {
+            levelPositions = new PositionList[LogLevel.values().length];
+            for (int i = 0; i < levelPositions.length; ++i) {
+                levelPositions[i] = new PositionList();
+            }
+            loggerPositions = new ConcurrentSkipListMap<String, PositionList>();
+        }
+
+        int size() {
+            return size;
+        }
+
+        long lastSequenceNumber() {
+            return (0 != size) ? records[size - 1].sequenceNumber : Long.MIN_VALUE;
+        }
+
+        /**
+         * Checks whether the records indexed so far form the beginning of the given sequence-ordered list
+         */
+        boolean isPrefixOf(List<LogRecord> snapshot) {
+            if (snapshot.size() < size) {
+                return false;
+            } else if (0 == size) {
+                return true;
+            }
+            // Sequence numbers are unique and sorted, so matching bounds imply matching contents
+            return (records[0].sequenceNumber == snapshot.get(0).sequenceNumber)
+                    && (records[size - 1].sequenceNumber == snapshot.get(size - 1).sequenceNumber);
+        }
+
+        void append(List<LogRecord> newRecords) {
+            final int newSize = size + newRecords.size();
+            if (newSize > records.length) {
+                final int capacity = Math.max(newSize, records.length << 1);
+                records = Arrays.copyOf(records, capacity);
+                maxTimestamps = Arrays.copyOf(maxTimestamps, capacity);
+            }
+            long maxTimestamp = (0 != size) ? maxTimestamps[size - 1] : Long.MIN_VALUE;
+            for (final LogRecord record : newRecords) {
+                final int position = size;
+                records[position] = record;
+                levelPositions[record.level.ordinal()].add(position);
+                PositionList loggerList = loggerPositions.get(record.loggerName);
+                if (null == loggerList) {
+                    loggerList = new PositionList();
+                    loggerPositions.put(record.loggerName, loggerList);
+                }
+                loggerList.add(position);
+                if (record.timestamp >= maxTimestamp) {
+                    maxTimestamp = record.timestamp;
+                } else {
+                    timeDisorder = Math.max(timeDisorder, maxTimestamp - record.timestamp);
+                }
+                maxTimestamps[position] = maxTimestamp;
+                ++size;
+            }
+        }
+
+        LogRecordIndex snapshot() {
+            return new LogRecordIndex(this);
+        }
+    }
+
+    /**
+     * Sorted list of positions with a single writer; readers see a consistent prefix of the list.
+     */
+    private static final class PositionList {
+        private volatile int[] items = new int[16];
+        private volatile int count;
+
+        void add(int position) {
+            int[] currentItems = items;
+            final int index = count;
+            if (index == currentItems.length) {
+                currentItems = Arrays.copyOf(currentItems, index << 1);
+                items = currentItems;
+            }
+            currentItems[index] = position;
+            count = index + 1;
+        }
+
+        int countBelow(int limit) {
+            final int currentCount = count;
+            return countBelow(items, currentCount, limit);
+        }
+
+        int[] toArray(int limit) {
+            final int currentCount = count;
+            final int[] currentItems = items;
+            return Arrays.copyOf(currentItems, countBelow(currentItems, currentCount, limit));
+        }
+
+        private static int countBelow(int[] items, int count, int limit) {
+            if ((0 == count) || (items[count - 1] < limit)) {
+                return count;
+            }
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (items[middle] < limit) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static final class RecordList extends AbstractList<LogRecord> implements RandomAccess {
+        private final LogRecord[] items;
+        private final int size;
+
+        RecordList(LogRecord[] items, int size) {
+            this.items = items;
+            this.size = size;
+        }
+
+        @Override
+        public LogRecord get(int index) {
+            if ((index < 0) || (index >= size)) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return items[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.io.IOException;
+
+/**
+ * Defines how captured records are written when they are dumped. A single layout instance may be used
+ * by concurrent dumps, so implementations should keep any per-dump state in the encoder rather than
+ * in their own fields.
+ */
+public interface LogRecordLayout {
+
+    /**
+     * Called once before the first record is written
+     */
+    void start(LogDumpEncoder encoder) throws IOException;
+
+    void write(LogRecord record, LogDumpEncoder encoder) throws IOException;
+
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import org.hamcrest.Matcher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Fluent query over records of a {@link LogRecordCollector}, e.g.
+ * <pre>
+ *     logBuffer.records().level(LogLevel.WARNING).loggerPrefix("com.acme").since(startTime).list();
+ * </pre>
+ * Level, logger and time constraints are resolved using indexes maintained by the collector, so repeated
+ * queries over a large capture do not need to scan all records. Only the remaining constraints (including
+ * Hamcrest matchers) are evaluated record by record. Records kept in a {@link JournalLogRecordStore} are not
+ * indexed; the journal is scanned instead and only the matching records are decoded into memory.
+ */
+public final class LogRecordQuery {
+
+    private final LogRecordCollector collector;
+    private int levelMask;
+    private String loggerName;
+    private String loggerPrefix;
+    private long fromTimestamp;
+    private long toTimestamp;
+    private final List<Matcher<? super LogRecord>> matchers;
+
+    LogRecordQuery(LogRecordCollector collector) {
+        this.collector = collector;
+        this.levelMask = LogLevel.maskOf(LogLevel.FATAL.plusLowerLevels());
+        this.fromTimestamp = Long.MIN_VALUE;
+        this.toTimestamp = Long.MAX_VALUE;
+        this.matchers = new ArrayList<Matcher<? super LogRecord>>(2);
+    }
+
+    /**
+     * Restricts the result to records of any of the given levels
+     */
+    public LogRecordQuery level(LogLevel... levels) {
+        int mask = 0;
+        for (final LogLevel level : levels) {
+            mask |= level.mask();
+        }
+        levelMask &= mask;
+        return this;
+    }
+
+    public LogRecordQuery levels(Collection<LogLevel> levels) {
+        levelMask &= LogLevel.maskOf(levels);
+        return this;
+    }
+
+    public LogRecordQuery levelAtOrAbove(LogLevel threshold) {
+        levelMask &= LogLevel.maskOf(threshold.plusHigherLevels());
+        return this;
+    }
+
+    public LogRecordQuery logger(String name) {
+        if (null == name) {
+            throw new NullPointerException();
+        } else if ((null != loggerName) && !loggerName.equals(name)) {
+            // Contradicting constraints
+            levelMask = 0;
+        }
+        loggerName = name;
+        return this;
+    }
+
+    public LogRecordQuery logger(Class<?> loggerClass) {
+        return logger(loggerClass.getName());
+    }
+
+    /**
+     * Restricts the result to records of the given logger and the loggers below it, e.g. prefix {@code com.acme}
+     * selects {@code com.acme} and {@code com.acme.db}, but not {@code com.acmefoo}. Logger name segments are
+     * separated by dots, as for {@code LogBuffer.levels(String)}.
+     */
+    public LogRecordQuery loggerPrefix(String prefix) {
+        if (null == prefix) {
+            throw new NullPointerException();
+        } else if ((null == loggerPrefix) || LoggerLevelTrie.isWithinPrefix(prefix, loggerPrefix)) {
+            loggerPrefix = prefix;
+        } else if (!LoggerLevelTrie.isWithinPrefix(loggerPrefix, prefix)) {
+            // Contradicting constraints
+            levelMask = 0;
+        }
+        return this;
+    }
+
+    /**
+     * Restricts the result to records created at the given time or later
+     */
+    public LogRecordQuery since(Date timestamp) {
+        return since(timestamp.getTime());
+    }
+
+    public LogRecordQuery since(long timestampMillis) {
+        fromTimestamp = Math.max(fromTimestamp, timestampMillis);
+        return this;
+    }
+
+    /**
+     * Restricts the result to records created before the given time
+     */
+    public LogRecordQuery until(Date timestamp) {
+        return until(timestamp.getTime());
+    }
+
+    public LogRecordQuery until(long timestampMillis) {
+        toTimestamp = Math.min(toTimestamp, timestampMillis);
+        return this;
+    }
+
+    public LogRecordQuery matching(Matcher<? super LogRecord> matcher) {
+        if (null != matcher) {
+            matchers.add(matcher);
+        }
+        return this;
+    }
+
+    public List<LogRecord> list() {
+        final LogRecordStore store = collector.getStore();
+        if (store instanceof JournalLogRecordStore) {
+            // Indexing would decode the whole journal into memory, matching records are selected while reading
+            if ((0 == levelMask) || (fromTimestamp >= toTimestamp)) {
+                return new ArrayList<LogRecord>(0);
+            }
+            return ((JournalLogRecordStore) store).select(new QuerySelector());
+        }
+        final LogRecordIndex index = collector.getIndex();
+        if ((0 == levelMask) || (fromTimestamp >= toTimestamp) || (0 == index.size())) {
+            return new ArrayList<LogRecord>(0);
+        }
+        final int[] candidates = selectCandidates(index);
+        final List<LogRecord> records = index.records;
+        final int candidateCount = (null != candidates) ? candidates.length : records.size();
+        final List<LogRecord> result = new ArrayList<LogRecord>(Math.min(candidateCount, 1024));
+        for (int i = 0; i < candidateCount; ++i) {
+            final LogRecord record = records.get((null != candidates) ? candidates[i] : i);
+            if (accepts(record)) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    public int count() {
+        return countUpTo(Integer.MAX_VALUE);
+    }
+
+    public boolean isEmpty() {
+        return 0 == countUpTo(1);
+    }
+
+    public LogRecord first() {
+        final List<LogRecord> result = list();
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * Counts matching records, stopping as soon as the limit is reached
+     */
+    private int countUpTo(int limit) {
+        if ((0 == levelMask) || (fromTimestamp >= toTimestamp)) {
+            return 0;
+        }
+        final LogRecordStore store = collector.getStore();
+        if (store instanceof JournalLogRecordStore) {
+            return ((JournalLogRecordStore) store).select(new QuerySelector(), limit).size();
+        }
+        final LogRecordIndex index = collector.getIndex();
+        if (0 == index.size()) {
+            return 0;
+        }
+        final int[] candidates = selectCandidates(index);
+        final List<LogRecord> records = index.records;
+        final int candidateCount = (null != candidates) ? candidates.length : records.size();
+        int count = 0;
+        for (int i = 0; (i < candidateCount) && (count < limit); ++i) {
+            if (accepts(records.get((null != candidates) ? candidates[i] : i))) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Picks positions from the most selective index; {@code null} means that all records are candidates.
+     */
+    private int[] selectCandidates(LogRecordIndex index) {
+        final int allLevelsMask = LogLevel.maskOf(LogLevel.FATAL.plusLowerLevels());
+        int bestCount = index.size();
+        CandidateIndex bestIndex = CandidateIndex.NONE;
+        if (allLevelsMask != levelMask) {
+            final int levelCount = index.countLevels(levelMask);
+            if (levelCount < bestCount) {
+                bestCount = levelCount;
+                bestIndex = CandidateIndex.LEVEL;
+            }
+        }
+        if (null != loggerName) {
+            final int loggerCount = index.countLogger(loggerName);
+            if (loggerCount < bestCount) {
+                bestCount = loggerCount;
+                bestIndex = CandidateIndex.LOGGER_NAME;
+            }
+        } else if (null != loggerPrefix) {
+            final int prefixCount = index.countLoggerPrefix(loggerPrefix);
+            if (prefixCount < bestCount) {
+                bestCount = prefixCount;
+                bestIndex = CandidateIndex.LOGGER_PREFIX;
+            }
+        }
+        if ((Long.MIN_VALUE != fromTimestamp) || (Long.MAX_VALUE != toTimestamp)) {
+            final int timeCount = index.countTimeRange(fromTimestamp, toTimestamp);
+            if (timeCount < bestCount) {
+                bestIndex = CandidateIndex.TIME_RANGE;
+            }
+        }
+        switch (bestIndex) {
+            case LEVEL:
+                return index.positionsOfLevels(levelMask);
+            case LOGGER_NAME:
+                return index.positionsOfLogger(loggerName);
+            case LOGGER_PREFIX:
+                return index.positionsOfLoggerPrefix(loggerPrefix);
+            case TIME_RANGE:
+                return index.positionsOfTimeRange(fromTimestamp, toTimestamp);
+            default:
+                return null;
+        }
+    }
+
+    private boolean accepts(LogRecord record) {
+        if (!acceptsHeader(record.level, record.loggerName, record.timestamp)) {
+            return false;
+        }
+        return acceptsMatchers(record);
+    }
+
+    private boolean acceptsHeader(LogLevel level, String name, long timestamp) {
+        if (0 == (levelMask & level.mask())) {
+            return false;
+        } else if ((null != loggerName) && !loggerName.equals(name)) {
+            return false;
+        } else if ((null != loggerPrefix) && !LoggerLevelTrie.isWithinPrefix(name, loggerPrefix)) {
+            return false;
+        }
+        return (timestamp >= fromTimestamp) && (timestamp < toTimestamp);
+    }
+
+    private boolean acceptsMatchers(LogRecord record) {
+        for (final Matcher<? super LogRecord> matcher : matchers) {
+            if (!matcher.matches(record)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class QuerySelector implements JournalLogRecordStore.RecordSelector {
+        @Override
+        public boolean acceptsHeader(LogLevel level, String loggerName, long timestampMillis) {
+            return LogRecordQuery.this.acceptsHeader(level, loggerName, timestampMillis);
+        }
+
+        @Override
+        public boolean accepts(LogRecord record) {
+            return acceptsMatchers(record);
+        }
+    }
+
+    private enum CandidateIndex {
+        NONE,
+        LEVEL,
+        LOGGER_NAME,
+        LOGGER_PREFIX,
+        TIME_RANGE
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.util.List;
+
+/**
+ * Storage strategy used by {@link LogRecordCollector} to retain captured records. Implementations
+ * must be safe for concurrent use by logging threads.
+ */
+public interface LogRecordStore {
+
+    void add(LogRecord record);
+
+    /**
+     * Returns a snapshot of stored records, ordered by their sequence numbers.
+     */
+    List<LogRecord> getRecords();
+
+    void clear();
+
+}
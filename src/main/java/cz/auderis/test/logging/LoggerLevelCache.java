@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+/**
+ * Levels enabled for a single logger, cached by a logger adapter instance. The levels are resolved
+ * through the logger prefix rules of a {@link LogLevelSnapshot} only when the snapshot generation
+ * changes; until then, a level check costs a volatile read and a comparison.
+ */
+public final class LoggerLevelCache {
+
+    private final String loggerName;
+    private volatile Entry entry;
+
+    public LoggerLevelCache(String loggerName) {
+        this.loggerName = loggerName;
+    }
+
+    public String getLoggerName() {
+        return loggerName;
+    }
+
+    public boolean isEnabled(LogLevelSnapshot snapshot, LogLevel level) {
+        return 0 != (getMask(snapshot) & level.mask());
+    }
+
+    public int getMask(LogLevelSnapshot snapshot) {
+        Entry currentEntry = entry;
+        if ((null == currentEntry) || (currentEntry.generation != snapshot.getGeneration())) {
+            // Racing threads may resolve the same snapshot twice, which is harmless
+            currentEntry = new Entry(snapshot.getGeneration(), snapshot.getMask(loggerName));
+            entry = currentEntry;
+        }
+        return currentEntry.mask;
+    }
+
+    @Override
+    public String toString() {
+        return "LoggerLevelCache{" + loggerName + '}';
+    }
+
+    private static final class Entry {
+        final long generation;
+        final int mask;
+
+        Entry(long generation, int mask) {
+            this.generation = generation;
+            this.mask = mask;
+        }
+    }
+
+}
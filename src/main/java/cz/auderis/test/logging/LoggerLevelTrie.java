@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable prefix tree of per-logger level masks. Logger names are split into dot-separated segments,
+ * so that a rule for {@code com.acme} applies to {@code com.acme} and {@code com.acme.codec}, but not
+ * to {@code com.acmex}. The most specific rule wins, similarly to Log4j categories.
+ */
+final class LoggerLevelTrie {
+
+    static final LoggerLevelTrie EMPTY = new LoggerLevelTrie(new TreeMap<String, Integer>());
+
+    private final SortedMap<String, Integer> rules;
+    private final Node root;
+    private final int ruleMask;
+
+    private LoggerLevelTrie(TreeMap<String, Integer> rules) {
+        this.rules = Collections.unmodifiableSortedMap(rules);
+        this.root = new Node();
+        int unionMask = 0;
+        for (final Map.Entry<String, Integer> rule : rules.entrySet()) {
+            Node node = root;
+            for (final String segment : rule.getKey().split("\\.", -1)) {
+                Node child = node.children.get(segment);
+                if (null == child) {
+                    child = new Node();
+                    node.children.put(segment, child);
+                }
+                node = child;
+            }
+            node.mask = rule.getValue();
+            node.defined = true;
+            unionMask |= node.mask;
+        }
+        this.ruleMask = unionMask;
+    }
+
+    /**
+     * Checks whether the logger name is the prefix itself or lies below it, i.e. the prefix ends
+     * on a segment boundary of the name. A prefix ending with a dot covers only the names below it.
+     */
+    static boolean isWithinPrefix(String loggerName, String loggerPrefix) {
+        if (!loggerName.startsWith(loggerPrefix)) {
+            return false;
+        }
+        final int prefixLength = loggerPrefix.length();
+        return (0 == prefixLength)
+                || (loggerName.length() == prefixLength)
+                || ('.' == loggerPrefix.charAt(prefixLength - 1))
+                || ('.' == loggerName.charAt(prefixLength));
+    }
+
+    static void checkLoggerPrefix(String loggerPrefix) {
+        if (null == loggerPrefix) {
+            throw new NullPointerException();
+        } else if (loggerPrefix.isEmpty() || loggerPrefix.startsWith(".") || loggerPrefix.endsWith(".")) {
+            throw new IllegalArgumentException("invalid logger name prefix: '" + loggerPrefix + "'");
+        }
+    }
+
+    LoggerLevelTrie with(String loggerPrefix, int levelMask) {
+        final TreeMap<String, Integer> newRules = new TreeMap<String, Integer>(rules);
+        newRules.put(loggerPrefix, levelMask);
+        return new LoggerLevelTrie(newRules);
+    }
+
+    LoggerLevelTrie without(String loggerPrefix) {
+        if (!rules.containsKey(loggerPrefix)) {
+            return this;
+        }
+        final TreeMap<String, Integer> newRules = new TreeMap<String, Integer>(rules);
+        newRules.remove(loggerPrefix);
+        return newRules.isEmpty() ? EMPTY : new LoggerLevelTrie(newRules);
+    }
+
+    boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    SortedMap<String, Integer> getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns union of masks of all rules
+     */
+    int getRuleMask() {
+        return ruleMask;
+    }
+
+    int resolve(String loggerName, int defaultMask) {
+        if ((null == loggerName) || rules.isEmpty()) {
+            return defaultMask;
+        }
+        int mask = defaultMask;
+        Node node = root;
+        int start = 0;
+        while (null != node) {
+            final int end = loggerName.indexOf('.', start);
+            final String segment = (end < 0) ? loggerName.substring(start) : loggerName.substring(start, end);
+            node = node.children.get(segment);
+            if (null == node) {
+                break;
+            } else if (node.defined) {
+                mask = node.mask;
+            }
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+        return mask;
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<String, Node>(4);
+        int mask;
+        boolean defined;
+    }
+
+}
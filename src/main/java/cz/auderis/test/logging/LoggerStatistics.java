@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+/**
+ * Snapshot of capture counters of a single logger, as provided by {@link LogCaptureMetrics}.
+ * Events are "offered" when a logging call reaches the collector and "accepted" when they pass the level
+ * check and are stored; events passing the level check that a store of limited capacity discards are
+ * "dropped" instead. Captured size is a rough estimate of heap occupied by all the accepted records; it does
+ * not decrease when records are evicted or cleared, so it does not reflect the size retained at the moment.
+ */
+public final class LoggerStatistics {
+
+    private final String loggerName;
+    private final long[] offeredCounts;
+    private final long[] acceptedCounts;
+    private final long[] droppedCounts;
+    private final long capturedBytes;
+    private final long elapsedNanos;
+
+    LoggerStatistics(String loggerName, long[] offeredCounts, long[] acceptedCounts, long[] droppedCounts,
+                     long capturedBytes, long elapsedNanos) {
+        this.loggerName = loggerName;
+        this.offeredCounts = offeredCounts;
+        this.acceptedCounts = acceptedCounts;
+        this.droppedCounts = droppedCounts;
+        this.capturedBytes = capturedBytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getLoggerName() {
+        return loggerName;
+    }
+
+    public long getOfferedCount() {
+        return sum(offeredCounts);
+    }
+
+    public long getAcceptedCount() {
+        return sum(acceptedCounts);
+    }
+
+    public long getDroppedCount() {
+        return sum(droppedCounts);
+    }
+
+    public long getOfferedCount(LogLevel level) {
+        return offeredCounts[level.ordinal()];
+    }
+
+    public long getAcceptedCount(LogLevel level) {
+        return acceptedCounts[level.ordinal()];
+    }
+
+    public long getDroppedCount(LogLevel level) {
+        return droppedCounts[level.ordinal()];
+    }
+
+    public long getCapturedBytes() {
+        return capturedBytes;
+    }
+
+    /**
+     * Returns average number of accepted events per second since the metrics were started or reset
+     */
+    public double getAcceptedPerSecond() {
+        if (elapsedNanos <= 0L) {
+            return 0.0;
+        }
+        return 1.0e9 * getAcceptedCount() / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return loggerName + ": accepted " + getAcceptedCount() + " of " + getOfferedCount() + ", ~" + capturedBytes + " bytes captured";
+    }
+
+    private static long sum(long[] counts) {
+        long total = 0L;
+        for (final long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+}
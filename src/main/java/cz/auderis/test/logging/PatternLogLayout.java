@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text layout driven by a pattern. Supported conversions are:
+ * <ul>
+ *     <li>{@code %d} - timestamp in format {@code yyyy-MM-dd HH:mm:ss.SSS} (local time zone)</li>
+ *     <li>{@code %p} - level name</li>
+ *     <li>{@code %c} - logger name</li>
+ *     <li>{@code %m} - message</li>
+ *     <li>{@code %e} - stack trace of the cause, if present</li>
+ *     <li>{@code %n} - line separator</li>
+ *     <li>{@code %%} - percent sign</li>
+ * </ul>
+ * Conversions {@code %p} and {@code %c} accept minimal width, e.g. {@code %-7p} (left aligned) or {@code %20c}.
+ * The layout is immutable, timestamp formatting state is kept by the encoder of each dump.
+ */
+public class PatternLogLayout implements LogRecordLayout {
+
+    public static final String DEFAULT_PATTERN = "%d %-7p [%c] %m%n%e";
+
+    private final String pattern;
+    private final Segment[] segments;
+
+    public PatternLogLayout() {
+        this(DEFAULT_PATTERN);
+    }
+
+    public PatternLogLayout(String pattern) {
+        if (null == pattern) {
+            throw new NullPointerException();
+        }
+        this.pattern = pattern;
+        this.segments = parse(pattern);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public void start(LogDumpEncoder encoder) {
+        // No header
+    }
+
+    @Override
+    public void write(LogRecord record, LogDumpEncoder encoder) throws IOException {
+        for (final Segment segment : segments) {
+            switch (segment.conversion) {
+                case 0:
+                    encoder.append(segment.text);
+                    break;
+                case 'd':
+                    encoder.appendLocalDateTime(record.timestamp);
+                    break;
+                case 'p':
+                    appendPadded(record.level.name(), segment, encoder);
+                    break;
+                case 'c':
+                    appendPadded(record.loggerName, segment, encoder);
+                    break;
+                case 'm':
+                    encoder.append(record.getMessage());
+                    break;
+                case 'e':
+                    if (null != record.cause) {
+                        encoder.appendStackTrace(record.cause);
+                    }
+                    break;
+                default:
+                    throw new AssertionError(segment.conversion);
+            }
+        }
+    }
+
+    private static void appendPadded(String text, Segment segment, LogDumpEncoder encoder) throws IOException {
+        final int padding = segment.width - text.length();
+        if (segment.leftAligned) {
+            encoder.append(text);
+        }
+        for (int i = 0; i < padding; ++i) {
+            encoder.append(' ');
+        }
+        if (!segment.leftAligned) {
+            encoder.append(text);
+        }
+    }
+
+    private static Segment[] parse(String pattern) {
+        final List<Segment> result = new ArrayList<Segment>();
+        final StringBuilder literal = new StringBuilder();
+        final int length = pattern.length();
+        int i = 0;
+        while (i < length) {
+            final char c = pattern.charAt(i++);
+            if ('%' != c) {
+                literal.append(c);
+                continue;
+            } else if (i >= length) {
+                throw new IllegalArgumentException("incomplete conversion at the end of pattern '" + pattern + "'");
+            }
+            boolean leftAligned = false;
+            if ('-' == pattern.charAt(i)) {
+                leftAligned = true;
+                ++i;
+            }
+            int width = 0;
+            while ((i < length) && Character.isDigit(pattern.charAt(i))) {
+                width = 10 * width + (pattern.charAt(i++) - '0');
+            }
+            if (i >= length) {
+                throw new IllegalArgumentException("incomplete conversion at the end of pattern '" + pattern + "'");
+            }
+            final char conversion = pattern.charAt(i++);
+            switch (conversion) {
+                case '%':
+                    literal.append('%');
+                    break;
+                case 'n':
+                    literal.append(System.lineSeparator());
+                    break;
+                case 'd':
+                case 'p':
+                case 'c':
+                case 'm':
+                case 'e':
+                    if (literal.length() > 0) {
+                        result.add(new Segment(literal.toString()));
+                        literal.setLength(0);
+                    }
+                    result.add(new Segment(conversion, width, leftAligned));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown conversion '%" + conversion + "' in pattern '" + pattern + "'");
+            }
+        }
+        if (literal.length() > 0) {
+            result.add(new Segment(literal.toString()));
+        }
+        return result.toArray(new Segment[result.size()]);
+    }
+
+    private static final class Segment {
+        final char conversion;
+        final String text;
+        final int width;
+        final boolean leftAligned;
+
+        Segment(String text) {
+            this.conversion = 0;
+            this.text = text;
+            this.width = 0;
+            this.leftAligned = false;
+        }
+
+        Segment(char conversion, int width, boolean leftAligned) {
+            this.conversion = conversion;
+            this.text = null;
+            this.width = width;
+            this.leftAligned = leftAligned;
+        }
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Record store intended for high-volume captures, where allocation of a record object for every event
+ * would distort measurements of the tested code. Events are kept in preallocated slots with primitive
+ * fields (nanosecond timestamp, level ordinal, interned logger name id); {@link LogRecord} instances are
+ * created only when the records are read. Slots are reused after {@link #clear()}.
+ * <p>
+ * When all slots are occupied, new events are discarded; their number is available from
+ * {@link #getDroppedCount()}. Events logged concurrently with {@link #clear()} may be lost.
+ */
+public class PooledLogRecordStore implements DirectLogRecordStore, LimitedLogRecordStore {
+
+    private static final long CLOCK_BASE_MILLIS = System.currentTimeMillis();
+    private static final long CLOCK_BASE_NANOS = System.nanoTime();
+
+    private final int capacity;
+    private final AtomicInteger nextSlot;
+    // Sequence number of the event stored in a slot, incremented by one so that zero denotes an empty slot
+    private final AtomicLongArray publishedSequences;
+    // Number of clear() calls preceding the event stored in a slot
+    private final int[] slotEpochs;
+    private final long[] timestamps;
+    private final byte[] levels;
+    private final int[] loggerIds;
+    private final String[] messages;
+    private final LogRecordRenderer[] renderers;
+    private final Object[][] arguments;
+    private final Throwable[] causes;
+    private final AtomicLongArray droppedCounts;
+    private final ConcurrentMap<String, Integer> loggerIdMap;
+    private volatile String[] loggerNames;
+    private volatile int clearEpoch;
+
+    public PooledLogRecordStore(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("invalid capacity " + capacity);
+        }
+        this.capacity = capacity;
+        this.nextSlot = new AtomicInteger();
+        this.publishedSequences = new AtomicLongArray(capacity);
+        this.slotEpochs = new int[capacity];
+        this.timestamps = new long[capacity];
+        this.levels = new byte[capacity];
+        this.loggerIds = new int[capacity];
+        this.messages = new String[capacity];
+        this.renderers = new LogRecordRenderer[capacity];
+        this.arguments = new Object[capacity][];
+        this.causes = new Throwable[capacity];
+        this.droppedCounts = new AtomicLongArray(LogLevel.values().length);
+        this.loggerIdMap = new ConcurrentHashMap<>();
+        this.loggerNames = new String[0];
+    }
+
+    /**
+     * Returns current time in nanoseconds since the epoch, measured by a monotonic clock anchored
+     * to the wall clock when the class was initialized
+     */
+    static long currentTimeNanos() {
+        return CLOCK_BASE_MILLIS * LogRecord.NANOS_PER_MILLI + (System.nanoTime() - CLOCK_BASE_NANOS);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getDroppedCount() {
+        long total = 0L;
+        for (int i = 0; i < droppedCounts.length(); ++i) {
+            total += droppedCounts.get(i);
+        }
+        return total;
+    }
+
+    public long getDroppedCount(LogLevel level) {
+        return droppedCounts.get(level.ordinal());
+    }
+
+    @Override
+    public void add(LogRecord record) {
+        offer(record);
+    }
+
+    @Override
+    public boolean offer(LogRecord record) {
+        if (null == record) {
+            throw new NullPointerException();
+        }
+        return store(record.sequenceNumber, record.timestampNanos, record.level, record.loggerName,
+                record.isMessageRendered() ? record.getMessage() : null,
+                record.renderer, record.messagePattern, record.arguments, record.cause);
+    }
+
+    @Override
+    public long add(LogLevel level, String loggerName, String message, Throwable cause) {
+        if ((null == level) || (null == loggerName) || (null == message)) {
+            throw new NullPointerException();
+        }
+        final long sequence = LogRecord.nextSequenceNumber();
+        return store(sequence, currentTimeNanos(), level, loggerName, message, null, message, null, cause) ? sequence : DROPPED;
+    }
+
+    @Override
+    public long add(LogLevel level, String loggerName, LogRecordRenderer renderer, String messagePattern, Object[] arguments, Throwable cause) {
+        if ((null == level) || (null == loggerName) || (null == renderer) || (null == arguments)) {
+            throw new NullPointerException();
+        }
+        final long sequence = LogRecord.nextSequenceNumber();
+        return store(sequence, currentTimeNanos(), level, loggerName, null, renderer, messagePattern, arguments, cause) ? sequence : DROPPED;
+    }
+
+    private boolean store(long sequence, long timestampNanos, LogLevel level, String loggerName, String message,
+                          LogRecordRenderer renderer, String messagePattern, Object[] args, Throwable cause) {
+        // Epoch is read before the slot is claimed, an event racing clear() then belongs to the cleared content
+        final int epoch = clearEpoch;
+        final int slot = nextSlot.getAndIncrement();
+        if ((slot < 0) || (slot >= capacity)) {
+            // Keep the counter from wrapping around under a flood of discarded events
+            nextSlot.compareAndSet(slot + 1, capacity);
+            droppedCounts.incrementAndGet(level.ordinal());
+            return false;
+        }
+        slotEpochs[slot] = epoch;
+        timestamps[slot] = timestampNanos;
+        levels[slot] = (byte) level.ordinal();
+        loggerIds[slot] = loggerIdOf(loggerName);
+        // For rendered messages, the pattern is the message itself
+        messages[slot] = (null != message) ? message : messagePattern;
+        renderers[slot] = (null != message) ? null : renderer;
+        arguments[slot] = (null != message) ? null : args;
+        causes[slot] = cause;
+        // Volatile write publishes the plain fields written above
+        publishedSequences.set(slot, sequence + 1L);
+        return true;
+    }
+
+    private int loggerIdOf(String loggerName) {
+        final Integer id = loggerIdMap.get(loggerName);
+        if (null != id) {
+            return id;
+        }
+        synchronized (loggerIdMap) {
+            final Integer existingId = loggerIdMap.get(loggerName);
+            if (null != existingId) {
+                return existingId;
+            }
+            final String[] names = loggerNames;
+            final int newId = names.length;
+            final String[] newNames = Arrays.copyOf(names, newId + 1);
+            newNames[newId] = loggerName;
+            // Name must be visible before its id can be read by other threads
+            loggerNames = newNames;
+            loggerIdMap.put(loggerName, newId);
+            return newId;
+        }
+    }
+
+    @Override
+    public List<LogRecord> getRecords() {
+        final int count = Math.min(nextSlot.get(), capacity);
+        final int epoch = clearEpoch;
+        final LogLevel[] levelValues = LogLevel.values();
+        final List<LogRecord> result = new ArrayList<>(count);
+        boolean ordered = true;
+        long lastSequence = -1L;
+        for (int slot = 0; slot < count; ++slot) {
+            final long sequence = publishedSequences.get(slot) - 1L;
+            if ((sequence < 0L) || (slotEpochs[slot] != epoch)) {
+                // Slot not written yet, or written before the store was cleared
+                continue;
+            }
+            final String[] names = loggerNames;
+            final LogRecordRenderer renderer = renderers[slot];
+            final String text = messages[slot];
+            final LogRecord record;
+            if (null == renderer) {
+                record = new LogRecord(sequence, timestamps[slot], levelValues[levels[slot]], names[loggerIds[slot]],
+                        text, null, text, null, causes[slot]);
+            } else {
+                record = new LogRecord(sequence, timestamps[slot], levelValues[levels[slot]], names[loggerIds[slot]],
+                        null, renderer, text, arguments[slot], causes[slot]);
+            }
+            ordered &= (sequence > lastSequence);
+            lastSequence = sequence;
+            result.add(record);
+        }
+        if (!ordered) {
+            Collections.sort(result, StripedLogRecordStore.SEQUENCE_ORDER);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void clear() {
+        // Sequence numbers of concurrent threads are not ordered strictly enough to serve as a watermark
+        ++clearEpoch;
+        final int count = Math.min(nextSlot.get(), capacity);
+        for (int slot = 0; slot < count; ++slot) {
+            publishedSequences.set(slot, 0L);
+        }
+        // Release references held by the slots, primitive fields are simply overwritten
+        Arrays.fill(messages, 0, count, null);
+        Arrays.fill(renderers, 0, count, null);
+        Arrays.fill(arguments, 0, count, null);
+        Arrays.fill(causes, 0, count, null);
+        for (int i = 0; i < droppedCounts.length(); ++i) {
+            droppedCounts.set(i, 0L);
+        }
+        nextSlot.set(0);
+    }
+
+}
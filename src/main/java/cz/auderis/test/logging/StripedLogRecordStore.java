@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Record store where every logging thread appends into its own buffer, so that concurrent
+ * loggers never contend on a common lock. Buffers are merged by record sequence numbers
+ * when the records are read.
+ */
+public class StripedLogRecordStore implements LogRecordStore, IncrementalLogRecordStore {
+
+    static final Comparator<LogRecord> SEQUENCE_ORDER = new Comparator<LogRecord>() {
+        @Override
+        public int compare(LogRecord r1, LogRecord r2) {
+            final long s1 = r1.sequenceNumber;
+            final long s2 = r2.sequenceNumber;
+            return (s1 < s2) ? -1 : ((s1 == s2) ? 0 : 1);
+        }
+    };
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final LogRecord[] NO_ITEMS = new LogRecord[0];
+
+    private final ThreadLocal<AppendBuffer> localBuffer;
+    private volatile Generation generation;
+
+    public StripedLogRecordStore() {
+        localBuffer = new ThreadLocal<AppendBuffer>();
+        generation = new Generation();
+    }
+
+    @Override
+    public void add(LogRecord record) {
+        if (null == record) {
+            throw new NullPointerException();
+        }
+        final Generation currentGeneration = generation;
+        AppendBuffer buffer = localBuffer.get();
+        if ((null == buffer) || (buffer.owner != currentGeneration)) {
+            buffer = new AppendBuffer(currentGeneration);
+            currentGeneration.buffers.add(buffer);
+            localBuffer.set(buffer);
+        }
+        buffer.append(record);
+    }
+
+    @Override
+    public List<LogRecord> getRecords() {
+        final Generation currentGeneration = generation;
+        final List<LogRecord> result = new ArrayList<LogRecord>();
+        int bufferCount = 0;
+        for (final AppendBuffer buffer : currentGeneration.buffers) {
+            buffer.copyTo(result);
+            ++bufferCount;
+        }
+        if (bufferCount > 1) {
+            // Individual buffers are already ordered, so the merge sort only needs to interleave the runs
+            Collections.sort(result, SEQUENCE_ORDER);
+        }
+        return result;
+    }
+
+    @Override
+    public List<LogRecord> getRecordsAfter(long lastSequenceNumber, int knownCount) {
+        final Generation currentGeneration = generation;
+        final List<LogRecord> result = new ArrayList<LogRecord>();
+        int earlierCount = 0;
+        int bufferCount = 0;
+        for (final AppendBuffer buffer : currentGeneration.buffers) {
+            final int sizeBefore = result.size();
+            earlierCount += buffer.copyAfter(lastSequenceNumber, result);
+            if (result.size() > sizeBefore) {
+                ++bufferCount;
+            }
+        }
+        if (earlierCount != knownCount) {
+            return null;
+        } else if (bufferCount > 1) {
+            Collections.sort(result, SEQUENCE_ORDER);
+        }
+        return result;
+    }
+
+    /**
+     * Starts a new generation of buffers. A record added concurrently with clearing may end up in the discarded
+     * generation, as if it was added just before the store was cleared.
+     */
+    @Override
+    public void clear() {
+        final Generation previousGeneration = generation;
+        generation = new Generation();
+        // Thread-local references to stale buffers survive until their threads log again; make sure
+        // they do not keep the records of the previous generation reachable in the meantime
+        for (final AppendBuffer buffer : previousGeneration.buffers) {
+            buffer.release();
+        }
+    }
+
+    private static final class Generation {
+        final Queue<AppendBuffer> buffers = new ConcurrentLinkedQueue<AppendBuffer>();
+    }
+
+    /**
+     * Append-only buffer with a single writer thread and any number of readers. The writer
+     * publishes new items by a volatile write to {@code count}, readers never see partially
+     * initialized slots.
+     */
+    private static final class AppendBuffer {
+        final Generation owner;
+        private volatile LogRecord[] items;
+        private volatile int count;
+
+        AppendBuffer(Generation owner) {
+            this.owner = owner;
+            this.items = new LogRecord[INITIAL_BUFFER_SIZE];
+        }
+
+        void append(LogRecord record) {
+            LogRecord[] currentItems = items;
+            final int index = count;
+            if (index >= currentItems.length) {
+                // Released buffers have no items, but a racing writer may still see the old count
+                currentItems = Arrays.copyOf(currentItems, Math.max(INITIAL_BUFFER_SIZE, index << 1));
+                items = currentItems;
+            }
+            currentItems[index] = record;
+            count = index + 1;
+        }
+
+        void release() {
+            count = 0;
+            items = NO_ITEMS;
+        }
+
+        /**
+         * Copies records having sequence numbers greater than the given one and returns the number of the others
+         */
+        int copyAfter(long lastSequenceNumber, List<LogRecord> target) {
+            final int publishedCount = count;
+            final LogRecord[] currentItems = items;
+            final int size = Math.min(publishedCount, currentItems.length);
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (currentItems[middle].sequenceNumber <= lastSequenceNumber) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            for (int i = low; i < size; ++i) {
+                target.add(currentItems[i]);
+            }
+            return low;
+        }
+
+        void copyTo(List<LogRecord> target) {
+            final int publishedCount = count;
+            final LogRecord[] currentItems = items;
+            final int size = Math.min(publishedCount, currentItems.length);
+            for (int i = 0; i < size; ++i) {
+                target.add(currentItems[i]);
+            }
+        }
+    }
+
+}
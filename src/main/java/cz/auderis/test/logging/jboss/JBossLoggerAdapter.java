@@ -17,11 +17,10 @@
 package cz.auderis.test.logging.jboss;
 
 import cz.auderis.test.logging.LogLevel;
-import cz.auderis.test.logging.LogRecord;
 import cz.auderis.test.logging.LogRecordCollector;
+import cz.auderis.test.logging.LoggerLevelCache;
 import org.jboss.logging.Logger;
 
-import java.text.MessageFormat;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
@@ -41,48 +40,46 @@ public class JBossLoggerAdapter extends Logger {
         return Collections.unmodifiableMap(levelMap);
     }
 
+    // Levels are resolved by the logger category, which is also the logger name of the records
+    private final transient LoggerLevelCache levelCache;
+
     protected JBossLoggerAdapter(String name) {
         super(name);
+        this.levelCache = new LoggerLevelCache(name);
     }
 
     @Override
     public boolean isEnabled(Level level) {
         final LogLevel internalLevel = JBOSS_TO_INTERNAL.get(level);
-        return LogRecordCollector.RECORD_COLLECTOR.isLevelEnabled(internalLevel);
+        return levelCache.isEnabled(LogRecordCollector.current().getLevelSnapshot(), internalLevel);
     }
 
     @Override
     protected void doLogf(Level level, String loggerClassName, String format, Object[] parameters, Throwable thrown) {
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
         final LogLevel internalLevel = JBOSS_TO_INTERNAL.get(level);
-        if (!recordCollector.isLevelEnabled(internalLevel)) {
+        if (!recordCollector.isLevelEnabled(internalLevel, levelCache)) {
             return;
         }
-        final String message;
         if (null == parameters) {
-            message = format;
+            recordCollector.addEnabled(internalLevel, getName(), format, thrown);
         } else {
-            message = String.format(format, parameters);
+            recordCollector.addEnabled(internalLevel, getName(), JBossMessageRenderer.PRINTF, format, parameters, thrown);
         }
-        final LogRecord record = new LogRecord(internalLevel, loggerClassName, message, thrown);
-        recordCollector.add(record);
     }
 
     @Override
     protected void doLog(Level level, String loggerClassName, Object msgObj, Object[] parameters, Throwable thrown) {
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
         final LogLevel internalLevel = JBOSS_TO_INTERNAL.get(level);
-        if (!recordCollector.isLevelEnabled(internalLevel)) {
+        if (!recordCollector.isLevelEnabled(internalLevel, levelCache)) {
             return;
         }
-        final String message;
         if ((null == parameters) || (0 == parameters.length)) {
-            message = String.valueOf(msgObj);
+            recordCollector.addEnabled(internalLevel, getName(), String.valueOf(msgObj), thrown);
         } else {
-            message = MessageFormat.format(String.valueOf(msgObj), parameters);
+            recordCollector.addEnabled(internalLevel, getName(), JBossMessageRenderer.MESSAGE_FORMAT, String.valueOf(msgObj), parameters, thrown);
         }
-        final LogRecord record = new LogRecord(internalLevel, loggerClassName, message, thrown);
-        recordCollector.add(record);
     }
 
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging.jboss;
+
+import cz.auderis.test.logging.LogRecordRenderer;
+
+import java.text.MessageFormat;
+
+/**
+ * Renderers for the two message styles supported by JBoss Logging.
+ */
+enum JBossMessageRenderer implements LogRecordRenderer {
+
+    /**
+     * Renders messages using {@code String.format()} placeholders
+     */
+    PRINTF {
+        @Override
+        public String render(String msg, Object[] objects) {
+            return String.format(msg, objects);
+        }
+    },
+
+    /**
+     * Renders messages using {@code java.text.MessageFormat} placeholders
+     */
+    MESSAGE_FORMAT {
+        @Override
+        public String render(String msg, Object[] objects) {
+            return MessageFormat.format(msg, objects);
+        }
+    }
+    ;
+
+    @Override
+    public String render(String msg, Object o) {
+        return render(msg, new Object[] { o });
+    }
+
+    @Override
+    public String render(String msg, Object o1, Object o2) {
+        return render(msg, new Object[] { o1, o2 });
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging.jul;
+
+import cz.auderis.test.logging.LogLevel;
+import cz.auderis.test.logging.LogRecordCollector;
+import cz.auderis.test.logging.LoggerLevelCache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Handler passing {@code java.util.logging} events to the current collector. Message pattern and parameters
+ * of the native record are captured as they are and rendered only when the message is requested.
+ */
+public final class JulCaptureHandler extends Handler {
+
+    static final JulCaptureHandler INSTANCE = new JulCaptureHandler();
+
+    private final ConcurrentMap<String, LoggerLevelCache> levelCaches;
+
+    private JulCaptureHandler() {
+        levelCaches = new ConcurrentHashMap<String, LoggerLevelCache>(64);
+        setLevel(Level.ALL);
+    }
+
+    /**
+     * Returns the lowest native level mapped to any of the given internal levels, i.e. the logger threshold
+     * passing all events that can be captured
+     */
+    static Level toNativeThreshold(int levelMask) {
+        if (0 != (levelMask & LogLevel.TRACE.mask())) {
+            return Level.ALL;
+        } else if (0 != (levelMask & LogLevel.DEBUG.mask())) {
+            return Level.FINE;
+        } else if (0 != (levelMask & LogLevel.INFO.mask())) {
+            return Level.INFO;
+        } else if (0 != (levelMask & LogLevel.WARNING.mask())) {
+            return Level.WARNING;
+        } else if (0 != (levelMask & LogLevel.ERROR.mask())) {
+            return Level.SEVERE;
+        }
+        return Level.OFF;
+    }
+
+    /**
+     * Maps native levels to internal ones; custom levels are mapped to the nearest lower standard level
+     */
+    static LogLevel toInternalLevel(Level level) {
+        final int value = level.intValue();
+        if (Level.OFF.intValue() == value) {
+            return null;
+        } else if (value >= Level.SEVERE.intValue()) {
+            return LogLevel.ERROR;
+        } else if (value >= Level.WARNING.intValue()) {
+            return LogLevel.WARNING;
+        } else if (value >= Level.INFO.intValue()) {
+            return LogLevel.INFO;
+        } else if (value >= Level.FINE.intValue()) {
+            return LogLevel.DEBUG;
+        }
+        return LogLevel.TRACE;
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (null == record) {
+            return;
+        }
+        final LogLevel internalLevel = toInternalLevel(record.getLevel());
+        if (null == internalLevel) {
+            return;
+        }
+        final String loggerName = (null != record.getLoggerName()) ? record.getLoggerName() : "";
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (!recordCollector.isLevelEnabled(internalLevel, getLevelCache(loggerName))) {
+            return;
+        }
+        final String message = (null != record.getMessage()) ? record.getMessage() : "";
+        final Object[] parameters = record.getParameters();
+        if (null != record.getResourceBundle()) {
+            // Localized patterns are resolved using the bundle, which need not be available later
+            recordCollector.addEnabled(internalLevel, loggerName, JulMessageRenderer.localize(record), record.getThrown());
+        } else if ((null == parameters) || (0 == parameters.length)) {
+            recordCollector.addEnabled(internalLevel, loggerName, message, record.getThrown());
+        } else {
+            recordCollector.addEnabled(internalLevel, loggerName, JulMessageRenderer.INSTANCE, message, parameters, record.getThrown());
+        }
+    }
+
+    private LoggerLevelCache getLevelCache(String loggerName) {
+        LoggerLevelCache levelCache = levelCaches.get(loggerName);
+        if (null == levelCache) {
+            final LoggerLevelCache newLevelCache = new LoggerLevelCache(loggerName);
+            final LoggerLevelCache origLevelCache = levelCaches.putIfAbsent(loggerName, newLevelCache);
+            levelCache = (null != origLevelCache) ? origLevelCache : newLevelCache;
+        }
+        return levelCache;
+    }
+
+    @Override
+    public void flush() {
+        // No operation, records are not buffered
+    }
+
+    @Override
+    public void close() {
+        // No operation, the handler is shared
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging.jul;
+
+import cz.auderis.test.logging.LogCaptureInitializer;
+import cz.auderis.test.logging.LogLevelListener;
+import cz.auderis.test.logging.LogRecordCollector;
+
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+/**
+ * Replaces handlers of the root {@code java.util.logging} logger by {@link JulCaptureHandler}, so that events
+ * of all loggers without their own handlers are captured. Root logger level follows the lowest level that
+ * any active collector captures, so that {@code isLoggable()} rejects other events before a native record
+ * is created; levels of particular loggers are then evaluated by the capturing handler.
+ */
+public class JulInitializer implements LogCaptureInitializer {
+
+    private static boolean INITIALIZED = false;
+
+    @Override
+    public boolean isFrameworkPresent() {
+        try {
+            final Class<?> frameworkClass = Class.forName("java.util.logging.LogManager");
+            assert null != frameworkClass;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void initialize() throws Exception {
+        synchronized (JulInitializer.class) {
+            if (INITIALIZED) {
+                return;
+            }
+            try {
+                final Logger rootLogger = Logger.getLogger("");
+                for (final Handler handler : rootLogger.getHandlers()) {
+                    rootLogger.removeHandler(handler);
+                }
+                rootLogger.addHandler(JulCaptureHandler.INSTANCE);
+                final RootLevelUpdater levelUpdater = new RootLevelUpdater(rootLogger);
+                LogRecordCollector.addLevelListener(levelUpdater);
+                levelUpdater.levelsChanged();
+            } catch (SecurityException e) {
+                throw new RuntimeException("Failed to intercept java.util.logging root logger", e);
+            } finally {
+                INITIALIZED = true;
+            }
+        }
+    }
+
+    private static final class RootLevelUpdater implements LogLevelListener {
+        private final Logger rootLogger;
+
+        RootLevelUpdater(Logger rootLogger) {
+            this.rootLogger = rootLogger;
+        }
+
+        @Override
+        public synchronized void levelsChanged() {
+            rootLogger.setLevel(JulCaptureHandler.toNativeThreshold(LogRecordCollector.getActiveLevelMask()));
+        }
+    }
+
+}
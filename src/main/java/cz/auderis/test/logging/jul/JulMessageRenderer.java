@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging.jul;
+
+import cz.auderis.test.logging.LogRecordRenderer;
+
+import java.text.MessageFormat;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.logging.LogRecord;
+
+/**
+ * Renders {@code java.util.logging} messages the same way as {@link java.util.logging.Formatter#formatMessage},
+ * i.e. using {@code java.text.MessageFormat} if the pattern contains any of the first four placeholders.
+ */
+final class JulMessageRenderer implements LogRecordRenderer {
+
+    static final JulMessageRenderer INSTANCE = new JulMessageRenderer();
+
+    private JulMessageRenderer() {
+    }
+
+    static String localize(LogRecord record) {
+        String pattern = record.getMessage();
+        if (null == pattern) {
+            return "";
+        }
+        final ResourceBundle bundle = record.getResourceBundle();
+        try {
+            pattern = bundle.getString(pattern);
+        } catch (MissingResourceException e) {
+            // Key itself is used as the pattern
+        }
+        final Object[] parameters = record.getParameters();
+        if ((null == parameters) || (0 == parameters.length)) {
+            return pattern;
+        }
+        return INSTANCE.render(pattern, parameters);
+    }
+
+    @Override
+    public String render(String msg, Object o) {
+        return render(msg, new Object[] { o });
+    }
+
+    @Override
+    public String render(String msg, Object o1, Object o2) {
+        return render(msg, new Object[] { o1, o2 });
+    }
+
+    @Override
+    public String render(String msg, Object[] objects) {
+        if (msg.contains("{0") || msg.contains("{1") || msg.contains("{2") || msg.contains("{3")) {
+            try {
+                return MessageFormat.format(msg, objects);
+            } catch (IllegalArgumentException e) {
+                // Same as the JDK formatter, malformed patterns are used as they are
+                return msg;
+            }
+        }
+        return msg;
+    }
+
+}
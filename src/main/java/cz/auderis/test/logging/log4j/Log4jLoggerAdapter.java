@@ -17,8 +17,8 @@
 package cz.auderis.test.logging.log4j;
 
 import cz.auderis.test.logging.LogLevel;
-import cz.auderis.test.logging.LogRecord;
 import cz.auderis.test.logging.LogRecordCollector;
+import cz.auderis.test.logging.LoggerLevelCache;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.apache.log4j.Priority;
@@ -42,102 +42,112 @@ class Log4jLoggerAdapter extends Logger {
         return Collections.unmodifiableMap(levelMap);
     }
 
+    private final LoggerLevelCache levelCache;
+
     protected Log4jLoggerAdapter(String name) {
         super(name);
+        this.levelCache = new LoggerLevelCache(name);
     }
 
     @Override
     public void fatal(Object message) {
-        forcedLog(null, Level.FATAL, message, null);
+        log(LogLevel.FATAL, message, null);
     }
 
     @Override
     public void fatal(Object message, Throwable t) {
-        forcedLog(null, Level.FATAL, message, t);
+        log(LogLevel.FATAL, message, t);
     }
 
     @Override
     public void error(Object message) {
-        forcedLog(null, Level.ERROR, message, null);
+        log(LogLevel.ERROR, message, null);
     }
 
     @Override
     public void error(Object message, Throwable t) {
-        forcedLog(null, Level.ERROR, message, t);
+        log(LogLevel.ERROR, message, t);
     }
 
     @Override
     public void warn(Object message) {
-        forcedLog(null, Level.WARN, message, null);
+        log(LogLevel.WARNING, message, null);
     }
 
     @Override
     public void warn(Object message, Throwable t) {
-        forcedLog(null, Level.WARN, message, t);
+        log(LogLevel.WARNING, message, t);
     }
 
     @Override
     public void info(Object message) {
-        forcedLog(null, Level.INFO, message, null);
+        log(LogLevel.INFO, message, null);
     }
 
     @Override
     public void info(Object message, Throwable t) {
-        forcedLog(null, Level.INFO, message, t);
+        log(LogLevel.INFO, message, t);
     }
 
     @Override
     public void debug(Object message) {
-        forcedLog(null, Level.DEBUG, message, null);
+        log(LogLevel.DEBUG, message, null);
     }
 
     @Override
     public void debug(Object message, Throwable t) {
-        forcedLog(null, Level.DEBUG, message, t);
+        log(LogLevel.DEBUG, message, t);
     }
 
     @Override
     public void trace(Object message) {
-        forcedLog(null, Level.TRACE, message, null);
+        log(LogLevel.TRACE, message, null);
     }
 
     @Override
     public void trace(Object message, Throwable t) {
-        forcedLog(null, Level.TRACE, message, t);
+        log(LogLevel.TRACE, message, t);
     }
 
     @Override
     protected void forcedLog(String ignored, Priority level, Object message, Throwable t) {
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
         final LogLevel internalLevel = LOG4J_TO_INTERNAL.get(level);
-        if ((null == internalLevel) || !recordCollector.isLevelEnabled(internalLevel)) {
+        if (null != internalLevel) {
+            log(internalLevel, message, t);
+        }
+    }
+
+    private void log(LogLevel internalLevel, Object message, Throwable t) {
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (!recordCollector.isLevelEnabled(internalLevel, levelCache)) {
             return;
         }
-        final String msgText;
         if (null == message) {
-            msgText = "";
+            recordCollector.addEnabled(internalLevel, name, "", t);
         } else if (message instanceof String) {
-            msgText = (String) message;
+            recordCollector.addEnabled(internalLevel, name, (String) message, t);
         } else {
-            msgText = message.toString();
+            recordCollector.addEnabled(internalLevel, name, Log4jMessageRenderer.INSTANCE, null, new Object[] { message }, t);
         }
-        final LogRecord record = new LogRecord(internalLevel, name, msgText, t);
-        recordCollector.add(record);
+    }
+
+    private boolean isLevelEnabled(LogLevel level) {
+        return levelCache.isEnabled(LogRecordCollector.current().getLevelSnapshot(), level);
     }
 
     @Override
     public boolean isTraceEnabled() {
-        return LogRecordCollector.RECORD_COLLECTOR.isLevelEnabled(LogLevel.TRACE);
+        return isLevelEnabled(LogLevel.TRACE);
     }
 
     @Override
     public boolean isDebugEnabled() {
-        return LogRecordCollector.RECORD_COLLECTOR.isLevelEnabled(LogLevel.DEBUG);
+        return isLevelEnabled(LogLevel.DEBUG);
     }
 
     @Override
     public boolean isInfoEnabled() {
-        return LogRecordCollector.RECORD_COLLECTOR.isLevelEnabled(LogLevel.INFO);
+        return isLevelEnabled(LogLevel.INFO);
     }
 
 }
@@ -125,18 +125,18 @@ class Log4jLoggerRepository implements LoggerRepository {
         assert null != level : "Invalid Log4J level: " + levelStr;
         final LogLevel internalLevel = Log4jLoggerAdapter.LOG4J_TO_INTERNAL.get(level);
         assert null != internalLevel;
-        LogRecordCollector.RECORD_COLLECTOR.setEnabledLevels(internalLevel.plusHigherLevels());
+        LogRecordCollector.current().setEnabledLevels(internalLevel.plusHigherLevels());
     }
 
     public void setThreshold(Level level) {
         final LogLevel internalLevel = Log4jLoggerAdapter.LOG4J_TO_INTERNAL.get(level);
         assert null != internalLevel;
-        LogRecordCollector.RECORD_COLLECTOR.setEnabledLevels(internalLevel.plusHigherLevels());
+        LogRecordCollector.current().setEnabledLevels(internalLevel.plusHigherLevels());
     }
 
     @Override
     public Level getThreshold() {
-        final Set<LogLevel> enabledLevels = LogRecordCollector.RECORD_COLLECTOR.getEnabledLevels();
+        final Set<LogLevel> enabledLevels = LogRecordCollector.current().getEnabledLevels();
         final LogLevel threshold = LogLevel.lowestLevel(enabledLevels);
         return INTERNAL_TO_LOG4J.get(threshold);
     }
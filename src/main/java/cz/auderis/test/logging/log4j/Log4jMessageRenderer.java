@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging.log4j;
+
+import cz.auderis.test.logging.LogRecordRenderer;
+
+/**
+ * Renders Log4J message objects, which are passed as the only argument, using their {@code toString()}
+ * method; the message pattern is not used.
+ */
+final class Log4jMessageRenderer implements LogRecordRenderer {
+
+    static final Log4jMessageRenderer INSTANCE = new Log4jMessageRenderer();
+
+    private Log4jMessageRenderer() {
+    }
+
+    @Override
+    public String render(String msg, Object o) {
+        return String.valueOf(o);
+    }
+
+    @Override
+    public String render(String msg, Object o1, Object o2) {
+        return String.valueOf(o1);
+    }
+
+    @Override
+    public String render(String msg, Object[] objects) {
+        assert 1 == objects.length;
+        return String.valueOf(objects[0]);
+    }
+
+}
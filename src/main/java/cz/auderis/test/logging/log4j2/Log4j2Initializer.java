@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging.log4j2;
+
+import cz.auderis.test.logging.LogCaptureInitializer;
+
+public class Log4j2Initializer implements LogCaptureInitializer {
+
+    private static final String FACTORY_PROPERTY = "log4j2.loggerContextFactory";
+    private static boolean INITIALIZED = false;
+
+    @Override
+    public boolean isFrameworkPresent() {
+        try {
+            final Class<?> frameworkClass = Class.forName("org.apache.logging.log4j.spi.LoggerContextFactory");
+            assert null != frameworkClass;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void initialize() throws Exception {
+        synchronized (Log4j2Initializer.class) {
+            if (INITIALIZED) {
+                return;
+            }
+            try {
+                // If the log manager is not initialized yet, the property prevents a lookup of the implementation
+                if (null == System.getProperty(FACTORY_PROPERTY)) {
+                    System.setProperty(FACTORY_PROPERTY, Log4j2LoggerContextFactory.class.getName());
+                }
+                final Class<?> managerClass = Class.forName("org.apache.logging.log4j.LogManager");
+                final Class<?> factoryClass = Class.forName("org.apache.logging.log4j.spi.LoggerContextFactory");
+                managerClass.getMethod("setFactory", factoryClass).invoke(null, new Log4j2LoggerContextFactory());
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException("Log4J 2 framework not detected");
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException("Unsupported version of Log4J 2 framework");
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to intercept Log4J 2 manager", e);
+            } finally {
+                INITIALIZED = true;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging.log4j2;
+
+import cz.auderis.test.logging.LogLevel;
+import cz.auderis.test.logging.LogRecordCollector;
+import cz.auderis.test.logging.LoggerLevelCache;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.MessageFactory;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.message.ReusableMessage;
+import org.apache.logging.log4j.message.ReusableParameterizedMessage;
+import org.apache.logging.log4j.spi.AbstractLogger;
+
+/**
+ * Log4j 2 logger passing events to the current collector. Markers are ignored.
+ * <p>
+ * Parameterized messages are captured as their pattern and parameters, which are rendered only when needed.
+ * This holds for reusable messages as well, which Log4j 2 recycles once the log call returns: their pattern
+ * is the caller's string and only references to the parameters are copied, so no text is formatted on the hot path.
+ */
+public class Log4j2LoggerAdapter extends AbstractLogger {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient LoggerLevelCache levelCache;
+
+    protected Log4j2LoggerAdapter(String name, MessageFactory messageFactory) {
+        super(name, messageFactory);
+        this.levelCache = new LoggerLevelCache(name);
+    }
+
+    /**
+     * Maps native levels to internal ones; custom levels are mapped to the nearest standard level
+     */
+    static LogLevel toInternalLevel(Level level) {
+        switch (level.getStandardLevel()) {
+            case FATAL:
+                return LogLevel.FATAL;
+            case ERROR:
+                return LogLevel.ERROR;
+            case WARN:
+                return LogLevel.WARNING;
+            case INFO:
+                return LogLevel.INFO;
+            case DEBUG:
+                return LogLevel.DEBUG;
+            case TRACE:
+            case ALL:
+                return LogLevel.TRACE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Level guards such as {@code isDebugEnabled()} are not actual events, so they are not counted by metrics.
+     * Log4J 2 uses the same overloads for guards and for events with null messages; a real event is recognized
+     * whenever the overload or a non-null argument tells them apart.
+     */
+    private boolean isEnabled(Level level, boolean event) {
+        final LogLevel internalLevel = toInternalLevel(level);
+        if (null == internalLevel) {
+            return false;
+        }
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (!event) {
+            return levelCache.isEnabled(recordCollector.getLevelSnapshot(), internalLevel);
+        }
+        return recordCollector.isLevelEnabled(internalLevel, levelCache);
+    }
+
+    @Override
+    public Level getLevel() {
+        final int mask = levelCache.getMask(LogRecordCollector.current().getLevelSnapshot());
+        for (final LogLevel level : LogLevel.values()) {
+            if (0 != (mask & level.mask())) {
+                return toNativeLevel(level);
+            }
+        }
+        return Level.OFF;
+    }
+
+    private static Level toNativeLevel(LogLevel level) {
+        switch (level) {
+            case TRACE:
+                return Level.TRACE;
+            case DEBUG:
+                return Level.DEBUG;
+            case INFO:
+                return Level.INFO;
+            case WARNING:
+                return Level.WARN;
+            case ERROR:
+                return Level.ERROR;
+            default:
+                return Level.FATAL;
+        }
+    }
+
+    @Override
+    public void logMessage(String fqcn, Level level, Marker marker, Message message, Throwable t) {
+        final LogLevel internalLevel = toInternalLevel(level);
+        if ((null == internalLevel) || (null == message)) {
+            return;
+        }
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (!levelCache.isEnabled(recordCollector.getLevelSnapshot(), internalLevel)) {
+            // Callers bypassing isEnabled(); events rejected there have been counted already
+            return;
+        }
+        final Throwable cause = (null != t) ? t : message.getThrowable();
+        if ((message instanceof ReusableParameterizedMessage) || (message instanceof ParameterizedMessage)) {
+            final Object[] parameters = message.getParameters();
+            if ((null == parameters) || (0 == parameters.length)) {
+                recordCollector.addEnabled(internalLevel, getName(), message.getFormat(), cause);
+            } else {
+                recordCollector.addEnabled(internalLevel, getName(), Log4j2MessageRenderer.PARAMETERIZED, message.getFormat(), parameters, cause);
+            }
+        } else if (message instanceof ReusableMessage) {
+            // Other reusable messages change once the call returns, so they are rendered immediately
+            recordCollector.addEnabled(internalLevel, getName(), message.getFormattedMessage(), cause);
+        } else {
+            recordCollector.addEnabled(internalLevel, getName(), Log4j2MessageRenderer.MESSAGE, null, new Object[] { message }, cause);
+        }
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, Message message, Throwable t) {
+        return isEnabled(level, true);
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, CharSequence message, Throwable t) {
+        return isEnabled(level, true);
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, Object message, Throwable t) {
+        // Used by level guards such as isInfoEnabled() with both arguments null
+        return isEnabled(level, (null != message) || (null != t));
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, String message, Throwable t) {
+        return isEnabled(level, true);
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, String message) {
+        // Used by isDebugEnabled() with a null message
+        return isEnabled(level, null != message);
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, String message, Object... params) {
+        return isEnabled(level, true);
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, String message, Object p0) {
+        return isEnabled(level, true);
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1) {
+        return isEnabled(level, true);
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2) {
+        return isEnabled(level, true);
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2, Object p3) {
+        return isEnabled(level, true);
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2, Object p3, Object p4) {
+        return isEnabled(level, true);
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5) {
+        return isEnabled(level, true);
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5, Object p6) {
+        return isEnabled(level, true);
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7) {
+        return isEnabled(level, true);
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8) {
+        return isEnabled(level, true);
+    }
+
+    @Override
+    public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9) {
+        return isEnabled(level, true);
+    }
+
+}
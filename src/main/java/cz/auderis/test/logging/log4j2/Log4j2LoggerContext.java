@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging.log4j2;
+
+import org.apache.logging.log4j.message.MessageFactory;
+import org.apache.logging.log4j.spi.ExtendedLogger;
+import org.apache.logging.log4j.spi.LoggerContext;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Single logger context shared by all class loaders; loggers are identified by their names only.
+ */
+class Log4j2LoggerContext implements LoggerContext {
+
+    static final Log4j2LoggerContext INSTANCE = new Log4j2LoggerContext();
+    private static final ConcurrentMap<String, Log4j2LoggerAdapter> LOGGERS = new ConcurrentHashMap<String, Log4j2LoggerAdapter>(16);
+
+    private Log4j2LoggerContext() {
+    }
+
+    @Override
+    public Object getExternalContext() {
+        return null;
+    }
+
+    @Override
+    public ExtendedLogger getLogger(String name) {
+        return getLogger(name, null);
+    }
+
+    @Override
+    public ExtendedLogger getLogger(String name, MessageFactory messageFactory) {
+        Log4j2LoggerAdapter logger = LOGGERS.get(name);
+        if (null == logger) {
+            // Default message factory of Log4j 2 is used when none is given
+            final Log4j2LoggerAdapter newLogger = new Log4j2LoggerAdapter(name, messageFactory);
+            final Log4j2LoggerAdapter origLogger = LOGGERS.putIfAbsent(name, newLogger);
+            logger = (null != origLogger) ? origLogger : newLogger;
+        }
+        return logger;
+    }
+
+    @Override
+    public boolean hasLogger(String name) {
+        return LOGGERS.containsKey(name);
+    }
+
+    @Override
+    public boolean hasLogger(String name, MessageFactory messageFactory) {
+        return LOGGERS.containsKey(name);
+    }
+
+    @Override
+    public boolean hasLogger(String name, Class<? extends MessageFactory> messageFactoryClass) {
+        return LOGGERS.containsKey(name);
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging.log4j2;
+
+import org.apache.logging.log4j.spi.LoggerContext;
+import org.apache.logging.log4j.spi.LoggerContextFactory;
+
+import java.net.URI;
+
+/**
+ * Factory providing the capturing logger context. The class can also be named by the system property
+ * {@code log4j2.loggerContextFactory}, in which case Log4j 2 does not look for other implementations.
+ */
+public class Log4j2LoggerContextFactory implements LoggerContextFactory {
+
+    @Override
+    public LoggerContext getContext(String fqcn, ClassLoader loader, Object externalContext, boolean currentContext) {
+        return Log4j2LoggerContext.INSTANCE;
+    }
+
+    @Override
+    public LoggerContext getContext(String fqcn, ClassLoader loader, Object externalContext, boolean currentContext, URI configLocation, String name) {
+        return Log4j2LoggerContext.INSTANCE;
+    }
+
+    @Override
+    public void removeContext(LoggerContext context) {
+        // Shared context is never removed
+    }
+
+}
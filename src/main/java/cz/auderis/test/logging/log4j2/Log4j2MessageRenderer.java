@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging.log4j2;
+
+import cz.auderis.test.logging.LogRecordRenderer;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+
+/**
+ * Renderers of Log4j 2 messages.
+ */
+enum Log4j2MessageRenderer implements LogRecordRenderer {
+
+    /**
+     * Renders messages using <code>{}</code> placeholders
+     */
+    PARAMETERIZED {
+        @Override
+        public String render(String msg, Object[] objects) {
+            return ParameterizedMessage.format(msg, objects);
+        }
+    },
+
+    /**
+     * Renders immutable message objects, which are passed as the only argument; the message pattern is not used
+     */
+    MESSAGE {
+        @Override
+        public String render(String msg, Object[] objects) {
+            assert 1 == objects.length;
+            return ((Message) objects[0]).getFormattedMessage();
+        }
+    }
+    ;
+
+    @Override
+    public String render(String msg, Object o) {
+        return render(msg, new Object[] { o });
+    }
+
+    @Override
+    public String render(String msg, Object o1, Object o2) {
+        return render(msg, new Object[] { o1, o2 });
+    }
+
+}
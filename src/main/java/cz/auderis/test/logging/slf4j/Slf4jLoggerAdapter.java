@@ -17,23 +17,22 @@
 package cz.auderis.test.logging.slf4j;
 
 import cz.auderis.test.logging.LogLevel;
-import cz.auderis.test.logging.LogRecord;
 import cz.auderis.test.logging.LogRecordCollector;
-import org.slf4j.helpers.FormattingTuple;
+import cz.auderis.test.logging.LoggerLevelCache;
 import org.slf4j.helpers.MarkerIgnoringBase;
-import org.slf4j.helpers.MessageFormatter;
-
-import java.util.Arrays;
 
 public class Slf4jLoggerAdapter extends MarkerIgnoringBase {
 
+    private final transient LoggerLevelCache levelCache;
+
     public Slf4jLoggerAdapter(String name) {
         this.name = name;
+        this.levelCache = new LoggerLevelCache(name);
     }
 
     private boolean isLevelEnabled(LogLevel level) {
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
-        return recordCollector.isLevelEnabled(level);
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        return levelCache.isEnabled(recordCollector.getLevelSnapshot(), level);
     }
 
     @Override
@@ -62,61 +61,60 @@ public class Slf4jLoggerAdapter extends MarkerIgnoringBase {
     }
 
     private void log(LogLevel currentLevel, String s, Object o) {
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
-        if (recordCollector.isLevelEnabled(currentLevel)) {
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (recordCollector.isLevelEnabled(currentLevel, levelCache)) {
             assert !(o instanceof Throwable);
-            final String msg = render(s, o);
-            recordCollector.add(new LogRecord(currentLevel, name, msg, null));
+            recordCollector.addEnabled(currentLevel, name, Slf4jMessageRenderer.ARGUMENTS_ONLY, s, new Object[] { o }, null);
         }
     }
 
     private void log(LogLevel currentLevel, String s, Object o1, Object o2) {
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
-        if (recordCollector.isLevelEnabled(currentLevel)) {
-            final String msg;
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (recordCollector.isLevelEnabled(currentLevel, levelCache)) {
+            final Object[] arguments;
             final Throwable cause;
             if (o2 instanceof Throwable) {
                 cause = (Throwable) o2;
-                msg = render(s, o1);
+                arguments = new Object[] { o1 };
             } else {
                 cause = null;
-                msg = render(s, o1, o2);
+                arguments = new Object[] { o1, o2 };
             }
-            recordCollector.add(new LogRecord(currentLevel, name, msg, cause));
+            // The cause was already separated from the arguments, so the renderer must not look for it again
+            recordCollector.addEnabled(currentLevel, name, Slf4jMessageRenderer.ARGUMENTS_ONLY, s, arguments, cause);
         }
     }
 
     private void log(LogLevel currentLevel, String s, Object[] objects) {
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
-        if (recordCollector.isLevelEnabled(currentLevel)) {
-            final String msg;
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (recordCollector.isLevelEnabled(currentLevel, levelCache)) {
             final Throwable cause;
             if ((0 != objects.length) && (objects[objects.length - 1] instanceof Throwable)) {
                 cause = (Throwable) objects[objects.length - 1];
-                msg = render(s, true, objects);
             } else {
                 cause = null;
-                msg = render(s, false, objects);
             }
-            recordCollector.add(new LogRecord(currentLevel, name, msg, cause));
+            // Trailing cause is skipped by the renderer
+            final Slf4jMessageRenderer renderer = (null != cause) ? Slf4jMessageRenderer.TRAILING_CAUSE : Slf4jMessageRenderer.ARGUMENTS_ONLY;
+            recordCollector.addEnabled(currentLevel, name, renderer, s, objects, cause);
         }
     }
 
     @Override
     public void trace(String s) {
         final LogLevel currentLevel = LogLevel.TRACE;
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
-        if (recordCollector.isLevelEnabled(currentLevel)) {
-            recordCollector.add(new LogRecord(currentLevel, name, s, null));
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (recordCollector.isLevelEnabled(currentLevel, levelCache)) {
+            recordCollector.addEnabled(currentLevel, name, s, null);
         }
     }
 
     @Override
     public void trace(String s, Throwable throwable) {
         final LogLevel currentLevel = LogLevel.TRACE;
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
-        if (recordCollector.isLevelEnabled(currentLevel)) {
-            recordCollector.add(new LogRecord(currentLevel, name, s, throwable));
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (recordCollector.isLevelEnabled(currentLevel, levelCache)) {
+            recordCollector.addEnabled(currentLevel, name, s, throwable);
         }
     }
 
@@ -138,18 +136,18 @@ public class Slf4jLoggerAdapter extends MarkerIgnoringBase {
     @Override
     public void debug(String s) {
         final LogLevel currentLevel = LogLevel.DEBUG;
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
-        if (recordCollector.isLevelEnabled(currentLevel)) {
-            recordCollector.add(new LogRecord(currentLevel, name, s, null));
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (recordCollector.isLevelEnabled(currentLevel, levelCache)) {
+            recordCollector.addEnabled(currentLevel, name, s, null);
         }
     }
 
     @Override
     public void debug(String s, Throwable throwable) {
         final LogLevel currentLevel = LogLevel.DEBUG;
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
-        if (recordCollector.isLevelEnabled(currentLevel)) {
-            recordCollector.add(new LogRecord(currentLevel, name, s, throwable));
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (recordCollector.isLevelEnabled(currentLevel, levelCache)) {
+            recordCollector.addEnabled(currentLevel, name, s, throwable);
         }
     }
 
@@ -171,18 +169,18 @@ public class Slf4jLoggerAdapter extends MarkerIgnoringBase {
     @Override
     public void info(String s) {
         final LogLevel currentLevel = LogLevel.INFO;
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
-        if (recordCollector.isLevelEnabled(currentLevel)) {
-            recordCollector.add(new LogRecord(currentLevel, name, s, null));
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (recordCollector.isLevelEnabled(currentLevel, levelCache)) {
+            recordCollector.addEnabled(currentLevel, name, s, null);
         }
     }
 
     @Override
     public void info(String s, Throwable throwable) {
         final LogLevel currentLevel = LogLevel.INFO;
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
-        if (recordCollector.isLevelEnabled(currentLevel)) {
-            recordCollector.add(new LogRecord(currentLevel, name, s, throwable));
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (recordCollector.isLevelEnabled(currentLevel, levelCache)) {
+            recordCollector.addEnabled(currentLevel, name, s, throwable);
         }
     }
 
@@ -204,18 +202,18 @@ public class Slf4jLoggerAdapter extends MarkerIgnoringBase {
     @Override
     public void warn(String s) {
         final LogLevel currentLevel = LogLevel.WARNING;
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
-        if (recordCollector.isLevelEnabled(currentLevel)) {
-            recordCollector.add(new LogRecord(currentLevel, name, s, null));
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (recordCollector.isLevelEnabled(currentLevel, levelCache)) {
+            recordCollector.addEnabled(currentLevel, name, s, null);
         }
     }
 
     @Override
     public void warn(String s, Throwable throwable) {
         final LogLevel currentLevel = LogLevel.WARNING;
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
-        if (recordCollector.isLevelEnabled(currentLevel)) {
-            recordCollector.add(new LogRecord(currentLevel, name, s, throwable));
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (recordCollector.isLevelEnabled(currentLevel, levelCache)) {
+            recordCollector.addEnabled(currentLevel, name, s, throwable);
         }
     }
 
@@ -237,18 +235,18 @@ public class Slf4jLoggerAdapter extends MarkerIgnoringBase {
     @Override
     public void error(String s) {
         final LogLevel currentLevel = LogLevel.ERROR;
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
-        if (recordCollector.isLevelEnabled(currentLevel)) {
-            recordCollector.add(new LogRecord(currentLevel, name, s, null));
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (recordCollector.isLevelEnabled(currentLevel, levelCache)) {
+            recordCollector.addEnabled(currentLevel, name, s, null);
         }
     }
 
     @Override
     public void error(String s, Throwable throwable) {
         final LogLevel currentLevel = LogLevel.ERROR;
-        final LogRecordCollector recordCollector = LogRecordCollector.RECORD_COLLECTOR;
-        if (recordCollector.isLevelEnabled(currentLevel)) {
-            recordCollector.add(new LogRecord(currentLevel, name, s, throwable));
+        final LogRecordCollector recordCollector = LogRecordCollector.current();
+        if (recordCollector.isLevelEnabled(currentLevel, levelCache)) {
+            recordCollector.addEnabled(currentLevel, name, s, throwable);
         }
     }
 
@@ -267,43 +265,4 @@ public class Slf4jLoggerAdapter extends MarkerIgnoringBase {
         log(LogLevel.ERROR, s, objects);
     }
 
-    private String render(String msg, Object o) {
-        assert !(o instanceof Throwable);
-        final FormattingTuple fmtTuple = MessageFormatter.arrayFormat(msg, new Object[] { o }, null);
-        return fmtTuple.getMessage();
-    }
-
-    private String render(String msg, Object o1, Object o2) {
-        assert !(o2 instanceof Throwable);
-        final FormattingTuple fmtTuple = MessageFormatter.arrayFormat(msg, new Object[] { o1, o2 }, null);
-        return fmtTuple.getMessage();
-    }
-
-    private String render(String msg, boolean ignoreLast, Object[] objects) {
-        assert objects.length > 0;
-        assert ignoreLast || !(objects[objects.length - 1] instanceof Throwable);
-        final Object[] objectArg;
-        if (!ignoreLast || (null == msg)) {
-            objectArg = objects;
-        } else {
-            final int availableParameters = objects.length - 1;
-            // If there is at most 'availableParameters' placeholders in the msg argument, we can safely pass
-            // the reference to the original array, as the last array item will be ignored. Notice that the
-            // number of placeholders is only approximated.
-            int placeholderCount = 0;
-            int searchIndex = 0;
-            while ((placeholderCount <= availableParameters) && (-1 != (searchIndex = msg.indexOf('{', searchIndex)))) {
-                ++placeholderCount;
-                ++searchIndex;
-            }
-            if (placeholderCount <= availableParameters) {
-                objectArg = objects;
-            } else {
-                objectArg = Arrays.copyOf(objects, availableParameters);
-            }
-        }
-        final FormattingTuple fmtTuple = MessageFormatter.arrayFormat(msg, objectArg, null);
-        return fmtTuple.getMessage();
-    }
-
 }
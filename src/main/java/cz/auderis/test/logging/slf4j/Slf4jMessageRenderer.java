@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging.slf4j;
+
+import cz.auderis.test.logging.LogRecordRenderer;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.util.Arrays;
+
+/**
+ * Renders messages with SLF4J placeholders. Whether the last argument is the cause of the record, and is therefore
+ * not used for placeholder substitution, is decided by the logger when the record is created: it selects
+ * {@link #TRAILING_CAUSE} in that case and {@link #ARGUMENTS_ONLY} otherwise.
+ */
+final class Slf4jMessageRenderer implements LogRecordRenderer {
+
+    static final Slf4jMessageRenderer ARGUMENTS_ONLY = new Slf4jMessageRenderer(false);
+    static final Slf4jMessageRenderer TRAILING_CAUSE = new Slf4jMessageRenderer(true);
+
+    private final boolean ignoreLast;
+
+    private Slf4jMessageRenderer(boolean ignoreLast) {
+        this.ignoreLast = ignoreLast;
+    }
+
+    @Override
+    public String render(String msg, Object o) {
+        return render(msg, new Object[] { o });
+    }
+
+    @Override
+    public String render(String msg, Object o1, Object o2) {
+        return render(msg, new Object[] { o1, o2 });
+    }
+
+    @Override
+    public String render(String msg, Object[] objects) {
+        final Object[] objectArg;
+        if (!ignoreLast || (0 == objects.length) || (null == msg)) {
+            objectArg = objects;
+        } else {
+            final int availableParameters = objects.length - 1;
+            // If there is at most 'availableParameters' placeholders in the msg argument, we can safely pass
+            // the reference to the original array, as the last array item will be ignored. Notice that the
+            // number of placeholders is only approximated.
+            int placeholderCount = 0;
+            int searchIndex = 0;
+            while ((placeholderCount <= availableParameters) && (-1 != (searchIndex = msg.indexOf('{', searchIndex)))) {
+                ++placeholderCount;
+                ++searchIndex;
+            }
+            if (placeholderCount <= availableParameters) {
+                objectArg = objects;
+            } else {
+                objectArg = Arrays.copyOf(objects, availableParameters);
+            }
+        }
+        // Explicit null throwable prevents the formatter from applying its own trailing throwable rule
+        final FormattingTuple fmtTuple = MessageFormatter.arrayFormat(msg, objectArg, null);
+        return fmtTuple.getMessage();
+    }
+
+}
@@ -1,16 +1,12 @@
 package cz.auderis.test.parameter.annotation.impl;
 
-import java.beans.PropertyEditor;
-import java.beans.PropertyEditorManager;
+import cz.auderis.test.support.convert.StringConverters;
+
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -19,12 +15,17 @@ import java.util.regex.Pattern;
  */
 public abstract class AbstractKeyValueConverter {
 
+    /**
+     * @deprecated key-value specifications are parsed by a tokenizer, the pattern is kept for subclasses only
+     */
+    @Deprecated
     protected static final Pattern KEY_VALUE_PATTERN = Pattern.compile("(?:^\\s*|\\G\\s+)(\\w+)\\s*=\\s*(?:((?!')\\S*)|'((?:[^'\\\\]|\\\\.)*+)(?<!\\\\)')");
 
     protected Class<?> beanClass;
     protected Class<?> propertyDelegateClass;
     protected Object propertyDelegate;
     private Method delegateExtraPropertySetter;
+    private BeanBinder binder;
 
     protected AbstractKeyValueConverter() {
     }
@@ -61,6 +62,7 @@ public abstract class AbstractKeyValueConverter {
                 delegateExtraPropertySetter.setAccessible(true);
             }
         }
+        this.binder = BeanBinder.forClasses(beanClass, propertyDelegateClass);
     }
 
     public Object convert(Object param) {
@@ -82,43 +84,13 @@ public abstract class AbstractKeyValueConverter {
         PROPERTY_ITERATION:
         for (KeyValue keyValue : keyValues) {
             final String propertyName = keyValue.key;
-            final Setter propertySetter = resolvePropertySetter(propertyName);
-            if (null != propertySetter) {
-                final Class<?> setterArgumentType = propertySetter.valueParameterType;
-                final Object setterArgument = adaptArgumentToType(keyValue.value, setterArgumentType);
-                try {
-                    propertySetter.method.setAccessible(true);
-                    if (propertySetter.applyOnDelegate) {
-                        propertySetter.method.invoke(propertyDelegate, target, setterArgument);
-                    } else {
-                        propertySetter.method.invoke(target, setterArgument);
-                    }
-                } catch (InvocationTargetException e) {
-                    throw new IllegalArgumentException("Cannot set property '" + propertyName + "' on " + beanClass + ": " + setterArgument, e.getCause());
-                } catch (Exception e) {
-                    throw new IllegalArgumentException("Cannot set property '" + propertyName + "' on " + beanClass + ": " + setterArgument, e);
-                } finally {
-                    propertySetter.restoreAccess();
-                }
+            // Setter or field injection, resolved once per bean class
+            final BeanBinder.PropertyBinding propertyBinding = binder.getProperty(propertyName);
+            if (null != propertyBinding) {
+                propertyBinding.apply(target, propertyDelegate, keyValue.value);
                 continue PROPERTY_ITERATION;
             }
-            // Fallback 1: try injecting into the field
-            final Field propertyField = findField(propertyName, beanClass);
-            if (null != propertyField) {
-                final Class<?> fieldType = propertyField.getType();
-                final Object fieldValue = adaptArgumentToType(keyValue.value, fieldType);
-                final boolean origAccess = propertyField.isAccessible();
-                try {
-                    propertyField.setAccessible(true);
-                    propertyField.set(target, fieldValue);
-                } catch (IllegalAccessException e) {
-                    throw new IllegalArgumentException("Cannot inject field '" + propertyName + "' in " + beanClass + ": " + fieldValue, e);
-                } finally {
-                    propertyField.setAccessible(origAccess);
-                }
-                continue PROPERTY_ITERATION;
-            }
-            // Fallback 2: use optional extra property setter
+            // Fallback 1: use optional extra property setter
             if (null != delegateExtraPropertySetter) {
                 try {
                     delegateExtraPropertySetter.invoke(propertyDelegate, target, propertyName, keyValue.value);
@@ -129,7 +101,7 @@ public abstract class AbstractKeyValueConverter {
                 }
                 continue PROPERTY_ITERATION;
             }
-            // Fallback 3: give a chance to subclasses
+            // Fallback 2: give a chance to subclasses
             final boolean handledBySubclass = applyProperty(target, propertyName, keyValue.value);
             if (handledBySubclass) {
                 continue PROPERTY_ITERATION;
@@ -144,68 +116,7 @@ public abstract class AbstractKeyValueConverter {
     }
 
     static Object adaptArgumentToType(String value, Class<?> targetType) {
-        if (String.class == targetType) {
-            return value;
-        }
-        // Try static valueOf() method
-        try {
-            final Method valueOfMethod = targetType.getMethod("valueOf", String.class);
-            final Class<?> returnType = valueOfMethod.getReturnType();
-            if (Modifier.isStatic(valueOfMethod.getModifiers()) && (returnType == targetType)) {
-                final Object valueOfResult = valueOfMethod.invoke(null, value);
-                return valueOfResult;
-            }
-        } catch (Exception e) {
-            // Either there is no valueOf() method or it failed to process the argument, continue
-        }
-        // Try using JavaBeans property editor approach
-        final PropertyEditor propertyEditor = PropertyEditorManager.findEditor(targetType);
-        if (null == propertyEditor) {
-            throw new IllegalStateException("No property editor defined: " + targetType);
-        }
-        propertyEditor.setAsText(value);
-        final Object setterArgument = propertyEditor.getValue();
-        return setterArgument;
-    }
-
-    Setter resolvePropertySetter(String propertyName) {
-        final String capitalizedPropertyName = Character.toUpperCase(propertyName.charAt(0)) + propertyName.substring(1);
-        // Resolve getter and infer property type
-        final String getterName = "get" + capitalizedPropertyName;
-        final Method delegateGetter = findMethod(getterName, propertyDelegateClass, beanClass);
-        final Class<?> propertyType;
-        if (null != delegateGetter) {
-            propertyType = delegateGetter.getReturnType();
-        } else {
-            final Method directGetter = findMethod(getterName, beanClass);
-            if (null != directGetter) {
-                propertyType = directGetter.getReturnType();
-            } else {
-                propertyType = Void.class;
-            }
-        }
-        // Look up setter: from delegate with proper argument type
-        final String setterName = "set" + capitalizedPropertyName;
-        if (Void.class != propertyType) {
-            final Method delegateSetter = findMethod(setterName, propertyDelegateClass, beanClass, propertyType);
-            if (null != delegateSetter) {
-                return new Setter(delegateSetter, true, propertyType);
-            }
-        }
-        // Fallback 1: from delegate, but with string type argument
-        final Method delegateStringSetter = findMethod(setterName, propertyDelegateClass, beanClass, String.class);
-        if (null != delegateStringSetter) {
-            return new Setter(delegateStringSetter, true, String.class);
-        }
-        // Fallback 2: normal setter from the bean itself (with proper argument type)
-        if (Void.class != propertyType) {
-            final Method directSetter = findMethod(setterName, beanClass, propertyType);
-            if (null != directSetter) {
-                return new Setter(directSetter, false, propertyType);
-            }
-        }
-        // No setter was found
-        return null;
+        return StringConverters.forType(targetType).convert(value);
     }
 
     static Method findMethod(String methodName, Class<?> startClass, Class<?>... argumentTypes) {
@@ -237,50 +148,30 @@ public abstract class AbstractKeyValueConverter {
     }
 
     static List<KeyValue> parseKeyValues(Object param) {
-        final String beanSpec = param.toString();
-        //
-        final List<KeyValue> recordList = new LinkedList<>();
-        final Map<String, KeyValue> recordsByKey = new HashMap<>(16);
-        final Matcher beanSpecMatcher = KEY_VALUE_PATTERN.matcher(beanSpec);
-        while (beanSpecMatcher.find()) {
-            final String key = beanSpecMatcher.group(1).intern();
-            String value = beanSpecMatcher.group(3);
-            if (null == value) {
-                value = beanSpecMatcher.group(2);
-                if ("<null>".equalsIgnoreCase(value)) {
-                    value = null;
+        final KeyValueTokenizer tokenizer = new KeyValueTokenizer(param.toString());
+        final List<KeyValue> recordList = new ArrayList<>(8);
+        while (tokenizer.next()) {
+            // Rows have few keys, so repeated keys are found by a linear scan without creating key strings
+            KeyValue keyValue = null;
+            for (final KeyValue record : recordList) {
+                if (tokenizer.keyEquals(record.key)) {
+                    keyValue = record;
+                    break;
                 }
-            } else {
-                value = unescapeValue(value);
             }
-            KeyValue keyValue = recordsByKey.get(key);
             if (null == keyValue) {
-                keyValue = new KeyValue(key);
+                keyValue = new KeyValue(tokenizer.key());
                 recordList.add(keyValue);
-                recordsByKey.put(key, keyValue);
             }
-            keyValue.value = value;
+            if (!tokenizer.quoted && tokenizer.valueEquals("<null>", true)) {
+                keyValue.value = null;
+            } else {
+                keyValue.value = tokenizer.value();
+            }
         }
         return recordList;
     }
 
-    static String unescapeValue(String value) {
-        final int length = value.length();
-        final StringBuilder str = new StringBuilder(length);
-        int lastIndex = 0;
-        int index;
-        while (-1 != (index = value.indexOf('\\', lastIndex))) {
-            str.append(value, lastIndex, index);
-            final int escapedCharIndex = Math.min(index + 1, length - 1);
-            str.append(value.charAt(escapedCharIndex));
-            lastIndex = escapedCharIndex + 1;
-        }
-        if (lastIndex < length) {
-            str.append(value, lastIndex, length);
-        }
-        return str.toString();
-    }
-
     static final class KeyValue {
         final String key;
         String value;
@@ -290,25 +181,4 @@ public abstract class AbstractKeyValueConverter {
         }
     }
 
-    static final class Setter {
-        final Method method;
-        final boolean applyOnDelegate;
-        final Class<?> valueParameterType;
-        final boolean originallyAccessible;
-
-        Setter(Method method, boolean applyOnDelegate, Class<?> valueParameterType) {
-            this.method = method;
-            this.applyOnDelegate = applyOnDelegate;
-            this.valueParameterType = valueParameterType;
-            this.originallyAccessible = method.isAccessible();
-        }
-
-        void restoreAccess() {
-            if (!originallyAccessible) {
-                method.setAccessible(false);
-            }
-        }
-
-    }
-
 }
@@ -0,0 +1,180 @@
+package cz.auderis.test.parameter.annotation.impl;
+
+import cz.auderis.test.support.convert.StringConverter;
+import cz.auderis.test.support.convert.StringConverters;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Sets properties of beans of a single class, optionally with help of a property delegate class. Every property
+ * is resolved to a setter (of the delegate or of the bean) or a field only once, when it is first used;
+ * the result is kept together with a pre-resolved {@link StringConverter} for its type. Binders are cached
+ * per bean class and delegate class.
+ */
+final class BeanBinder {
+
+    private static final ClassValue<ConcurrentMap<Class<?>, BeanBinder>> BINDERS = new ClassValue<ConcurrentMap<Class<?>, BeanBinder>>() {
+        @Override
+        protected ConcurrentMap<Class<?>, BeanBinder> computeValue(Class<?> beanClass) {
+            return new ConcurrentHashMap<>(4);
+        }
+    };
+
+    private static final PropertyBinding UNRESOLVED = new PropertyBinding(null, null, null, false, false, null);
+    private static final MethodType DIRECT_SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType DELEGATE_SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class, Object.class);
+
+    private final Class<?> beanClass;
+    private final Class<?> delegateClass;
+    private final ConcurrentMap<String, PropertyBinding> properties;
+
+    static BeanBinder forClasses(Class<?> beanClass, Class<?> delegateClass) {
+        final Class<?> delegateKey = (null != delegateClass) ? delegateClass : Void.class;
+        final ConcurrentMap<Class<?>, BeanBinder> binders = BINDERS.get(beanClass);
+        final BeanBinder binder = binders.get(delegateKey);
+        if (null != binder) {
+            return binder;
+        }
+        final BeanBinder newBinder = new BeanBinder(beanClass, delegateClass);
+        final BeanBinder concurrentBinder = binders.putIfAbsent(delegateKey, newBinder);
+        return (null != concurrentBinder) ? concurrentBinder : newBinder;
+    }
+
+    private BeanBinder(Class<?> beanClass, Class<?> delegateClass) {
+        this.beanClass = beanClass;
+        this.delegateClass = delegateClass;
+        this.properties = new ConcurrentHashMap<>(16);
+    }
+
+    /**
+     * Returns binding of the property, or {@code null} if the property has neither setter nor field
+     */
+    PropertyBinding getProperty(String propertyName) {
+        PropertyBinding binding = properties.get(propertyName);
+        if (null == binding) {
+            binding = resolveProperty(propertyName);
+            properties.putIfAbsent(propertyName, binding);
+        }
+        return (UNRESOLVED != binding) ? binding : null;
+    }
+
+    private PropertyBinding resolveProperty(String propertyName) {
+        final String capitalizedPropertyName = Character.toUpperCase(propertyName.charAt(0)) + propertyName.substring(1);
+        // Resolve getter and infer property type
+        final String getterName = "get" + capitalizedPropertyName;
+        final Method delegateGetter = AbstractKeyValueConverter.findMethod(getterName, delegateClass, beanClass);
+        final Class<?> propertyType;
+        if (null != delegateGetter) {
+            propertyType = delegateGetter.getReturnType();
+        } else {
+            final Method directGetter = AbstractKeyValueConverter.findMethod(getterName, beanClass);
+            propertyType = (null != directGetter) ? directGetter.getReturnType() : Void.class;
+        }
+        // Look up setter: from delegate with proper argument type
+        final String setterName = "set" + capitalizedPropertyName;
+        if (Void.class != propertyType) {
+            final Method delegateSetter = AbstractKeyValueConverter.findMethod(setterName, delegateClass, beanClass, propertyType);
+            if (null != delegateSetter) {
+                return setterBinding(propertyName, delegateSetter, true, propertyType);
+            }
+        }
+        // Fallback 1: from delegate, but with string type argument
+        final Method delegateStringSetter = AbstractKeyValueConverter.findMethod(setterName, delegateClass, beanClass, String.class);
+        if (null != delegateStringSetter) {
+            return setterBinding(propertyName, delegateStringSetter, true, String.class);
+        }
+        // Fallback 2: normal setter from the bean itself (with proper argument type)
+        if (Void.class != propertyType) {
+            final Method directSetter = AbstractKeyValueConverter.findMethod(setterName, beanClass, propertyType);
+            if (null != directSetter) {
+                return setterBinding(propertyName, directSetter, false, propertyType);
+            }
+        }
+        // Fallback 3: inject into the field
+        final Field propertyField = AbstractKeyValueConverter.findField(propertyName, beanClass);
+        if (null != propertyField) {
+            return fieldBinding(propertyName, propertyField);
+        }
+        return UNRESOLVED;
+    }
+
+    private PropertyBinding setterBinding(String propertyName, Method setter, boolean onDelegate, Class<?> valueType) {
+        final MethodHandle handle;
+        try {
+            setter.setAccessible(true);
+            MethodHandle setterHandle = MethodHandles.lookup().unreflect(setter);
+            if (Modifier.isStatic(setter.getModifiers())) {
+                // Static methods do not use the delegate or bean instance
+                setterHandle = MethodHandles.dropArguments(setterHandle, 0, Object.class);
+            }
+            handle = setterHandle.asType(onDelegate ? DELEGATE_SETTER_TYPE : DIRECT_SETTER_TYPE);
+        } catch (IllegalAccessException | SecurityException e) {
+            throw new IllegalArgumentException("Cannot access setter of property '" + propertyName + "' on " + beanClass, e);
+        }
+        return new PropertyBinding(beanClass, propertyName, handle, onDelegate, false, valueType);
+    }
+
+    private PropertyBinding fieldBinding(String propertyName, Field field) {
+        final MethodHandle handle;
+        try {
+            field.setAccessible(true);
+            MethodHandle setterHandle = MethodHandles.lookup().unreflectSetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+                // Static fields do not use the bean instance
+                setterHandle = MethodHandles.dropArguments(setterHandle, 0, Object.class);
+            }
+            handle = setterHandle.asType(DIRECT_SETTER_TYPE);
+        } catch (IllegalAccessException | SecurityException e) {
+            throw new IllegalArgumentException("Cannot inject field '" + propertyName + "' in " + beanClass, e);
+        }
+        return new PropertyBinding(beanClass, propertyName, handle, false, true, field.getType());
+    }
+
+    static final class PropertyBinding {
+        private final Class<?> beanClass;
+        private final String propertyName;
+        private final MethodHandle setter;
+        private final boolean onDelegate;
+        private final boolean field;
+        private final Class<?> valueType;
+        private final StringConverter<?> converter;
+
+        PropertyBinding(Class<?> beanClass, String propertyName, MethodHandle setter, boolean onDelegate, boolean field, Class<?> valueType) {
+            this.beanClass = beanClass;
+            this.propertyName = propertyName;
+            this.setter = setter;
+            this.onDelegate = onDelegate;
+            this.field = field;
+            this.valueType = valueType;
+            this.converter = (null != valueType) ? StringConverters.find(valueType) : null;
+        }
+
+        void apply(Object target, Object delegate, String value) {
+            // Unsupported types are looked up again, a converter may have been registered in the meantime
+            final StringConverter<?> valueConverter = (null != converter) ? converter : StringConverters.forType(valueType);
+            final Object argument = valueConverter.convert(value);
+            try {
+                if (onDelegate) {
+                    setter.invokeExact(delegate, target, argument);
+                } else {
+                    setter.invokeExact(target, argument);
+                }
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                if (field) {
+                    throw new IllegalArgumentException("Cannot inject field '" + propertyName + "' in " + beanClass + ": " + argument, e);
+                }
+                throw new IllegalArgumentException("Cannot set property '" + propertyName + "' on " + beanClass + ": " + argument, e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package cz.auderis.test.parameter.annotation.impl;
+
+/**
+ * Single-pass tokenizer of key-value specifications such as {@code x=123 name='hello world'}. Keys are
+ * word characters followed by {@code '='}; values are either a run of non-whitespace characters or
+ * a single-quoted string, where a backslash escapes the following character. Pairs are separated by whitespace.
+ * <p>
+ * The tokenizer does not allocate: after each successful {@link #next()} the positions of the current key
+ * and value are available in the fields. Syntax errors are reported with the 1-based column of the offending
+ * character.
+ */
+final class KeyValueTokenizer {
+
+    private final String text;
+    private final int length;
+    private int position;
+    private int tokenCount;
+
+    int keyStart;
+    int keyEnd;
+    int valueStart;
+    int valueEnd;
+    boolean quoted;
+    boolean escaped;
+
+    KeyValueTokenizer(String text) {
+        this.text = text;
+        this.length = text.length();
+    }
+
+    /**
+     * Advances to the next key-value pair
+     *
+     * @return {@code false} if there are no more pairs
+     * @throws IllegalArgumentException if the specification is malformed
+     */
+    boolean next() {
+        final int separatorStart = position;
+        int i = skipWhitespace(position);
+        if (i == length) {
+            position = i;
+            return false;
+        } else if ((0 != tokenCount) && (i == separatorStart)) {
+            throw syntaxError(i, "whitespace expected");
+        }
+        keyStart = i;
+        while ((i < length) && isWordChar(text.charAt(i))) {
+            ++i;
+        }
+        if (i == keyStart) {
+            throw syntaxError(i, "key expected");
+        }
+        keyEnd = i;
+        i = skipWhitespace(i);
+        if ((i == length) || ('=' != text.charAt(i))) {
+            throw syntaxError(i, "'=' expected");
+        }
+        i = skipWhitespace(i + 1);
+        escaped = false;
+        if ((i < length) && ('\'' == text.charAt(i))) {
+            quoted = true;
+            final int quoteStart = i;
+            valueStart = ++i;
+            while (true) {
+                if (i >= length) {
+                    throw syntaxError(quoteStart, "unterminated quoted value");
+                }
+                final char c = text.charAt(i);
+                if ('\'' == c) {
+                    break;
+                } else if ('\\' == c) {
+                    escaped = true;
+                    i += 2;
+                } else {
+                    ++i;
+                }
+            }
+            valueEnd = i++;
+        } else {
+            quoted = false;
+            valueStart = i;
+            while ((i < length) && !isWhitespace(text.charAt(i))) {
+                ++i;
+            }
+            valueEnd = i;
+        }
+        position = i;
+        ++tokenCount;
+        return true;
+    }
+
+    String key() {
+        return text.substring(keyStart, keyEnd);
+    }
+
+    /**
+     * Returns the value with escape sequences of quoted values resolved
+     */
+    String value() {
+        if (!escaped) {
+            return text.substring(valueStart, valueEnd);
+        }
+        final StringBuilder value = new StringBuilder(valueEnd - valueStart);
+        int i = valueStart;
+        while (i < valueEnd) {
+            final char c = text.charAt(i++);
+            value.append(('\\' == c) ? text.charAt(i++) : c);
+        }
+        return value.toString();
+    }
+
+    boolean keyEquals(String expected) {
+        final int keyLength = keyEnd - keyStart;
+        return (keyLength == expected.length()) && text.regionMatches(keyStart, expected, 0, keyLength);
+    }
+
+    boolean valueEquals(String expected, boolean ignoreCase) {
+        final int valueLength = valueEnd - valueStart;
+        return (valueLength == expected.length()) && text.regionMatches(ignoreCase, valueStart, expected, 0, valueLength);
+    }
+
+    private int skipWhitespace(int start) {
+        int i = start;
+        while ((i < length) && isWhitespace(text.charAt(i))) {
+            ++i;
+        }
+        return i;
+    }
+
+    private IllegalArgumentException syntaxError(int index, String message) {
+        return new IllegalArgumentException("Invalid key-value specification at column " + (index + 1) + ": " + message + ": " + text);
+    }
+
+    private static boolean isWordChar(char c) {
+        return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9')) || ('_' == c);
+    }
+
+    private static boolean isWhitespace(char c) {
+        return (' ' == c) || ('\t' == c) || ('\n' == c) || ('\013' == c) || ('\f' == c) || ('\r' == c);
+    }
+
+}
@@ -20,13 +20,12 @@ import cz.auderis.test.parameter.annotation.MultiArray;
 import cz.auderis.test.support.array.ArraySequenceParser;
 import cz.auderis.test.support.array.BasicArraySequenceParsers;
 import cz.auderis.test.support.array.BuiltInItemSupport;
+import cz.auderis.test.support.array.ConvertingArrayItemFiller;
 import cz.auderis.test.support.array.PrimitiveArrayItemSupport;
-import cz.auderis.test.support.array.PropertyEditorArrayItemFiller;
+import cz.auderis.test.support.convert.StringConverter;
+import cz.auderis.test.support.convert.StringConverters;
 import junitparams.converters.Converter;
 
-import java.beans.PropertyEditor;
-import java.beans.PropertyEditorManager;
-
 public class MultiArrayConverter extends AbstractMultiArrayConverter implements Converter<MultiArray, Object> {
 
     @Override
@@ -56,12 +55,12 @@ public class MultiArrayConverter extends AbstractMultiArrayConverter implements
         if (null == parser) {
             parser = BasicArraySequenceParsers.TOKENS;
         }
-        // Use appropriate Bean property editor
-        final PropertyEditor editor = PropertyEditorManager.findEditor(itemType);
-        if (null != editor) {
-            final PropertyEditorArrayItemFiller editorFiller = new PropertyEditorArrayItemFiller(editor, itemType);
+        // Use shared converter (valueOf() method, string constructor or Bean property editor)
+        final StringConverter<?> converter = StringConverters.find(itemType);
+        if (null != converter) {
+            final ConvertingArrayItemFiller converterFiller = new ConvertingArrayItemFiller(converter, itemType);
             setItemParser(parser);
-            setItemFiller(editorFiller);
+            setItemFiller(converterFiller);
             return;
         }
         // No success
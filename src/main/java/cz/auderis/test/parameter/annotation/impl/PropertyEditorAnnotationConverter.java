@@ -1,6 +1,8 @@
 package cz.auderis.test.parameter.annotation.impl;
 
 import cz.auderis.test.parameter.annotation.UsingPropertyEditor;
+import cz.auderis.test.support.convert.StringConverter;
+import cz.auderis.test.support.convert.StringConverters;
 import junitparams.converters.ConversionFailedException;
 import junitparams.converters.Converter;
 
@@ -13,7 +15,7 @@ import java.beans.PropertyEditorManager;
 public class PropertyEditorAnnotationConverter implements Converter<UsingPropertyEditor, Object> {
 
     Class<?> targetType;
-    PropertyEditor editor;
+    StringConverter<?> converter;
 
     @Override
     public void initialize(UsingPropertyEditor annotation) {
@@ -22,8 +24,10 @@ public class PropertyEditorAnnotationConverter implements Converter<UsingPropert
         if ((null == targetType) && (null == editorClass)) {
             throw new IllegalArgumentException("Property editor not specified");
         } else if (null == editorClass) {
-            this.editor = PropertyEditorManager.findEditor(targetType);
-            if (null == editor) {
+            // Editors may be registered at any time, so they are looked up first and never cached
+            final PropertyEditor editor = PropertyEditorManager.findEditor(targetType);
+            this.converter = (null != editor) ? StringConverters.usingEditor(editor) : StringConverters.find(targetType);
+            if (null == converter) {
                 throw new IllegalArgumentException("Property editor for type " + targetType + " not found");
             }
         } else {
@@ -32,7 +36,7 @@ public class PropertyEditorAnnotationConverter implements Converter<UsingPropert
             }
             try {
                 final Object editorObject = editorClass.newInstance();
-                this.editor = (PropertyEditor) editorObject;
+                this.converter = StringConverters.usingEditor((PropertyEditor) editorObject);
             } catch (Exception e) {
                 throw new IllegalArgumentException("Cannot create property editor instance: " + editorClass, e);
             }
@@ -44,12 +48,11 @@ public class PropertyEditorAnnotationConverter implements Converter<UsingPropert
     public Object convert(Object param) throws ConversionFailedException {
         try {
             final String paramString = asString(param);
-            editor.setAsText(paramString);
-            final Object result = editor.getValue();
+            final Object result = converter.convert(paramString);
             return result;
         } catch (Exception e) {
             final ConversionFailedException e2 = new ConversionFailedException(
-                    "Cannot convert value '" + param + "' using " + editor.toString()
+                    "Cannot convert value '" + param + "' using " + converter.toString()
             );
             e2.initCause(e);
             throw e2;
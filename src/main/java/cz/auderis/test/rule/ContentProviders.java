@@ -22,12 +22,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Pattern;
 
 public final class ContentProviders {
 
     private static final InitialContentsProvider EMPTY_PROVIDER = new EmptyProvider();
+    private static final Pattern LINE_NUMBER_PLACEHOLDER = Pattern.compile(Pattern.quote("{n}"));
+    private static final int CHUNK_SIZE = 8192;
 
     public static InitialContentsProvider lines(CharSequence... lines) {
         return lines(Arrays.asList(lines));
@@ -84,6 +90,80 @@ public final class ContentProviders {
         return provider;
     }
 
+    /**
+     * Generates {@code lineCount} lines from the template, replacing every occurrence of {@code {n}}
+     * with the line number starting from 1. Contents are produced on demand, so that files of any size
+     * can be written with constant memory.
+     */
+    public static InitialContentsProvider repeatedLines(String lineTemplate, long lineCount) {
+        if (null == lineTemplate) {
+            throw new NullPointerException();
+        }
+        checkSize(lineCount);
+        return new RepeatedLinesProvider(LINE_NUMBER_PLACEHOLDER.split(lineTemplate, -1), lineCount);
+    }
+
+    /**
+     * Generates pseudo-random bytes; the same seed always produces the same contents
+     */
+    public static InitialContentsProvider randomBytes(long length, long seed) {
+        checkSize(length);
+        return new RandomBytesProvider(length, seed);
+    }
+
+    /**
+     * Generates CSV rows with values supplied by the generator, preceded by a header line if column
+     * names are given. Values containing separators, quotes or line breaks are quoted.
+     */
+    public static InitialContentsProvider csvRows(long rowCount, RowGenerator rows, String... columnNames) {
+        if (null == rows) {
+            throw new NullPointerException();
+        }
+        checkSize(rowCount);
+        return new CsvRowsProvider(rowCount, rows, columnNames.clone());
+    }
+
+    /**
+     * Generates JSON objects, one per line (JSON Lines format), with fields of given names and values
+     * supplied by the generator. Numbers and booleans are written as JSON literals, other values as strings.
+     */
+    public static InitialContentsProvider jsonRows(long rowCount, RowGenerator rows, String... fieldNames) {
+        if (null == rows) {
+            throw new NullPointerException();
+        } else if (0 == fieldNames.length) {
+            throw new IllegalArgumentException("no field names given");
+        }
+        checkSize(rowCount);
+        return new JsonRowsProvider(rowCount, rows, fieldNames.clone());
+    }
+
+    /**
+     * Creates a file of given length filled with zeros. Work folders write it as a sparse file, so it occupies
+     * almost no disk space where the file system supports sparse files.
+     */
+    public static InitialContentsProvider sparse(long length) {
+        return sparse(length, 0L, new byte[0]);
+    }
+
+    /**
+     * Creates a sparse file of given length that contains the data at given offset and zeros elsewhere
+     */
+    public static InitialContentsProvider sparse(long length, long dataOffset, byte[] data) {
+        checkSize(length);
+        if (null == data) {
+            throw new NullPointerException();
+        } else if ((dataOffset < 0L) || (dataOffset > length - data.length)) {
+            throw new IllegalArgumentException("data does not fit into file of length " + length + " at offset " + dataOffset);
+        }
+        return new SparseProvider(length, dataOffset, data.clone());
+    }
+
+    private static void checkSize(long size) {
+        if (size < 0L) {
+            throw new IllegalArgumentException("negative size: " + size);
+        }
+    }
+
     private ContentProviders() {
         throw new AssertionError();
     }
@@ -114,4 +194,368 @@ public final class ContentProviders {
         }
     }
 
+    /**
+     * Stream that produces its data in chunks, which are generated when the previous chunk is consumed
+     */
+    private abstract static class ChunkedStream extends InputStream {
+        private byte[] chunk = new byte[0];
+        private int position;
+        private boolean finished;
+
+        /**
+         * Returns the next chunk of data or {@code null} at the end of stream; the returned array may be reused
+         * for later chunks
+         */
+        protected abstract byte[] nextChunk();
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureData()) {
+                return -1;
+            }
+            return 0xFF & chunk[position++];
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if ((offset | length | (buffer.length - offset - length)) < 0) {
+                throw new IndexOutOfBoundsException();
+            } else if (0 == length) {
+                return 0;
+            } else if (!ensureData()) {
+                return -1;
+            }
+            final int count = Math.min(length, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return chunk.length - position;
+        }
+
+        private boolean ensureData() {
+            while (position == chunk.length) {
+                if (finished) {
+                    return false;
+                }
+                final byte[] next = nextChunk();
+                if (null == next) {
+                    finished = true;
+                    return false;
+                }
+                chunk = next;
+                position = 0;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Provider of text consisting of an optional header and a number of generated items
+     */
+    private abstract static class TextProvider implements InitialContentsProvider {
+        final long itemCount;
+
+        TextProvider(long itemCount) {
+            this.itemCount = itemCount;
+        }
+
+        void appendHeader(StringBuilder text) {
+            // No header by default
+        }
+
+        abstract void appendItem(long itemIndex, StringBuilder text);
+
+        @Override
+        public InputStream getContents() {
+            return new TextStream(this);
+        }
+    }
+
+    private static final class TextStream extends ChunkedStream {
+        private final TextProvider provider;
+        private final StringBuilder text;
+        private long nextItem;
+        private boolean headerDone;
+
+        TextStream(TextProvider provider) {
+            this.provider = provider;
+            this.text = new StringBuilder(CHUNK_SIZE + 256);
+        }
+
+        @Override
+        protected byte[] nextChunk() {
+            text.setLength(0);
+            if (!headerDone) {
+                provider.appendHeader(text);
+                headerDone = true;
+            }
+            while ((text.length() < CHUNK_SIZE) && (nextItem < provider.itemCount)) {
+                provider.appendItem(nextItem++, text);
+            }
+            return (0 != text.length()) ? text.toString().getBytes(StandardCharsets.UTF_8) : null;
+        }
+    }
+
+    private static final class RepeatedLinesProvider extends TextProvider {
+        private final String[] templateParts;
+
+        RepeatedLinesProvider(String[] templateParts, long lineCount) {
+            super(lineCount);
+            this.templateParts = templateParts;
+        }
+
+        @Override
+        void appendItem(long itemIndex, StringBuilder text) {
+            text.append(templateParts[0]);
+            for (int i = 1; i < templateParts.length; ++i) {
+                text.append(itemIndex + 1L).append(templateParts[i]);
+            }
+            text.append('\n');
+        }
+    }
+
+    private static final class CsvRowsProvider extends TextProvider {
+        private final RowGenerator rows;
+        private final String[] columnNames;
+
+        CsvRowsProvider(long rowCount, RowGenerator rows, String[] columnNames) {
+            super(rowCount);
+            this.rows = rows;
+            this.columnNames = columnNames;
+        }
+
+        @Override
+        void appendHeader(StringBuilder text) {
+            if (0 != columnNames.length) {
+                appendLine(columnNames, text);
+            }
+        }
+
+        @Override
+        void appendItem(long itemIndex, StringBuilder text) {
+            final Object[] row = rows.getRow(itemIndex);
+            if ((0 != columnNames.length) && (row.length != columnNames.length)) {
+                throw new IllegalStateException("row " + itemIndex + " has " + row.length + " values, expected " + columnNames.length);
+            }
+            appendLine(row, text);
+        }
+
+        private static void appendLine(Object[] values, StringBuilder text) {
+            for (int i = 0; i < values.length; ++i) {
+                if (0 != i) {
+                    text.append(',');
+                }
+                final Object value = values[i];
+                if (null == value) {
+                    continue;
+                }
+                final String valueText = value.toString();
+                if (needsQuotes(valueText)) {
+                    text.append('"').append(valueText.replace("\"", "\"\"")).append('"');
+                } else {
+                    text.append(valueText);
+                }
+            }
+            text.append('\n');
+        }
+
+        private static boolean needsQuotes(String value) {
+            for (int i = 0; i < value.length(); ++i) {
+                final char c = value.charAt(i);
+                if ((',' == c) || ('"' == c) || ('\n' == c) || ('\r' == c)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class JsonRowsProvider extends TextProvider {
+        private final RowGenerator rows;
+        private final String[] fieldNames;
+
+        JsonRowsProvider(long rowCount, RowGenerator rows, String[] fieldNames) {
+            super(rowCount);
+            this.rows = rows;
+            this.fieldNames = fieldNames;
+        }
+
+        @Override
+        void appendItem(long itemIndex, StringBuilder text) {
+            final Object[] row = rows.getRow(itemIndex);
+            if (row.length != fieldNames.length) {
+                throw new IllegalStateException("row " + itemIndex + " has " + row.length + " values, expected " + fieldNames.length);
+            }
+            text.append('{');
+            for (int i = 0; i < row.length; ++i) {
+                if (0 != i) {
+                    text.append(',');
+                }
+                appendString(fieldNames[i], text);
+                text.append(':');
+                appendValue(row[i], text);
+            }
+            text.append("}\n");
+        }
+
+        private static void appendValue(Object value, StringBuilder text) {
+            if ((null == value) || isNonFinite(value)) {
+                text.append("null");
+            } else if ((value instanceof Number) || (value instanceof Boolean)) {
+                text.append(value);
+            } else {
+                appendString(value.toString(), text);
+            }
+        }
+
+        private static boolean isNonFinite(Object value) {
+            if (value instanceof Double) {
+                final double d = (Double) value;
+                return Double.isNaN(d) || Double.isInfinite(d);
+            } else if (value instanceof Float) {
+                final float f = (Float) value;
+                return Float.isNaN(f) || Float.isInfinite(f);
+            }
+            return false;
+        }
+
+        private static void appendString(String value, StringBuilder text) {
+            text.append('"');
+            for (int i = 0; i < value.length(); ++i) {
+                final char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        text.append("\\\"");
+                        break;
+                    case '\\':
+                        text.append("\\\\");
+                        break;
+                    case '\n':
+                        text.append("\\n");
+                        break;
+                    case '\r':
+                        text.append("\\r");
+                        break;
+                    case '\t':
+                        text.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            text.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            text.append(c);
+                        }
+                }
+            }
+            text.append('"');
+        }
+    }
+
+    private static final class RandomBytesProvider implements InitialContentsProvider {
+        private final long length;
+        private final long seed;
+
+        RandomBytesProvider(long length, long seed) {
+            this.length = length;
+            this.seed = seed;
+        }
+
+        @Override
+        public InputStream getContents() {
+            return new ChunkedStream() {
+                private final Random random = new Random(seed);
+                private final byte[] buffer = new byte[CHUNK_SIZE];
+                private long remaining = length;
+
+                @Override
+                protected byte[] nextChunk() {
+                    if (0L == remaining) {
+                        return null;
+                    }
+                    // Whole buffer is always generated, so that contents do not depend on chunk boundaries
+                    random.nextBytes(buffer);
+                    final int count = (int) Math.min(remaining, buffer.length);
+                    remaining -= count;
+                    return (count == buffer.length) ? buffer : Arrays.copyOf(buffer, count);
+                }
+            };
+        }
+    }
+
+    private static final class SparseProvider implements ChannelContentsProvider {
+        private final long length;
+        private final long dataOffset;
+        private final byte[] data;
+
+        SparseProvider(long length, long dataOffset, byte[] data) {
+            this.length = length;
+            this.dataOffset = dataOffset;
+            this.data = data;
+        }
+
+        @Override
+        public void writeTo(FileChannel channel) throws IOException {
+            final ByteBuffer dataBuffer = ByteBuffer.wrap(data);
+            while (dataBuffer.hasRemaining()) {
+                channel.write(dataBuffer, dataOffset + dataBuffer.position());
+            }
+            final long dataEnd = dataOffset + data.length;
+            if (length > dataEnd) {
+                // Only the last byte is written, the file system leaves the gap unallocated
+                final ByteBuffer lastByte = ByteBuffer.allocate(1);
+                while (lastByte.hasRemaining()) {
+                    channel.write(lastByte, length - 1L);
+                }
+            }
+        }
+
+        @Override
+        public InputStream getContents() {
+            return new InputStream() {
+                private long position;
+
+                @Override
+                public int read() throws IOException {
+                    if (position >= length) {
+                        return -1;
+                    }
+                    final long current = position++;
+                    final long dataIndex = current - dataOffset;
+                    return ((dataIndex >= 0L) && (dataIndex < data.length)) ? (0xFF & data[(int) dataIndex]) : 0;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int count) throws IOException {
+                    if ((offset | count | (buffer.length - offset - count)) < 0) {
+                        throw new IndexOutOfBoundsException();
+                    } else if (0 == count) {
+                        return 0;
+                    } else if (position >= length) {
+                        return -1;
+                    }
+                    final int readCount = (int) Math.min(count, length - position);
+                    Arrays.fill(buffer, offset, offset + readCount, (byte) 0);
+                    final long start = Math.max(position, dataOffset);
+                    final long end = Math.min(position + readCount, dataOffset + data.length);
+                    if (start < end) {
+                        System.arraycopy(data, (int) (start - dataOffset), buffer, offset + (int) (start - position), (int) (end - start));
+                    }
+                    position += readCount;
+                    return readCount;
+                }
+
+                @Override
+                public long skip(long n) {
+                    final long skipped = Math.max(0L, Math.min(n, length - position));
+                    position += skipped;
+                    return skipped;
+                }
+            };
+        }
+    }
+
 }
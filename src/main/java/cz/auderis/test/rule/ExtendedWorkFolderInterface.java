@@ -0,0 +1,24 @@
+package cz.auderis.test.rule;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+
+/**
+ * Operations of work folders added after {@link WorkFolderInterface} was published; they are kept
+ * in a separate interface, so that existing implementations of {@link WorkFolderInterface} remain valid
+ *
+ * @author Boleslav Bobcik
+ * @version 1.1.0
+ */
+public interface ExtendedWorkFolderInterface extends WorkFolderInterface {
+
+    Path asPath();
+
+    File newFile(String targetPath, CharSequence initialContents, Charset charset) throws IOException;
+
+    @Override
+    ExtendedWorkFolderInterface subfolder(String... pathComponents) throws IOException;
+
+}
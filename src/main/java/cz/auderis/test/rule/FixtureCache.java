@@ -0,0 +1,411 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JVM-wide store of resource contents used by {@link WorkFolder#withFixtureCache() work folders}. Each distinct
+ * content is stored once under its SHA-256 hash and work folder files are copied from the stored copy. Work folders
+ * with {@link WorkFolder#withHardLinkedResources() hard-linked resources} get hard links to the stored copy instead,
+ * if the file system allows it. The cache holds at most {@link #getMaximumSize()} bytes, least recently used
+ * contents are evicted first.
+ * <p>
+ * Resources are identified by their URL, modification time and length, so that a resource is read and hashed
+ * only once. Stored copies are read-only; since a linked file shares them, a stored copy that was handed out
+ * as a link is hashed again before it is reused and replaced when its contents changed anyway.
+ * <p>
+ * Contents being copied or linked into a work folder are pinned; when they are evicted or cleared meanwhile,
+ * they stop counting towards the cache size at once, but the stored copy is deleted only after it was materialized.
+ */
+public final class FixtureCache {
+
+    /**
+     * System property with the maximum size in bytes of the {@link #shared() shared} cache
+     */
+    public static final String MAXIMUM_SIZE_PROPERTY = "cz.auderis.test.rule.fixtureCache.maxSize";
+    public static final long DEFAULT_MAXIMUM_SIZE = 256L * 1024L * 1024L;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Map<String, Entry> entries;
+    private final Map<String, String> resourceHashes;
+    private Path directory;
+    private long maximumSize;
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long tempCounter;
+
+    public static FixtureCache shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    public FixtureCache(long maximumSize) {
+        checkMaximumSize(maximumSize);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.resourceHashes = new HashMap<>();
+        this.maximumSize = maximumSize;
+    }
+
+    public synchronized long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public synchronized void setMaximumSize(long maximumSize) {
+        checkMaximumSize(maximumSize);
+        this.maximumSize = maximumSize;
+        evict(0L);
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Removes all stored contents. Files already linked into work folders are not affected.
+     */
+    public synchronized void clear() {
+        for (final Entry entry : entries.values()) {
+            discard(entry);
+        }
+        entries.clear();
+        resourceHashes.clear();
+        size = 0L;
+    }
+
+    /**
+     * Materializes the resource into the target file, as a hard link to the stored copy if requested.
+     * Directory resources are not cached and are copied directly.
+     */
+    void materialize(URL resource, File target, boolean hardLink) throws IOException {
+        if (ResourceMaterializer.isDirectoryResource(resource)) {
+            ResourceMaterializer.materialize(resource, target, hardLink);
+            return;
+        }
+        final String resourceKey = resourceKeyOf(resource);
+        final Entry stored;
+        synchronized (this) {
+            stored = lookup(resourceKey);
+        }
+        if (null != stored) {
+            try {
+                if (!stored.linked || hasContents(stored)) {
+                    synchronized (this) {
+                        ++hitCount;
+                    }
+                    materializeEntry(stored, target.toPath(), hardLink);
+                    return;
+                }
+                synchronized (this) {
+                    // Modified through a link despite being read-only
+                    if (stored == entries.get(stored.hash)) {
+                        remove(stored.hash, stored);
+                    }
+                }
+            } finally {
+                release(stored);
+            }
+        }
+        try (InputStream contents = resource.openStream()) {
+            final Entry storedNow = store(resourceKey, contents);
+            if (null != storedNow) {
+                try {
+                    materializeEntry(storedNow, target.toPath(), hardLink);
+                } finally {
+                    release(storedNow);
+                }
+                return;
+            }
+        }
+        // Contents too large for the cache
+        ResourceMaterializer.materialize(resource, target, hardLink);
+    }
+
+    /**
+     * Identifies the resource by its URL, modification time and length, or returns {@code null} if these
+     * are not known
+     */
+    private static String resourceKeyOf(URL resource) throws IOException {
+        long lastModified = 0L;
+        long length = -1L;
+        Path file = null;
+        if ("file".equals(resource.getProtocol())) {
+            try {
+                file = Paths.get(resource.toURI());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // Queried through the connection
+            }
+        }
+        if (null != file) {
+            lastModified = Files.getLastModifiedTime(file).toMillis();
+            length = Files.size(file);
+        } else {
+            final URLConnection connection = resource.openConnection();
+            try {
+                lastModified = connection.getLastModified();
+                length = connection.getContentLengthLong();
+            } finally {
+                // Querying the connection opens the resource, the stream has to be closed
+                try {
+                    connection.getInputStream().close();
+                } catch (IOException e) {
+                    // Nothing was opened
+                }
+            }
+        }
+        return ((0L != lastModified) && (length >= 0L))
+                ? resource.toExternalForm() + '@' + lastModified + ':' + length
+                : null;
+    }
+
+    /**
+     * Returns the pinned entry of the resource, which has to be {@link #release(Entry) released} afterwards
+     */
+    private Entry lookup(String resourceKey) {
+        if (null == resourceKey) {
+            return null;
+        }
+        final String hash = resourceHashes.get(resourceKey);
+        final Entry entry = (null != hash) ? entries.get(hash) : null;
+        if (null == entry) {
+            return null;
+        } else if (!entry.isIntact()) {
+            remove(hash, entry);
+            return null;
+        }
+        ++entry.pinCount;
+        return entry;
+    }
+
+    /**
+     * Stores the contents and returns their pinned entry, or {@code null} if they are too large
+     */
+    private Entry store(String resourceKey, InputStream contents) throws IOException {
+        final Path temp;
+        final long tempId;
+        synchronized (this) {
+            tempId = ++tempCounter;
+            temp = getDirectory().resolve("tmp-" + tempId);
+        }
+        final MessageDigest digest = newDigest();
+        final long length;
+        try {
+            length = Files.copy(new DigestInputStream(contents, digest), temp);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+        final String hash = toHex(digest.digest());
+        synchronized (this) {
+            ++missCount;
+            if (length > maximumSize) {
+                deleteQuietly(temp);
+                return null;
+            }
+            Entry entry = entries.get(hash);
+            if ((null != entry) && entry.isIntact()) {
+                // Same contents already stored for another resource
+                deleteQuietly(temp);
+            } else {
+                if (null != entry) {
+                    remove(hash, entry);
+                }
+                evict(length);
+                // A discarded copy with the same contents may still be pinned, so every entry has its own file
+                final Path path = directory.resolve(hash + '-' + tempId);
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+                path.toFile().setReadOnly();
+                entry = new Entry(hash, path, length, Files.getLastModifiedTime(path).toMillis());
+                entries.put(hash, entry);
+                size += length;
+            }
+            if (null != resourceKey) {
+                resourceHashes.put(resourceKey, hash);
+            }
+            ++entry.pinCount;
+            return entry;
+        }
+    }
+
+    private void evict(long requiredSpace) {
+        final Iterator<Entry> entryIterator = entries.values().iterator();
+        while ((size + requiredSpace > maximumSize) && entryIterator.hasNext()) {
+            final Entry eldest = entryIterator.next();
+            entryIterator.remove();
+            size -= eldest.length;
+            discard(eldest);
+        }
+    }
+
+    private void remove(String hash, Entry entry) {
+        entries.remove(hash);
+        size -= entry.length;
+        discard(entry);
+    }
+
+    /**
+     * Deletes the stored copy of an entry no longer held by the cache, unless it is being materialized
+     */
+    private void discard(Entry entry) {
+        entry.discarded = true;
+        if (0 == entry.pinCount) {
+            deleteQuietly(entry.path);
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        --entry.pinCount;
+        if ((0 == entry.pinCount) && entry.discarded) {
+            deleteQuietly(entry.path);
+        }
+    }
+
+    private Path getDirectory() throws IOException {
+        if (null == directory) {
+            directory = Files.createTempDirectory("fixture-cache-");
+            final File cacheDir = directory.toFile();
+            Runtime.getRuntime().addShutdownHook(new Thread("fixture-cache-cleanup") {
+                @Override
+                public void run() {
+                    FolderCleaner.deleteTree(cacheDir);
+                }
+            });
+        }
+        return directory;
+    }
+
+    private static void materializeEntry(Entry entry, Path target, boolean hardLink) throws IOException {
+        if (hardLink) {
+            entry.linked = true;
+        }
+        ResourceMaterializer.copyFile(entry.path, target, hardLink);
+    }
+
+    private static boolean hasContents(Entry entry) {
+        final MessageDigest digest = newDigest();
+        try (InputStream contents = new DigestInputStream(Files.newInputStream(entry.path), digest)) {
+            final byte[] buffer = new byte[8192];
+            while (-1 != contents.read(buffer)) {
+                // Only the digest is needed
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return entry.hash.equals(toHex(digest.digest()));
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (AccessDeniedException e) {
+            // Read-only files cannot be deleted on some platforms
+            path.toFile().setWritable(true);
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException retryException) {
+                // Exception silently ignored
+            }
+        } catch (IOException e) {
+            // Exception silently ignored
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        final char[] result = new char[2 * bytes.length];
+        for (int i = 0; i < bytes.length; ++i) {
+            result[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+            result[2 * i + 1] = HEX_DIGITS[bytes[i] & 0x0F];
+        }
+        return new String(result);
+    }
+
+    private static void checkMaximumSize(long maximumSize) {
+        if (maximumSize < 0L) {
+            throw new IllegalArgumentException("negative maximum size: " + maximumSize);
+        }
+    }
+
+    private static final class Entry {
+        final String hash;
+        final Path path;
+        final long length;
+        final long lastModified;
+        // Set once the stored copy is shared with a work folder file through a hard link
+        volatile boolean linked;
+        // Guarded by the cache
+        int pinCount;
+        boolean discarded;
+
+        Entry(String hash, Path path, long length, long lastModified) {
+            this.hash = hash;
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        boolean isIntact() {
+            try {
+                return (Files.size(path) == length) && (Files.getLastModifiedTime(path).toMillis() == lastModified);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    private static final class SharedHolder {
+        static final FixtureCache INSTANCE = new FixtureCache(Long.getLong(MAXIMUM_SIZE_PROPERTY, DEFAULT_MAXIMUM_SIZE));
+    }
+
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes folder trees in parallel. Every directory is walked by a single task that deletes the files directly
+ * and forks a new task for each subdirectory; a directory is deleted once the tasks of all its subdirectories
+ * are finished. Symbolic links are deleted, never followed. Files that cannot be deleted are skipped silently,
+ * the same as their parent directories.
+ */
+final class FolderCleaner {
+
+    private static final int MAX_PARALLELISM = 4;
+    static final String TRASH_PREFIX = ".auderis-trash-";
+    static final String TRASH_OWNER_FILE = ".auderis-trash-owner";
+    static final long STALE_TRASH_AGE_MILLIS = TimeUnit.HOURS.toMillis(1L);
+    private static final String OWNER = ManagementFactory.getRuntimeMXBean().getName();
+    private static final long SHUTDOWN_WAIT_MILLIS = 10000L;
+    private static final AtomicLong NEXT_TRASH_ID = new AtomicLong();
+
+    private FolderCleaner() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Deletes contents of the directory, but keeps the directory itself
+     */
+    static void deleteContents(File dir) {
+        if (dir.isDirectory()) {
+            PoolHolder.POOL.invoke(new DeleteTask(dir.toPath(), false));
+        }
+    }
+
+    /**
+     * Deletes the directory including its contents
+     */
+    static void deleteTree(File dir) {
+        if (Files.isDirectory(dir.toPath())) {
+            PoolHolder.POOL.invoke(new DeleteTask(dir.toPath(), true));
+        } else {
+            dir.delete();
+        }
+    }
+
+    /**
+     * Renames the directory to a trash directory next to it and deletes the trash asynchronously. If the directory
+     * cannot be renamed (e.g. because a file in it is open on Windows), it is deleted immediately instead.
+     * Deletions still pending when the JVM exits are awaited by a shutdown hook for a limited time; trash left
+     * behind anyway is removed by {@link #deleteStaleTrash(File)}. The trash contains a marker file identifying
+     * the JVM that created it.
+     */
+    static void deleteTreeDeferred(File dir) {
+        final Path source = dir.toPath();
+        if (!Files.isDirectory(source)) {
+            dir.delete();
+            return;
+        }
+        final Path trash = source.resolveSibling(TRASH_PREFIX + source.getFileName() + '-' + NEXT_TRASH_ID.incrementAndGet());
+        try {
+            Files.move(source, trash);
+        } catch (IOException | UnsupportedOperationException e) {
+            deleteTree(dir);
+            return;
+        }
+        try {
+            Files.write(trash.resolve(TRASH_OWNER_FILE), OWNER.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // Trash without the marker is never touched by other JVMs, only this one deletes it
+        }
+        final DeleteTask task = new DeleteTask(trash, true);
+        PendingDeletions.register(task);
+        PoolHolder.POOL.execute(task);
+    }
+
+    /**
+     * Deletes, in the background, trash directories in the given parent directory that were left behind
+     * by deferred deletions. The parent may be shared with other processes (e.g. the system temporary
+     * directory), so only trash having the owner marker is considered: trash of this JVM that is no longer
+     * being deleted, and trash of other JVMs whose marker is older than {@link #STALE_TRASH_AGE_MILLIS}.
+     */
+    static void deleteStaleTrash(File parentDir) {
+        if (null == parentDir) {
+            return;
+        }
+        final List<Path> staleTrash = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(parentDir.toPath(), TRASH_PREFIX + "*")) {
+            for (final Path entry : entries) {
+                if (Files.isDirectory(entry) && !PendingDeletions.isPending(entry) && isAbandoned(entry)) {
+                    staleTrash.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            return;
+        }
+        for (final Path trash : staleTrash) {
+            final DeleteTask task = new DeleteTask(trash, true);
+            PendingDeletions.register(task);
+            PoolHolder.POOL.execute(task);
+        }
+    }
+
+    private static boolean isAbandoned(Path trash) {
+        final Path marker = trash.resolve(TRASH_OWNER_FILE);
+        try {
+            if (OWNER.equals(new String(Files.readAllBytes(marker), StandardCharsets.UTF_8))) {
+                return true;
+            }
+            final long age = System.currentTimeMillis() - Files.getLastModifiedTime(marker).toMillis();
+            return age >= STALE_TRASH_AGE_MILLIS;
+        } catch (IOException e) {
+            // Not trash of this library, or it has just been deleted
+            return false;
+        }
+    }
+
+    private static final class PoolHolder {
+        // Pool threads are daemons, the shutdown hook of PendingDeletions gives them time to finish
+        static final ForkJoinPool POOL = new ForkJoinPool(Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors()));
+    }
+
+    private static final class PendingDeletions {
+        static final Set<DeleteTask> TASKS = Collections.newSetFromMap(new ConcurrentHashMap<DeleteTask, Boolean>());
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    awaitAll(SHUTDOWN_WAIT_MILLIS);
+                }
+            }, "work-folder-cleanup"));
+        }
+
+        static void register(DeleteTask task) {
+            for (final Iterator<DeleteTask> i = TASKS.iterator(); i.hasNext(); ) {
+                if (i.next().isDone()) {
+                    i.remove();
+                }
+            }
+            TASKS.add(task);
+        }
+
+        static boolean isPending(Path trash) {
+            for (final DeleteTask task : TASKS) {
+                if (trash.equals(task.dir) && !task.isDone()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        static void awaitAll(long timeoutMillis) {
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            for (final ForkJoinTask<?> task : TASKS) {
+                final long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0L) {
+                    return;
+                }
+                try {
+                    task.get(remainingNanos, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException | TimeoutException e) {
+                    // Remaining trash is deleted by a later run
+                }
+            }
+        }
+    }
+
+    private static final class DeleteTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final boolean deleteDir;
+
+        DeleteTask(Path dir, boolean deleteDir) {
+            this.dir = dir;
+            this.deleteDir = deleteDir;
+        }
+
+        @Override
+        protected void compute() {
+            final List<DeleteTask> subtasks = new ArrayList<>();
+            final FileVisitor<Path> visitor = new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path subdir, BasicFileAttributes attrs) {
+                    if (dir.equals(subdir)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    final DeleteTask subtask = new DeleteTask(subdir, true);
+                    subtask.fork();
+                    subtasks.add(subtask);
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    // Directory itself is reported as a file if it is a symbolic link
+                    if (deleteDir || !dir.equals(file)) {
+                        deleteQuietly(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path visitedDir, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            };
+            try {
+                Files.walkFileTree(dir, visitor);
+            } catch (IOException e) {
+                // Visitor does not propagate failures, the walk itself cannot fail
+            }
+            for (final DeleteTask subtask : subtasks) {
+                subtask.join();
+            }
+            if (deleteDir) {
+                deleteQuietly(dir);
+            }
+        }
+
+        private static void deleteQuietly(Path path) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (AccessDeniedException e) {
+                // Read-only files (e.g. links to cached fixtures) cannot be deleted on some platforms
+                path.toFile().setWritable(true);
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException retryException) {
+                    // Skipped, the same as by File.delete()
+                }
+            } catch (IOException e) {
+                // Skipped, the same as by File.delete()
+            }
+        }
+    }
+
+}
@@ -17,36 +17,265 @@
 package cz.auderis.test.rule;
 
 import cz.auderis.test.logging.AbstractLogLevelConfiguration;
+import cz.auderis.test.logging.AsyncLogRecordStore;
+import cz.auderis.test.logging.BoundedLogRecordStore;
+import cz.auderis.test.logging.BoundedLogRecordStore.OverflowPolicy;
+import cz.auderis.test.logging.JournalLogRecordStore;
+import cz.auderis.test.logging.LogCaptureForwarder;
+import cz.auderis.test.logging.LogCaptureMetrics;
+import cz.auderis.test.logging.LogCaptureScope;
+import cz.auderis.test.logging.LogCaptureServer;
 import cz.auderis.test.logging.LogLevel;
 import cz.auderis.test.logging.LogLevelConfiguration;
 import cz.auderis.test.logging.LogRecord;
 import cz.auderis.test.logging.LogRecordCollector;
+import cz.auderis.test.logging.LogRecordLayout;
+import cz.auderis.test.logging.LogRecordQuery;
+import cz.auderis.test.logging.LogRecordStore;
+import cz.auderis.test.logging.PatternLogLayout;
+import cz.auderis.test.logging.PooledLogRecordStore;
+import cz.auderis.test.logging.StripedLogRecordStore;
 import org.hamcrest.Matcher;
 import org.junit.rules.TestWatcher;
 import org.junit.runner.Description;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Created on 23.10.2016.
+ * Collects log records produced during a single test. Every test gets its own {@link LogRecordCollector},
+ * bound to the test thread by a {@link LogCaptureScope}; threads started by the test inherit the scope,
+ * so that tests running in parallel do not see each other's records.
  */
 public class LogBuffer extends TestWatcher {
 
     private final Set<LogLevel> enabledLevels;
     private LogLevel failureLogDumpThreshold;
     private LogLevel successLogDumpThreshold;
+    private int capacity;
+    private OverflowPolicy overflowPolicy;
+    private LogLevel retentionLevel;
+    private boolean preallocated;
+    private File journalFile;
+    private WorkFolderInterface journalFolder;
+    private String journalFileName;
+    private int asyncQueueCapacity;
+    private boolean childProcessCapture;
+    private LogCaptureServer captureServer;
+    private LogCaptureMetrics metrics;
+    private boolean argumentSnapshot;
+    private LogRecordLayout dumpLayout;
+    private File dumpFile;
+    private WorkFolderInterface dumpFolder;
+    private String dumpFileName;
+    private LogRecordCollector collector;
+    private LogCaptureScope scope;
 
     public LogBuffer() {
         enabledLevels = EnumSet.allOf(LogLevel.class);
+        collector = new LogRecordCollector();
+    }
+
+    /**
+     * Limits the number of captured records; when the capacity is reached, the oldest records are discarded.
+     */
+    public LogBuffer withCapacity(int capacity) {
+        return withCapacity(capacity, OverflowPolicy.DROP_OLDEST);
+    }
+
+    public LogBuffer withCapacity(int capacity, OverflowPolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("invalid capacity " + capacity);
+        } else if (null == policy) {
+            throw new NullPointerException();
+        } else if (OverflowPolicy.RETAIN_LEVELS_AT_OR_ABOVE == policy) {
+            throw new IllegalArgumentException("use withCapacity(int, LogLevel) to define retention level");
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = policy;
+        this.retentionLevel = null;
+        this.preallocated = false;
+        return this;
+    }
+
+    /**
+     * Limits the number of captured records; when the capacity is reached, only records at or above
+     * the given level are kept.
+     */
+    public LogBuffer withCapacity(int capacity, LogLevel retentionLevel) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("invalid capacity " + capacity);
+        } else if (null == retentionLevel) {
+            throw new NullPointerException();
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = OverflowPolicy.RETAIN_LEVELS_AT_OR_ABOVE;
+        this.retentionLevel = retentionLevel;
+        this.preallocated = false;
+        return this;
+    }
+
+    /**
+     * Captures records into a memory-mapped journal file (see {@link JournalLogRecordStore}) instead of
+     * the heap, so that the complete output of tests that log excessively remains available. The file
+     * is overwritten by every test.
+     */
+    public LogBuffer withJournal(File journalFile) {
+        if (null == journalFile) {
+            throw new NullPointerException();
+        }
+        this.journalFile = journalFile;
+        this.journalFolder = null;
+        this.journalFileName = null;
+        return this;
+    }
+
+    /**
+     * Captures records into a memory-mapped journal file within the given work folder; the file
+     * is resolved when the first record is logged.
+     */
+    public LogBuffer withJournal(WorkFolderInterface folder, String fileName) {
+        if ((null == folder) || (null == fileName)) {
+            throw new NullPointerException();
+        }
+        this.journalFile = null;
+        this.journalFolder = folder;
+        this.journalFileName = fileName;
+        return this;
+    }
+
+    /**
+     * Moves collection of records off the logging threads; they only publish events into a bounded queue
+     * processed by a background thread (see {@link AsyncLogRecordStore}). The queue is drained whenever
+     * captured records are read and when the test finishes.
+     */
+    public LogBuffer withAsyncCapture() {
+        return withAsyncCapture(AsyncLogRecordStore.DEFAULT_CAPACITY);
+    }
+
+    public LogBuffer withAsyncCapture(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("invalid queue capacity " + queueCapacity);
+        }
+        this.asyncQueueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Captures records of child processes started by the test. A child process forwards its records when it is
+     * started with {@link #getChildProcessJvmArgument()} and calls {@link LogCaptureForwarder#installFromSystemProperty()};
+     * received records are merged with the records of the test in the order of arrival.
+     */
+    public LogBuffer withChildProcessCapture() {
+        this.childProcessCapture = true;
+        return this;
+    }
+
+    /**
+     * Returns JVM argument telling a child process where to forward its records
+     */
+    public String getChildProcessJvmArgument() {
+        return getActiveCaptureServer().getJvmArgument();
+    }
+
+    /**
+     * Waits until all child processes that forward records close their connections
+     *
+     * @return {@code false} if the timeout elapsed before that
+     */
+    public boolean awaitChildProcesses(long timeout, TimeUnit unit) throws InterruptedException {
+        return getActiveCaptureServer().awaitDisconnection(timeout, unit);
+    }
+
+    /**
+     * Counts captured events per logger and level into the process-wide {@link LogCaptureMetrics#shared()} metrics,
+     * so that noisy loggers can be identified across the whole test suite
+     */
+    public LogBuffer withMetrics() {
+        return withMetrics(LogCaptureMetrics.shared());
+    }
+
+    public LogBuffer withMetrics(LogCaptureMetrics metrics) {
+        if (null == metrics) {
+            throw new NullPointerException();
+        }
+        this.metrics = metrics;
+        return this;
+    }
+
+    public LogCaptureMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Captures records into preallocated slots (see {@link PooledLogRecordStore}), so that high-volume
+     * logging does not produce garbage; when the capacity is reached, new records are discarded.
+     */
+    public LogBuffer withPreallocatedCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("invalid capacity " + capacity);
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = OverflowPolicy.DROP_NEWEST;
+        this.retentionLevel = null;
+        this.preallocated = true;
+        return this;
+    }
+
+    /**
+     * Requests that log messages with arguments of mutable types are rendered at the moment of logging,
+     * rather than when the message is read for the first time.
+     */
+    public LogBuffer snapshotMutableArguments() {
+        this.argumentSnapshot = true;
+        return this;
+    }
+
+    public long getDroppedRecordCount() {
+        final LogRecordStore store = getTargetStore();
+        if (store instanceof BoundedLogRecordStore) {
+            return ((BoundedLogRecordStore) store).getDroppedCount();
+        } else if (store instanceof PooledLogRecordStore) {
+            return ((PooledLogRecordStore) store).getDroppedCount();
+        }
+        return 0L;
+    }
+
+    public long getDroppedRecordCount(LogLevel level) {
+        if (null == level) {
+            throw new NullPointerException();
+        }
+        final LogRecordStore store = getTargetStore();
+        if (store instanceof BoundedLogRecordStore) {
+            return ((BoundedLogRecordStore) store).getDroppedCount(level);
+        } else if (store instanceof PooledLogRecordStore) {
+            return ((PooledLogRecordStore) store).getDroppedCount(level);
+        }
+        return 0L;
     }
 
     public LogLevelConfiguration levels() {
         return new LogLevelConfigurationImpl();
     }
 
+    /**
+     * Returns configuration of levels enabled for loggers whose names start with the given dot-separated
+     * prefix, such as {@code com.acme.codec}. Until changed, the levels are the same as those currently
+     * enabled for the prefix itself.
+     */
+    public LogLevelConfiguration levels(String loggerPrefix) {
+        return new LoggerLevelConfigurationImpl(loggerPrefix);
+    }
+
     public LogLevel getSuccessLogDumpThreshold() {
         return successLogDumpThreshold;
     }
@@ -79,25 +308,88 @@ public class LogBuffer extends TestWatcher {
         this.failureLogDumpThreshold = threshold;
     }
 
+    /**
+     * Sets the layout used when records are dumped; by default, {@link PatternLogLayout} is used.
+     */
+    public LogBuffer withDumpLayout(LogRecordLayout layout) {
+        if (null == layout) {
+            throw new NullPointerException();
+        }
+        this.dumpLayout = layout;
+        return this;
+    }
+
+    /**
+     * Redirects dumps on success or failure from standard output to the given file. The file is overwritten
+     * by each dump.
+     */
+    public LogBuffer dumpInto(File target) {
+        if (null == target) {
+            throw new NullPointerException();
+        }
+        this.dumpFile = target;
+        this.dumpFolder = null;
+        this.dumpFileName = null;
+        return this;
+    }
+
+    /**
+     * Redirects dumps on success or failure from standard output to a file within the work folder.
+     * The file is resolved when the dump is performed, so that the work folder may be initialized later.
+     */
+    public LogBuffer dumpInto(WorkFolderInterface folder, String fileName) {
+        if ((null == folder) || (null == fileName)) {
+            throw new NullPointerException();
+        }
+        this.dumpFile = null;
+        this.dumpFolder = folder;
+        this.dumpFileName = fileName;
+        return this;
+    }
+
+    /**
+     * Writes the captured records at or above the threshold level into the given file, using the layout
+     * defined by {@link #withDumpLayout(LogRecordLayout)}.
+     */
+    public void dump(File target, LogLevel threshold) throws IOException {
+        if ((null == target) || (null == threshold)) {
+            throw new NullPointerException();
+        }
+        final File targetFolder = target.getAbsoluteFile().getParentFile();
+        if ((null != targetFolder) && !targetFolder.mkdirs() && !targetFolder.isDirectory()) {
+            throw new IOException("Cannot create dump directory " + targetFolder);
+        }
+        try (final OutputStream out = new FileOutputStream(target, false)) {
+            collector.dump(out, threshold, getDumpLayout());
+        }
+    }
+
     public List<LogRecord> getRecords() {
-        final LogRecordCollector collector = LogRecordCollector.RECORD_COLLECTOR;
         return new ArrayList<LogRecord>(collector.getRecords());
     }
 
     public List<LogRecord> getRecords(Matcher<? super LogRecord> recordMatcher) {
-        final LogRecordCollector collector = LogRecordCollector.RECORD_COLLECTOR;
-        final List<LogRecord> allRecords = collector.getRecords();
-        final List<LogRecord> result = new ArrayList<LogRecord>(allRecords.size());
-        if ((null == recordMatcher) || allRecords.isEmpty()) {
-            result.addAll(allRecords);
-        } else {
-            for (final LogRecord record : allRecords) {
-                if (recordMatcher.matches(record)) {
-                    result.add(record);
-                }
-            }
-        }
-        return result;
+        return collector.records().matching(recordMatcher).list();
+    }
+
+    /**
+     * Starts an indexed query over records captured during the current test
+     */
+    public LogRecordQuery records() {
+        return collector.records();
+    }
+
+    /**
+     * Binds a task to the capture scope of the running test, so that records logged by the task
+     * are collected even when it is executed by a thread that did not inherit the scope
+     * (typically a thread of a pre-existing executor).
+     */
+    public Runnable wrap(Runnable task) {
+        return getActiveScope().wrap(task);
+    }
+
+    public <V> Callable<V> wrap(Callable<V> task) {
+        return getActiveScope().wrap(task);
     }
 
     @Override
@@ -105,6 +397,31 @@ public class LogBuffer extends TestWatcher {
         resetLogging();
     }
 
+    @Override
+    protected void finished(Description description) {
+        if (null != scope) {
+            scope.close();
+            scope = null;
+        }
+        if (null != captureServer) {
+            try {
+                captureServer.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to stop log capture server", e);
+            } finally {
+                captureServer = null;
+            }
+        }
+        final LogRecordStore store = collector.getStore();
+        if (store instanceof Closeable) {
+            try {
+                ((Closeable) store).close();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to close log record store", e);
+            }
+        }
+    }
+
     @Override
     protected void failed(Throwable e, Description description) {
         dumpLog(failureLogDumpThreshold);
@@ -116,18 +433,100 @@ public class LogBuffer extends TestWatcher {
     }
 
     private void resetLogging() {
-        final LogRecordCollector collector = LogRecordCollector.RECORD_COLLECTOR;
-        collector.reset();
+        collector = new LogRecordCollector(createStore());
+        collector.setArgumentSnapshotEnabled(argumentSnapshot);
+        collector.setMetrics(metrics);
         enabledLevels.clear();
         enabledLevels.addAll(collector.getEnabledLevels());
+        scope = LogCaptureScope.open(collector);
+        if (childProcessCapture) {
+            try {
+                captureServer = LogCaptureServer.start(collector);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to start log capture server", e);
+            }
+        }
+    }
+
+    private LogCaptureScope getActiveScope() {
+        if (null == scope) {
+            throw new IllegalStateException("log buffer is not active outside of a test");
+        }
+        return scope;
+    }
+
+    private LogCaptureServer getActiveCaptureServer() {
+        if (!childProcessCapture) {
+            throw new IllegalStateException("capture of child processes is not enabled");
+        } else if (null == captureServer) {
+            throw new IllegalStateException("log buffer is not active outside of a test");
+        }
+        return captureServer;
+    }
+
+    private LogRecordStore getTargetStore() {
+        final LogRecordStore store = collector.getStore();
+        if (store instanceof AsyncLogRecordStore) {
+            final AsyncLogRecordStore asyncStore = (AsyncLogRecordStore) store;
+            asyncStore.drain();
+            return asyncStore.getTarget();
+        }
+        return store;
+    }
+
+    private LogRecordStore createStore() {
+        final LogRecordStore store = createTargetStore();
+        if (0 != asyncQueueCapacity) {
+            return new AsyncLogRecordStore(store, asyncQueueCapacity);
+        }
+        return store;
+    }
+
+    private LogRecordStore createTargetStore() {
+        if (null != journalFile) {
+            return new JournalLogRecordStore(journalFile);
+        } else if (null != journalFolder) {
+            final WorkFolderInterface folder = journalFolder;
+            final String fileName = journalFileName;
+            return new JournalLogRecordStore(new File(fileName)) {
+                @Override
+                protected File resolveFile() {
+                    return new File(folder.asFile(), fileName);
+                }
+            };
+        } else if (null == overflowPolicy) {
+            return new StripedLogRecordStore();
+        } else if (preallocated) {
+            return new PooledLogRecordStore(capacity);
+        }
+        return new BoundedLogRecordStore(capacity, overflowPolicy, retentionLevel);
     }
 
     private void dumpLog(LogLevel threshold) {
         if (null == threshold) {
             return;
         }
-        final LogRecordCollector collector = LogRecordCollector.RECORD_COLLECTOR;
-        collector.dump(System.out, threshold);
+        final File target;
+        if (null != dumpFile) {
+            target = dumpFile;
+        } else if (null != dumpFolder) {
+            target = new File(dumpFolder.asFile(), dumpFileName);
+        } else {
+            target = null;
+        }
+        try {
+            if (null != target) {
+                dump(target, threshold);
+            } else {
+                collector.dump(System.out, threshold, getDumpLayout());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to dump log records", e);
+        }
+    }
+
+    private LogRecordLayout getDumpLayout() {
+        return (null != dumpLayout) ? dumpLayout : new PatternLogLayout();
     }
 
     private class LogLevelConfigurationImpl extends AbstractLogLevelConfiguration {
@@ -139,7 +538,32 @@ public class LogBuffer extends TestWatcher {
         @Override
         protected void levelSetChanged() {
             super.levelSetChanged();
-            LogRecordCollector.RECORD_COLLECTOR.setEnabledLevels(enabledLevels);
+            collector.setEnabledLevels(enabledLevels);
+        }
+    }
+
+    private class LoggerLevelConfigurationImpl extends AbstractLogLevelConfiguration {
+        private final String loggerPrefix;
+        private final Set<LogLevel> loggerLevels;
+
+        LoggerLevelConfigurationImpl(String loggerPrefix) {
+            if (null == loggerPrefix) {
+                throw new NullPointerException();
+            }
+            this.loggerPrefix = loggerPrefix;
+            this.loggerLevels = EnumSet.noneOf(LogLevel.class);
+            loggerLevels.addAll(collector.getEnabledLevels(loggerPrefix));
+        }
+
+        @Override
+        protected Set<LogLevel> getLevelSet() {
+            return loggerLevels;
+        }
+
+        @Override
+        protected void levelSetChanged() {
+            super.levelSetChanged();
+            collector.setLoggerLevels(loggerPrefix, loggerLevels);
         }
     }
 
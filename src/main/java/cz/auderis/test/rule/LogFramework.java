@@ -17,14 +17,18 @@
 package cz.auderis.test.rule;
 
 import cz.auderis.test.logging.LogCaptureInitializer;
+import cz.auderis.test.logging.LogCaptureMetrics;
 import cz.auderis.test.logging.LogRecordCollector;
 import cz.auderis.test.logging.jboss.JBossLoggingInitializer;
+import cz.auderis.test.logging.jul.JulInitializer;
 import cz.auderis.test.logging.log4j.Log4jInitializer;
+import cz.auderis.test.logging.log4j2.Log4j2Initializer;
 import cz.auderis.test.logging.slf4j.Slf4jInitializer;
 import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
 
+import java.io.PrintStream;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -32,7 +36,13 @@ import java.util.Set;
 public class LogFramework implements TestRule {
 
     private final Set<Flavour> loggingFlavours;
+    private PrintStream metricsSummaryStream;
+    private int metricsSummaryLoggers;
 
+    /**
+     * Captures all supported frameworks that are present. This includes {@code java.util.logging}, whose root
+     * logger handlers are replaced by the capturing handler.
+     */
     public static LogFramework everything() {
         return new LogFramework(EnumSet.allOf(Flavour.class));
     }
@@ -45,6 +55,10 @@ public class LogFramework implements TestRule {
 
     public static LogFramework log4j() { return new LogFramework(Flavour.LOG4J); }
 
+    public static LogFramework log4j2() { return new LogFramework(Flavour.LOG4J2); }
+
+    public static LogFramework jul() { return new LogFramework(Flavour.JUL); }
+
     public LogFramework andSlf4j() {
         loggingFlavours.add(Flavour.SLF4J);
         return this;
@@ -60,6 +74,37 @@ public class LogFramework implements TestRule {
         return this;
     }
 
+    public LogFramework andLog4j2() {
+        loggingFlavours.add(Flavour.LOG4J2);
+        return this;
+    }
+
+    public LogFramework andJul() {
+        loggingFlavours.add(Flavour.JUL);
+        return this;
+    }
+
+
+    /**
+     * Counts events captured by the global collector into {@link LogCaptureMetrics#shared()} and prints
+     * a summary of the most verbose loggers when the rule finishes (typically at the end of a test class
+     * when used as {@code @ClassRule}). Use {@link LogBuffer#withMetrics()} to include records captured
+     * by individual tests.
+     */
+    public LogFramework withMetricsSummary() {
+        return withMetricsSummary(System.out, 20);
+    }
+
+    public LogFramework withMetricsSummary(PrintStream out, int maxLoggers) {
+        if (null == out) {
+            throw new NullPointerException();
+        } else if (maxLoggers < 0) {
+            throw new IllegalArgumentException("invalid number of loggers " + maxLoggers);
+        }
+        this.metricsSummaryStream = out;
+        this.metricsSummaryLoggers = maxLoggers;
+        return this;
+    }
 
     private LogFramework(Flavour loggingFlavour) {
         this.loggingFlavours = EnumSet.of(loggingFlavour);
@@ -80,7 +125,21 @@ public class LogFramework implements TestRule {
             @Override
             public void evaluate() throws Throwable {
                 LogRecordCollector.RECORD_COLLECTOR.reset();
-                base.evaluate();
+                if (null == metricsSummaryStream) {
+                    base.evaluate();
+                    return;
+                }
+                // Summary covers just this statement, the shared metrics are detached when it finishes
+                final LogCaptureMetrics metrics = LogCaptureMetrics.shared();
+                final LogCaptureMetrics previousMetrics = LogRecordCollector.RECORD_COLLECTOR.getMetrics();
+                metrics.reset();
+                LogRecordCollector.RECORD_COLLECTOR.setMetrics(metrics);
+                try {
+                    base.evaluate();
+                } finally {
+                    LogRecordCollector.RECORD_COLLECTOR.setMetrics(previousMetrics);
+                    metrics.printSummary(metricsSummaryStream, metricsSummaryLoggers);
+                }
             }
         };
     }
@@ -122,6 +181,18 @@ public class LogFramework implements TestRule {
             LogCaptureInitializer getInitializer() {
                 return new Log4jInitializer();
             }
+        },
+        LOG4J2 {
+            @Override
+            LogCaptureInitializer getInitializer() {
+                return new Log4j2Initializer();
+            }
+        },
+        JUL {
+            @Override
+            LogCaptureInitializer getInitializer() {
+                return new JulInitializer();
+            }
         }
         ;
 
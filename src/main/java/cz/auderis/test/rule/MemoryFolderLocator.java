@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds a directory of a memory-backed file system, where work folders can be created without
+ * disk I/O. The directory may be given explicitly by system property {@link WorkFolder#MEMORY_FOLDER_PROPERTY},
+ * otherwise well-known tmpfs mount points are tried.
+ */
+final class MemoryFolderLocator {
+
+    private static final List<String> CANDIDATE_FOLDERS = Arrays.asList("/dev/shm", "/run/shm");
+    private static final List<String> MEMORY_STORE_TYPES = Arrays.asList("tmpfs", "ramfs");
+
+    private MemoryFolderLocator() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns the memory-backed directory, or {@code null} if none is available
+     */
+    static File getMemoryFolder() {
+        return LocationHolder.LOCATION;
+    }
+
+    static File findMemoryFolder(String configuredFolder) {
+        if ((null != configuredFolder) && !configuredFolder.isEmpty()) {
+            final Path configuredPath = Paths.get(configuredFolder);
+            return isUsable(configuredPath) ? configuredPath.toFile() : null;
+        }
+        for (final String candidate : CANDIDATE_FOLDERS) {
+            final Path candidatePath = Paths.get(candidate);
+            if (isUsable(candidatePath) && isMemoryStore(candidatePath)) {
+                return candidatePath.toFile();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isUsable(Path folder) {
+        return Files.isDirectory(folder) && Files.isWritable(folder);
+    }
+
+    private static boolean isMemoryStore(Path folder) {
+        try {
+            final FileStore store = Files.getFileStore(folder);
+            return MEMORY_STORE_TYPES.contains(store.type());
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+    }
+
+    private static final class LocationHolder {
+        static final File LOCATION = findMemoryFolder(System.getProperty(WorkFolder.MEMORY_FOLDER_PROPERTY));
+    }
+
+}
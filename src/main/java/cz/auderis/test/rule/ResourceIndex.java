@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory set of the regular files in a work folder, identified by their root-relative paths with
+ * {@code '/'} separators. The index is built by walking the folder on first use and then kept up to date
+ * by the work folder operations; files written by other means become visible only after {@link #invalidate()}.
+ */
+final class ResourceIndex {
+
+    private final Set<String> files;
+    private volatile boolean built;
+
+    ResourceIndex() {
+        this.files = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    }
+
+    boolean contains(File root, String resourcePath) {
+        ensureBuilt(root);
+        return files.contains(resourcePath);
+    }
+
+    /**
+     * Registers a created file, or all files below a created directory
+     */
+    void added(File root, File created) {
+        if (built) {
+            addTree(root.toPath(), created.toPath());
+        }
+    }
+
+    /**
+     * Forgets all files below the directory, which keeps only the directory itself
+     */
+    void contentsRemoved(File root, File dir) {
+        if (!built) {
+            return;
+        }
+        final String dirPath = relativize(root.toPath(), dir.toPath());
+        if (dirPath.isEmpty()) {
+            files.clear();
+            return;
+        }
+        final String prefix = dirPath + '/';
+        final Iterator<String> fileIterator = files.iterator();
+        while (fileIterator.hasNext()) {
+            if (fileIterator.next().startsWith(prefix)) {
+                fileIterator.remove();
+            }
+        }
+    }
+
+    void invalidate() {
+        synchronized (this) {
+            built = false;
+            files.clear();
+        }
+    }
+
+    private void ensureBuilt(File root) {
+        if (built) {
+            return;
+        }
+        synchronized (this) {
+            if (!built) {
+                addTree(root.toPath(), root.toPath());
+                built = true;
+            }
+        }
+    }
+
+    private void addTree(final Path root, Path start) {
+        if (!Files.isDirectory(start)) {
+            if (Files.isRegularFile(start)) {
+                files.add(relativize(root, start));
+            }
+            return;
+        }
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() || (attrs.isSymbolicLink() && Files.isRegularFile(file))) {
+                        files.add(relativize(root, file));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            // Unreadable parts of the tree are not indexed
+        }
+    }
+
+    private static String relativize(Path root, Path file) {
+        final String relativePath = root.relativize(file.normalize()).toString();
+        return ('/' == File.separatorChar) ? relativePath : relativePath.replace(File.separatorChar, '/');
+    }
+
+}
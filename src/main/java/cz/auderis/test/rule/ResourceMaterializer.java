@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Writes contents of work folder files. Files are copied by the operating system where possible:
+ * resources stored in files are transferred between file channels (or hard-linked on request),
+ * other streams are copied using {@link Files#copy(InputStream, Path, java.nio.file.CopyOption...)}.
+ * Directory resources, both in the file system and in jar files, are copied including their contents.
+ */
+final class ResourceMaterializer {
+
+    private ResourceMaterializer() {
+        throw new AssertionError();
+    }
+
+    static void materialize(URL resource, File target, boolean hardLinks) throws IOException {
+        if ("file".equals(resource.getProtocol())) {
+            final Path source;
+            try {
+                source = Paths.get(resource.toURI());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                copyStream(resource.openStream(), target);
+                return;
+            }
+            if (Files.isDirectory(source)) {
+                copyTree(source, target.toPath(), hardLinks);
+            } else {
+                copyFile(source, target.toPath(), hardLinks);
+            }
+            return;
+        }
+        final URLConnection connection = resource.openConnection();
+        if (connection instanceof JarURLConnection) {
+            final JarURLConnection jarConnection = (JarURLConnection) connection;
+            final JarEntry entry = jarConnection.getJarEntry();
+            if ((null != entry) && entry.isDirectory()) {
+                copyJarDirectory(jarConnection.getJarFile(), entry.getName(), target.toPath());
+                return;
+            }
+        }
+        copyStream(connection.getInputStream(), target);
+    }
+
+    static boolean isDirectoryResource(URL resource) throws IOException {
+        if ("file".equals(resource.getProtocol())) {
+            try {
+                return Files.isDirectory(Paths.get(resource.toURI()));
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                return false;
+            }
+        }
+        final URLConnection connection = resource.openConnection();
+        if (connection instanceof JarURLConnection) {
+            final JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+            return (null != entry) && entry.isDirectory();
+        }
+        return false;
+    }
+
+    /**
+     * Copies the stream into the target file and closes the stream afterwards
+     */
+    static void copyStream(InputStream source, File target) throws IOException {
+        try {
+            if (source instanceof FileInputStream) {
+                try (FileChannel out = openForWrite(target.toPath())) {
+                    final FileChannel in = ((FileInputStream) source).getChannel();
+                    transfer(in, in.position(), out);
+                }
+            } else {
+                Files.copy(source, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            WorkFolder.silentClose(source);
+        }
+    }
+
+    /**
+     * Writes contents of the provider to a newly created file, which is marked as sparse
+     */
+    static void writeChannelContents(File target, ChannelContentsProvider provider) throws IOException {
+        final Path targetPath = target.toPath();
+        Files.deleteIfExists(targetPath);
+        try (FileChannel channel = FileChannel.open(targetPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+            provider.writeTo(channel);
+        }
+    }
+
+    static void writeText(File target, CharSequence text, Charset charset) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(target.toPath(), charset)) {
+            writer.append(text);
+        }
+    }
+
+    static void copyFile(Path source, Path target, boolean hardLink) throws IOException {
+        if (hardLink) {
+            try {
+                Files.deleteIfExists(target);
+                Files.createLink(target, source);
+                return;
+            } catch (IOException | UnsupportedOperationException e) {
+                // Different file stores or no support for links, file is copied instead
+            }
+        }
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ); FileChannel out = openForWrite(target)) {
+            transfer(in, 0L, out);
+        }
+    }
+
+    private static void copyTree(final Path source, final Path target, final boolean hardLinks) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                copyFile(file, target.resolve(source.relativize(file).toString()), hardLinks);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void copyJarDirectory(JarFile jar, String dirEntryName, Path target) throws IOException {
+        Files.createDirectories(target);
+        final Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            final JarEntry entry = entries.nextElement();
+            final String name = entry.getName();
+            if (!name.startsWith(dirEntryName) || (name.length() == dirEntryName.length())) {
+                continue;
+            }
+            final Path entryTarget = target.resolve(name.substring(dirEntryName.length()));
+            if (!entryTarget.normalize().startsWith(target)) {
+                throw new IOException("jar entry outside of directory: " + name);
+            } else if (entry.isDirectory()) {
+                Files.createDirectories(entryTarget);
+            } else {
+                Files.createDirectories(entryTarget.getParent());
+                try (InputStream entryStream = jar.getInputStream(entry)) {
+                    Files.copy(entryStream, entryTarget, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    private static FileChannel openForWrite(Path target) throws IOException {
+        return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static void transfer(FileChannel in, long position, FileChannel out) throws IOException {
+        final long size = in.size();
+        long offset = position;
+        while (offset < size) {
+            final long transferred = in.transferTo(offset, size - offset, out);
+            if (transferred <= 0L) {
+                break;
+            }
+            offset += transferred;
+        }
+    }
+
+}
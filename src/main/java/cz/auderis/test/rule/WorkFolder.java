@@ -22,16 +22,15 @@ import org.junit.runners.model.Statement;
 
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.Enumeration;
-import java.util.LinkedList;
 
 /**
  * Extension of {@link TemporaryFolder} that has better support for initial content preparation.
@@ -48,13 +47,23 @@ import java.util.LinkedList;
  *     File resWithPath = work1.newResourceCopy("target/dir/copy.bin", "testResource.bin");
  * </pre>
  */
-public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
+public class WorkFolder extends TemporaryFolder implements ExtendedWorkFolderInterface {
+
+	/**
+	 * System property with the directory used by {@link #inMemory()} work folders
+	 */
+	public static final String MEMORY_FOLDER_PROPERTY = "cz.auderis.test.rule.memoryFolder";
 
 	private Class<?> resourceSearchBaseClass;
 	private Class<?> currentTestClass;
 	private FolderBasedClassLoader folderClassLoader;
 	private ClassLoader originalContextClassLoader;
 	private boolean contextClassLoaderInstalled;
+	private boolean deferredCleanup;
+	private boolean hardLinkedResources;
+	private ResourceIndex resourceIndex;
+	private FixtureCache fixtureCache;
+	private volatile boolean created;
 
 	/**
 	 * Creates a new instance of {@code WorkFolder}.
@@ -64,6 +73,15 @@ public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
 		return new WorkFolder();
 	}
 
+	/**
+	 * Creates a work folder in a memory-backed file system (tmpfs, such as {@code /dev/shm}), so that files
+	 * created by the test never reach the disk. If no such file system is available, the folder is created
+	 * in the default temporary directory.
+	 */
+	public static WorkFolder inMemory() {
+		return new WorkFolder(MemoryFolderLocator.getMemoryFolder());
+	}
+
 	public static WorkFolder subfolderOf(File parentFolder) {
 		return new WorkFolder(parentFolder);
 	}
@@ -91,6 +109,65 @@ public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
 		return this;
 	}
 
+	/**
+	 * When the test finishes, the folder is only renamed to a trash directory next to it, which is then
+	 * deleted in the background, so that the next test does not wait for the deletion of a large tree.
+	 * Trash directories left behind when the JVM exits are deleted when the next such folder is created
+	 * in the same parent directory, once they are at least an hour old.
+	 */
+	public WorkFolder withDeferredCleanup() {
+		deferredCleanup = true;
+		return this;
+	}
+
+	/**
+	 * Resources stored as plain files are hard-linked into the folder instead of being copied, if the file
+	 * system allows it. Linked files share contents with the original resources, so tests must not modify them.
+	 */
+	public WorkFolder withHardLinkedResources() {
+		hardLinkedResources = true;
+		return this;
+	}
+
+	/**
+	 * The {@link #getClassLoaderForResources() resource class loader} answers lookups from an in-memory index
+	 * of the folder instead of querying the file system. The index is updated by the methods of this class
+	 * and its subfolders; files written by other means must be announced by {@link #refreshResourceIndex()}.
+	 */
+	public WorkFolder withResourceIndex() {
+		resourceIndex = new ResourceIndex();
+		return this;
+	}
+
+	/**
+	 * Rebuilds the resource index on next lookup, so that files created outside of this work folder's methods
+	 * become visible to the resource class loader
+	 */
+	public void refreshResourceIndex() {
+		if (null != resourceIndex) {
+			resourceIndex.invalidate();
+		}
+	}
+
+	/**
+	 * Resource copies are served from the {@link FixtureCache#shared() shared fixture cache}, so that a resource
+	 * is normally read only once per JVM, as long as its contents stay cached. Files are copied from the cached
+	 * contents, or hard-linked to them when {@link #withHardLinkedResources() hard-linked resources} are requested
+	 * as well; such files are read-only, but since they share the cached contents, these are hashed again
+	 * on every later use to detect modifications made through a link anyway.
+	 */
+	public WorkFolder withFixtureCache() {
+		return withFixtureCache(FixtureCache.shared());
+	}
+
+	public WorkFolder withFixtureCache(FixtureCache cache) {
+		if (null == cache) {
+			throw new NullPointerException();
+		}
+		fixtureCache = cache;
+		return this;
+	}
+
 	@Override
 	public Statement apply(final Statement base, final Description description) {
 		final Class<?> testClass = description.getTestClass();
@@ -114,11 +191,44 @@ public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
 		};
 	}
 
+	@Override
+	public void create() throws IOException {
+		refreshResourceIndex();
+		super.create();
+		created = true;
+		if (deferredCleanup) {
+			// Trash of folders whose deletion was interrupted by the exit of a previous JVM
+			FolderCleaner.deleteStaleTrash(getRoot().getParentFile());
+		}
+	}
+
+	/**
+	 * Deletes the folder in parallel, or in the background if {@link #withDeferredCleanup() deferred cleanup}
+	 * is requested
+	 */
+	@Override
+	public void delete() {
+		if (!created) {
+			return;
+		}
+		if (deferredCleanup) {
+			FolderCleaner.deleteTreeDeferred(getRoot());
+		} else {
+			FolderCleaner.deleteTree(getRoot());
+		}
+		refreshResourceIndex();
+	}
+
 	@Override
 	public File asFile() {
 		return getRoot();
 	}
 
+	@Override
+	public Path asPath() {
+		return getRoot().toPath();
+	}
+
 	@Override
 	public String absolutePath() {
 		return getRoot().getAbsolutePath();
@@ -136,7 +246,16 @@ public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
 
 	@Override
 	public File newFile() throws IOException {
-		return super.newFile();
+		final File target = super.newFile();
+		fileAdded(target);
+		return target;
+	}
+
+	@Override
+	public File newFile(String fileName) throws IOException {
+		final File target = super.newFile(fileName);
+		fileAdded(target);
+		return target;
 	}
 
 	@Override
@@ -150,6 +269,22 @@ public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
 		} else {
 			target.createNewFile();
 		}
+		fileAdded(target);
+		return target;
+	}
+
+	@Override
+	public File newFile(String targetPath, CharSequence initialContents, Charset charset) throws IOException {
+		if ((null == targetPath) || (null == charset)) {
+			throw new NullPointerException();
+		}
+		final File target = prepareTargetFile(targetPath);
+		if (null != initialContents) {
+			ResourceMaterializer.writeText(target, initialContents, charset);
+		} else {
+			target.createNewFile();
+		}
+		fileAdded(target);
 		return target;
 	}
 
@@ -164,11 +299,21 @@ public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
 		} else {
 			target.createNewFile();
 		}
+		fileAdded(target);
 		return target;
 	}
 
     @Override
     public File newFile(String targetPath, InitialContentsProvider contentsProvider) throws IOException {
+	    if (contentsProvider instanceof ChannelContentsProvider) {
+		    if (null == targetPath) {
+			    throw new NullPointerException();
+		    }
+		    final File target = prepareTargetFile(targetPath);
+		    ResourceMaterializer.writeChannelContents(target, (ChannelContentsProvider) contentsProvider);
+		    fileAdded(target);
+		    return target;
+	    }
 	    final InputStream stream = (null != contentsProvider) ? contentsProvider.getContents() : null;
 	    return newFile(targetPath, stream);
     }
@@ -178,8 +323,14 @@ public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
 		if ((null == targetPath) || (null == resourceName)) {
 			throw new NullPointerException();
 		}
-		final InputStream resourceStream = openResource(resourceName);
-		return newFile(targetPath, resourceStream);
+		final URL resource = findResource(resourceName);
+		if (null == resource) {
+			return newFile(targetPath, (InputStream) null);
+		}
+		final File target = prepareTargetFile(targetPath);
+		materializeResource(resource, target);
+		fileAdded(target);
+		return target;
 	}
 
 	@Override
@@ -189,7 +340,7 @@ public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
 	}
 
 	@Override
-	public WorkFolderInterface subfolder(String... pathComponents) throws IOException {
+	public ExtendedWorkFolderInterface subfolder(String... pathComponents) throws IOException {
 		if (0 == pathComponents.length) {
 			throw new IllegalArgumentException("no path components given");
 		}
@@ -204,6 +355,7 @@ public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
 	@Override
 	public void clean() throws IOException {
 		recursiveDelete(getRoot());
+		contentsRemoved(getRoot());
 	}
 
 	public ClassLoader getClassLoaderForResources() {
@@ -282,9 +434,28 @@ public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
 		return target;
 	}
 
-	private InputStream openResource(String resourceName) throws IOException {
-		final Class<?> searchBase = (null != resourceSearchBaseClass) ? resourceSearchBaseClass : currentTestClass;
-		return searchBase.getResourceAsStream(resourceName);
+	private URL findResource(String resourceName) {
+		return getResourceSearchBaseClass().getResource(resourceName);
+	}
+
+	void materializeResource(URL resource, File target) throws IOException {
+		if (null != fixtureCache) {
+			fixtureCache.materialize(resource, target, hardLinkedResources);
+		} else {
+			ResourceMaterializer.materialize(resource, target, hardLinkedResources);
+		}
+	}
+
+	void fileAdded(File file) {
+		if (null != resourceIndex) {
+			resourceIndex.added(getRoot(), file);
+		}
+	}
+
+	void contentsRemoved(File dir) {
+		if (null != resourceIndex) {
+			resourceIndex.contentsRemoved(getRoot(), dir);
+		}
 	}
 
 	Class<?> getResourceSearchBaseClass() {
@@ -343,26 +514,11 @@ public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
      * Copies the {@code initialContents} to the given target file and closes all streams afterwards.
      */
 	static void copyContents(File target, InputStream initialContents) throws IOException {
-		final FileOutputStream targetStream = new FileOutputStream(target, false);
-		try {
-			final byte[] buffer = new byte[8192];
-			int readBytes;
-			while (-1 != (readBytes = initialContents.read(buffer))) {
-				targetStream.write(buffer, 0, readBytes);
-			}
-		} finally {
-			silentClose(targetStream);
-			silentClose(initialContents);
-		}
+		ResourceMaterializer.copyStream(initialContents, target);
 	}
 
 	static void writeContents(File target, CharSequence initialContents) throws IOException {
-		final FileWriter writer = new FileWriter(target, false);
-		try {
-			writer.append(initialContents);
-		} finally {
-			silentClose(writer);
-		}
+		ResourceMaterializer.writeText(target, initialContents, StandardCharsets.UTF_8);
 	}
 
 	static void silentClose(Closeable stream) {
@@ -376,40 +532,7 @@ public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
 	}
 
 	static void recursiveDelete(File dir) {
-		final Deque<File> subdirs = new LinkedList<>();
-		final Deque<File> deletePending = new LinkedList<>();
-		final boolean targetClear = deleteDirectoryFiles(dir, subdirs);
-		if (!targetClear) {
-			while (!subdirs.isEmpty()) {
-				final File targetDir = subdirs.pop();
-				final boolean dirClean = deleteDirectoryFiles(targetDir, subdirs);
-				if (dirClean) {
-					targetDir.delete();
-				} else {
-					deletePending.add(targetDir);
-				}
-			}
-			for (File dirToDelete : deletePending) {
-				dirToDelete.delete();
-			}
-		}
-	}
-
-	private static boolean deleteDirectoryFiles(File dir, Deque<File> subdirStore) {
-		final File[] files = dir.listFiles();
-		if ((null == files) || (0 == files.length)) {
-			return true;
-		}
-		boolean noDirsFound = true;
-		for (File file : files) {
-			if (file.isDirectory()) {
-				noDirsFound = false;
-				subdirStore.addFirst(file);
-			} else {
-				file.delete();
-			}
-		}
-		return noDirsFound;
+		FolderCleaner.deleteContents(dir);
 	}
 
 	final class FolderBasedClassLoader extends ClassLoader {
@@ -419,8 +542,8 @@ public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
 
         @Override
         protected URL findResource(String resourcePath) {
-            final File resourceFile = new File(getRoot(), resourcePath);
-            if (!resourceFile.isFile()) {
+            final File resourceFile = findResourceFile(resourcePath);
+            if (null == resourceFile) {
                 return null;
             }
             try {
@@ -432,13 +555,23 @@ public class WorkFolder extends TemporaryFolder implements WorkFolderInterface {
 
         @Override
         protected Enumeration<URL> findResources(String resourcePath) throws IOException {
-            final File resourceFile = new File(getRoot(), resourcePath);
-            if (!resourceFile.isFile()) {
+            final File resourceFile = findResourceFile(resourcePath);
+            if (null == resourceFile) {
                 return Collections.emptyEnumeration();
             }
             final URL resourceURL = resourceFile.toURI().toURL();
             return Collections.enumeration(Collections.singletonList(resourceURL));
         }
+
+        private File findResourceFile(String resourcePath) {
+            final File root = getRoot();
+            final ResourceIndex index = resourceIndex;
+            if (null != index) {
+                return index.contains(root, resourcePath) ? new File(root, resourcePath) : null;
+            }
+            final File resourceFile = new File(root, resourcePath);
+            return resourceFile.isFile() ? resourceFile : null;
+        }
     }
 
 }
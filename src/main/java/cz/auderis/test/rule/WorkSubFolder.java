@@ -3,12 +3,15 @@ package cz.auderis.test.rule;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 
 /**
  * @author Boleslav Bobcik
  * @version 1.0.0
  */
-class WorkSubFolder implements WorkFolderInterface {
+class WorkSubFolder implements ExtendedWorkFolderInterface {
 
     private final WorkFolder rootFolder;
     private final String relativePath;
@@ -26,6 +29,11 @@ class WorkSubFolder implements WorkFolderInterface {
         return folderFile;
     }
 
+    @Override
+    public Path asPath() {
+        return folderFile.toPath();
+    }
+
     @Override
     public String absolutePath() {
         return folderFile.getAbsolutePath();
@@ -48,6 +56,7 @@ class WorkSubFolder implements WorkFolderInterface {
         }
         final File f = prepareTargetFile(targetPath);
         f.createNewFile();
+        rootFolder.fileAdded(f);
         return f;
     }
 
@@ -62,6 +71,22 @@ class WorkSubFolder implements WorkFolderInterface {
         } else {
             f.createNewFile();
         }
+        rootFolder.fileAdded(f);
+        return f;
+    }
+
+    @Override
+    public File newFile(String targetPath, CharSequence initialContents, Charset charset) throws IOException {
+        if ((null == targetPath) || (null == charset)) {
+            throw new NullPointerException();
+        }
+        final File f = prepareTargetFile(targetPath);
+        if (null != initialContents) {
+            ResourceMaterializer.writeText(f, initialContents, charset);
+        } else {
+            f.createNewFile();
+        }
+        rootFolder.fileAdded(f);
         return f;
     }
 
@@ -76,11 +101,21 @@ class WorkSubFolder implements WorkFolderInterface {
         } else {
             f.createNewFile();
         }
+        rootFolder.fileAdded(f);
         return f;
     }
 
     @Override
     public File newFile(String targetPath, InitialContentsProvider contentsProvider) throws IOException {
+        if (contentsProvider instanceof ChannelContentsProvider) {
+            if (null == targetPath) {
+                throw new NullPointerException();
+            }
+            final File f = prepareTargetFile(targetPath);
+            ResourceMaterializer.writeChannelContents(f, (ChannelContentsProvider) contentsProvider);
+            rootFolder.fileAdded(f);
+            return f;
+        }
         final InputStream stream = (null != contentsProvider) ? contentsProvider.getContents() : null;
         return newFile(targetPath, stream);
     }
@@ -90,8 +125,14 @@ class WorkSubFolder implements WorkFolderInterface {
         if ((null == targetPath) || (null == resourceName)) {
             throw new NullPointerException();
         }
-        final InputStream resourceStream = openResource(resourceName);
-        return newFile(targetPath, resourceStream);
+        final URL resource = findResource(resourceName);
+        if (null == resource) {
+            return newFile(targetPath, (InputStream) null);
+        }
+        final File f = prepareTargetFile(targetPath);
+        rootFolder.materializeResource(resource, f);
+        rootFolder.fileAdded(f);
+        return f;
     }
 
     @Override
@@ -101,7 +142,7 @@ class WorkSubFolder implements WorkFolderInterface {
     }
 
     @Override
-    public WorkFolderInterface subfolder(String... pathComponents) throws IOException {
+    public ExtendedWorkFolderInterface subfolder(String... pathComponents) throws IOException {
         if (0 == pathComponents.length) {
             throw new IllegalArgumentException("no path components given");
         }
@@ -116,6 +157,7 @@ class WorkSubFolder implements WorkFolderInterface {
     @Override
     public void clean() throws IOException {
         WorkFolder.recursiveDelete(folderFile);
+        rootFolder.contentsRemoved(folderFile);
     }
 
     private File prepareTargetFile(String targetPath) {
@@ -128,18 +170,18 @@ class WorkSubFolder implements WorkFolderInterface {
         return target;
     }
 
-    private InputStream openResource(String resourceName) throws IOException {
+    private URL findResource(String resourceName) {
         final Class<?> searchBase = rootFolder.getResourceSearchBaseClass();
-        final InputStream streamAsIs = searchBase.getResourceAsStream(resourceName);
-        if (null != streamAsIs) {
-            return streamAsIs;
+        final URL resourceAsIs = searchBase.getResource(resourceName);
+        if (null != resourceAsIs) {
+            return resourceAsIs;
         }
         // Try to prepend this folder's relative path to the resource name
         if ((-1 == resourceName.indexOf('/')) && (-1 == resourceName.indexOf('\\'))) {
-            final String relativeCandidate = relativePath + File.separatorChar + resourceName;
-            final InputStream relativeStream = searchBase.getResourceAsStream(resourceName);
-            if (null != relativeStream) {
-                return relativeStream;
+            final String relativeCandidate = relativePath + '/' + resourceName;
+            final URL relativeResource = searchBase.getResource(relativeCandidate);
+            if (null != relativeResource) {
+                return relativeResource;
             }
         }
         //
@@ -16,6 +16,8 @@
 
 package cz.auderis.test.support.array;
 
+import cz.auderis.test.support.convert.StringConverter;
+
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -25,7 +27,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Scanner;
 
-public enum BuiltInItemSupport implements ArraySequenceParser, ArrayItemFiller {
+public enum BuiltInItemSupport implements ArraySequenceParser, ArrayItemFiller, StringConverter<Object> {
 
     BIG_INTEGER(BigInteger.class) {
         @Override
@@ -48,6 +50,11 @@ public enum BuiltInItemSupport implements ArraySequenceParser, ArrayItemFiller {
             final BigInteger value = new BigInteger(itemSpec);
             Array.set(target, index, value);
         }
+
+        @Override
+        Object parseValue(String text) {
+            return new BigInteger(text);
+        }
     },
 
     BIG_DECIMAL(BigDecimal.class) {
@@ -72,6 +79,11 @@ public enum BuiltInItemSupport implements ArraySequenceParser, ArrayItemFiller {
             final BigDecimal value = new BigDecimal(itemSpec);
             Array.set(target, index, value);
         }
+
+        @Override
+        Object parseValue(String text) {
+            return new BigDecimal(text);
+        }
     };
 
     private final Class<?> itemType;
@@ -85,6 +97,16 @@ public enum BuiltInItemSupport implements ArraySequenceParser, ArrayItemFiller {
         return itemType;
     }
 
+    @Override
+    public Object convert(String text) {
+        if (null == text) {
+            return null;
+        }
+        return parseValue(text);
+    }
+
+    abstract Object parseValue(String text);
+
     public static BuiltInItemSupport forType(Class<?> itemType) {
         for (final BuiltInItemSupport typeHandler : values()) {
             if (itemType == typeHandler.itemType) {
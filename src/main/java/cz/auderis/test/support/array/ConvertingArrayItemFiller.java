@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cz.auderis.test.support.array;
+
+import cz.auderis.test.support.convert.StringConverter;
+
+import java.lang.reflect.Array;
+
+public class ConvertingArrayItemFiller implements ArrayItemFiller {
+
+    private final StringConverter<?> converter;
+    private final Class<?> targetClass;
+
+    public ConvertingArrayItemFiller(StringConverter<?> converter, Class<?> targetClass) {
+        assert null != converter;
+        assert null != targetClass;
+        this.converter = converter;
+        this.targetClass = targetClass;
+    }
+
+    @Override
+    public Class<?> getItemType() {
+        return targetClass;
+    }
+
+    @Override
+    public void setItem(Object target, int index, String itemSpec) {
+        final Object itemValue = converter.convert(itemSpec);
+        Array.set(target, index, itemValue);
+    }
+
+}
@@ -16,6 +16,8 @@
 
 package cz.auderis.test.support.array;
 
+import cz.auderis.test.support.convert.StringConverter;
+
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -26,7 +28,7 @@ import java.util.Locale;
 import java.util.Scanner;
 import java.util.Set;
 
-public enum PrimitiveArrayItemSupport implements ArraySequenceParser, ArrayItemFiller {
+public enum PrimitiveArrayItemSupport implements ArraySequenceParser, ArrayItemFiller, StringConverter<Object> {
 
     BOOLEAN(boolean.class, Boolean.class) {
         @Override
@@ -35,16 +37,8 @@ public enum PrimitiveArrayItemSupport implements ArraySequenceParser, ArrayItemF
             final Scanner scanner = new Scanner(sourceText.substring(initialOffset));
             while (scanner.hasNext()) {
                 final String token = scanner.next();
-                final boolean value;
-                if (BOOLEAN_TRUE_VALUES.contains(token)) {
-                    value = true;
-                } else if (BOOLEAN_FALSE_VALUES.contains(token)) {
-                    value = false;
-                } else if ("true".equalsIgnoreCase(token) || "yes".equalsIgnoreCase(token)) {
-                    value = true;
-                } else if ("false".equalsIgnoreCase(token) || "no".equalsIgnoreCase(token)) {
-                    value = false;
-                } else {
+                final Boolean value = parseBoolean(token);
+                if (null == value) {
                     throw new IllegalArgumentException("Invalid array specification, bad boolean value '" + token + "': " + sourceText);
                 }
                 result.add(String.valueOf(value));
@@ -53,6 +47,15 @@ public enum PrimitiveArrayItemSupport implements ArraySequenceParser, ArrayItemF
 
         }
 
+        @Override
+        Object parseValue(String text) {
+            final Boolean value = parseBoolean(text);
+            if (null == value) {
+                throw new IllegalArgumentException("Bad boolean value: " + text);
+            }
+            return value;
+        }
+
         @Override
         public void setItem(Object target, int index, String itemSpec) {
             final boolean value = Boolean.parseBoolean(itemSpec);
@@ -76,6 +79,11 @@ public enum PrimitiveArrayItemSupport implements ArraySequenceParser, ArrayItemF
             return result;
         }
 
+        @Override
+        Object parseValue(String text) {
+            return Byte.decode(text);
+        }
+
         @Override
         public void setItem(Object target, int index, String itemSpec) {
             final byte value = Byte.parseByte(itemSpec);
@@ -101,6 +109,14 @@ public enum PrimitiveArrayItemSupport implements ArraySequenceParser, ArrayItemF
             return result;
         }
 
+        @Override
+        Object parseValue(String text) {
+            if (1 != text.length()) {
+                throw new IllegalArgumentException("Bad character value: " + text);
+            }
+            return text.charAt(0);
+        }
+
         @Override
         public void setItem(Object target, int index, String itemSpec) {
             final char value = itemSpec.charAt(0);
@@ -124,6 +140,11 @@ public enum PrimitiveArrayItemSupport implements ArraySequenceParser, ArrayItemF
             return result;
         }
 
+        @Override
+        Object parseValue(String text) {
+            return Short.decode(text);
+        }
+
         @Override
         public void setItem(Object target, int index, String itemSpec) {
             final short value = Short.parseShort(itemSpec);
@@ -147,6 +168,11 @@ public enum PrimitiveArrayItemSupport implements ArraySequenceParser, ArrayItemF
             return result;
         }
 
+        @Override
+        Object parseValue(String text) {
+            return Integer.decode(text);
+        }
+
         @Override
         public void setItem(Object target, int index, String itemSpec) {
             final int value = Integer.parseInt(itemSpec);
@@ -170,6 +196,11 @@ public enum PrimitiveArrayItemSupport implements ArraySequenceParser, ArrayItemF
             return result;
         }
 
+        @Override
+        Object parseValue(String text) {
+            return Long.decode(text);
+        }
+
         @Override
         public void setItem(Object target, int index, String itemSpec) {
             final long value = Long.parseLong(itemSpec);
@@ -194,6 +225,11 @@ public enum PrimitiveArrayItemSupport implements ArraySequenceParser, ArrayItemF
             return result;
         }
 
+        @Override
+        Object parseValue(String text) {
+            return Float.valueOf(text);
+        }
+
         @Override
         public void setItem(Object target, int index, String itemSpec) {
             final float value = Float.parseFloat(itemSpec);
@@ -218,6 +254,11 @@ public enum PrimitiveArrayItemSupport implements ArraySequenceParser, ArrayItemF
             return result;
         }
 
+        @Override
+        Object parseValue(String text) {
+            return Double.valueOf(text);
+        }
+
         @Override
         public void setItem(Object target, int index, String itemSpec) {
             final double value = Double.parseDouble(itemSpec);
@@ -238,6 +279,17 @@ public enum PrimitiveArrayItemSupport implements ArraySequenceParser, ArrayItemF
         return itemType;
     }
 
+    @Override
+    public Object convert(String text) {
+        if (null == text) {
+            return null;
+        }
+        // Integral values are decoded the same way as by JDK property editors, i.e. hex and octal forms are accepted
+        return parseValue(text);
+    }
+
+    abstract Object parseValue(String text);
+
     public static PrimitiveArrayItemSupport forType(Class<?> type) {
         for (final PrimitiveArrayItemSupport filler : values()) {
             if (type == filler.itemType) {
@@ -256,6 +308,19 @@ public enum PrimitiveArrayItemSupport implements ArraySequenceParser, ArrayItemF
         return null;
     }
 
+    static Boolean parseBoolean(String token) {
+        if (BOOLEAN_TRUE_VALUES.contains(token)) {
+            return Boolean.TRUE;
+        } else if (BOOLEAN_FALSE_VALUES.contains(token)) {
+            return Boolean.FALSE;
+        } else if ("true".equalsIgnoreCase(token) || "yes".equalsIgnoreCase(token)) {
+            return Boolean.TRUE;
+        } else if ("false".equalsIgnoreCase(token) || "no".equalsIgnoreCase(token)) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
     final static Set<String> BOOLEAN_TRUE_VALUES  = new HashSet<String>(Arrays.asList("1", "Y", "y", "T", "t"));
     final static Set<String> BOOLEAN_FALSE_VALUES = new HashSet<String>(Arrays.asList("0", "N", "n", "F", "f"));
 }
@@ -16,31 +16,14 @@
 
 package cz.auderis.test.support.array;
 
-import java.beans.PropertyEditor;
-import java.lang.reflect.Array;
+import cz.auderis.test.support.convert.StringConverters;
 
-public class PropertyEditorArrayItemFiller implements ArrayItemFiller {
+import java.beans.PropertyEditor;
 
-    private final PropertyEditor editor;
-    private final Class<?> targetClass;
+public class PropertyEditorArrayItemFiller extends ConvertingArrayItemFiller {
 
     public PropertyEditorArrayItemFiller(PropertyEditor editor, Class<?> targetClass) {
-        assert null != editor;
-        assert null != targetClass;
-        this.editor = editor;
-        this.targetClass = targetClass;
-    }
-
-    @Override
-    public Class<?> getItemType() {
-        return targetClass;
-    }
-
-    @Override
-    public void setItem(Object target, int index, String itemSpec) {
-        editor.setAsText(itemSpec);
-        final Object itemValue = editor.getValue();
-        Array.set(target, index, itemValue);
+        super(StringConverters.usingEditor(editor), targetClass);
     }
 
 }
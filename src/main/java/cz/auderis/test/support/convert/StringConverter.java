@@ -0,0 +1,30 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cz.auderis.test.support.convert;
+
+/**
+ * Converts text representation to a value of a target type. Implementations must be stateless
+ * (or otherwise thread-safe), because a single instance is shared by all users of {@link StringConverters}.
+ *
+ * @param <T> target type
+ */
+public interface StringConverter<T> {
+
+    T convert(String text);
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cz.auderis.test.support.convert;
+
+import cz.auderis.test.support.array.BuiltInItemSupport;
+import cz.auderis.test.support.array.PrimitiveArrayItemSupport;
+import cz.auderis.test.support.editor.AdditionalPropertyEditors;
+
+import java.beans.PropertyEditor;
+import java.beans.PropertyEditorManager;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Central registry of text to value conversions used by parameter converters. A converter for a target type
+ * is resolved once and cached; the sources are, in order of precedence:
+ * <ol>
+ *     <li>converters registered explicitly using {@link #register(Class, StringConverter)},</li>
+ *     <li>{@link PrimitiveArrayItemSupport} for primitive types and their wrappers; numeric wrappers
+ *     are parsed by their {@code valueOf(String)} method first,</li>
+ *     <li>{@link BuiltInItemSupport} for big numbers,</li>
+ *     <li>static {@code valueOf(String)} method or public constructor taking a string,
+ *     with a property editor as a fallback for text the factory rejects,</li>
+ *     <li>JavaBeans property editor, including {@link AdditionalPropertyEditors}.</li>
+ * </ol>
+ * Unsupported types are not cached. Neither are converters backed by property editors, since an editor
+ * may be registered with {@link PropertyEditorManager} at any time; the editor is looked up whenever such
+ * a converter is requested, or whenever the factory of a type rejects the text.
+ * All returned converters are thread-safe.
+ */
+public final class StringConverters {
+
+    private static final ConcurrentMap<Class<?>, StringConverter<?>> REGISTERED_CONVERTERS = new ConcurrentHashMap<>();
+
+    private static final ClassValue<Resolution> CONVERTERS = new ClassValue<Resolution>() {
+        @Override
+        protected Resolution computeValue(Class<?> type) {
+            final StringConverter<?> converter = resolveConverter(type);
+            return (null != converter) ? new Resolution(converter) : Resolution.EDITOR_LOOKUP;
+        }
+    };
+
+    static {
+        AdditionalPropertyEditors.register();
+    }
+
+    public static <T> void register(Class<T> targetType, StringConverter<? extends T> converter) {
+        if (null == targetType) {
+            throw new NullPointerException("target type is null");
+        } else if (null == converter) {
+            throw new NullPointerException("converter is null");
+        }
+        REGISTERED_CONVERTERS.put(targetType, converter);
+        CONVERTERS.remove(targetType);
+    }
+
+    public static void unregister(Class<?> targetType) {
+        if (null == targetType) {
+            throw new NullPointerException("target type is null");
+        }
+        REGISTERED_CONVERTERS.remove(targetType);
+        CONVERTERS.remove(targetType);
+    }
+
+    /**
+     * Returns converter for the given type, or {@code null} if the type is not supported.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> StringConverter<T> find(Class<T> targetType) {
+        final StringConverter<?> converter = CONVERTERS.get(targetType).converter;
+        return (StringConverter<T>) ((null != converter) ? converter : findEditorConverter(targetType));
+    }
+
+    public static <T> StringConverter<T> forType(Class<T> targetType) {
+        final StringConverter<T> converter = find(targetType);
+        if (null == converter) {
+            throw new IllegalArgumentException("No string converter available for " + targetType);
+        }
+        return converter;
+    }
+
+    public static <T> T convert(String text, Class<T> targetType) {
+        return forType(targetType).convert(text);
+    }
+
+    /**
+     * Wraps a single property editor instance, serializing access to it.
+     */
+    public static StringConverter<Object> usingEditor(PropertyEditor editor) {
+        if (null == editor) {
+            throw new NullPointerException("editor is null");
+        }
+        return new SharedEditorConverter(editor);
+    }
+
+    private static StringConverter<?> resolveConverter(Class<?> targetType) {
+        final StringConverter<?> registeredConverter = REGISTERED_CONVERTERS.get(targetType);
+        if (null != registeredConverter) {
+            return registeredConverter;
+        } else if (String.class == targetType) {
+            return IdentityConverter.INSTANCE;
+        }
+        final PrimitiveArrayItemSupport primitiveSupport = PrimitiveArrayItemSupport.forType(targetType);
+        if (null != primitiveSupport) {
+            return primitiveSupport;
+        }
+        final PrimitiveArrayItemSupport boxedSupport = PrimitiveArrayItemSupport.forBoxedType(targetType);
+        if (null != boxedSupport) {
+            // Numeric wrappers keep valueOf() semantics, hex and octal forms are decoded only for text it rejects
+            final MethodHandle factory = Number.class.isAssignableFrom(targetType) ? findFactory(targetType) : null;
+            return (null != factory) ? new FactoryConverter(targetType, factory, boxedSupport) : boxedSupport;
+        }
+        final BuiltInItemSupport builtInSupport = BuiltInItemSupport.forType(targetType);
+        if (null != builtInSupport) {
+            return builtInSupport;
+        }
+        final MethodHandle factory = findFactory(targetType);
+        if (null != factory) {
+            return new FactoryConverter(targetType, factory, null);
+        }
+        // Property editor is looked up by find() itself
+        return null;
+    }
+
+    private static StringConverter<?> findEditorConverter(Class<?> targetType) {
+        final PropertyEditor editor = PropertyEditorManager.findEditor(targetType);
+        return (null != editor) ? new EditorConverter(editor) : null;
+    }
+
+    private static MethodHandle findFactory(Class<?> targetType) {
+        if (targetType.isPrimitive() || targetType.isArray()) {
+            return null;
+        }
+        final MethodType factoryType = MethodType.methodType(Object.class, String.class);
+        try {
+            final Method valueOfMethod = targetType.getMethod("valueOf", String.class);
+            if (Modifier.isStatic(valueOfMethod.getModifiers()) && targetType.isAssignableFrom(valueOfMethod.getReturnType())) {
+                valueOfMethod.setAccessible(true);
+                return MethodHandles.lookup().unreflect(valueOfMethod).asType(factoryType);
+            }
+        } catch (Exception e) {
+            // There is no usable valueOf() method
+        }
+        if (Modifier.isAbstract(targetType.getModifiers())) {
+            return null;
+        }
+        try {
+            final Constructor<?> constructor = targetType.getConstructor(String.class);
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor).asType(factoryType);
+        } catch (Exception e) {
+            // There is no usable constructor
+            return null;
+        }
+    }
+
+    private StringConverters() {
+        throw new AssertionError();
+    }
+
+    private static final class Resolution {
+        // No converter independent of property editors
+        static final Resolution EDITOR_LOOKUP = new Resolution(null);
+
+        final StringConverter<?> converter;
+
+        Resolution(StringConverter<?> converter) {
+            this.converter = converter;
+        }
+    }
+
+    private enum IdentityConverter implements StringConverter<String> {
+        INSTANCE;
+
+        @Override
+        public String convert(String text) {
+            return text;
+        }
+    }
+
+    private static final class FactoryConverter implements StringConverter<Object> {
+        private final Class<?> targetType;
+        private final MethodHandle factory;
+        // Without a fallback, the property editor of the type is looked up when the factory rejects the text
+        private final StringConverter<?> fallback;
+
+        FactoryConverter(Class<?> targetType, MethodHandle factory, StringConverter<?> fallback) {
+            this.targetType = targetType;
+            this.factory = factory;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public Object convert(String text) {
+            if (null == text) {
+                return null;
+            }
+            try {
+                return (Object) factory.invokeExact(text);
+            } catch (Throwable e) {
+                // The factory rejected the text, continue with the fallback if there is one
+                final StringConverter<?> currentFallback = (null != fallback) ? fallback : findEditorConverter(targetType);
+                if (null != currentFallback) {
+                    return currentFallback.convert(text);
+                } else if (e instanceof RuntimeException) {
+                    throw (RuntimeException) e;
+                } else if (e instanceof Error) {
+                    throw (Error) e;
+                }
+                throw new IllegalArgumentException("Cannot convert '" + text + "' to " + targetType, e);
+            }
+        }
+    }
+
+    private static final class EditorConverter implements StringConverter<Object> {
+        private final PropertyEditor editor;
+
+        EditorConverter(PropertyEditor editor) {
+            this.editor = editor;
+        }
+
+        @Override
+        public Object convert(String text) {
+            if (null == text) {
+                return null;
+            }
+            synchronized (editor) {
+                editor.setAsText(text);
+                return editor.getValue();
+            }
+        }
+    }
+
+    private static final class SharedEditorConverter implements StringConverter<Object> {
+        private final PropertyEditor editor;
+
+        SharedEditorConverter(PropertyEditor editor) {
+            this.editor = editor;
+        }
+
+        @Override
+        public Object convert(String text) {
+            synchronized (editor) {
+                editor.setAsText(text);
+                return editor.getValue();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return editor.toString();
+        }
+    }
+
+}
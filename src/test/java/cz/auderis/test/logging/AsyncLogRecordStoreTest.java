@@ -0,0 +1,232 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class AsyncLogRecordStoreTest {
+
+    private AsyncLogRecordStore store;
+    private LogRecordCollector collector;
+
+    @Before
+    public void initStore() throws Exception {
+        store = new AsyncLogRecordStore(new StripedLogRecordStore(), 6);
+        collector = new LogRecordCollector(store);
+    }
+
+    @After
+    public void closeStore() throws Exception {
+        store.close();
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldRoundCapacityToPowerOfTwo() throws Exception {
+        assertThat(store.getCapacity(), is(8));
+        assertThat(new AsyncLogRecordStore(new StripedLogRecordStore(), 1).getCapacity(), is(1));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldSeeAllPublishedRecordsWhenRead() throws Exception {
+        for (int i = 0; i < 100; ++i) {
+            collector.add(LogLevel.INFO, "a", "message " + i, null);
+        }
+
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records, hasSize(100));
+        assertThat(records.get(99).getMessage(), is("message 99"));
+        assertThat(collector.records().level(LogLevel.INFO).count(), is(100));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldRenderOnlyImmutableArgumentsInBackground() throws Exception {
+        final LogRecordCollectorTest.CountingRenderer renderer = new LogRecordCollectorTest.CountingRenderer();
+        final StringBuilder mutableArgument = new StringBuilder("x");
+
+        collector.add(LogLevel.INFO, "a", renderer, "number=", new Object[] { 5 }, null);
+        collector.add(LogLevel.INFO, "a", renderer, "text=", new Object[] { mutableArgument }, null);
+        store.drain();
+
+        assertThat(renderer.renderCount.get(), is(1));
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records.get(0).isMessageRendered(), is(true));
+        assertThat(records.get(0).getMessage(), is("number=5"));
+        assertThat(records.get(1).isMessageRendered(), is(false));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCollectEventsOfConcurrentThreads() throws Exception {
+        final int threadCount = 4;
+        final int eventsPerThread = 2000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; ++t) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < eventsPerThread; ++i) {
+                        collector.add(LogLevel.DEBUG, "t", "x", null);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records, hasSize(threadCount * eventsPerThread));
+        for (int i = 1; i < records.size(); ++i) {
+            assertThat(records.get(i - 1).getSequenceNumber(), lessThan(records.get(i).getSequenceNumber()));
+        }
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldHoldProducerBackWhileRingIsFull() throws Exception {
+        // Given
+        final CountDownLatch release = new CountDownLatch(1);
+        final AsyncLogRecordStore blockedStore = new AsyncLogRecordStore(new StripedLogRecordStore() {
+            @Override
+            public void add(LogRecord record) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.add(record);
+            }
+        }, 2);
+        final LogRecordCollector blockedCollector = new LogRecordCollector(blockedStore);
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10; ++i) {
+                    blockedCollector.add(LogLevel.INFO, "a", "message " + i, null);
+                }
+            }
+        });
+
+        // When
+        try {
+            producer.start();
+            producer.join(200L);
+
+            // Then
+            assertThat(producer.isAlive(), is(true));
+            release.countDown();
+            producer.join();
+            final List<LogRecord> records = blockedCollector.getRecords();
+            assertThat(records, hasSize(10));
+            assertThat(records.get(9).getMessage(), is("message 9"));
+        } finally {
+            release.countDown();
+            blockedStore.close();
+        }
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldStoreSynchronouslyAfterClose() throws Exception {
+        collector.add(LogLevel.INFO, "a", "before", null);
+
+        store.close();
+        collector.add(LogLevel.INFO, "a", "after", null);
+
+        assertThat(store.getTarget().getRecords(), hasSize(2));
+        assertThat(collector.getRecords().get(1).getMessage(), is("after"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldWakeIdleConsumer() throws Exception {
+        collector.add(LogLevel.INFO, "a", "first", null);
+        assertThat(collector.getRecords(), hasSize(1));
+
+        // Consumer runs out of spins and parks until the next event is published
+        Thread.sleep(50L);
+        collector.add(LogLevel.INFO, "a", "second", null);
+
+        assertThat(collector.getRecords(), hasSize(2));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldKeepEventsPublishedWhileClosing() throws Exception {
+        final int threadCount = 4;
+        final AtomicInteger addedCount = new AtomicInteger();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final CountDownLatch started = new CountDownLatch(threadCount);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; ++t) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    while (!stop.get()) {
+                        collector.add(LogLevel.DEBUG, "t", "x", null);
+                        addedCount.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        started.await();
+        Thread.sleep(20L);
+
+        store.close();
+        // Producers keep logging into the closed store; a full ring must not block them
+        Thread.sleep(20L);
+        stop.set(true);
+        for (final Thread thread : threads) {
+            thread.join(5000L);
+            assertThat(thread.isAlive(), is(false));
+        }
+
+        assertThat(store.getTarget().getRecords(), hasSize(addedCount.get()));
+    }
+
+}
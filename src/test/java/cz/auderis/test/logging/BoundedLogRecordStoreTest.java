@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BoundedLogRecordStoreTest {
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldDropOldestRecords() throws Exception {
+        final BoundedLogRecordStore store = BoundedLogRecordStore.dropOldest(3);
+
+        addRecords(store, LogLevel.INFO, "1", "2", "3", "4", "5");
+
+        assertThat(messagesOf(store), contains("3", "4", "5"));
+        assertThat(store.getDroppedCount(), is(2L));
+        assertThat(store.getDroppedCount(LogLevel.INFO), is(2L));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldDropNewestRecords() throws Exception {
+        final BoundedLogRecordStore store = BoundedLogRecordStore.dropNewest(3);
+
+        addRecords(store, LogLevel.DEBUG, "1", "2", "3", "4", "5");
+
+        assertThat(messagesOf(store), contains("1", "2", "3"));
+        assertThat(store.getDroppedCount(LogLevel.DEBUG), is(2L));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldRetainImportantRecordsWhenFull() throws Exception {
+        final BoundedLogRecordStore store = BoundedLogRecordStore.retainLevelsAtOrAbove(3, LogLevel.WARNING);
+
+        addRecords(store, LogLevel.DEBUG, "d1", "d2");
+        addRecords(store, LogLevel.ERROR, "e1");
+        addRecords(store, LogLevel.DEBUG, "d3");
+        addRecords(store, LogLevel.WARNING, "w1", "w2");
+        addRecords(store, LogLevel.FATAL, "f1");
+
+        assertThat(messagesOf(store), contains("w1", "w2", "f1"));
+        assertThat(store.getDroppedCount(LogLevel.DEBUG), is(3L));
+        assertThat(store.getDroppedCount(LogLevel.ERROR), is(1L));
+        assertThat(store.getDroppedCount(), is(4L));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldResetCountersOnClear() throws Exception {
+        final BoundedLogRecordStore store = BoundedLogRecordStore.dropOldest(1);
+        addRecords(store, LogLevel.INFO, "1", "2");
+
+        store.clear();
+
+        assertThat(store.getRecords().isEmpty(), is(true));
+        assertThat(store.getDroppedCount(), is(0L));
+    }
+
+    private static void addRecords(LogRecordStore store, LogLevel level, String... messages) {
+        for (final String message : messages) {
+            store.add(new LogRecord(level, "test", message, null));
+        }
+    }
+
+    private static List<String> messagesOf(LogRecordStore store) {
+        final List<String> messages = new ArrayList<String>();
+        for (final LogRecord record : store.getRecords()) {
+            messages.add(record.getMessage());
+        }
+        return messages;
+    }
+
+}
@@ -32,6 +32,7 @@ import java.util.List;
 import static cz.auderis.test.matcher.log.LogRecordMatcher.hasLevel;
 import static cz.auderis.test.matcher.log.LogRecordMatcher.hasMessage;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 
 @RunWith(JUnitParamsRunner.class)
@@ -62,4 +63,23 @@ public class JBossLoggingRuleTest {
         assertThat(logRecord, hasMessage("JBOSS : Work 3"));
     }
 
+    @Test
+    @Category(SanityTest.class)
+    public void shouldApplyLevelsOfLoggerCategoryPrefix() throws Exception {
+        // Given
+        logBuffer.levels().enableOnly(LogLevel.ERROR, LogLevel.FATAL);
+        logBuffer.levels("org.test.temp").enableAllLevels();
+        JBossStaticTester tester = new JBossStaticTester();
+
+        // When
+        tester.doWork();
+
+        // Then
+        final List<LogRecord> records = logBuffer.getRecords();
+        assertThat(records, hasSize(6));
+        assertThat(records.get(0), hasLevel(LogLevel.TRACE));
+        assertThat(records.get(0), hasMessage("JBOSS : Work 1"));
+        assertThat(records.get(0).getLoggerName(), is(JBossStaticTester.class.getName()));
+    }
+
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.test.rule.WorkFolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.File;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class JournalLogRecordStoreTest {
+
+    @Rule
+    public WorkFolder folder = WorkFolder.basic();
+
+    private File journalFile;
+    private JournalLogRecordStore store;
+
+    @Before
+    public void openJournal() throws Exception {
+        journalFile = new File(folder.getRoot(), "logs/journal.bin");
+        store = new JournalLogRecordStore(journalFile, 1024);
+    }
+
+    @After
+    public void closeJournal() throws Exception {
+        store.close();
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldReadBackStoredRecords() throws Exception {
+        final IllegalArgumentException cause = new IllegalArgumentException();
+        store.add(new LogRecord(LogLevel.INFO, "a.b", "first \u017elu\u0165ou\u010dk\u00fd", null));
+        store.add(new LogRecord(LogLevel.ERROR, "c.d", "second", cause));
+
+        assertThat(journalFile.isFile(), is(true));
+        final List<LogRecord> records = store.getRecords();
+        assertThat(records, hasSize(2));
+        assertThat(records.get(0).getLevel(), is(LogLevel.INFO));
+        assertThat(records.get(0).getLoggerName(), is("a.b"));
+        assertThat(records.get(0).getMessage(), is("first \u017elu\u0165ou\u010dk\u00fd"));
+        assertThat(records.get(1).getMessage(), is("second"));
+        assertThat(records.get(1).getCause(), is(sameInstance((Throwable) cause)));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldSpanMultipleSegments() throws Exception {
+        final StringBuilder longMessage = new StringBuilder();
+        for (int i = 0; i < 300; ++i) {
+            longMessage.append("0123456789");
+        }
+        for (int i = 0; i < 200; ++i) {
+            final String message = (i == 100) ? longMessage.toString() : "message " + i;
+            store.add(new LogRecord(LogLevel.DEBUG, "logger" + (i % 7), message, null));
+        }
+
+        assertThat(store.size(), is(200L));
+        assertThat(store.get(0L).getMessage(), is("message 0"));
+        assertThat(store.get(99L).getMessage(), is("message 99"));
+        assertThat(store.get(100L).getMessage(), is(longMessage.toString()));
+        assertThat(store.get(150L).getLoggerName(), is("logger3"));
+        assertThat(store.get(199L).getMessage(), is("message 199"));
+        int index = 0;
+        for (final LogRecord record : store) {
+            assertThat(record.getSequenceNumber(), is(store.get(index).getSequenceNumber()));
+            ++index;
+        }
+        assertThat(index, is(200));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldReuseJournalAfterClear() throws Exception {
+        for (int i = 0; i < 100; ++i) {
+            store.add(new LogRecord(LogLevel.INFO, "a", "old message " + i, null));
+        }
+        final Iterator<LogRecord> iterator = store.iterator();
+        iterator.next();
+
+        store.clear();
+        assertThat(store.getRecords(), is(empty()));
+        store.add(new LogRecord(LogLevel.WARNING, "b", "new", null));
+
+        assertThat(store.getRecords(), hasSize(1));
+        assertThat(store.get(0L).getMessage(), is("new"));
+        try {
+            iterator.next();
+            throw new AssertionError("iterator did not detect clearing");
+        } catch (ConcurrentModificationException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCaptureThroughCollector() throws Exception {
+        final LogRecordCollector collector = new LogRecordCollector(store);
+        collector.add(LogLevel.INFO, "x", "plain", null);
+        collector.add(LogLevel.INFO, "x", new LogRecordCollectorTest.CountingRenderer(), "value=", new Object[] { 7 }, null);
+
+        assertThat(collector.records().logger("x").count(), is(2));
+        assertThat(collector.getRecords().get(1).getMessage(), is("value=7"));
+
+        store.close();
+        collector.add(LogLevel.INFO, "x", "late", null);
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldSelectMatchingRecordsWhileReading() throws Exception {
+        final LogRecordCollector collector = new LogRecordCollector(store);
+        for (int i = 0; i < 200; ++i) {
+            final LogLevel level = (0 == (i % 10)) ? LogLevel.WARNING : LogLevel.DEBUG;
+            collector.add(level, "logger" + (i % 3), "message " + i, null);
+        }
+
+        final List<LogRecord> warnings = collector.records()
+                .level(LogLevel.WARNING)
+                .loggerPrefix("logger0")
+                .matching(hasProperty("message", endsWith("0")))
+                .list();
+        assertThat(warnings, hasSize(7));
+        assertThat(warnings.get(0).getMessage(), is("message 0"));
+        assertThat(warnings.get(6).getMessage(), is("message 180"));
+        for (int i = 1; i < warnings.size(); ++i) {
+            assertThat(warnings.get(i).getSequenceNumber() > warnings.get(i - 1).getSequenceNumber(), is(true));
+        }
+        assertThat(collector.records().level(LogLevel.ERROR).isEmpty(), is(true));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldReleaseJournalFileOnClose() throws Exception {
+        for (int i = 0; i < 100; ++i) {
+            store.add(new LogRecord(LogLevel.INFO, "a", "message " + i, null));
+        }
+        store.close();
+
+        assertThat(journalFile.delete(), is(true));
+        assertThat(journalFile.exists(), is(false));
+    }
+
+}
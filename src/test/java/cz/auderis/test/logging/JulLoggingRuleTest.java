@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import cz.auderis.test.category.SanityTest;
+import cz.auderis.test.rule.LogBuffer;
+import cz.auderis.test.rule.LogFramework;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.test.temp.log.JulStaticTester;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static cz.auderis.test.matcher.log.LogRecordMatcher.hasLevelAndMessage;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+public class JulLoggingRuleTest {
+
+    @ClassRule
+    public static LogFramework logFramework = LogFramework.jul();
+
+    @Rule
+    public LogBuffer logBuffer = new LogBuffer();
+
+    @Test
+    @Category(SanityTest.class)
+    public void shouldInterceptJul() throws Exception {
+        // Given
+        logBuffer.levels().enableOnly(LogLevel.DEBUG.plusHigherLevels());
+        JulStaticTester tester = new JulStaticTester();
+
+        // When
+        tester.doWork();
+
+        // Then
+        final List<LogRecord> records = logBuffer.getRecords();
+        assertThat(records, hasSize(4));
+        assertThat(records.get(0), hasLevelAndMessage(LogLevel.DEBUG, "JUL : Work 2"));
+        assertThat(records.get(1), hasLevelAndMessage(LogLevel.INFO, "JUL : Work 3"));
+        assertThat(records.get(2), hasLevelAndMessage(LogLevel.WARNING, "JUL : Work 4 of 6"));
+        assertThat(records.get(3), hasLevelAndMessage(LogLevel.ERROR, "JUL : Work 5"));
+        assertThat(records.get(3).getCause(), instanceOf(IllegalStateException.class));
+    }
+
+    @Test
+    @Category(SanityTest.class)
+    public void shouldRejectEventsBelowCapturedLevelsBeforeCreatingRecords() throws Exception {
+        // Given
+        final Logger logger = Logger.getLogger("org.test.temp.jul.threshold");
+
+        // When
+        logBuffer.levels().enableOnly(LogLevel.INFO.plusHigherLevels());
+
+        // Then
+        assertThat(logger.isLoggable(Level.FINEST), is(false));
+        logBuffer.levels("org.test.temp.jul").enable(LogLevel.TRACE);
+        assertThat(logger.isLoggable(Level.FINEST), is(true));
+        logger.finest("captured");
+        assertThat(logBuffer.getRecords(), hasSize(1));
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import cz.auderis.test.category.SanityTest;
+import cz.auderis.test.rule.LogBuffer;
+import cz.auderis.test.rule.LogFramework;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.test.temp.log.Log4j2StaticTester;
+
+import java.util.List;
+
+import static cz.auderis.test.matcher.log.LogRecordMatcher.hasLevel;
+import static cz.auderis.test.matcher.log.LogRecordMatcher.hasLevelAndMessage;
+import static cz.auderis.test.matcher.log.LogRecordMatcher.hasMessage;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+public class Log4j2LoggingRuleTest {
+
+    @ClassRule
+    public static LogFramework logFramework = LogFramework.log4j2();
+
+    @Rule
+    public LogBuffer logBuffer = new LogBuffer();
+
+    @Test
+    @Category(SanityTest.class)
+    public void shouldInterceptLog4j2() throws Exception {
+        // Given
+        logBuffer.levels().enableOnly(LogLevel.INFO.plusHigherLevels());
+        Log4j2StaticTester tester = new Log4j2StaticTester();
+
+        // When
+        tester.doWork();
+
+        // Then
+        final List<LogRecord> records = logBuffer.getRecords();
+        assertThat(records, hasSize(4));
+        assertThat(records.get(0), hasLevelAndMessage(LogLevel.INFO, "LOG4J2 : Work 3"));
+        assertThat(records.get(1), hasLevelAndMessage(LogLevel.WARNING, "LOG4J2 : Work 4 of 6"));
+        assertThat(records.get(2), hasLevelAndMessage(LogLevel.ERROR, "LOG4J2 : Work 5"));
+        assertThat(records.get(2).getCause(), instanceOf(IllegalStateException.class));
+        assertThat(records.get(3), hasLevel(LogLevel.FATAL));
+    }
+
+    @Test
+    @Category(SanityTest.class)
+    public void shouldKeepParametersOfReusedMessages() throws Exception {
+        // Given
+        final Logger logger = LogManager.getLogger("cz.auderis.test.Log4j2");
+
+        // When
+        logger.info("Value {}", 1);
+        logger.info("Value {}", 2);
+        logger.info("Values {} and {}", "x", "y");
+
+        // Then
+        final List<LogRecord> records = logBuffer.getRecords();
+        assertThat(records, hasSize(3));
+        assertThat(records.get(0), hasMessage("Value 1"));
+        assertThat(records.get(1), hasMessage("Value 2"));
+        assertThat(records.get(2), hasMessage("Values x and y"));
+        assertThat(records.get(2).getLoggerName(), is("cz.auderis.test.Log4j2"));
+    }
+
+    @Test
+    @Category(SanityTest.class)
+    public void shouldApplyLevelsOfLoggerPrefix() throws Exception {
+        // Given
+        final Logger logger = LogManager.getLogger("com.acme.codec.Decoder");
+        logBuffer.levels().enableOnly(LogLevel.INFO.plusHigherLevels());
+        logBuffer.levels("com.acme.codec").enableAllLevels();
+
+        // When
+        logger.trace("Trace {}", 1);
+
+        // Then
+        assertThat(logger.isTraceEnabled(), is(true));
+        assertThat(logBuffer.getRecords(), hasSize(1));
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.test.rule.LogFramework;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class LogCaptureMetricsTest {
+
+    private LogCaptureMetrics metrics;
+    private LogRecordCollector collector;
+
+    @Before
+    public void initCollector() throws Exception {
+        metrics = new LogCaptureMetrics();
+        collector = new LogRecordCollector();
+        collector.setEnabledLevels(LogLevel.INFO.plusHigherLevels());
+        collector.setMetrics(metrics);
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCountOfferedAndAcceptedEventsPerLogger() throws Exception {
+        for (int i = 0; i < 3; ++i) {
+            if (collector.isLevelEnabled(LogLevel.DEBUG, "noisy")) {
+                throw new AssertionError("debug level should be disabled");
+            }
+            collector.add(LogLevel.INFO, "noisy", "message " + i, null);
+        }
+        collector.add(LogLevel.WARNING, "quiet", new LogRecordCollectorTest.CountingRenderer(), "x", new Object[] { 1 }, null);
+        collector.add(new LogRecord(LogLevel.TRACE, "quiet", "ignored", null));
+
+        final LoggerStatistics noisy = metrics.getStatistics("noisy");
+        assertThat(noisy.getOfferedCount(), is(6L));
+        assertThat(noisy.getAcceptedCount(), is(3L));
+        assertThat(noisy.getOfferedCount(LogLevel.DEBUG), is(3L));
+        assertThat(noisy.getAcceptedCount(LogLevel.DEBUG), is(0L));
+        assertThat(noisy.getAcceptedCount(LogLevel.INFO), is(3L));
+        assertThat(noisy.getCapturedBytes(), greaterThan(0L));
+        final LoggerStatistics quiet = metrics.getStatistics("quiet");
+        assertThat(quiet.getOfferedCount(), is(2L));
+        assertThat(quiet.getAcceptedCount(), is(1L));
+        assertThat(metrics.getAcceptedCount(), is(4L));
+        assertThat(metrics.getOfferedCount(), is(8L));
+
+        final List<LoggerStatistics> statistics = metrics.getAllStatistics();
+        assertThat(statistics.get(0).getLoggerName(), is("noisy"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCountEventsDiscardedByStoreAsDropped() throws Exception {
+        collector.setStore(BoundedLogRecordStore.dropNewest(2));
+        for (int i = 0; i < 5; ++i) {
+            collector.add(LogLevel.INFO, "flood", "message " + i, null);
+        }
+        collector.add(new LogRecord(LogLevel.WARNING, "flood", "late", null));
+
+        final LoggerStatistics flood = metrics.getStatistics("flood");
+        assertThat(flood.getOfferedCount(), is(6L));
+        assertThat(flood.getAcceptedCount(), is(2L));
+        assertThat(flood.getDroppedCount(), is(4L));
+        assertThat(flood.getDroppedCount(LogLevel.WARNING), is(1L));
+        assertThat(metrics.getDroppedCount(), is(4L));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCountEventsDiscardedByPooledStoreAsDropped() throws Exception {
+        collector.setStore(new PooledLogRecordStore(3));
+        for (int i = 0; i < 5; ++i) {
+            collector.add(LogLevel.INFO, "flood", new LogRecordCollectorTest.CountingRenderer(), "x", new Object[] { i }, null);
+        }
+
+        assertThat(metrics.getAcceptedCount(), is(3L));
+        assertThat(metrics.getDroppedCount(), is(2L));
+        assertThat(collector.getRecords().size(), is(3));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldExposeMetricsAsMBean() throws Exception {
+        collector.add(LogLevel.ERROR, "component", "failure", null);
+
+        final ObjectName name = metrics.registerMBean("test-" + System.identityHashCode(metrics));
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertThat((Long) server.getAttribute(name, "AcceptedCount"), is(1L));
+            final CompositeData[] loggers = (CompositeData[]) server.getAttribute(name, "LoggerStatistics");
+            assertThat(loggers.length, is(1));
+            assertThat((String) loggers[0].get("loggerName"), is("component"));
+            assertThat((Long) loggers[0].get("acceptedCount"), is(1L));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldPrintSummary() throws Exception {
+        collector.add(LogLevel.INFO, "first.logger", "abc", null);
+        collector.add(LogLevel.INFO, "second.logger", "a much longer message", null);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        metrics.printSummary(new PrintStream(output, true, "UTF-8"), 1);
+
+        final String text = output.toString("UTF-8");
+        assertThat(text, containsString("2 loggers, 2 events offered, 2 accepted"));
+        assertThat(text, containsString("second.logger"));
+        assertThat(text, containsString("1 more loggers"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldSummarizeOnlyEventsOfFinishedStatement() throws Throwable {
+        // Given
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final PrintStream out = new PrintStream(buffer, true, "UTF-8");
+        final LogFramework rule = LogFramework.slf4j().withMetricsSummary(out, 5);
+        final Statement statement = new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                LogRecordCollector.RECORD_COLLECTOR.setEnabledLevels(LogLevel.INFO.plusHigherLevels());
+                LogRecordCollector.RECORD_COLLECTOR.add(LogLevel.INFO, "summarized", "message", null);
+            }
+        };
+        rule.apply(statement, Description.EMPTY).evaluate();
+        buffer.reset();
+
+        // When
+        rule.apply(statement, Description.EMPTY).evaluate();
+
+        // Then
+        assertThat(buffer.toString("UTF-8"), containsString("1 events offered, 1 accepted"));
+        assertThat(LogRecordCollector.RECORD_COLLECTOR.getMetrics(), is(nullValue()));
+        LogRecordCollector.RECORD_COLLECTOR.add(LogLevel.INFO, "summarized", "after", null);
+        assertThat(LogCaptureMetrics.shared().getOfferedCount(), is(1L));
+    }
+
+}
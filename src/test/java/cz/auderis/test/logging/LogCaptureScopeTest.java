@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class LogCaptureScopeTest {
+
+    private ExecutorService executor;
+
+    @After
+    public void shutdownExecutor() throws Exception {
+        if (null != executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldBindCollectorToCurrentThread() throws Exception {
+        final LogRecordCollector collector = new LogRecordCollector();
+        try (LogCaptureScope scope = LogCaptureScope.open(collector)) {
+            assertThat(LogCaptureScope.current(), is(sameInstance(scope)));
+            assertThat(LogRecordCollector.current(), is(sameInstance(collector)));
+        }
+        assertThat(LogCaptureScope.current(), is(nullValue()));
+        assertThat(LogRecordCollector.current(), is(sameInstance(LogRecordCollector.RECORD_COLLECTOR)));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldInheritScopeInSpawnedThreads() throws Exception {
+        final LogRecordCollector collector = new LogRecordCollector();
+        try (LogCaptureScope scope = LogCaptureScope.open(collector)) {
+            final Thread thread = new Thread(new RecordProducer("spawned"));
+            thread.start();
+            thread.join();
+        }
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records, hasSize(1));
+        assertThat(records.get(0).getLoggerName(), is("spawned"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldIsolateConcurrentScopes() throws Exception {
+        final LogRecordCollector collector1 = new LogRecordCollector();
+        final LogRecordCollector collector2 = new LogRecordCollector();
+        final Thread thread1 = new Thread(new ScopedProducer(collector1, "first", 100));
+        final Thread thread2 = new Thread(new ScopedProducer(collector2, "second", 200));
+        thread1.start();
+        thread2.start();
+        thread1.join();
+        thread2.join();
+
+        assertThat(collector1.getRecords(), hasSize(100));
+        assertThat(collector2.getRecords(), hasSize(200));
+        for (final LogRecord record : collector1.getRecords()) {
+            assertThat(record.getLoggerName(), is("first"));
+        }
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldFallBackToGlobalCollectorAfterRepeatedClose() throws Exception {
+        final LogRecordCollector outerCollector = new LogRecordCollector();
+        final LogCaptureScope outerScope = LogCaptureScope.open(outerCollector);
+        final LogCaptureScope innerScope = LogCaptureScope.open(new LogRecordCollector());
+
+        innerScope.close();
+        innerScope.close();
+        assertThat(LogRecordCollector.current(), is(sameInstance(outerCollector)));
+
+        outerScope.close();
+        assertThat(LogRecordCollector.current(), is(sameInstance(LogRecordCollector.RECORD_COLLECTOR)));
+        assertThat(LogCaptureScope.current(), is(nullValue()));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldBindWrappedTaskInPreexistingExecutor() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+        executor.submit(new RecordProducer("warm-up")).get(5, TimeUnit.SECONDS);
+        final LogRecordCollector collector = new LogRecordCollector();
+        try (LogCaptureScope scope = LogCaptureScope.open(collector)) {
+            final Future<?> plainTask = executor.submit(new RecordProducer("plain"));
+            plainTask.get(5, TimeUnit.SECONDS);
+            final Future<?> wrappedTask = executor.submit(scope.wrap(new RecordProducer("wrapped")));
+            wrappedTask.get(5, TimeUnit.SECONDS);
+        }
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records, hasSize(1));
+        assertThat(records.get(0).getLoggerName(), is("wrapped"));
+    }
+
+    static final class RecordProducer implements Runnable {
+        private final String loggerName;
+
+        RecordProducer(String loggerName) {
+            this.loggerName = loggerName;
+        }
+
+        @Override
+        public void run() {
+            LogRecordCollector.current().add(new LogRecord(LogLevel.INFO, loggerName, "message", null));
+        }
+    }
+
+    static final class ScopedProducer implements Runnable {
+        private final LogRecordCollector collector;
+        private final String loggerName;
+        private final int count;
+
+        ScopedProducer(LogRecordCollector collector, String loggerName, int count) {
+            this.collector = collector;
+            this.loggerName = loggerName;
+            this.count = count;
+        }
+
+        @Override
+        public void run() {
+            try (LogCaptureScope scope = LogCaptureScope.open(collector)) {
+                for (int i = 0; i < count; ++i) {
+                    LogRecordCollector.current().add(new LogRecord(LogLevel.INFO, loggerName, "message", null));
+                }
+            }
+        }
+    }
+
+}
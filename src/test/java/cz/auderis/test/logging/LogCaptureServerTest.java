@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+public class LogCaptureServerTest {
+
+    private LogRecordCollector collector;
+    private LogCaptureServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        collector = new LogRecordCollector();
+        server = LogCaptureServer.start(collector);
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        server.close();
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldMergeForwardedRecords() throws Exception {
+        collector.add(LogLevel.INFO, "local", "Before", null);
+        final LogRecord forwardedRecord = new LogRecord(LogLevel.ERROR, "remote", "Remote \u010dast", new IllegalStateException("broken"));
+
+        try (LogCaptureForwarder forwarder = new LogCaptureForwarder(server.getAddress())) {
+            forwarder.add(new LogRecord(LogLevel.WARNING, "remote", "Remote start", null));
+            forwarder.add(forwardedRecord);
+        }
+        assertThat(server.awaitDisconnection(10, TimeUnit.SECONDS), is(true));
+        collector.add(LogLevel.INFO, "local", "After", null);
+
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records, hasSize(4));
+        assertThat(records.get(1).getMessage(), is("Remote start"));
+        final LogRecord record = records.get(2);
+        assertThat(record.getLevel(), is(LogLevel.ERROR));
+        assertThat(record.getLoggerName(), is("remote"));
+        assertThat(record.getMessage(), is("Remote \u010dast"));
+        assertThat(record.getTimestampMillis(), is(forwardedRecord.getTimestampMillis()));
+        assertThat(record.getCause(), instanceOf(ForwardedThrowable.class));
+        assertThat(record.getCause().getMessage(), is("java.lang.IllegalStateException: broken"));
+        assertThat(((ForwardedThrowable) record.getCause()).getStackTraceText(), containsString("shouldMergeForwardedRecords"));
+        assertThat(records.get(3).getMessage(), is("After"));
+        assertThat(server.getReceivedCount(), is(2L));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldApplyLevelsOfTargetCollector() throws Exception {
+        collector.setEnabledLevels(LogLevel.WARNING.plusHigherLevels());
+
+        try (LogCaptureForwarder forwarder = new LogCaptureForwarder(server.getAddress())) {
+            forwarder.add(new LogRecord(LogLevel.DEBUG, "remote", "Ignored", null));
+            forwarder.add(new LogRecord(LogLevel.WARNING, "remote", "Captured", null));
+        }
+        assertThat(server.awaitDisconnection(10, TimeUnit.SECONDS), is(true));
+
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records, hasSize(1));
+        assertThat(records.get(0).getMessage(), is("Captured"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldOrderDelayedRecordsByTheirTimestamps() throws Exception {
+        collector.add(LogLevel.INFO, "parent", "Parent before", null);
+        Thread.sleep(5L);
+        final LogRecord childRecord = new LogRecord(LogLevel.INFO, "child", "Child", null);
+        Thread.sleep(5L);
+        collector.add(LogLevel.INFO, "parent", "Parent after", null);
+
+        // The child record reaches the server only after the later parent record, like a batch of the forwarder
+        try (LogCaptureForwarder forwarder = new LogCaptureForwarder(server.getAddress())) {
+            forwarder.add(childRecord);
+        }
+        assertThat(server.awaitDisconnection(10, TimeUnit.SECONDS), is(true));
+        collector.add(LogLevel.INFO, "parent", "Parent last", null);
+
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records, hasSize(4));
+        assertThat(records.get(0).getMessage(), is("Parent before"));
+        assertThat(records.get(1).getMessage(), is("Child"));
+        assertThat(records.get(2).getMessage(), is("Parent after"));
+        assertThat(records.get(3).getMessage(), is("Parent last"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCaptureRecordsOfChildProcess() throws Exception {
+        final String javaExecutable = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        final Process process = new ProcessBuilder(javaExecutable, server.getJvmArgument(),
+                "-cp", System.getProperty("java.class.path"), ForwardingProcess.class.getName(), "500")
+                .inheritIO()
+                .start();
+        assertThat(awaitExit(process, 60000L), is(0));
+        assertThat(server.awaitDisconnection(10, TimeUnit.SECONDS), is(true));
+
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records, hasSize(500));
+        assertThat(records.get(0).getLoggerName(), is("child"));
+        assertThat(records.get(0).getMessage(), is("Message 0"));
+        assertThat(records.get(499).getMessage(), is("Message 499"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldDescribeServerAddressAsJvmArgument() throws Exception {
+        assertThat(server.getJvmArgument(), startsWith("-D" + LogCaptureForwarder.ADDRESS_PROPERTY + "=127.0.0.1:"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldDiscardRecordsAfterServerIsClosed() throws Exception {
+        final LogCaptureForwarder forwarder = new LogCaptureForwarder(server.getAddress());
+        server.close();
+
+        for (int i = 0; (i < 1000) && forwarder.isConnected(); ++i) {
+            forwarder.add(new LogRecord(LogLevel.INFO, "remote", "Message " + i, null));
+            Thread.sleep(1L);
+        }
+
+        assertThat(forwarder.isConnected(), is(false));
+        forwarder.close();
+    }
+
+    private static int awaitExit(Process process, long timeoutMillis) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            try {
+                return process.exitValue();
+            } catch (IllegalThreadStateException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    process.destroy();
+                    throw new AssertionError("child process did not finish");
+                }
+                Thread.sleep(50L);
+            }
+        }
+    }
+
+    /**
+     * Entry point of the child process; records are not flushed explicitly, the shutdown hook sends them
+     */
+    public static final class ForwardingProcess {
+        public static void main(String[] args) throws Exception {
+            if (null == LogCaptureForwarder.installFromSystemProperty()) {
+                System.exit(2);
+            }
+            final int count = Integer.parseInt(args[0]);
+            for (int i = 0; i < count; ++i) {
+                LogRecordCollector.RECORD_COLLECTOR.add(LogLevel.INFO, "child", "Message " + i, null);
+            }
+        }
+    }
+
+}
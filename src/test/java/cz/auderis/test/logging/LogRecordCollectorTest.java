@@ -0,0 +1,381 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class LogRecordCollectorTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private LogRecordCollector collector;
+
+    @Before
+    public void initCollector() throws Exception {
+        collector = new LogRecordCollector();
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCollectOnlyEnabledLevels() throws Exception {
+        collector.setEnabledLevels(EnumSet.of(LogLevel.ERROR, LogLevel.TRACE));
+
+        collector.add(new LogRecord(LogLevel.ERROR, "a", "m1", null));
+        collector.add(new LogRecord(LogLevel.INFO, "a", "m2", null));
+        collector.add(new LogRecord(LogLevel.TRACE, "a", "m3", null));
+
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records, hasSize(2));
+        assertThat(records.get(0).getMessage(), is("m1"));
+        assertThat(records.get(1).getMessage(), is("m3"));
+        assertThat(collector.isLevelEnabled(LogLevel.INFO), is(false));
+        assertThat(collector.getEnabledLevels(), is((Object) EnumSet.of(LogLevel.ERROR, LogLevel.TRACE)));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldDiscardRecordsAndRestoreLevelsOnReset() throws Exception {
+        collector.setEnabledLevels(EnumSet.of(LogLevel.FATAL));
+        collector.add(new LogRecord(LogLevel.FATAL, "a", "m1", null));
+
+        collector.reset();
+
+        assertThat(collector.getRecords(), hasSize(0));
+        assertThat(collector.getEnabledLevels(), is(LogRecordCollector.INITIAL_LOG_LEVELS));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldUseLevelsOfMostSpecificLoggerPrefix() throws Exception {
+        collector.setEnabledLevels(LogLevel.INFO.plusHigherLevels());
+        collector.setLoggerLevels("com.acme", LogLevel.ERROR.plusHigherLevels());
+        collector.setLoggerLevels("com.acme.codec", LogLevel.TRACE.plusHigherLevels());
+
+        assertThat(collector.isLevelEnabled(LogLevel.TRACE, "com.acme.codec"), is(true));
+        assertThat(collector.isLevelEnabled(LogLevel.TRACE, "com.acme.codec.json.Parser"), is(true));
+        assertThat(collector.isLevelEnabled(LogLevel.INFO, "com.acme.net.Channel"), is(false));
+        assertThat(collector.isLevelEnabled(LogLevel.INFO, "com.acme"), is(false));
+        assertThat(collector.isLevelEnabled(LogLevel.INFO, "com.acmex.Tool"), is(true));
+        assertThat(collector.isLevelEnabled(LogLevel.DEBUG, "com.acme.codecs"), is(false));
+        assertThat(collector.isLevelEnabled(LogLevel.INFO, "org.example"), is(true));
+
+        collector.removeLoggerLevels("com.acme");
+        assertThat(collector.isLevelEnabled(LogLevel.INFO, "com.acme.net.Channel"), is(true));
+        assertThat(collector.getLoggerLevels().keySet(), contains("com.acme.codec"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldApplyLoggerPrefixLevelsWhenAddingDirectly() throws Exception {
+        collector.setEnabledLevels(LogLevel.INFO.plusHigherLevels());
+        collector.setLoggerLevels("com.acme", LogLevel.ERROR.plusHigherLevels());
+        collector.setLoggerLevels("com.acme.codec", LogLevel.TRACE.plusHigherLevels());
+
+        collector.add(LogLevel.INFO, "com.acme.net.Channel", "suppressed", null);
+        collector.add(LogLevel.TRACE, "com.acme.codec.Decoder", "detail", null);
+        collector.add(LogLevel.TRACE, "org.example", new CountingRenderer(), "x", new Object[] { 1 }, null);
+        collector.add(LogLevel.INFO, "org.example", "kept", null);
+
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records, hasSize(2));
+        assertThat(records.get(0).getMessage(), is("detail"));
+        assertThat(records.get(1).getMessage(), is("kept"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldRefreshCachedLoggerLevelsWhenLevelsChange() throws Exception {
+        final LoggerLevelCache cache = new LoggerLevelCache("com.acme.codec.Decoder");
+        assertThat(collector.isLevelEnabled(LogLevel.TRACE, cache), is(false));
+
+        collector.setLoggerLevels("com.acme.codec", EnumSet.of(LogLevel.TRACE));
+        assertThat(collector.isLevelEnabled(LogLevel.TRACE, cache), is(true));
+        assertThat(collector.isLevelEnabled(LogLevel.ERROR, cache), is(false));
+
+        collector.clearLoggerLevels();
+        assertThat(collector.isLevelEnabled(LogLevel.TRACE, cache), is(false));
+        assertThat(collector.isLevelEnabled(LogLevel.ERROR, cache), is(true));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldDiscardLoggerLevelsOnReset() throws Exception {
+        collector.setLoggerLevels("com.acme", EnumSet.of(LogLevel.TRACE));
+
+        collector.reset();
+
+        assertThat(collector.getLoggerLevels().isEmpty(), is(true));
+        assertThat(collector.getEnabledLevels("com.acme"), is(LogRecordCollector.INITIAL_LOG_LEVELS));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldRejectEmptyLoggerPrefix() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        collector.setLoggerLevels("", EnumSet.of(LogLevel.TRACE));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldRenderMessageLazilyOnlyOnce() throws Exception {
+        final CountingRenderer renderer = new CountingRenderer();
+        final StringBuilder argument = new StringBuilder("abc");
+
+        collector.add(LogLevel.INFO, "a", renderer, "value=", new Object[] { argument }, null);
+        argument.append("def");
+
+        assertThat(renderer.renderCount.get(), is(0));
+        final LogRecord record = collector.getRecords().get(0);
+        assertThat(record.isMessageRendered(), is(false));
+        assertThat(record.getMessagePattern(), is("value="));
+        assertThat(record.getMessage(), is("value=abcdef"));
+        assertThat(record.getMessage(), is("value=abcdef"));
+        assertThat(renderer.renderCount.get(), is(1));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldRenderMutableArgumentsImmediatelyWhenSnapshotEnabled() throws Exception {
+        final CountingRenderer renderer = new CountingRenderer();
+        final StringBuilder argument = new StringBuilder("abc");
+        collector.setArgumentSnapshotEnabled(true);
+
+        collector.add(LogLevel.INFO, "a", renderer, "value=", new Object[] { argument }, null);
+        collector.add(LogLevel.INFO, "a", renderer, "number=", new Object[] { 42 }, null);
+        argument.append("def");
+
+        assertThat(renderer.renderCount.get(), is(1));
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records.get(0).getMessage(), is("value=abc"));
+        assertThat(records.get(1).isMessageRendered(), is(false));
+        assertThat(records.get(1).getMessage(), is("number=42"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldMergeRecordsOfConcurrentThreadsInCreationOrder() throws Exception {
+        final int threadCount = 8;
+        final int recordsPerThread = 5000;
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>(threadCount);
+        for (int i = 0; i < threadCount; ++i) {
+            final String loggerName = "thread" + i;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < recordsPerThread; ++j) {
+                        collector.add(new LogRecord(LogLevel.INFO, loggerName, Integer.toString(j), null));
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        startSignal.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records, hasSize(threadCount * recordsPerThread));
+        for (int i = 1; i < records.size(); ++i) {
+            assertThat(records.get(i - 1).getSequenceNumber(), is(lessThan(records.get(i).getSequenceNumber())));
+        }
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldNotRetainRecordsOfClearedGenerationInThreadBuffers() throws Exception {
+        final StripedLogRecordStore store = new StripedLogRecordStore();
+        final ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            worker.submit(new Runnable() {
+                @Override
+                public void run() {
+                    store.add(new LogRecord(LogLevel.INFO, "a", "before", null));
+                }
+            }).get();
+            store.clear();
+            worker.submit(new Runnable() {
+                @Override
+                public void run() {
+                    store.add(new LogRecord(LogLevel.INFO, "a", "after", null));
+                }
+            }).get();
+        } finally {
+            worker.shutdown();
+        }
+
+        final List<LogRecord> records = store.getRecords();
+        assertThat(records, hasSize(1));
+        assertThat(records.get(0).getMessage(), is("after"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldAssignUniqueSequenceNumbersWithoutSharedCounter() throws Exception {
+        final int threadCount = 4;
+        final int recordsPerThread = 10000;
+        final Set<Long> sequenceNumbers = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        final AtomicInteger orderViolations = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<Thread>(threadCount);
+        for (int i = 0; i < threadCount; ++i) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long last = -1L;
+                    for (int j = 0; j < recordsPerThread; ++j) {
+                        final long sequence = LogRecord.nextSequenceNumber();
+                        if (sequence <= last) {
+                            orderViolations.incrementAndGet();
+                        }
+                        sequenceNumbers.add(sequence);
+                        last = sequence;
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(sequenceNumbers, hasSize(threadCount * recordsPerThread));
+        assertThat(orderViolations.get(), is(0));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldReuseSequenceStripeOfTerminatedThread() throws Exception {
+        // Given
+        final LogRecord.SequenceStripes stripes = new LogRecord.SequenceStripes(1);
+        final LogRecord.SequenceStripe[] finishedStripe = new LogRecord.SequenceStripe[1];
+        final long[] lastSequence = new long[1];
+        final Thread finishedThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                finishedStripe[0] = stripes.acquire();
+                for (int i = 0; i < 1000; ++i) {
+                    lastSequence[0] = finishedStripe[0].next();
+                }
+            }
+        });
+        finishedThread.start();
+        finishedThread.join();
+
+        // When
+        final LogRecord.SequenceStripe stripe = stripes.acquire();
+
+        // Then
+        assertThat(stripe.stripe, is(finishedStripe[0].stripe));
+        assertThat(lastSequence[0], is(lessThan(stripe.next())));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldShareSequenceStripeWhenAllStripesAreOwned() throws Exception {
+        final LogRecord.SequenceStripes stripes = new LogRecord.SequenceStripes(1);
+        final LogRecord.SequenceStripe ownStripe = stripes.acquire();
+        final int threadCount = 4;
+        final int recordsPerThread = 10000;
+        final Set<Long> sequenceNumbers = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        final AtomicInteger orderViolations = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<Thread>(threadCount);
+        for (int i = 0; i < threadCount; ++i) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final LogRecord.SequenceStripe stripe = stripes.acquire();
+                    long last = -1L;
+                    for (int j = 0; j < recordsPerThread; ++j) {
+                        final long sequence = stripe.next();
+                        if (sequence <= last) {
+                            orderViolations.incrementAndGet();
+                        }
+                        sequenceNumbers.add(sequence);
+                        last = sequence;
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (int j = 0; j < recordsPerThread; ++j) {
+            sequenceNumbers.add(ownStripe.next());
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(sequenceNumbers, hasSize((threadCount + 1) * recordsPerThread));
+        assertThat(orderViolations.get(), is(0));
+    }
+
+    static final class CountingRenderer implements LogRecordRenderer {
+        final AtomicInteger renderCount = new AtomicInteger();
+
+        @Override
+        public String render(String msg, Object o) {
+            return render(msg, new Object[] { o });
+        }
+
+        @Override
+        public String render(String msg, Object o1, Object o2) {
+            return render(msg, new Object[] { o1, o2 });
+        }
+
+        @Override
+        public String render(String msg, Object[] objects) {
+            renderCount.incrementAndGet();
+            final StringBuilder result = new StringBuilder(msg);
+            for (final Object object : objects) {
+                result.append(object);
+            }
+            return result.toString();
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+public class LogRecordLayoutTest {
+
+    private LogRecordCollector collector;
+
+    @Before
+    public void initCollector() throws Exception {
+        collector = new LogRecordCollector();
+        collector.setEnabledLevels(LogLevel.TRACE.plusHigherLevels());
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldDumpRecordsUsingPattern() throws Exception {
+        collector.add(new LogRecord(LogLevel.WARNING, "a.b.C", "First", null));
+        collector.add(new LogRecord(LogLevel.DEBUG, "a.b.D", "Second", null));
+        collector.add(new LogRecord(LogLevel.ERROR, "a.b.E", "Third žluťoučký", null));
+
+        final String text = dump(LogLevel.INFO, new PatternLogLayout("%-8p|%6c|%m%%%n"));
+
+        final String nl = System.lineSeparator();
+        assertThat(text, is("WARNING | a.b.C|First%" + nl + "ERROR   | a.b.E|Third žluťoučký%" + nl));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldDumpCauseWithDefaultPattern() throws Exception {
+        collector.add(new LogRecord(LogLevel.ERROR, "x", "Failure", new IllegalStateException("broken")));
+
+        final String text = dump(LogLevel.TRACE, new PatternLogLayout());
+
+        assertThat(text, containsString(" ERROR   [x] Failure"));
+        assertThat(text, containsString("java.lang.IllegalStateException: broken"));
+        assertThat(text, containsString("\tat " + getClass().getName()));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldDumpEscapedJsonLines() throws Exception {
+        collector.add(new LogRecord(LogLevel.INFO, "x", "Say \"hi\"\n\\\u0001", null));
+
+        final String text = dump(LogLevel.TRACE, new JsonLinesLogLayout());
+
+        assertThat(text, startsWith("{\"sequence\":"));
+        assertThat(text, containsString(",\"level\":\"INFO\",\"logger\":\"x\",\"message\":\"Say \\\"hi\\\"\\n\\\\\\u0001\",\"cause\":null}\n"));
+        assertThat(text.substring(0, text.length() - 1), not(containsString("\n")));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldDumpBinaryRecords() throws Exception {
+        final LogRecord record = new LogRecord(LogLevel.FATAL, "logger", "Message", null);
+        collector.add(record);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        collector.dump(out, LogLevel.TRACE, new BinaryLogLayout());
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        final byte[] magic = new byte[4];
+        in.readFully(magic);
+        assertThat(new String(magic, StandardCharsets.US_ASCII), is("ALOG"));
+        assertThat(in.readByte(), is((byte) BinaryLogLayout.FORMAT_VERSION));
+        assertThat(in.readLong(), is(record.getSequenceNumber()));
+        assertThat(in.readLong(), is(record.getTimestamp().getTime()));
+        assertThat(in.readByte(), is((byte) LogLevel.FATAL.ordinal()));
+        assertThat(readString(in), is("logger"));
+        assertThat(readString(in), is("Message"));
+        assertThat(in.readInt(), is(-1));
+        assertThat(in.read(), is(-1));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldShareStatelessPatternLayoutBetweenConcurrentDumps() throws Exception {
+        final PatternLogLayout sharedLayout = new PatternLogLayout("%d|%m%n");
+        final int collectorCount = 4;
+        final List<Callable<Boolean>> dumps = new ArrayList<>();
+        for (int c = 0; c < collectorCount; ++c) {
+            final LogRecordCollector dumpedCollector = new LogRecordCollector();
+            dumpedCollector.setEnabledLevels(LogLevel.TRACE.plusHigherLevels());
+            final StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < 200; ++i) {
+                // Every record of every collector falls into a different second
+                final long timestamp = 1000000000000L + 1000L * (c + collectorCount * i) + i;
+                dumpedCollector.add(new LogRecord(i, timestamp * LogRecord.NANOS_PER_MILLI, LogLevel.INFO, "x", "m" + i,
+                        null, "m" + i, null, null));
+                expected.append(String.format("%1$tF %1$tT.%1$tL|m%2$d%n", new Date(timestamp), i));
+            }
+            final String expectedText = expected.toString();
+            dumps.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    boolean allMatched = true;
+                    for (int round = 0; round < 20; ++round) {
+                        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        dumpedCollector.dump(out, LogLevel.TRACE, sharedLayout);
+                        allMatched &= expectedText.equals(new String(out.toByteArray(), StandardCharsets.UTF_8));
+                    }
+                    return allMatched;
+                }
+            });
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(collectorCount);
+        try {
+            for (final Future<Boolean> result : executor.invokeAll(dumps)) {
+                assertThat(result.get(), is(true));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private String dump(LogLevel threshold, LogRecordLayout layout) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        collector.dump(out, threshold, layout);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String readString(DataInputStream in) throws Exception {
+        final byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+public class LogRecordQueryTest {
+
+    private LogRecordCollector collector;
+
+    @Before
+    public void initCollector() throws Exception {
+        collector = new LogRecordCollector();
+        collector.setEnabledLevels(LogLevel.TRACE.plusHigherLevels());
+        collector.add(new LogRecord(LogLevel.DEBUG, "com.acme.db", "d1", null));
+        collector.add(new LogRecord(LogLevel.WARNING, "com.acme.web", "w1", null));
+        collector.add(new LogRecord(LogLevel.INFO, "com.acme.db.pool", "i1", null));
+        collector.add(new LogRecord(LogLevel.ERROR, "org.other", "e1", null));
+        collector.add(new LogRecord(LogLevel.WARNING, "com.acme.db", "w2", null));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldSelectRecordsByLevel() throws Exception {
+        assertThat(messagesOf(collector.records().level(LogLevel.WARNING)), contains("w1", "w2"));
+        assertThat(messagesOf(collector.records().levelAtOrAbove(LogLevel.WARNING)), contains("w1", "e1", "w2"));
+        assertThat(collector.records().level(LogLevel.FATAL).list(), is(empty()));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldSelectRecordsByLogger() throws Exception {
+        assertThat(messagesOf(collector.records().logger("com.acme.db")), contains("d1", "w2"));
+        assertThat(messagesOf(collector.records().loggerPrefix("com.acme.db")), contains("d1", "i1", "w2"));
+        assertThat(messagesOf(collector.records().loggerPrefix("com.")), contains("d1", "w1", "i1", "w2"));
+        assertThat(collector.records().logger("missing").count(), is(0));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldMatchLoggerPrefixOnSegmentBoundaries() throws Exception {
+        collector.add(new LogRecord(LogLevel.INFO, "com.acmefoo", "f1", null));
+        collector.add(new LogRecord(LogLevel.INFO, "com.acme", "a1", null));
+
+        assertThat(messagesOf(collector.records().loggerPrefix("com.acme")), contains("d1", "w1", "i1", "w2", "a1"));
+        assertThat(messagesOf(collector.records().loggerPrefix("com.acme.")), contains("d1", "w1", "i1", "w2"));
+        assertThat(messagesOf(collector.records().loggerPrefix("com.acmefoo")), contains("f1"));
+        assertThat(collector.records().loggerPrefix("com.acme.d").count(), is(0));
+        assertThat(collector.records().loggerPrefix("com.acme").loggerPrefix("com.acmefoo").count(), is(0));
+        assertThat(messagesOf(collector.records().loggerPrefix("com").loggerPrefix("com.acme.db")), contains("d1", "i1", "w2"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCountWithoutListingRecords() throws Exception {
+        assertThat(collector.records().levelAtOrAbove(LogLevel.INFO).count(), is(4));
+        assertThat(collector.records().matching(hasProperty("message", startsWith("w"))).count(), is(2));
+        assertThat(collector.records().loggerPrefix("com.acme").isEmpty(), is(false));
+        assertThat(collector.records().level(LogLevel.FATAL).isEmpty(), is(true));
+        assertThat(collector.records().since(Long.MAX_VALUE).isEmpty(), is(true));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCombineConstraints() throws Exception {
+        final LogRecordQuery query = collector.records()
+                .loggerPrefix("com.acme")
+                .levelAtOrAbove(LogLevel.INFO)
+                .matching(hasProperty("message", startsWith("w")));
+
+        assertThat(messagesOf(query), contains("w1", "w2"));
+        assertThat(collector.records().logger("com.acme.db").loggerPrefix("org").count(), is(0));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldSelectRecordsByTime() throws Exception {
+        final List<LogRecord> all = collector.getRecords();
+        final long first = all.get(0).timestamp;
+        final long last = all.get(all.size() - 1).timestamp;
+
+        assertThat(collector.records().since(first).count(), is(5));
+        assertThat(collector.records().until(first).count(), is(0));
+        assertThat(collector.records().since(last + 1L).count(), is(0));
+        assertThat(collector.records().since(first).until(last + 1L).count(), is(5));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldReflectRecordsAddedAfterQuery() throws Exception {
+        assertThat(collector.records().level(LogLevel.ERROR).count(), is(1));
+
+        collector.add(new LogRecord(LogLevel.ERROR, "org.other", "e2", null));
+
+        assertThat(messagesOf(collector.records().level(LogLevel.ERROR)), contains("e1", "e2"));
+        collector.reset();
+        assertThat(collector.records().list(), is(empty()));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldExtendIndexWhileLoggingAndQueryingAlternately() throws Exception {
+        for (final LogRecordStore store : Arrays.asList(new StripedLogRecordStore(), new PooledLogRecordStore(10000))) {
+            final LogRecordCollector interleaved = new LogRecordCollector(store);
+            interleaved.setEnabledLevels(LogLevel.TRACE.plusHigherLevels());
+            for (int i = 0; i < 2000; ++i) {
+                final LogLevel level = (0 == i % 10) ? LogLevel.ERROR : LogLevel.DEBUG;
+                interleaved.add(new LogRecord(level, "logger" + (i % 7), "m" + i, null));
+                final int expectedErrors = i / 10 + 1;
+                assertThat(interleaved.records().level(LogLevel.ERROR).count(), is(expectedErrors));
+                assertThat(interleaved.records().logger("logger" + (i % 7)).count(), is(i / 7 + 1));
+            }
+            final LogRecordIndex oldView = interleaved.getIndex();
+            interleaved.add(new LogRecord(LogLevel.ERROR, "logger0", "late", null));
+            // Views taken before an addition keep their contents
+            assertThat(oldView.countLevels(LogLevel.ERROR.mask()), is(200));
+            assertThat(interleaved.getIndex().countLevels(LogLevel.ERROR.mask()), is(201));
+        }
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldSelectRecordsWithTimestampsOutOfSequenceOrder() throws Exception {
+        final LogRecordCollector disordered = new LogRecordCollector();
+        disordered.setEnabledLevels(LogLevel.TRACE.plusHigherLevels());
+        final long[] timestamps = { 1000L, 1005L, 1002L, 1010L, 1001L, 1020L };
+        for (int i = 0; i < timestamps.length; ++i) {
+            disordered.add(new LogRecord(i, timestamps[i] * LogRecord.NANOS_PER_MILLI, LogLevel.INFO, "x", "m" + i,
+                    null, "m" + i, null, null));
+            disordered.records().count();
+        }
+
+        assertThat(messagesOf(disordered.records().until(1002L)), contains("m0", "m4"));
+        assertThat(messagesOf(disordered.records().since(1002L).until(1010L)), contains("m1", "m2"));
+        assertThat(messagesOf(disordered.records().since(1010L)), contains("m3", "m5"));
+    }
+
+    private static List<String> messagesOf(LogRecordQuery query) {
+        final List<LogRecord> records = query.list();
+        final List<String> result = new ArrayList<>(records.size());
+        for (final LogRecord record : records) {
+            result.add(record.getMessage());
+        }
+        return result;
+    }
+
+}
@@ -24,7 +24,19 @@ import org.junit.runners.Suite;
     JBossLoggingRuleTest.class,
     Log4jLoggingRuleTest.class,
     Slf4jLoggingRuleTest.class,
-    MultiLoggingCaptureTest.class
+    Log4j2LoggingRuleTest.class,
+    JulLoggingRuleTest.class,
+    MultiLoggingCaptureTest.class,
+    LogRecordCollectorTest.class,
+    BoundedLogRecordStoreTest.class,
+    LogCaptureScopeTest.class,
+    LogRecordLayoutTest.class,
+    LogRecordQueryTest.class,
+    PooledLogRecordStoreTest.class,
+    JournalLogRecordStoreTest.class,
+    AsyncLogRecordStoreTest.class,
+    LogCaptureMetricsTest.class,
+    LogCaptureServerTest.class
 })
 public class LoggingTestSuite {
 
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.logging;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class PooledLogRecordStoreTest {
+
+    private PooledLogRecordStore store;
+    private LogRecordCollector collector;
+
+    @Before
+    public void initStore() throws Exception {
+        store = new PooledLogRecordStore(4);
+        collector = new LogRecordCollector(store);
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldMaterializeStoredEvents() throws Exception {
+        final long before = System.currentTimeMillis();
+        collector.add(LogLevel.INFO, "a.b", "first", null);
+        final IllegalStateException cause = new IllegalStateException();
+        collector.add(LogLevel.WARNING, "c.d", "second", cause);
+        final long after = System.currentTimeMillis();
+
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records, hasSize(2));
+        final LogRecord first = records.get(0);
+        assertThat(first.getLevel(), is(LogLevel.INFO));
+        assertThat(first.getLoggerName(), is("a.b"));
+        assertThat(first.getMessage(), is("first"));
+        assertThat(first.getTimestampMillis(), is(first.getTimestampNanos() / 1000000L));
+        assertThat(first.getTimestampMillis(), greaterThanOrEqualTo(before - 1L));
+        assertThat(first.getTimestampMillis(), lessThanOrEqualTo(after + 1L));
+        final LogRecord second = records.get(1);
+        assertThat(second.getCause() == cause, is(true));
+        assertThat(first.getSequenceNumber(), lessThan(second.getSequenceNumber()));
+        assertThat(first.getTimestampNanos(), lessThanOrEqualTo(second.getTimestampNanos()));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldRenderMessageOnlyWhenRead() throws Exception {
+        final LogRecordCollectorTest.CountingRenderer renderer = new LogRecordCollectorTest.CountingRenderer();
+
+        collector.add(LogLevel.INFO, "a", renderer, "value=", new Object[] { 5 }, null);
+
+        assertThat(renderer.renderCount.get(), is(0));
+        final LogRecord record = collector.getRecords().get(0);
+        assertThat(record.isMessageRendered(), is(false));
+        assertThat(record.getMessage(), is("value=5"));
+        assertThat(renderer.renderCount.get(), is(1));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldDiscardEventsWhenFull() throws Exception {
+        for (int i = 0; i < 6; ++i) {
+            collector.add(LogLevel.DEBUG, "a", "message " + i, null);
+        }
+        collector.add(LogLevel.ERROR, "a", "error", null);
+
+        assertThat(messagesOf(collector.getRecords()), contains("message 0", "message 1", "message 2", "message 3"));
+        assertThat(store.getDroppedCount(), is(3L));
+        assertThat(store.getDroppedCount(LogLevel.DEBUG), is(2L));
+        assertThat(store.getDroppedCount(LogLevel.ERROR), is(1L));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldReuseSlotsAfterClear() throws Exception {
+        for (int i = 0; i < 5; ++i) {
+            collector.add(LogLevel.INFO, "a", "old " + i, null);
+        }
+
+        store.clear();
+        assertThat(collector.getRecords(), is(empty()));
+        assertThat(store.getDroppedCount(), is(0L));
+
+        collector.add(LogLevel.INFO, "b", "new", null);
+        collector.add(new LogRecord(LogLevel.INFO, "c", "materialized", null));
+        assertThat(messagesOf(collector.getRecords()), contains("new", "materialized"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldKeepRecordAddedAfterClearRegardlessOfItsSequence() throws Exception {
+        // Record created before clearing has a lower sequence number than anything created afterwards
+        final LogRecord earlier = new LogRecord(LogLevel.INFO, "a", "created earlier", null);
+        collector.add(LogLevel.INFO, "a", "old", null);
+
+        store.clear();
+        collector.add(LogLevel.INFO, "b", "new", null);
+        store.add(earlier);
+
+        assertThat(messagesOf(collector.getRecords()), contains("created earlier", "new"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldKeepEventsOfConcurrentThreads() throws Exception {
+        final int threadCount = 4;
+        final int eventsPerThread = 1000;
+        store = new PooledLogRecordStore(threadCount * eventsPerThread);
+        collector = new LogRecordCollector(store);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; ++t) {
+            final String loggerName = "thread" + t;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < eventsPerThread; ++i) {
+                        collector.add(LogLevel.INFO, loggerName, "x", null);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final List<LogRecord> records = collector.getRecords();
+        assertThat(records, hasSize(threadCount * eventsPerThread));
+        for (int i = 1; i < records.size(); ++i) {
+            assertThat(records.get(i - 1).getSequenceNumber(), lessThan(records.get(i).getSequenceNumber()));
+        }
+        assertThat(store.getDroppedCount(), is(0L));
+    }
+
+    private static List<String> messagesOf(List<LogRecord> records) {
+        final List<String> result = new ArrayList<>(records.size());
+        for (final LogRecord record : records) {
+            result.add(record.getMessage());
+        }
+        return result;
+    }
+
+}
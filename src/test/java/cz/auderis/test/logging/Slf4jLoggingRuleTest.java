@@ -25,6 +25,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.test.temp.log.Slf4jStaticTester;
 
 import java.util.List;
@@ -33,6 +35,7 @@ import static cz.auderis.test.matcher.log.LogRecordMatcher.hasLevel;
 import static cz.auderis.test.matcher.log.LogRecordMatcher.hasMessage;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.core.Is.is;
 
 @RunWith(JUnitParamsRunner.class)
 public class Slf4jLoggingRuleTest {
@@ -62,4 +65,23 @@ public class Slf4jLoggingRuleTest {
         assertThat(logRecord, hasMessage("SLF4J : Work 3"));
     }
 
+    @Test
+    @Category(SanityTest.class)
+    public void shouldSubstituteThrowableArgumentWhenAnotherThrowableIsTheCause() throws Exception {
+        // Given
+        logBuffer.levels().enableOnly(LogLevel.INFO.plusHigherLevels());
+        final Logger logger = LoggerFactory.getLogger("slf4j.throwables");
+        final Exception argument = new IllegalStateException("argument");
+        final Exception cause = new IllegalArgumentException("cause");
+
+        // When
+        logger.info("Failed with {}", argument, cause);
+
+        // Then
+        final List<LogRecord> records = logBuffer.getRecords(hasLevel(LogLevel.INFO));
+        assertThat(records, hasSize(1));
+        assertThat(records.get(0), hasMessage("Failed with " + argument));
+        assertThat(records.get(0).getCause(), is((Throwable) cause));
+    }
+
 }
@@ -1,5 +1,6 @@
 package cz.auderis.test.parameter.annotation;
 
+import cz.auderis.test.parameter.annotation.impl.PropertyEditorAnnotationConverter;
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
 import org.junit.BeforeClass;
@@ -12,12 +13,15 @@ import org.test.temp.propedit.ValueClass3;
 import org.test.temp.propedit.ValueClass3RegisteredEditor;
 
 import java.beans.PropertyEditorManager;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.fail;
 
 @RunWith(JUnitParamsRunner.class)
 public class PropertyEditorAnnotationTest {
@@ -66,4 +70,45 @@ public class PropertyEditorAnnotationTest {
         assertThat(val, allOf(hasProperty("numValue", is(expectedNumber)), hasProperty("textValue", is(expectedText))));
     }
 
+    @Test
+    public void shouldFindPropertyEditorRegisteredAfterFailedLookup() throws Exception {
+        // Given
+        final UsingPropertyEditor annotation = annotationOf("valueClass2Target", UsingPropertyEditor.class);
+        try {
+            new PropertyEditorAnnotationConverter().initialize(annotation);
+            fail("Missing property editor expected");
+        } catch (IllegalArgumentException e) {
+            // Expected, there is no editor yet
+        }
+        PropertyEditorManager.registerEditor(ValueClass2.class, ValueClass2EditorThatIsNotAutodiscovered.class);
+
+        // When
+        final ValueClass2 val;
+        try {
+            final PropertyEditorAnnotationConverter converter = new PropertyEditorAnnotationConverter();
+            converter.initialize(annotation);
+            val = (ValueClass2) converter.convert("5-late");
+        } finally {
+            PropertyEditorManager.registerEditor(ValueClass2.class, null);
+        }
+
+        // Then
+        assertThat(val, allOf(hasProperty("numValue", is(5)), hasProperty("textValue", is("late"))));
+    }
+
+    @SuppressWarnings("unused")
+    private static void valueClass2Target(@UsingPropertyEditor(of = ValueClass2.class) ValueClass2 val) {
+        // Carries the annotation only
+    }
+
+    private static <A extends Annotation> A annotationOf(String methodName, Class<A> annotationType) throws Exception {
+        final Method method = PropertyEditorAnnotationTest.class.getDeclaredMethod(methodName, ValueClass2.class);
+        for (final Annotation annotation : method.getParameterAnnotations()[0]) {
+            if (annotationType.isInstance(annotation)) {
+                return annotationType.cast(annotation);
+            }
+        }
+        throw new AssertionError("Annotation not found: " + annotationType);
+    }
+
 }
@@ -2,19 +2,29 @@ package cz.auderis.test.parameter.annotation.impl;
 
 import cz.auderis.test.category.DetailedTest;
 import cz.auderis.test.category.UnitTest;
+import cz.auderis.test.support.convert.StringConverters;
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.runner.RunWith;
+import org.test.temp.propedit.ValueClass2;
+import org.test.temp.propedit.ValueClass2EditorThatIsNotAutodiscovered;
 
+import java.beans.PropertyEditorManager;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.fail;
 
 /**
  * @author Boleslav Bobcik
@@ -58,4 +68,182 @@ public class KeyValueBeanAnnotationConverterTest {
         assertThat(keyValue.value, is(nullValue()));
     }
 
+    @Test
+    @Parameters({
+            "x=1 y   = 2 \t z='a b'",
+            "  lead=1 trail=2   ",
+            "x= y=2",
+            "q='it\\'s' e='' u=<NULL> n='<null>'",
+            "path='C:\\\\dir' word_1=x=y",
+    })
+    // Compatibility check: the tokenizer has to accept the same syntax as the deprecated pattern it replaced
+    @SuppressWarnings("deprecation")
+    public void shouldParseSameAsRegularExpression(String keyValueSpec) throws Exception {
+        // When
+        final List<KeyValueBeanAnnotationConverter.KeyValue> keyValues = KeyValueBeanAnnotationConverter.parseKeyValues(keyValueSpec);
+        // Then
+        final Matcher matcher = AbstractKeyValueConverter.KEY_VALUE_PATTERN.matcher(keyValueSpec);
+        int index = 0;
+        while (matcher.find()) {
+            final KeyValueBeanAnnotationConverter.KeyValue keyValue = keyValues.get(index++);
+            assertThat(keyValue.key, is(matcher.group(1)));
+            if (null != matcher.group(3)) {
+                assertThat(keyValue.value, is(matcher.group(3).replaceAll("\\\\(.)", "$1")));
+            } else if ("<null>".equalsIgnoreCase(matcher.group(2))) {
+                assertThat(keyValue.value, is(nullValue()));
+            } else {
+                assertThat(keyValue.value, is(matcher.group(2)));
+            }
+        }
+        assertThat(keyValues, hasSize(index));
+    }
+
+    @Test
+    @Parameters({
+            "x=1 ! | 5",
+            "x 1 | 3",
+            "x='abc | 3",
+            "x='a' y=2 z='b'w=1 | 16",
+            "=1 | 1",
+    })
+    public void shouldReportColumnOfSyntaxError(String keyValueSpec, int expectedColumn) throws Exception {
+        try {
+            KeyValueBeanAnnotationConverter.parseKeyValues(keyValueSpec);
+            fail("Syntax error expected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), startsWith("Invalid key-value specification at column " + expectedColumn + ":"));
+        }
+    }
+
+    @Test
+    public void shouldCacheBinderPerBeanAndDelegateClass() throws Exception {
+        final BeanBinder binder = BeanBinder.forClasses(TargetBean.class, null);
+        assertThat(BeanBinder.forClasses(TargetBean.class, null), is(sameInstance(binder)));
+        assertThat(BeanBinder.forClasses(TargetBean.class, Object.class), is(not(sameInstance(binder))));
+        assertThat(binder.getProperty("unit"), is(sameInstance(binder.getProperty("unit"))));
+        assertThat(binder.getProperty("missing"), is(nullValue()));
+    }
+
+    @Test
+    @Parameters({
+            "12       | java.lang.Long                 | 12",
+            "0x10     | int                            | 16",
+            "0x10     | java.lang.Integer              | 16",
+            "SECONDS  | java.util.concurrent.TimeUnit  | SECONDS",
+            "true     | boolean                        | true",
+            "1.50     | java.math.BigDecimal           | 1.50",
+    })
+    public void shouldConvertValuesToPropertyType(String value, String typeName, String expectedText) throws Exception {
+        final Class<?> type = typeName.contains(".") ? Class.forName(typeName) : TargetBean.class.getDeclaredField(typeName + "Value").getType();
+        final Object converted = AbstractKeyValueConverter.adaptArgumentToType(value, type);
+        assertThat(String.valueOf(converted), is(expectedText));
+        assertThat(StringConverters.find(type), is(sameInstance((Object) StringConverters.find(type))));
+    }
+
+    @Test
+    public void shouldSetPropertiesThroughBinder() throws Exception {
+        // Given
+        final KeyValueBeanAnnotationConverter converter = new KeyValueBeanAnnotationConverter();
+        converter.setTypes(TargetBean.class, null);
+        // When
+        final TargetBean bean = (TargetBean) converter.convert("unit=MINUTES intValue=0x20 booleanValue=true");
+        // Then
+        assertThat(bean.unit, is(TimeUnit.MINUTES));
+        assertThat(bean.intValue, is(32));
+        assertThat(bean.booleanValue, is(true));
+        assertThat(bean.unitSetterCalls, is(1));
+    }
+
+    @Test
+    public void shouldSetStaticMembersThroughBinder() throws Exception {
+        // Given
+        final KeyValueBeanAnnotationConverter converter = new KeyValueBeanAnnotationConverter();
+        converter.setTypes(StaticTargetBean.class, null);
+        // When
+        converter.convert("label=abc limit=7");
+        // Then
+        assertThat(StaticTargetBean.label, is("abc"));
+        assertThat(StaticTargetBean.limit, is(7));
+    }
+
+    @Test(expected = FailingBean.SetterError.class)
+    public void shouldPropagateErrorsOfSetters() throws Exception {
+        final KeyValueBeanAnnotationConverter converter = new KeyValueBeanAnnotationConverter();
+        converter.setTypes(FailingBean.class, null);
+        converter.convert("value=1");
+    }
+
+    @Test
+    public void shouldUsePropertyEditorRegisteredAfterFailedLookup() throws Exception {
+        // Given
+        final KeyValueBeanAnnotationConverter converter = new KeyValueBeanAnnotationConverter();
+        converter.setTypes(EditedBean.class, null);
+        try {
+            converter.convert("value=1-early");
+            fail("Missing property editor expected");
+        } catch (IllegalArgumentException e) {
+            // Expected, there is no editor yet
+        }
+        PropertyEditorManager.registerEditor(ValueClass2.class, ValueClass2EditorThatIsNotAutodiscovered.class);
+
+        // When
+        final EditedBean bean;
+        try {
+            bean = (EditedBean) converter.convert("value=3-late");
+        } finally {
+            PropertyEditorManager.registerEditor(ValueClass2.class, null);
+        }
+
+        // Then
+        assertThat(bean.value.getNumValue(), is(3));
+        assertThat(bean.value.getTextValue(), is("late"));
+    }
+
+    public static class TargetBean {
+        TimeUnit unit;
+        int unitSetterCalls;
+        private int intValue;
+        private boolean booleanValue;
+
+        public TimeUnit getUnit() {
+            return unit;
+        }
+
+        public void setUnit(TimeUnit unit) {
+            this.unit = unit;
+            ++unitSetterCalls;
+        }
+    }
+
+    public static class StaticTargetBean {
+        static String label;
+        private static int limit;
+
+        public static int getLimit() {
+            return limit;
+        }
+
+        public static void setLimit(int newLimit) {
+            limit = newLimit;
+        }
+    }
+
+    public static class EditedBean {
+        ValueClass2 value;
+    }
+
+    public static class FailingBean {
+        public int getValue() {
+            return 0;
+        }
+
+        public void setValue(int value) {
+            throw new SetterError();
+        }
+
+        static final class SetterError extends Error {
+            private static final long serialVersionUID = 1L;
+        }
+    }
+
 }
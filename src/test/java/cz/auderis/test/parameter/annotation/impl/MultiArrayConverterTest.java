@@ -0,0 +1,59 @@
+package cz.auderis.test.parameter.annotation.impl;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.test.parameter.annotation.MultiArray;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.test.temp.propedit.ValueClass2;
+import org.test.temp.propedit.ValueClass2EditorThatIsNotAutodiscovered;
+
+import java.beans.PropertyEditorManager;
+import java.lang.reflect.Method;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+@Category(UnitTest.class)
+public class MultiArrayConverterTest {
+
+    @Test
+    public void shouldUsePropertyEditorRegisteredAfterFailedLookup() throws Exception {
+        // Given
+        final MultiArray annotation = multiArrayAnnotation();
+        try {
+            new MultiArrayConverter().initialize(annotation);
+            fail("Missing property editor expected");
+        } catch (IllegalArgumentException e) {
+            // Expected, there is no editor yet
+        }
+        PropertyEditorManager.registerEditor(ValueClass2.class, ValueClass2EditorThatIsNotAutodiscovered.class);
+
+        // When
+        final ValueClass2[] values;
+        try {
+            final MultiArrayConverter converter = new MultiArrayConverter();
+            converter.initialize(annotation);
+            values = (ValueClass2[]) converter.convert("2 : 1-one 2-two");
+        } finally {
+            PropertyEditorManager.registerEditor(ValueClass2.class, null);
+        }
+
+        // Then
+        assertThat(values, is(arrayWithSize(2)));
+        assertThat(values[1].getNumValue(), is(2));
+        assertThat(values[1].getTextValue(), is("two"));
+    }
+
+    @SuppressWarnings("unused")
+    private static void valueClass2Target(@MultiArray(ValueClass2.class) Object values) {
+        // Carries the annotation only
+    }
+
+    private static MultiArray multiArrayAnnotation() throws Exception {
+        final Method method = MultiArrayConverterTest.class.getDeclaredMethod("valueClass2Target", Object.class);
+        return (MultiArray) method.getParameterAnnotations()[0][0];
+    }
+
+}
@@ -9,7 +9,8 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-    KeyValueBeanAnnotationConverterTest.class
+    KeyValueBeanAnnotationConverterTest.class,
+    MultiArrayConverterTest.class
 })
 public class ParamAnnotationConverterTestSuite {
 
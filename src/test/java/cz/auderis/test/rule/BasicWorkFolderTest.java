@@ -23,10 +23,16 @@ import org.junit.experimental.categories.Category;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
@@ -39,6 +45,9 @@ public class BasicWorkFolderTest {
     @Rule
     public WorkFolder folder = WorkFolder.basic();
 
+    @Rule
+    public WorkFolder linkedFolder = WorkFolder.basic().withHardLinkedResources();
+
     @Test
     @Category(UnitTest.class)
     public void shouldCreateWorkFolder() throws Exception {
@@ -121,6 +130,59 @@ public class BasicWorkFolderTest {
         assertThat(f.getParentFile().getParentFile().getParentFile(), is(folder.getRoot()));
     }
 
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCopyDirectoryResourceWithContents() throws Exception {
+        final File dir = folder.newResourceCopy("fixtureDir");
+        assertThat(dir.isDirectory(), is(true));
+        assertThat(dir.getParentFile(), is(folder.getRoot()));
+        assertThat(readText(new File(dir, "a.txt")), is("alpha\n"));
+        assertThat(readText(new File(dir, "nested/b.txt")), is("beta\n"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldMaterializeHardLinkedResources() throws Exception {
+        final File f = linkedFolder.newResourceCopy("sub/res.txt", "fixtureDir/a.txt");
+        final File dir = linkedFolder.newResourceCopy("fixtureDir");
+        assertThat(f.getParentFile().getParentFile(), is(linkedFolder.getRoot()));
+        assertThat(readText(f), is("alpha\n"));
+        assertThat(readText(new File(dir, "nested/b.txt")), is("beta\n"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCopyDirectoryEntryOfJarResource() throws Exception {
+        // Given
+        final File jar = new File(folder.newFolder("lib"), "fixtures.jar");
+        try (JarOutputStream jarStream = new JarOutputStream(new FileOutputStream(jar))) {
+            jarStream.putNextEntry(new JarEntry("data/"));
+            jarStream.putNextEntry(new JarEntry("data/x.txt"));
+            jarStream.write("from jar".getBytes(StandardCharsets.UTF_8));
+            jarStream.putNextEntry(new JarEntry("data/deep/y.txt"));
+            jarStream.write("deep".getBytes(StandardCharsets.UTF_8));
+            jarStream.putNextEntry(new JarEntry("other.txt"));
+        }
+        final URL resource = new URL("jar:" + jar.toURI() + "!/data/");
+        final File target = new File(folder.getRoot(), "unpacked");
+        // When
+        ResourceMaterializer.materialize(resource, target, false);
+        // Then
+        assertThat(readText(new File(target, "x.txt")), is("from jar"));
+        assertThat(readText(new File(target, "deep/y.txt")), is("deep"));
+        assertThat(new File(target, "other.txt").exists(), is(false));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldWriteStringWithGivenCharset() throws Exception {
+        final String text = "\u017elu\u0165ou\u010dk\u00fd k\u016f\u0148";
+        final File utf = folder.newFile("utf.txt", text);
+        final File utf16 = folder.newFile("utf16.txt", text, StandardCharsets.UTF_16BE);
+        assertThat(Files.readAllBytes(utf.toPath()), is(text.getBytes(StandardCharsets.UTF_8)));
+        assertThat(Files.readAllBytes(utf16.toPath()), is(text.getBytes(StandardCharsets.UTF_16BE)));
+    }
+
     @Test
     @Category(UnitTest.class)
     public void shouldInitializeFileWithString() throws Exception {
@@ -184,4 +246,8 @@ public class BasicWorkFolderTest {
         resourceStream.close();
     }
 
+    private static String readText(File f) throws Exception {
+        return new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8);
+    }
+
 }
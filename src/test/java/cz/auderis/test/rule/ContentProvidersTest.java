@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class ContentProvidersTest {
+
+    @Rule
+    public WorkFolder folder = WorkFolder.basic();
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldGenerateNumberedLines() throws Exception {
+        final InitialContentsProvider provider = ContentProviders.repeatedLines("line {n} of {n}", 3L);
+        assertThat(readText(provider), is("line 1 of 1\nline 2 of 2\nline 3 of 3\n"));
+        assertThat(readText(ContentProviders.repeatedLines("x", 0L)), is(""));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldStreamLargeFileWithConstantMemory() throws Exception {
+        // 100k lines are generated in chunks of about 8 KB
+        final File f = folder.newFile("big.txt", ContentProviders.repeatedLines("row-{n}", 100000L));
+        assertThat(f.length(), is(988895L));
+        try (InputStream stream = ContentProviders.repeatedLines("row-{n}", 100000L).getContents()) {
+            assertThat(stream.available(), is(0));
+            stream.read();
+            assertThat(stream.available(), is(lessThan(9000)));
+        }
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldGenerateSeededRandomBytes() throws Exception {
+        // Given
+        final InitialContentsProvider provider = ContentProviders.randomBytes(20000L, 42L);
+        // When
+        final byte[] first = readBytes(provider);
+        final byte[] second = Files.readAllBytes(folder.newFile("random.bin", provider).toPath());
+        // Then
+        assertThat(first.length, is(20000));
+        assertThat(Arrays.equals(first, second), is(true));
+        final byte[] expectedStart = new byte[8192];
+        new Random(42L).nextBytes(expectedStart);
+        assertThat(Arrays.copyOf(first, 8192), is(expectedStart));
+        assertThat(Arrays.equals(first, readBytes(ContentProviders.randomBytes(20000L, 43L))), is(false));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldGenerateCsvRows() throws Exception {
+        final RowGenerator rows = new RowGenerator() {
+            @Override
+            public Object[] getRow(long rowIndex) {
+                return new Object[] { rowIndex, "name " + rowIndex, (0 == rowIndex) ? "a,\"b\"" : null };
+            }
+        };
+        final InitialContentsProvider provider = ContentProviders.csvRows(2L, rows, "id", "name", "note");
+        assertThat(readText(provider), is("id,name,note\n0,name 0,\"a,\"\"b\"\"\"\n1,name 1,\n"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldGenerateJsonRows() throws Exception {
+        final RowGenerator rows = new RowGenerator() {
+            @Override
+            public Object[] getRow(long rowIndex) {
+                return new Object[] { rowIndex, "q\"\\\n\u0001", 0 == rowIndex, Double.NaN };
+            }
+        };
+        final InitialContentsProvider provider = ContentProviders.jsonRows(2L, rows, "id", "text", "first", "ratio");
+        assertThat(readText(provider), is(""
+                + "{\"id\":0,\"text\":\"q\\\"\\\\\\n\\u0001\",\"first\":true,\"ratio\":null}\n"
+                + "{\"id\":1,\"text\":\"q\\\"\\\\\\n\\u0001\",\"first\":false,\"ratio\":null}\n"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldWriteSparseFile() throws Exception {
+        // Given
+        final byte[] data = "middle".getBytes(StandardCharsets.UTF_8);
+        final InitialContentsProvider provider = ContentProviders.sparse(64L * 1024L * 1024L, 1000L, data);
+        // When
+        final File f = folder.newFile("sparse.bin", provider);
+        // Then
+        assertThat(f.length(), is(64L * 1024L * 1024L));
+        try (InputStream stream = Files.newInputStream(f.toPath())) {
+            final byte[] start = new byte[1010];
+            assertThat(stream.read(start), is(1010));
+            assertThat(new String(start, 1000, 6, StandardCharsets.UTF_8), is("middle"));
+            assertThat(start[999], is((byte) 0));
+            assertThat(start[1006], is((byte) 0));
+        }
+        final byte[] streamed = Arrays.copyOf(readBytes(ContentProviders.sparse(2000L, 1000L, data)), 1010);
+        assertThat(new String(streamed, 1000, 6, StandardCharsets.UTF_8), is("middle"));
+    }
+
+    private static byte[] readBytes(InitialContentsProvider provider) throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream stream = provider.getContents()) {
+            final byte[] buffer = new byte[1000];
+            int count;
+            while (-1 != (count = stream.read(buffer))) {
+                output.write(buffer, 0, count);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static String readText(InitialContentsProvider provider) throws Exception {
+        return new String(readBytes(provider), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class FixtureCacheTest {
+
+    private final FixtureCache cache = new FixtureCache(1024L);
+
+    @Rule
+    public WorkFolder folder = WorkFolder.basic().withFixtureCache(cache);
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldReadResourceOnlyOnce() throws Exception {
+        // When
+        final File first = folder.newResourceCopy("first.txt", "fixtureDir/a.txt");
+        final File second = folder.newResourceCopy("sub/second.txt", "fixtureDir/a.txt");
+        // Then
+        assertThat(readText(first), is("alpha\n"));
+        assertThat(readText(second), is("alpha\n"));
+        assertThat(cache.getMissCount(), is(1L));
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getEntryCount(), is(1));
+        assertThat(cache.getSize(), is(6L));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldStoreEqualContentsOnce() throws Exception {
+        // When
+        folder.newResourceCopy("fixtureDir/a.txt");
+        final File twin = folder.newResourceCopy("alphaTwin.txt");
+        // Then
+        assertThat(readText(twin), is("alpha\n"));
+        assertThat(cache.getMissCount(), is(2L));
+        assertThat(cache.getEntryCount(), is(1));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldEvictLeastRecentlyUsedContents() throws Exception {
+        // Given
+        cache.setMaximumSize(11L);
+        folder.newResourceCopy("a1.txt", "fixtureDir/a.txt");
+        folder.newResourceCopy("b1.txt", "fixtureDir/nested/b.txt");
+        folder.newResourceCopy("a2.txt", "fixtureDir/a.txt");
+        assertThat(cache.getSize(), is(11L));
+        // When
+        final File x = folder.newResourceCopy("resourceX.txt");
+        folder.newResourceCopy("a3.txt", "fixtureDir/a.txt");
+        folder.newResourceCopy("b2.txt", "fixtureDir/nested/b.txt");
+        // Then
+        assertThat(x.length(), is(4L));
+        assertThat(cache.getHitCount(), is(2L));
+        assertThat(cache.getMissCount(), is(4L));
+        assertThat(cache.getSize(), is(11L));
+        assertThat(readText(new File(folder.getRoot(), "b1.txt")), is("beta\n"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCopyContentsByDefault() throws Exception {
+        // Given
+        final File first = folder.newResourceCopy("first.txt", "fixtureDir/a.txt");
+        try (FileWriter writer = new FileWriter(first, true)) {
+            writer.write("modified");
+        }
+        // When
+        final File second = folder.newResourceCopy("second.txt", "fixtureDir/a.txt");
+        // Then
+        assertThat(readText(second), is("alpha\n"));
+        assertThat(cache.getMissCount(), is(1L));
+        assertThat(cache.getHitCount(), is(1L));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldLinkReadOnlyContentsOnRequest() throws Exception {
+        final WorkFolder linkedFolder = WorkFolder.subfolderOf(folder.getRoot())
+                .withResourceSearchBase(FixtureCacheTest.class)
+                .withHardLinkedResources()
+                .withFixtureCache(cache);
+        linkedFolder.create();
+        try {
+            final File linked = linkedFolder.newResourceCopy("linked.txt", "fixtureDir/a.txt");
+            assertThat(readText(linked), is("alpha\n"));
+            Assume.assumeTrue(Files.getFileStore(linked.toPath()).supportsFileAttributeView(PosixFileAttributeView.class));
+            final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(linked.toPath());
+            assertThat(permissions, not(hasItem(PosixFilePermission.OWNER_WRITE)));
+        } finally {
+            linkedFolder.delete();
+        }
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldReplaceContentsModifiedThroughLink() throws Exception {
+        // Given
+        final WorkFolder linkedFolder = WorkFolder.subfolderOf(folder.getRoot())
+                .withResourceSearchBase(FixtureCacheTest.class)
+                .withHardLinkedResources()
+                .withFixtureCache(cache);
+        linkedFolder.create();
+        try {
+            final File first = linkedFolder.newResourceCopy("first.txt", "fixtureDir/a.txt");
+            final long lastModified = first.lastModified();
+            // Same size and modification time, only the hash reveals the change
+            first.setWritable(true);
+            Files.write(first.toPath(), "ALPHA\n".getBytes(StandardCharsets.UTF_8));
+            first.setLastModified(lastModified);
+            // When
+            final File second = linkedFolder.newResourceCopy("second.txt", "fixtureDir/a.txt");
+            // Then
+            assertThat(readText(second), is("alpha\n"));
+            assertThat(cache.getMissCount(), is(2L));
+        } finally {
+            linkedFolder.delete();
+        }
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldNotLeakFileDescriptorsOnHits() throws Exception {
+        final File descriptorDir = new File("/proc/self/fd");
+        Assume.assumeTrue(descriptorDir.isDirectory());
+        folder.newResourceCopy("warmup.txt", "fixtureDir/a.txt");
+        final int openBefore = descriptorDir.list().length;
+        // When
+        for (int i = 0; i < 500; ++i) {
+            folder.newResourceCopy("copy" + i + ".txt", "fixtureDir/a.txt");
+        }
+        System.gc();
+        // Then
+        assertThat(descriptorDir.list().length, lessThan(openBefore + 20));
+        assertThat(cache.getHitCount(), is(500L));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCopyDirectoryResourcesDirectly() throws Exception {
+        final File dir = folder.newResourceCopy("fixtureDir");
+        assertThat(readText(new File(dir, "nested/b.txt")), is("beta\n"));
+        assertThat(cache.getEntryCount(), is(0));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldMaterializeContentsEvictedConcurrently() throws Exception {
+        // Given
+        final URL resource = FixtureCacheTest.class.getResource("fixtureDir/a.txt");
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final Thread evictor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (running.get()) {
+                    cache.clear();
+                    cache.setMaximumSize(0L);
+                    cache.setMaximumSize(1024L);
+                }
+            }
+        });
+        evictor.start();
+        // When
+        try {
+            for (int i = 0; i < 2000; ++i) {
+                final File target = new File(folder.getRoot(), "copy" + i + ".txt");
+                cache.materialize(resource, target, false);
+                // Then
+                assertThat(readText(target), is("alpha\n"));
+            }
+        } finally {
+            running.set(false);
+            evictor.join();
+        }
+    }
+
+    private static String readText(File f) throws Exception {
+        return new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.test.logging.JsonLinesLogLayout;
+import cz.auderis.test.logging.LogLevel;
+import cz.auderis.test.logging.LogLevelSnapshot;
+import cz.auderis.test.logging.LogRecord;
+import cz.auderis.test.logging.LogRecordCollector;
+import cz.auderis.test.logging.slf4j.Slf4jLoggerAdapter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class LogBufferTest {
+
+    @Rule
+    public WorkFolder folder = WorkFolder.basic();
+
+    @Rule
+    public LogBuffer logBuffer = new LogBuffer().withCapacity(3).withDumpLayout(new JsonLinesLogLayout());
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldDumpRecordsIntoFile() throws Exception {
+        log(LogLevel.INFO, "Info message");
+        log(LogLevel.DEBUG, "Debug message");
+        final File target = new File(folder.getRoot(), "logs/dump.json");
+
+        logBuffer.dump(target, LogLevel.INFO);
+
+        final String text = new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8);
+        assertThat(text, containsString("\"message\":\"Info message\""));
+        assertThat(text, not(containsString("Debug message")));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldFailDumpWhenDirectoryCannotBeCreated() throws Exception {
+        log(LogLevel.INFO, "Info message");
+        final File blocker = folder.newFile("blocker");
+        final File target = new File(blocker, "logs/dump.json");
+
+        try {
+            logBuffer.dump(target, LogLevel.INFO);
+            fail("Dump into unavailable directory expected to fail");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("Cannot create dump directory"));
+        }
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldLimitNumberOfRecords() throws Exception {
+        for (int i = 0; i < 5; ++i) {
+            log(LogLevel.INFO, "Message " + i);
+        }
+
+        final List<LogRecord> records = logBuffer.getRecords();
+        assertThat(records, hasSize(3));
+        assertThat(records.get(0).getMessage(), is("Message 2"));
+        assertThat(logBuffer.getDroppedRecordCount(), is(2L));
+        assertThat(logBuffer.getDroppedRecordCount(LogLevel.INFO), is(2L));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldPublishNewLevelSnapshotWhenLevelsChange() throws Exception {
+        final LogLevelSnapshot initialSnapshot = LogRecordCollector.current().getLevelSnapshot();
+        assertThat(initialSnapshot.isEnabled(LogLevel.DEBUG), is(true));
+
+        logBuffer.levels().disableLevelsBelow(LogLevel.WARNING);
+
+        final LogLevelSnapshot snapshot = LogRecordCollector.current().getLevelSnapshot();
+        assertThat(snapshot.getGeneration(), greaterThan(initialSnapshot.getGeneration()));
+        assertThat(snapshot.isEnabled(LogLevel.DEBUG), is(false));
+        assertThat(snapshot.isEnabled(LogLevel.WARNING), is(true));
+        assertThat(initialSnapshot.isEnabled(LogLevel.DEBUG), is(true));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldApplyLevelsOfLoggerPrefix() throws Exception {
+        final Logger codecLogger = new Slf4jLoggerAdapter("com.acme.codec.Decoder");
+        final Logger otherLogger = new Slf4jLoggerAdapter("com.acme.net.Channel");
+        logBuffer.levels().disableLevelsBelow(LogLevel.INFO);
+        otherLogger.debug("Ignored message");
+
+        logBuffer.levels("com.acme.codec").enable(LogLevel.TRACE, LogLevel.DEBUG);
+        codecLogger.trace("Codec trace");
+        otherLogger.trace("Other trace");
+        otherLogger.info("Other info");
+
+        assertThat(codecLogger.isTraceEnabled(), is(true));
+        assertThat(otherLogger.isDebugEnabled(), is(false));
+        final List<LogRecord> records = logBuffer.getRecords();
+        assertThat(records, hasSize(2));
+        assertThat(records.get(0).getMessage(), is("Codec trace"));
+        assertThat(records.get(1).getMessage(), is("Other info"));
+    }
+
+    private static void log(LogLevel level, String message) {
+        LogRecordCollector.current().add(new LogRecord(level, "test", message, null));
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class MemoryWorkFolderTest {
+
+    @Rule
+    public WorkFolder folder = WorkFolder.inMemory();
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCreateFolderInMemoryFileSystemIfAvailable() throws Exception {
+        final File memoryFolder = MemoryFolderLocator.getMemoryFolder();
+        if (null != memoryFolder) {
+            assertThat(folder.getRoot().getParentFile(), is(memoryFolder));
+        }
+        assertThat(folder.getRoot().isDirectory(), is(true));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldExposeFilesAsPaths() throws Exception {
+        // Given
+        final ExtendedWorkFolderInterface sub = folder.subfolder("a", "b");
+        // When
+        sub.newFile("data.txt", "memory");
+        // Then
+        final Path file = folder.asPath().resolve("a/b/data.txt");
+        assertThat(sub.asPath(), is(file.getParent()));
+        assertThat(new String(Files.readAllBytes(file), "UTF-8"), is("memory"));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldServeResourcesFromMemoryFolder() throws Exception {
+        // Given
+        folder.newFile("META-INF/memory.lst", "EMPTY");
+        // When
+        final ClassLoader loader = folder.getClassLoaderForResources();
+        // Then
+        try (InputStream resourceStream = loader.getResourceAsStream("META-INF/memory.lst")) {
+            assertThat(resourceStream, is(notNullValue()));
+        }
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldRejectUnusableConfiguredFolder() throws Exception {
+        final File missing = new File(folder.getRoot(), "missing");
+        assertThat(MemoryFolderLocator.findMemoryFolder(missing.getPath()), is(nullValue()));
+        assertThat(MemoryFolderLocator.findMemoryFolder(folder.getRoot().getPath()), is(folder.getRoot()));
+    }
+
+}
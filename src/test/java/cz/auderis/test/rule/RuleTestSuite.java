@@ -22,7 +22,13 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     BasicWorkFolderTest.class,
-    WorkSubFolderTest.class
+    WorkSubFolderTest.class,
+    WorkFolderCleanupTest.class,
+    FixtureCacheTest.class,
+    MemoryWorkFolderTest.class,
+    WorkFolderResourceIndexTest.class,
+    ContentProvidersTest.class,
+    LogBufferTest.class
 })
 public class RuleTestSuite {
 
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class WorkFolderCleanupTest {
+
+    @Rule
+    public WorkFolder parent = WorkFolder.basic();
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldCleanNestedTree() throws Exception {
+        final WorkFolder folder = WorkFolder.subfolderOf(parent.getRoot());
+        folder.create();
+        createTree(folder, 3, 4);
+
+        folder.clean();
+
+        assertThat(folder.getRoot().isDirectory(), is(true));
+        assertThat(folder.getRoot().list(), is(emptyArray()));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldDeleteFolderIncludingRoot() throws Exception {
+        final WorkFolder folder = WorkFolder.subfolderOf(parent.getRoot());
+        folder.create();
+        createTree(folder, 2, 3);
+
+        folder.delete();
+
+        assertThat(folder.getRoot().exists(), is(false));
+        assertThat(parent.getRoot().list(), is(emptyArray()));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldMoveFolderAwayWhenCleanupIsDeferred() throws Exception {
+        final WorkFolder folder = WorkFolder.subfolderOf(parent.getRoot()).withDeferredCleanup();
+        folder.create();
+        createTree(folder, 2, 3);
+
+        folder.delete();
+
+        assertThat(folder.getRoot().exists(), is(false));
+        for (int i = 0; (i < 500) && (0 != parent.getRoot().list().length); ++i) {
+            Thread.sleep(10L);
+        }
+        assertThat(parent.getRoot().list(), is(emptyArray()));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldDeleteStaleTrashWhenDeferredFolderIsCreated() throws Exception {
+        final File staleTrash = createTrash("junit1-1", "1@other-host", FolderCleaner.STALE_TRASH_AGE_MILLIS + 60000L);
+        final File unrelated = parent.newFolder("unrelated");
+
+        final WorkFolder folder = WorkFolder.subfolderOf(parent.getRoot()).withDeferredCleanup();
+        folder.create();
+
+        for (int i = 0; (i < 500) && staleTrash.exists(); ++i) {
+            Thread.sleep(10L);
+        }
+        assertThat(staleTrash.exists(), is(false));
+        assertThat(unrelated.isDirectory(), is(true));
+        assertThat(folder.getRoot().isDirectory(), is(true));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldKeepTrashThatIsNotProvablyAbandoned() throws Exception {
+        final File foreignTrash = parent.newFolder(".trash-junit1-1");
+        final File unmarkedTrash = parent.newFolder(FolderCleaner.TRASH_PREFIX + "junit2-1");
+        final File recentTrash = createTrash("junit3-1", "1@other-host", 0L);
+
+        final WorkFolder folder = WorkFolder.subfolderOf(parent.getRoot()).withDeferredCleanup();
+        folder.create();
+        Thread.sleep(200L);
+
+        assertThat(foreignTrash.isDirectory(), is(true));
+        assertThat(unmarkedTrash.isDirectory(), is(true));
+        assertThat(recentTrash.isDirectory(), is(true));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldNotFollowSymbolicLinks() throws Exception {
+        final File outside = parent.newFolder("outside");
+        parent.newFile("outside/keep.txt", "keep");
+        final WorkFolder folder = WorkFolder.subfolderOf(parent.getRoot());
+        folder.create();
+        try {
+            Files.createSymbolicLink(new File(folder.getRoot(), "link").toPath(), outside.toPath());
+        } catch (UnsupportedOperationException | IOException e) {
+            Assume.assumeNoException(e);
+        }
+
+        folder.clean();
+
+        assertThat(folder.getRoot().list(), is(emptyArray()));
+        assertThat(outside.list(), is(arrayWithSize(1)));
+    }
+
+    private File createTrash(String name, String owner, long ageMillis) throws IOException {
+        final String trashName = FolderCleaner.TRASH_PREFIX + name;
+        final File trash = parent.newFolder(trashName);
+        parent.newFile(trashName + "/left.txt", "left behind");
+        final File marker = parent.newFile(trashName + '/' + FolderCleaner.TRASH_OWNER_FILE, owner);
+        marker.setLastModified(System.currentTimeMillis() - ageMillis);
+        return trash;
+    }
+
+    private static void createTree(WorkFolderInterface folder, int depth, int width) throws Exception {
+        for (int i = 0; i < width; ++i) {
+            folder.newFile("file" + i + ".txt", "content " + i);
+        }
+        if (depth > 0) {
+            for (int i = 0; i < width; ++i) {
+                createTree(folder.subfolder("dir" + i), depth - 1, width);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.test.rule;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class WorkFolderResourceIndexTest {
+
+    @Rule
+    public WorkFolder folder = WorkFolder.basic().withResourceIndex();
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldFindFilesCreatedThroughWorkFolder() throws Exception {
+        // Given
+        final ClassLoader loader = folder.getClassLoaderForResources();
+        assertThat(loader.getResource("META-INF/a.lst"), is(nullValue()));
+        // When
+        folder.newFile("META-INF/a.lst", "A");
+        folder.subfolder("META-INF", "sub").newFile("b.lst", "B");
+        folder.newResourceCopy("fixtures", "fixtureDir");
+        // Then
+        assertThat(loader.getResource("META-INF/a.lst"), is(notNullValue()));
+        assertThat(loader.getResource("META-INF/sub/b.lst"), is(notNullValue()));
+        assertThat(loader.getResource("fixtures/nested/b.txt"), is(notNullValue()));
+        assertThat(loader.getResource("fixtures/nested"), is(nullValue()));
+        assertThat(Collections.list(loader.getResources("META-INF/a.lst")), hasSize(1));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldIndexExistingFilesOnFirstLookup() throws Exception {
+        // Given
+        final File external = new File(folder.getRoot(), "external.txt");
+        Files.write(external.toPath(), "x".getBytes(StandardCharsets.UTF_8));
+        // When
+        final URL resource = folder.getClassLoaderForResources().getResource("external.txt");
+        // Then
+        assertThat(resource, is(notNullValue()));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldSeeExternalFilesOnlyAfterRefresh() throws Exception {
+        // Given
+        final ClassLoader loader = folder.getClassLoaderForResources();
+        assertThat(loader.getResource("external.txt"), is(nullValue()));
+        Files.write(new File(folder.getRoot(), "external.txt").toPath(), "x".getBytes(StandardCharsets.UTF_8));
+        assertThat(loader.getResource("external.txt"), is(nullValue()));
+        // When
+        folder.refreshResourceIndex();
+        // Then
+        assertThat(loader.getResource("external.txt"), is(notNullValue()));
+    }
+
+    @Test
+    @Category(UnitTest.class)
+    public void shouldForgetCleanedFiles() throws Exception {
+        // Given
+        final WorkFolderInterface sub = folder.subfolder("sub");
+        sub.newFile("inner.txt", "inner");
+        folder.newFile("outer.txt", "outer");
+        final ClassLoader loader = folder.getClassLoaderForResources();
+        assertThat(loader.getResource("sub/inner.txt"), is(notNullValue()));
+        // When
+        sub.clean();
+        // Then
+        assertThat(loader.getResource("sub/inner.txt"), is(nullValue()));
+        assertThat(loader.getResource("outer.txt"), is(notNullValue()));
+        folder.clean();
+        assertThat(loader.getResource("outer.txt"), is(nullValue()));
+    }
+
+}
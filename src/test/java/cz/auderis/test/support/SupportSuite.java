@@ -15,12 +15,14 @@
  */
 package cz.auderis.test.support;
 
+import cz.auderis.test.support.convert.StringConvertersTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-        NaturalDescriptionJoinerTest.class
+        NaturalDescriptionJoinerTest.class,
+        StringConvertersTest.class
 })
 public class SupportSuite {
 
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cz.auderis.test.support.convert;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.test.temp.propedit.ValueClass1;
+import org.test.temp.propedit.ValueClass2;
+import org.test.temp.propedit.ValueClass2EditorThatIsNotAutodiscovered;
+
+import java.beans.PropertyEditorManager;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnitParamsRunner.class)
+public class StringConvertersTest {
+
+    @Test
+    @Parameters({
+            "0x10     | int                            | 16",
+            "0x10     | java.lang.Integer              | 16",
+            "010      | int                            | 8",
+            "010      | java.lang.Integer              | 10",
+            "08       | java.lang.Integer              | 8",
+            "-0x7F    | java.lang.Long                 | -127",
+            "-7       | long                           | -7",
+            "yes      | boolean                        | true",
+            "N        | java.lang.Boolean              | false",
+            "x        | char                           | x",
+            "2.5      | double                         | 2.5",
+            "1.50     | java.math.BigDecimal           | 1.50",
+            "12345678901234567890 | java.math.BigInteger | 12345678901234567890",
+            "SECONDS  | java.util.concurrent.TimeUnit  | SECONDS",
+            "a/b      | java.io.File                   | a/b",
+            "abc      | java.lang.String               | abc",
+    })
+    public void shouldConvertTextToSupportedTypes(String text, String typeName, String expectedText) throws Exception {
+        // Given
+        final Class<?> type = resolveType(typeName);
+
+        // When
+        final Object value = StringConverters.convert(text, type);
+
+        // Then
+        assertThat(String.valueOf(value).replace(File.separatorChar, '/'), is(expectedText));
+    }
+
+    @Test
+    @Parameters({
+            "int",
+            "java.lang.Integer",
+            "java.math.BigDecimal",
+            "java.util.concurrent.TimeUnit",
+    })
+    public void shouldCacheConverterPerType(String typeName) throws Exception {
+        final Class<?> type = resolveType(typeName);
+        final StringConverter<?> converter = StringConverters.find(type);
+        assertThat(converter, is(notNullValue()));
+        assertThat(StringConverters.find(type), is(sameInstance((Object) converter)));
+    }
+
+    @Test
+    public void shouldConvertNullToNull() throws Exception {
+        assertThat(StringConverters.convert(null, Integer.class), is(nullValue()));
+        assertThat(StringConverters.convert(null, ValueClass1.class), is(nullValue()));
+    }
+
+    @Test
+    public void shouldUsePropertyEditorForTypesWithoutFactory() throws Exception {
+        final ValueClass1 value = StringConverters.convert("4-four", ValueClass1.class);
+        assertThat(value.getNumValue(), is(4));
+        assertThat(value.getTextValue(), is("four"));
+    }
+
+    @Test
+    public void shouldPreferRegisteredConverter() throws Exception {
+        final StringConverter<ValueClass1> custom = new StringConverter<ValueClass1>() {
+            @Override
+            public ValueClass1 convert(String text) {
+                final ValueClass1 result = new ValueClass1();
+                result.setTextValue("custom:" + text);
+                return result;
+            }
+        };
+        StringConverters.register(ValueClass1.class, custom);
+        try {
+            assertThat(StringConverters.find(ValueClass1.class), is(sameInstance((Object) custom)));
+            assertThat(StringConverters.convert("1-x", ValueClass1.class).getTextValue(), is("custom:1-x"));
+        } finally {
+            StringConverters.unregister(ValueClass1.class);
+        }
+        assertThat(StringConverters.convert("1-x", ValueClass1.class).getTextValue(), is("x"));
+    }
+
+    @Test
+    public void shouldReportUnsupportedType() throws Exception {
+        assertThat(StringConverters.find(Runnable.class), is(nullValue()));
+        try {
+            StringConverters.forType(Runnable.class);
+            fail("Unsupported type expected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("No string converter available for " + Runnable.class));
+        }
+    }
+
+    @Test
+    public void shouldReportUnsupportedTypeUntilConverterIsRegistered() throws Exception {
+        assertThat(StringConverters.find(Runnable.class), is(nullValue()));
+        assertThat(StringConverters.find(Runnable.class), is(nullValue()));
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                // Nothing to do
+            }
+        };
+        StringConverters.register(Runnable.class, new StringConverter<Runnable>() {
+            @Override
+            public Runnable convert(String text) {
+                return task;
+            }
+        });
+        try {
+            assertThat(StringConverters.convert("task", Runnable.class), is(sameInstance(task)));
+        } finally {
+            StringConverters.unregister(Runnable.class);
+        }
+        assertThat(StringConverters.find(Runnable.class), is(nullValue()));
+    }
+
+    @Test
+    public void shouldFindPropertyEditorRegisteredAfterFailedLookup() throws Exception {
+        assertThat(StringConverters.find(ValueClass2.class), is(nullValue()));
+        PropertyEditorManager.registerEditor(ValueClass2.class, ValueClass2EditorThatIsNotAutodiscovered.class);
+        try {
+            final ValueClass2 value = StringConverters.convert("6-late", ValueClass2.class);
+            assertThat(value.getNumValue(), is(6));
+        } finally {
+            PropertyEditorManager.registerEditor(ValueClass2.class, null);
+        }
+        assertThat(StringConverters.find(ValueClass2.class), is(nullValue()));
+    }
+
+    @Test
+    public void shouldRejectInvalidText() throws Exception {
+        try {
+            StringConverters.convert("maybe", boolean.class);
+            fail("Invalid boolean expected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("Bad boolean value: maybe"));
+        }
+        try {
+            StringConverters.convert("xyz", Long.class);
+            fail("Invalid number expected");
+        } catch (Exception e) {
+            assertThat(e, is(instanceOf(NumberFormatException.class)));
+        }
+    }
+
+    @Test
+    public void shouldShareEditorBackedConverterBetweenThreads() throws Exception {
+        // Given
+        final StringConverter<ValueClass1> converter = StringConverters.forType(ValueClass1.class);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<Boolean>> results = new ArrayList<>();
+
+        // When
+        try {
+            for (int t = 0; t < 8; ++t) {
+                final int threadNumber = t;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        boolean allMatched = true;
+                        for (int i = 0; i < 2000; ++i) {
+                            final int number = threadNumber * 10000 + i;
+                            final ValueClass1 value = converter.convert(number + "-t" + number);
+                            allMatched &= (value.getNumValue() == number) && ("t" + number).equals(value.getTextValue());
+                        }
+                        return allMatched;
+                    }
+                }));
+            }
+            // Then
+            for (final Future<Boolean> result : results) {
+                assertThat(result.get(), is(true));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Class<?> resolveType(String typeName) throws ClassNotFoundException {
+        switch (typeName) {
+            case "int":
+                return int.class;
+            case "long":
+                return long.class;
+            case "boolean":
+                return boolean.class;
+            case "char":
+                return char.class;
+            case "double":
+                return double.class;
+            default:
+                return Class.forName(typeName);
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.test.temp.log;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class JulStaticTester {
+
+    private static final Logger LOG = Logger.getLogger(JulStaticTester.class.getName());
+
+    public void doWork() {
+        LOG.finest("JUL : Work 1");
+        LOG.log(Level.FINE, "JUL : Work {0}", 2);
+        LOG.log(Level.INFO, "JUL : Work {0}", 3);
+        LOG.log(Level.WARNING, "JUL : Work {0} of {1}", new Object[] { 4, 6 });
+        LOG.log(Level.SEVERE, "JUL : Work 5", new IllegalStateException());
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.test.temp.log;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class Log4j2StaticTester {
+
+    private static final Logger LOG = LogManager.getLogger(Log4j2StaticTester.class);
+
+    public void doWork() {
+        LOG.trace("LOG4J2 : Work 1");
+        LOG.debug("LOG4J2 : Work {}", 2);
+        LOG.info("LOG4J2 : Work {}", 3);
+        LOG.warn("LOG4J2 : Work {} of {}", 4, 6);
+        LOG.error("LOG4J2 : Work 5", new IllegalStateException());
+        LOG.fatal("LOG4J2 : Work 6");
+    }
+
+}